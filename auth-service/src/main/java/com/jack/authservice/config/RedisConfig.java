@@ -2,6 +2,8 @@ package com.jack.authservice.config;
 
 import com.jack.authservice.dto.AuthDto;
 import com.jack.common.config.RedisCommonConfig;
+import com.jack.common.config.JwtIssuerConfig;
+import com.jack.common.config.JwtValidationConfig;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,7 +14,7 @@ import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSeriali
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
-@Import(RedisCommonConfig.class)
+@Import({RedisCommonConfig.class, JwtValidationConfig.class, JwtIssuerConfig.class})
 @Log4j2
 public class RedisConfig {
 
@@ -2,6 +2,7 @@ package com.jack.authservice.controller;
 
 import com.jack.authservice.service.AuthService;
 import com.jack.authservice.service.TokenService;
+import com.jack.common.config.JwtProperties;
 import com.jack.common.constants.SecurityConstants;
 import com.jack.common.dto.request.AuthRequestDto;
 import com.jack.common.dto.response.AuthResponseDto;
@@ -18,6 +19,7 @@ import org.springframework.web.bind.annotation.*;
 public class AuthController {
     private final AuthService authService;
     private final TokenService tokenService;
+    private final JwtProperties jwtProperties;
 
     @PostMapping("/login")
     public ResponseEntity<AuthResponseDto> login(@RequestBody AuthRequestDto authRequestDTO) {
@@ -77,6 +79,18 @@ public class AuthController {
         }
     }
 
+    // Base64 X.509 RSA key that other services configure as app.jwt.public-key; 404 while tokens are HMAC-signed
+    @GetMapping("/public-key")
+    public ResponseEntity<String> getPublicKey() {
+        String publicKey = jwtProperties.getPublicKey();
+
+        if (publicKey == null || publicKey.isBlank()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        return ResponseEntity.ok(publicKey);
+    }
+
     private String extractToken(@RequestParam String token) {
         if (token != null && token.startsWith(SecurityConstants.BEARER_PREFIX)) {
             return token.substring(SecurityConstants.PREFIX_INDEX);
@@ -1,6 +1,7 @@
 package com.jack.authservice.security;
 
 import com.jack.common.constants.SecurityConstants;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
@@ -33,18 +34,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         if (StringUtils.hasText(token)) {
             try {
-                if (jwtTokenProvider.validateToken(token)) {
-                    Authentication authentication = jwtTokenProvider.getAuthentication(token);
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
-                    log.debug("Successfully authenticated request for user: {}", authentication.getName());
-                } else {
-                    log.warn("JWT token is invalid or expired");
-                    response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid or expired token");
-                    return;
-                }
+                // One verification per request; the claims travel with the request so nothing downstream re-parses
+                Claims claims = jwtTokenProvider.getClaimsFromToken(token);
+                request.setAttribute(JwtTokenProvider.CLAIMS_ATTRIBUTE, claims);
+                Authentication authentication = jwtTokenProvider.getAuthentication(claims);
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+                log.debug("Successfully authenticated request for user: {}", authentication.getName());
             } catch (JwtException | IllegalArgumentException ex) {
-                log.error("JWT authentication failed: {}", ex.getMessage());
-                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Authentication failed");
+                log.warn("JWT token is invalid or expired: {}", ex.getMessage());
+                response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid or expired token");
                 return;
             }
         } else {
@@ -2,24 +2,24 @@ package com.jack.authservice.service.impl;
 
 import com.jack.authservice.security.JwtTokenProvider;
 import com.jack.authservice.service.TokenService;
-import com.jack.common.constants.SecurityConstants;
+import com.jack.common.security.TokenBlacklist;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import lombok.NonNull;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.Date;
-import java.util.concurrent.TimeUnit;
 
 @Service
 @Log4j2
 public class TokenServiceImpl implements TokenService {
-    private final RedisTemplate<String, String> redisTemplate;
+    private final TokenBlacklist tokenBlacklist;
     private final JwtTokenProvider jwtTokenProvider;
 
-    public TokenServiceImpl(RedisTemplate<String, String> redisTemplate, JwtTokenProvider jwtTokenProvider) {
-        this.redisTemplate = redisTemplate;
+    public TokenServiceImpl(TokenBlacklist tokenBlacklist, JwtTokenProvider jwtTokenProvider) {
+        this.tokenBlacklist = tokenBlacklist;
         this.jwtTokenProvider = jwtTokenProvider;
     }
 
@@ -30,38 +30,45 @@ public class TokenServiceImpl implements TokenService {
             throw new IllegalArgumentException("Token is invalid or empty.");
         }
 
-        Boolean isTokenBlacklisted = redisTemplate.hasKey(SecurityConstants.BLACKLIST_PREFIX + token);
-
-        if (Boolean.TRUE.equals(isTokenBlacklisted)) {
-            log.info("Token is already blacklisted: {}", token);
+        if (tokenBlacklist.isBlacklisted(token)) {
+            log.info("Token is already blacklisted");
             return;  // Exit early if token is already blacklisted
         }
 
         long tokenExpiryDuration = calculateTokenExpiryDuration(token);
-        redisTemplate.opsForValue().set(SecurityConstants.BLACKLIST_PREFIX + token, token);
-        redisTemplate.expire(SecurityConstants.BLACKLIST_PREFIX + token, tokenExpiryDuration, TimeUnit.SECONDS);
+
+        if (tokenExpiryDuration <= 0) {
+            log.info("Token has already expired, nothing to blacklist");
+            return;
+        }
+
+        tokenBlacklist.blacklist(token, Duration.ofSeconds(tokenExpiryDuration));
         log.info("Token added to blacklist with TTL: {} seconds", tokenExpiryDuration);
     }
 
+    // Answered by the local Bloom filter for almost every token; Redis is only consulted on a filter hit
     @Override
     public boolean isTokenBlacklisted(String token) {
-        return Boolean.TRUE.equals(redisTemplate.hasKey(SecurityConstants.BLACKLIST_PREFIX + token));
+        return tokenBlacklist.isBlacklisted(token);
     }
 
     @Override
     public boolean validateToken(String token, Long userId) {
         if (isTokenBlacklisted(token)) {
-            log.warn("Token is blacklisted: {}", token);
+            log.warn("Token is blacklisted");
             return false;
         }
 
-        if (!jwtTokenProvider.validateToken(token)) {
+        String tokenSubject;
+
+        try {
+            // Single (cached) verification; the subject comes from the same claims
+            tokenSubject = jwtTokenProvider.getClaimsFromToken(token).getSubject();
+        } catch (JwtException | IllegalArgumentException e) {
             log.error("Invalid JWT token");
             return false;
         }
 
-        String tokenSubject = jwtTokenProvider.getEmailFromToken(token);
-
         if (tokenSubject == null) {
             log.error("Failed to extract subject from token");
             return false;
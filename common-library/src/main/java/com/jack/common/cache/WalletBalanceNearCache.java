@@ -0,0 +1,108 @@
+package com.jack.common.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jack.common.config.NearCacheProperties;
+import com.jack.common.constants.WalletConstants;
+import com.jack.common.dto.response.WalletResponseDto;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-heap L1 in front of the wallet: Redis keys; writers announce changes so every other instance evicts its copy
+@Log4j2
+public class WalletBalanceNearCache {
+    private final Cache<Long, WalletResponseDto> cache;
+    // Stamp of each user's latest invalidation; kept as long as a cached balance could live
+    private final Cache<Long, Long> invalidatedAt;
+    private final AtomicLong clock = new AtomicLong();
+    private final StringRedisTemplate redisTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public WalletBalanceNearCache(NearCacheProperties properties, StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        this.invalidatedAt = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .build();
+    }
+
+    public WalletResponseDto get(Long userId) {
+        return cache.getIfPresent(userId);
+    }
+
+    // Take before reading Redis or wallet-service, and hand the result to put(balance, stamp)
+    public long stamp() {
+        return clock.get();
+    }
+
+    // Remember a balance read after the given stamp, unless it was invalidated while the read was in flight
+    public void put(WalletResponseDto balance, long stamp) {
+        Long userId = balance.getUserId();
+
+        if (invalidatedSince(userId, stamp)) {
+            return;
+        }
+
+        cache.put(userId, balance);
+
+        // An invalidation that landed between the check and the put must still win
+        if (invalidatedSince(userId, stamp)) {
+            cache.invalidate(userId);
+        }
+    }
+
+    // Called once the new balance is committed; evict it here and on every other instance so the next read reloads it
+    public void publishUpdate(WalletResponseDto balance) {
+        invalidate(balance.getUserId());
+
+        try {
+            redisTemplate.convertAndSend(WalletConstants.WALLET_BALANCE_INVALIDATION_CHANNEL,
+                    nodeId + ":" + balance.getUserId());
+        } catch (Exception e) {
+            log.warn("Failed to publish near-cache invalidation for user ID {}: {}", balance.getUserId(), e.getMessage());
+        }
+    }
+
+    // Invalidation messages are "<nodeId>:<userId>"; our own announcements are ignored
+    public void onInvalidation(String message) {
+        int separator = message.lastIndexOf(':');
+
+        if (separator <= 0 || message.startsWith(nodeId + ":")) {
+            return;
+        }
+
+        try {
+            invalidate(Long.valueOf(message.substring(separator + 1)));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed near-cache invalidation: {}", message);
+        }
+    }
+
+    // Evict this instance's copy only, for changes learned from another channel than the invalidation topic
+    public void evict(Long userId) {
+        invalidate(userId);
+    }
+
+    // Record the invalidation before evicting, so a read racing it cannot put its older value back
+    private void invalidate(Long userId) {
+        invalidatedAt.put(userId, clock.incrementAndGet());
+        cache.invalidate(userId);
+    }
+
+    private boolean invalidatedSince(Long userId, long stamp) {
+        Long invalidated = invalidatedAt.getIfPresent(userId);
+        return invalidated != null && invalidated > stamp;
+    }
+
+    public Cache<Long, WalletResponseDto> getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,22 @@
+package com.jack.common.config;
+
+import com.jack.common.security.JwtTokenIssuer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Imported only by services that mint tokens; everything else just validates with JwtValidationConfig
+@Configuration
+@EnableConfigurationProperties(JwtProperties.class)
+@Log4j2
+public class JwtIssuerConfig {
+
+    @Bean
+    public JwtTokenIssuer jwtTokenIssuer(JwtProperties properties) {
+        JwtTokenIssuer issuer = new JwtTokenIssuer(properties);
+        boolean rsa = properties.getPrivateKey() != null && !properties.getPrivateKey().isBlank();
+        log.info("Configured JWT issuing: key={}", rsa ? "RSA private key" : "shared HMAC secret");
+        return issuer;
+    }
+}
@@ -0,0 +1,23 @@
+package com.jack.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.jwt")
+@Data
+public class JwtProperties {
+    // Base64 X.509 RSA public key; when set tokens must be RS256-signed by auth-service, otherwise the shared HMAC key is used
+    private String publicKey;
+
+    // Base64 PKCS#8 RSA private key, only for services that issue tokens (auth-service, user-service). Required there
+    // whenever public-key is set, and must be its pair; validation-only services leave it empty
+    private String privateKey;
+
+    private ClaimsCache claimsCache = new ClaimsCache();
+
+    @Data
+    public static class ClaimsCache {
+        // Verified tokens remembered at once; each entry lives until its token's exp
+        private long maximumSize = 10_000;
+    }
+}
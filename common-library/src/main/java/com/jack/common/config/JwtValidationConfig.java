@@ -0,0 +1,24 @@
+package com.jack.common.config;
+
+import com.jack.common.security.JwtTokenValidator;
+import com.jack.common.security.TokenBlacklist;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+@Configuration
+@EnableConfigurationProperties(JwtProperties.class)
+@Import(TokenBlacklistConfig.class)
+@Log4j2
+public class JwtValidationConfig {
+
+    @Bean
+    public JwtTokenValidator jwtTokenValidator(JwtProperties properties, TokenBlacklist tokenBlacklist) {
+        boolean rsa = properties.getPublicKey() != null && !properties.getPublicKey().isBlank();
+        log.info("Configured local JWT validation: key={}, claimsCacheSize={}",
+                rsa ? "RSA public key" : "shared HMAC secret", properties.getClaimsCache().getMaximumSize());
+        return new JwtTokenValidator(properties, tokenBlacklist);
+    }
+}
@@ -0,0 +1,16 @@
+package com.jack.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.near-cache.wallet-balance")
+@Data
+public class NearCacheProperties {
+    // Maximum number of balances held per instance
+    private long maximumSize = 10_000;
+
+    // Upper bound on staleness should an invalidation message be lost
+    private Duration ttl = Duration.ofSeconds(30);
+}
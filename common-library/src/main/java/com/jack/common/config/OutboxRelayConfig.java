@@ -0,0 +1,71 @@
+package com.jack.common.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.common.outbox.JdbcOutboxStore;
+import com.jack.common.outbox.OutboxBatchProcessor;
+import com.jack.common.outbox.OutboxNotificationListener;
+import com.jack.common.outbox.OutboxPublisher;
+import com.jack.common.outbox.OutboxRelay;
+import com.jack.common.outbox.OutboxStore;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.amqp.RabbitTemplateConfigurer;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Transactional outbox relay shared by every service that writes an outbox table; import it next to a @Primary RabbitTemplate
+@Configuration
+@EnableConfigurationProperties(OutboxRelayProperties.class)
+@Log4j2
+public class OutboxRelayConfig {
+
+    // The relay's own template: mandatory publishes and the returns callback stay out of every other publisher
+    @Bean
+    public RabbitTemplate outboxRabbitTemplate(RabbitTemplateConfigurer configurer, ConnectionFactory connectionFactory) {
+        RabbitTemplate template = new RabbitTemplate();
+        configurer.configure(template, connectionFactory);
+        template.setMandatory(true);
+        template.setReturnsCallback(returned -> log.warn(
+                "Outbox message returned by broker: exchange={}, routingKey={}, replyCode={}, replyText={}",
+                returned.getExchange(), returned.getRoutingKey(), returned.getReplyCode(), returned.getReplyText()));
+        return template;
+    }
+
+    @Bean
+    public OutboxStore outboxStore(NamedParameterJdbcTemplate namedParameterJdbcTemplate, OutboxRelayProperties properties) {
+        return new JdbcOutboxStore(namedParameterJdbcTemplate, properties.getSequenceColumn());
+    }
+
+    @Bean
+    public OutboxPublisher outboxPublisher(@Qualifier("outboxRabbitTemplate") RabbitTemplate outboxRabbitTemplate,
+                                           ObjectMapper objectMapper, OutboxRelayProperties properties) {
+        return new OutboxPublisher(outboxRabbitTemplate, objectMapper, properties);
+    }
+
+    @Bean
+    public OutboxBatchProcessor outboxBatchProcessor(OutboxStore outboxStore, OutboxPublisher outboxPublisher,
+                                                     OutboxRelayProperties properties,
+                                                     PlatformTransactionManager transactionManager) {
+        return new OutboxBatchProcessor(outboxStore, outboxPublisher, properties, new TransactionTemplate(transactionManager));
+    }
+
+    @Bean
+    public OutboxRelay outboxRelay(OutboxBatchProcessor outboxBatchProcessor, OutboxRelayProperties properties) {
+        log.info("Configured outbox relay: shardCount={}, concurrency={}, batchSize={}, maxAttempts={}",
+                properties.getShardCount(), properties.getConcurrency(), properties.getBatchSize(), properties.getMaxAttempts());
+        return new OutboxRelay(outboxBatchProcessor, properties);
+    }
+
+    @Bean
+    public OutboxNotificationListener outboxNotificationListener(OutboxRelay outboxRelay, OutboxRelayProperties properties,
+                                                                 DataSourceProperties dataSourceProperties) {
+        return new OutboxNotificationListener(outboxRelay, properties, dataSourceProperties);
+    }
+}
@@ -0,0 +1,39 @@
+package com.jack.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "app.outbox")
+@Data
+public class OutboxRelayProperties {
+    // Maximum number of rows claimed (and locked) per relay transaction
+    private int batchSize = 500;
+
+    // Number of relay workers draining shards in parallel on this instance
+    private int concurrency = Runtime.getRuntime().availableProcessors();
+
+    // Number of aggregate shards; every relay in the cluster must use the same value
+    private int shardCount = 32;
+
+    // Maximum number of published messages awaiting a broker confirm
+    private int publishWindow = 256;
+
+    // How long a round waits for its outstanding confirms before counting the rows as failed
+    private long confirmTimeoutMs = 5000;
+
+    // How long claimed rows stay leased to one relay; no new confirm round starts once less than confirmTimeoutMs of it
+    // remains, so the lease never runs out mid-publish. Must be at least twice confirmTimeoutMs.
+    private long leaseMs = 60000;
+
+    // Failed publishes after which a row is dead-lettered as FAILED instead of blocking its aggregate
+    private int maxAttempts = 10;
+
+    // Column that orders events within an aggregate; tables without a sequence column use the identity
+    private String sequenceColumn = "sequence_number";
+
+    // PostgreSQL channel used to wake relays on other replicas when a row is inserted
+    private String notifyChannel = "outbox_pending";
+
+    // Whether this instance keeps a LISTEN connection open for cross-replica wakeups
+    private boolean listenEnabled = true;
+}
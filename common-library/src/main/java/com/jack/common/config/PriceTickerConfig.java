@@ -0,0 +1,36 @@
+package com.jack.common.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.common.constants.ApplicationConstants;
+import com.jack.common.price.PriceTicker;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+@Configuration
+@EnableConfigurationProperties(PriceTickerProperties.class)
+public class PriceTickerConfig {
+
+    @Bean
+    public PriceTicker priceTicker(PriceTickerProperties properties, StringRedisTemplate stringRedisTemplate,
+                                   ObjectMapper objectMapper) {
+        return new PriceTicker(properties, stringRedisTemplate, objectMapper);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer priceTickerListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                      PriceTicker priceTicker) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener((message, pattern) ->
+                        priceTicker.onTick(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(ApplicationConstants.BTC_PRICE_CHANNEL));
+        return container;
+    }
+}
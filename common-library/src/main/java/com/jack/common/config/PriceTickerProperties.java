@@ -0,0 +1,17 @@
+package com.jack.common.config;
+
+import com.jack.common.constants.ApplicationConstants;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.price-ticker")
+@Data
+public class PriceTickerProperties {
+    // A pushed tick older than this is treated as stale and re-read from Redis (two missed ticks by default)
+    private Duration maxAge = Duration.ofSeconds(10);
+
+    // Redis key price-service writes the latest price to; must match its app.redis.btc-price-key
+    private String btcPriceKey = ApplicationConstants.BTC_PRICE_KEY;
+}
@@ -0,0 +1,38 @@
+package com.jack.common.config;
+
+import com.jack.common.constants.SecurityConstants;
+import com.jack.common.security.TokenBlacklist;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+@Configuration
+@EnableConfigurationProperties(TokenBlacklistProperties.class)
+@Log4j2
+public class TokenBlacklistConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    public TokenBlacklist tokenBlacklist(TokenBlacklistProperties properties, StringRedisTemplate stringRedisTemplate) {
+        log.info("Configured token blacklist filter: expectedInsertions={}, falsePositiveRate={}, rebuildInterval={}",
+                properties.getExpectedInsertions(), properties.getFalsePositiveRate(), properties.getRebuildInterval());
+        return new TokenBlacklist(properties, stringRedisTemplate);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer tokenBlacklistListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                         TokenBlacklist tokenBlacklist) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener((message, pattern) ->
+                        tokenBlacklist.onBlacklisted(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(SecurityConstants.BLACKLIST_CHANNEL));
+        return container;
+    }
+}
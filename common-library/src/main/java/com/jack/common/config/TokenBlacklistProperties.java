@@ -0,0 +1,19 @@
+package com.jack.common.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@ConfigurationProperties(prefix = "app.token-blacklist")
+@Data
+public class TokenBlacklistProperties {
+    // Sizing of the local Bloom filter; it is rebuilt larger when Redis holds more entries
+    private long expectedInsertions = 100_000;
+
+    // Share of non-blacklisted tokens that still need a Redis lookup
+    private double falsePositiveRate = 0.001;
+
+    // How often the filter is rebuilt from Redis, dropping expired entries and repairing missed pub/sub messages
+    private Duration rebuildInterval = Duration.ofMinutes(5);
+}
@@ -0,0 +1,45 @@
+package com.jack.common.config;
+
+import com.jack.common.cache.WalletBalanceNearCache;
+import com.jack.common.constants.WalletConstants;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+@Configuration
+@EnableConfigurationProperties(NearCacheProperties.class)
+@Log4j2
+public class WalletNearCacheConfig {
+
+    @Bean
+    public WalletBalanceNearCache walletBalanceNearCache(NearCacheProperties properties, StringRedisTemplate stringRedisTemplate,
+                                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        WalletBalanceNearCache nearCache = new WalletBalanceNearCache(properties, stringRedisTemplate);
+
+        // Exposes cache.gets (hit/miss), cache.evictions and cache.size under /actuator/metrics
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, nearCache.getCache(), "walletBalanceNearCache"));
+        log.info("Configured wallet balance near-cache: maximumSize={}, ttl={}", properties.getMaximumSize(), properties.getTtl());
+        return nearCache;
+    }
+
+    @Bean
+    public RedisMessageListenerContainer walletNearCacheListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                          WalletBalanceNearCache walletBalanceNearCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener((message, pattern) ->
+                        walletBalanceNearCache.onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(WalletConstants.WALLET_BALANCE_INVALIDATION_CHANNEL));
+        return container;
+    }
+}
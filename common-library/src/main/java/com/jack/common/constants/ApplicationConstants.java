@@ -7,6 +7,9 @@ public final class ApplicationConstants {
     public static final int DEFAULT_PAGE_SIZE = 20;
     public static final String BTC_PRICE_KEY = "BTC_CURRENT_PRICE";
 
+    // Redis pub/sub channel carrying every new BTC price tick
+    public static final String BTC_PRICE_CHANNEL = "btc:price:tick";
+
     private ApplicationConstants() {
         throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
     }
@@ -22,6 +22,7 @@ public enum ErrorCode {
     // --- Authentication and Authorization Errors ---
     AUTHENTICATION_FAILED(20021, "Unauthorized request. Please try again.", HttpStatus.BAD_REQUEST),
     NO_VALID_TOKEN(20022, "No valid token found.", HttpStatus.UNAUTHORIZED),
+    AUTHENTICATION_BUSY(20023, "Too many sign-in attempts in progress. Please retry shortly.", HttpStatus.SERVICE_UNAVAILABLE),
 
     // --- Service Errors ---
     LOGOUT_SERVICE_ERROR(20031, "Auth service error during logout.", HttpStatus.INTERNAL_SERVER_ERROR),
@@ -30,6 +31,8 @@ public enum ErrorCode {
     TRANSACTION_NOT_FOUND(20041, "Transaction not found.", HttpStatus.NOT_FOUND),
     TRANSACTION_ALREADY_COMPLETED(20042, "Transaction has already been completed.", HttpStatus.BAD_REQUEST),
     TRANSACTION_FAILED(20043, "Transaction failed to process.", HttpStatus.INTERNAL_SERVER_ERROR),
+    TRANSACTION_IN_PROGRESS(20044, "A request with this Idempotency-Key is still being processed.", HttpStatus.CONFLICT),
+    IDEMPOTENCY_KEY_REUSED(20045, "Idempotency-Key was already used for a different request.", HttpStatus.UNPROCESSABLE_ENTITY),
 
     // --- Payment-related Errors ---
     PAYMENT_METHOD_INVALID(20051, "Invalid payment method.", HttpStatus.BAD_REQUEST),
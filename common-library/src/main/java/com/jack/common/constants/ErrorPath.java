@@ -21,6 +21,7 @@ public enum ErrorPath {
     POST_LOGOUT_API(10009, "POST /api/users/logout", HttpStatus.INTERNAL_SERVER_ERROR),
     GET_WALLET_BALANCE_API(10010, "GET /api/wallet/{userId}/balance", HttpStatus.BAD_REQUEST),
     GET_USER_BALANCE_API(10011, "GET /api/users/{userId}/balance", HttpStatus.BAD_REQUEST),
+    POST_USERS_BALANCES_API(10037, "POST /api/users/balances", HttpStatus.BAD_REQUEST),
 
     // --- Transaction-related APIs ---
     POST_TRANSACTION_API(10011, "POST /api/transactions", HttpStatus.BAD_REQUEST),
@@ -72,8 +73,9 @@ public enum ErrorPath {
     private final String path;
     private final HttpStatus status;
 
+    // Some codes are shared (e.g. 10011, 10032); the first constant declared wins instead of failing class initialisation
     private static final Map<Integer, ErrorPath> CODE_MAP = Stream.of(values())
-            .collect(Collectors.toMap(ErrorPath::getCode, e -> e));
+            .collect(Collectors.toMap(ErrorPath::getCode, e -> e, (first, duplicate) -> first));
 
     ErrorPath(int code, String path, HttpStatus status) {
         this.code = code;
@@ -17,6 +17,7 @@ public final class SecurityConstants {
     public static final String BEARER_PREFIX = "Bearer ";
     public static final int PREFIX_INDEX = SecurityConstants.BEARER_PREFIX.length();
     public static final String BLACKLIST_PREFIX = "blacklist:";
+    public static final String BLACKLIST_CHANNEL = "auth:blacklist:add";
 
     // JWT Expiration Time (1 hour in milliseconds)
     public static final long JWT_EXPIRATION_MS = TimeUnit.HOURS.toMillis(1);
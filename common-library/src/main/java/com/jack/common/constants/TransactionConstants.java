@@ -9,6 +9,10 @@ public final class TransactionConstants {
     public static final String TRANSACTION_CACHE_PREFIX = "transaction:";
     public static final long TRANSACTION_CACHE_TTL = 10;
 
+    public static final String IDEMPOTENCY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENCY_KEY_PREFIX = "transaction:idempotency:";
+    public static final int IDEMPOTENCY_KEY_MAX_LENGTH = 255;
+
     public static final String TRANSACTION_CREATE_QUEUE = "transaction.create.queue";
     public static final String TRANSACTION_UPDATE_QUEUE = "transaction.update.queue";
     public static final String TRANSACTION_BALANCE_QUEUE = "transaction.balance.queue";
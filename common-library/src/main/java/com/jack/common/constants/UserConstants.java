@@ -7,6 +7,7 @@ public final class UserConstants {
 
     // Redis settings
     public static final String USER_CACHE_PREFIX = "user:";
+    public static final String CREDENTIAL_INVALIDATION_CHANNEL = "user:credentials:invalidate";
 
     // User message queues
     public static final String USER_CREATE_QUEUE = "user.create.queue";
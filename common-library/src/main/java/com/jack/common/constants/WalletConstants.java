@@ -9,6 +9,9 @@ public final class WalletConstants {
     // Redis settings
     public static final String WALLET_CACHE_PREFIX = "wallet:";
 
+    // Redis pub/sub channel announcing that a cached wallet balance changed
+    public static final String WALLET_BALANCE_INVALIDATION_CHANNEL = "wallet:balance:invalidate";
+
     // Reply-to queue
     public static final String WALLET_REPLY_TO_QUEUE = "user-service.response.queue";
 
@@ -16,6 +19,7 @@ public final class WalletConstants {
     public static final String WALLET_CREATE_QUEUE = "wallet.create.queue";
     public static final String WALLET_UPDATE_QUEUE = "wallet.update.queue";
     public static final String WALLET_BALANCE_QUEUE = "wallet.balance.queue";
+    public static final String WALLET_UPDATE_RESULT_QUEUE = "wallet.update.result.queue";
 
     // Wallet message exchange
     public static final String WALLET_EXCHANGE = "wallet-exchange";
@@ -24,6 +28,7 @@ public final class WalletConstants {
     public static final String WALLET_CREATE_ROUTING_KEY = "wallet.create.routing.key";
     public static final String WALLET_UPDATE_ROUTING_KEY = "wallet.update.routing.key";
     public static final String WALLET_BALANCE_ROUTING_KEY = "wallet.balance.routing.key";
+    public static final String WALLET_UPDATE_RESULT_ROUTING_KEY = "wallet.update.result.routing.key";
 
     public static final String WALLET_CREATE = "WALLET_CREATE";
     public static final String WALLET_UPDATE = "WALLET_UPDATE";
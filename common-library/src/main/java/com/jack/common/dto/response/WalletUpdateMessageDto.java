@@ -19,4 +19,6 @@ public class WalletUpdateMessageDto implements Serializable {
     private Long userId;
     private BigDecimal usdAmount;
     private BigDecimal btcAmount;
+    // Producer's outbox event id, echoed in the WalletUpdateResultDto; null when the producer wants no result
+    private String eventId;
 }
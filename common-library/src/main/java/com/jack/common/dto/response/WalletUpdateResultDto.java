@@ -0,0 +1,23 @@
+package com.jack.common.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+// Outcome of one WalletUpdateMessageDto, sent once the wallet has committed or refused it
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletUpdateResultDto implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private String eventId;
+    private Long userId;
+    private boolean applied;
+    private String reason;
+}
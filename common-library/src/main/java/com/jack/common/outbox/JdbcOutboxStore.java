@@ -0,0 +1,97 @@
+package com.jack.common.outbox;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+// Works against the outbox table every service shares the layout of (see each service's SQL/schema.sql)
+public class JdbcOutboxStore implements OutboxStore {
+    // Rows of an aggregate with a live lease elsewhere are skipped, so a later event never overtakes one still in flight
+    private static final String CLAIM_SQL = "WITH claimed AS (SELECT o.id FROM outbox o WHERE o.status = 'PENDING' " +
+            "AND o.id > :afterId AND (o.leased_until IS NULL OR o.leased_until < now()) " +
+            "AND abs(hashtext(o.aggregate_id)::bigint) %% :shardCount = :shard " +
+            "AND NOT EXISTS (SELECT 1 FROM outbox l WHERE l.status = 'PENDING' AND l.leased_until >= now() " +
+            "AND l.aggregate_type = o.aggregate_type AND l.aggregate_id = o.aggregate_id) " +
+            "ORDER BY o.id LIMIT :batchSize FOR UPDATE SKIP LOCKED) " +
+            "UPDATE outbox SET leased_until = now() + :leaseMs * INTERVAL '1 millisecond' FROM claimed " +
+            "WHERE outbox.id = claimed.id RETURNING outbox.id, outbox.aggregate_type, outbox.aggregate_id, " +
+            "outbox.%s AS sequence_number, outbox.event_type, outbox.payload, outbox.event_id, outbox.routing_key";
+    private static final String MARK_PROCESSED_SQL = "UPDATE outbox SET status = 'PROCESSED', processed_at = :processedAt, " +
+            "leased_until = NULL WHERE id IN (:ids) AND status = 'PENDING'";
+    private static final String RECORD_FAILED_ATTEMPT_SQL = "WITH bumped AS (UPDATE outbox SET attempts = attempts + 1, " +
+            "status = CASE WHEN attempts + 1 >= :maxAttempts THEN 'FAILED' ELSE status END, leased_until = NULL " +
+            "WHERE id IN (:ids) AND status = 'PENDING' RETURNING status) " +
+            "SELECT count(*) FROM bumped WHERE status = 'FAILED'";
+    private static final String MARK_FAILED_SQL = "UPDATE outbox SET status = 'FAILED', leased_until = NULL " +
+            "WHERE id IN (:ids) AND status = 'PENDING'";
+    private static final String RELEASE_LEASE_SQL = "UPDATE outbox SET leased_until = NULL WHERE id IN (:ids) AND status = 'PENDING'";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final String claimSql;
+
+    public JdbcOutboxStore(NamedParameterJdbcTemplate jdbcTemplate, String sequenceColumn) {
+        if (!sequenceColumn.matches("[a-z_]+")) {
+            throw new IllegalArgumentException("Invalid outbox sequence column: " + sequenceColumn);
+        }
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.claimSql = CLAIM_SQL.formatted(sequenceColumn);
+    }
+
+    @Override
+    public boolean tryLockShard(int namespace, int shard) {
+        Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(:namespace, :shard)",
+                new MapSqlParameterSource("namespace", namespace).addValue("shard", shard), Boolean.class);
+        return Boolean.TRUE.equals(locked);
+    }
+
+    @Override
+    public List<OutboxRecord> claimPendingBatch(int shard, int shardCount, long afterId, int batchSize, long leaseMs) {
+        MapSqlParameterSource params = new MapSqlParameterSource("afterId", afterId)
+                .addValue("shardCount", shardCount)
+                .addValue("shard", shard)
+                .addValue("batchSize", batchSize)
+                .addValue("leaseMs", leaseMs);
+
+        // RETURNING has no order of its own
+        return jdbcTemplate.query(claimSql, params, (rs, rowNum) -> new OutboxRecord(
+                rs.getLong("id"),
+                rs.getString("aggregate_type"),
+                rs.getString("aggregate_id"),
+                rs.getLong("sequence_number"),
+                rs.getString("event_type"),
+                rs.getString("payload"),
+                rs.getString("event_id"),
+                rs.getString("routing_key"))).stream()
+                .sorted(Comparator.comparingLong(OutboxRecord::id))
+                .toList();
+    }
+
+    @Override
+    public int markProcessed(Collection<Long> ids, LocalDateTime processedAt) {
+        return jdbcTemplate.update(MARK_PROCESSED_SQL,
+                new MapSqlParameterSource("ids", ids).addValue("processedAt", Timestamp.valueOf(processedAt)));
+    }
+
+    @Override
+    public int recordFailedAttempt(Collection<Long> ids, int maxAttempts) {
+        Integer deadLettered = jdbcTemplate.queryForObject(RECORD_FAILED_ATTEMPT_SQL,
+                new MapSqlParameterSource("ids", ids).addValue("maxAttempts", maxAttempts), Integer.class);
+        return deadLettered == null ? 0 : deadLettered;
+    }
+
+    @Override
+    public int markFailed(Collection<Long> ids) {
+        return jdbcTemplate.update(MARK_FAILED_SQL, new MapSqlParameterSource("ids", ids));
+    }
+
+    @Override
+    public int releaseLease(Collection<Long> ids) {
+        return jdbcTemplate.update(RELEASE_LEASE_SQL, new MapSqlParameterSource("ids", ids));
+    }
+}
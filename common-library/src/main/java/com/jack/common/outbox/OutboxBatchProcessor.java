@@ -0,0 +1,183 @@
+package com.jack.common.outbox;
+
+import com.jack.common.config.OutboxRelayProperties;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@Log4j2
+public class OutboxBatchProcessor {
+    // Advisory lock namespace for outbox shards
+    private static final int SHARD_LOCK_NAMESPACE = 0x0B0C;
+
+    private final OutboxStore outboxStore;
+    private final OutboxPublisher outboxPublisher;
+    private final OutboxRelayProperties properties;
+    private final TransactionOperations transactionOperations;
+
+    public OutboxBatchProcessor(OutboxStore outboxStore, OutboxPublisher outboxPublisher, OutboxRelayProperties properties,
+                                TransactionOperations transactionOperations) {
+        this.outboxStore = outboxStore;
+        this.outboxPublisher = outboxPublisher;
+        this.properties = properties;
+        this.transactionOperations = transactionOperations;
+
+        if (properties.getLeaseMs() < 2 * properties.getConfirmTimeoutMs()) {
+            throw new IllegalStateException("app.outbox.lease-ms (" + properties.getLeaseMs() +
+                    ") must be at least twice app.outbox.confirm-timeout-ms (" + properties.getConfirmTimeoutMs() + ")");
+        }
+    }
+
+    // Lease a bounded batch of a shard and commit, publish with no transaction open, then settle the rows in a second
+    // short transaction. Row locks and the shard lock never wait on the broker, so they cannot stall vacuum or other relays.
+    public BatchResult processBatch(int shard, int shardCount, long afterId, int batchSize, Set<String> blockedAggregates) {
+        long leaseStart = System.nanoTime();
+        List<OutboxRecord> batch = transactionOperations.execute(status -> claim(shard, shardCount, afterId, batchSize));
+
+        if (batch == null || batch.isEmpty()) {
+            return new BatchResult(0, afterId);
+        }
+
+        // No confirm round may still be waiting when the lease runs out and another relay can claim the rows
+        long lastRoundStart = leaseStart + TimeUnit.MILLISECONDS.toNanos(properties.getLeaseMs() - properties.getConfirmTimeoutMs());
+        Outcomes outcomes = publish(batch, blockedAggregates, lastRoundStart);
+        transactionOperations.executeWithoutResult(status -> settle(outcomes));
+
+        long lastId = batch.get(batch.size() - 1).id();
+        log.info("Relayed outbox batch: shard={}, claimed={}, published={}, failed={}, released={}, lastId={}",
+                shard, batch.size(), outcomes.published.size(), outcomes.failed.size() + outcomes.unpublishable.size(),
+                outcomes.unsent.size(), lastId);
+        return new BatchResult(batch.size(), lastId);
+    }
+
+    private List<OutboxRecord> claim(int shard, int shardCount, long afterId, int batchSize) {
+        if (!outboxStore.tryLockShard(SHARD_LOCK_NAMESPACE, shard)) {
+            log.debug("Outbox shard {} is being claimed elsewhere", shard);
+            return List.of();
+        }
+
+        return outboxStore.claimPendingBatch(shard, shardCount, afterId, batchSize, properties.getLeaseMs());
+    }
+
+    private Outcomes publish(List<OutboxRecord> batch, Set<String> blockedAggregates, long lastRoundStart) {
+        Outcomes outcomes = new Outcomes();
+
+        // Group per aggregate in sequence order, leaving out aggregates that already failed earlier in this pass
+        Map<String, List<OutboxRecord>> active = new LinkedHashMap<>();
+
+        for (OutboxRecord outbox : batch) {
+            if (blockedAggregates.contains(outbox.aggregateKey())) {
+                outcomes.unsent.add(outbox.id());
+            } else {
+                active.computeIfAbsent(outbox.aggregateKey(), k -> new ArrayList<>()).add(outbox);
+            }
+        }
+
+        for (List<OutboxRecord> events : active.values()) {
+            events.sort(Comparator.comparingLong(OutboxRecord::sequenceNumber).thenComparingLong(OutboxRecord::id));
+        }
+
+        // Publish in rounds: round n sends the n-th event of every aggregate still in good standing and waits for
+        // those confirms. An aggregate stops at its first failure, so nothing after a gap ever reaches the broker.
+        for (int round = 0; !active.isEmpty(); round++) {
+            if (System.nanoTime() - lastRoundStart > 0) {
+                // Out of lease: hand the rest back and keep this pass from publishing past it
+                log.warn("Outbox lease budget spent after {} rounds; releasing {} aggregates", round, active.size());
+                for (List<OutboxRecord> events : active.values()) {
+                    if (round < events.size()) {
+                        blockedAggregates.add(events.get(0).aggregateKey());
+                        events.subList(round, events.size()).forEach(event -> outcomes.unsent.add(event.id()));
+                    }
+                }
+
+                break;
+            }
+
+            List<OutboxRecord> heads = new ArrayList<>(active.size());
+
+            for (Iterator<List<OutboxRecord>> it = active.values().iterator(); it.hasNext(); ) {
+                List<OutboxRecord> events = it.next();
+
+                if (round < events.size()) {
+                    heads.add(events.get(round));
+                } else {
+                    it.remove();
+                }
+            }
+
+            if (heads.isEmpty()) {
+                break;
+            }
+
+            Map<Long, OutboxPublisher.PublishOutcome> published = outboxPublisher.publishConfirmed(heads);
+
+            for (OutboxRecord head : heads) {
+                OutboxPublisher.PublishOutcome outcome = published.getOrDefault(head.id(), OutboxPublisher.PublishOutcome.FAILED);
+
+                switch (outcome) {
+                    case CONFIRMED -> outcomes.published.add(head.id());
+                    // Dead-lettered right away; retrying cannot help, so the aggregate moves on
+                    case UNPUBLISHABLE -> outcomes.unpublishable.add(head.id());
+                    case FAILED, DEFERRED -> {
+                        if (outcome == OutboxPublisher.PublishOutcome.FAILED) {
+                            outcomes.failed.add(head.id());
+                        } else {
+                            outcomes.unsent.add(head.id());
+                        }
+
+                        List<OutboxRecord> events = active.remove(head.aggregateKey());
+                        events.subList(round + 1, events.size()).forEach(event -> outcomes.unsent.add(event.id()));
+                        blockedAggregates.add(head.aggregateKey());
+                    }
+                }
+            }
+        }
+
+        return outcomes;
+    }
+
+    private void settle(Outcomes outcomes) {
+        if (!outcomes.published.isEmpty()) {
+            outboxStore.markProcessed(outcomes.published, LocalDateTime.now());
+        }
+
+        if (!outcomes.unpublishable.isEmpty()) {
+            log.error("Dead-lettering unpublishable outbox events: {}", outcomes.unpublishable);
+            outboxStore.markFailed(outcomes.unpublishable);
+        }
+
+        // After maxAttempts a row is dead-lettered as FAILED, so one poisoned event cannot block its aggregate forever
+        if (!outcomes.failed.isEmpty()) {
+            int deadLettered = outboxStore.recordFailedAttempt(outcomes.failed, Math.max(1, properties.getMaxAttempts()));
+
+            if (deadLettered > 0) {
+                log.error("Dead-lettered {} outbox events after {} failed attempts: {}", deadLettered,
+                        properties.getMaxAttempts(), outcomes.failed);
+            }
+        }
+
+        if (!outcomes.unsent.isEmpty()) {
+            outboxStore.releaseLease(outcomes.unsent);
+        }
+    }
+
+    // Every claimed row ends up in exactly one list, so each one is either settled or released
+    private static final class Outcomes {
+        private final List<Long> published = new ArrayList<>();
+        private final List<Long> failed = new ArrayList<>();
+        private final List<Long> unpublishable = new ArrayList<>();
+        private final List<Long> unsent = new ArrayList<>();
+    }
+
+    public record BatchResult(int claimed, long lastId) {
+    }
+}
@@ -0,0 +1,110 @@
+package com.jack.common.outbox;
+
+import com.jack.common.config.OutboxRelayProperties;
+import lombok.extern.log4j.Log4j2;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+@Log4j2
+public class OutboxNotificationListener implements SmartLifecycle {
+    private static final int POLL_TIMEOUT_MS = 10_000;
+    private static final long RECONNECT_DELAY_MS = 5_000;
+
+    private final OutboxRelay outboxRelay;
+    private final OutboxRelayProperties properties;
+    private final ListenConnectionFactory connectionFactory;
+    private final long reconnectDelayMs;
+    private volatile Thread listenerThread;
+
+    public OutboxNotificationListener(OutboxRelay outboxRelay, OutboxRelayProperties properties,
+                                      DataSourceProperties dataSourceProperties) {
+        this(outboxRelay, properties, () -> DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword()), RECONNECT_DELAY_MS);
+    }
+
+    OutboxNotificationListener(OutboxRelay outboxRelay, OutboxRelayProperties properties,
+                               ListenConnectionFactory connectionFactory, long reconnectDelayMs) {
+        this.outboxRelay = outboxRelay;
+        this.properties = properties;
+        this.connectionFactory = connectionFactory;
+        this.reconnectDelayMs = reconnectDelayMs;
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isListenEnabled()) {
+            log.info("Outbox LISTEN disabled; relying on local wakeups and the scheduled sweep");
+            return;
+        }
+
+        Thread thread = new Thread(this::listen, "outbox-listen");
+        thread.setDaemon(true);
+        listenerThread = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread thread = listenerThread;
+        listenerThread = null;
+
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return listenerThread != null;
+    }
+
+    // Hold a dedicated connection outside the pool so LISTEN never starves request traffic
+    private void listen() {
+        while (listenerThread == Thread.currentThread()) {
+            try (Connection connection = connectionFactory.open()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + properties.getNotifyChannel());
+                }
+
+                log.info("Listening for outbox notifications on channel: {}", properties.getNotifyChannel());
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+
+                // Anything inserted while we were disconnected is picked up by this first pass
+                outboxRelay.requestDrain();
+
+                while (listenerThread == Thread.currentThread()) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+
+                    if (notifications != null && notifications.length > 0) {
+                        outboxRelay.requestDrain();
+                    }
+                }
+            } catch (SQLException e) {
+                if (listenerThread != Thread.currentThread()) {
+                    return;
+                }
+
+                log.warn("Outbox LISTEN connection failed, retrying in {} ms: {}", reconnectDelayMs, e.getMessage());
+
+                try {
+                    Thread.sleep(reconnectDelayMs);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Opens the dedicated LISTEN connection
+    @FunctionalInterface
+    interface ListenConnectionFactory {
+        Connection open() throws SQLException;
+    }
+}
@@ -0,0 +1,149 @@
+package com.jack.common.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.common.config.OutboxRelayProperties;
+import com.jack.common.constants.WalletConstants;
+import com.jack.common.dto.response.WalletCreateMessageDto;
+import com.jack.common.dto.response.WalletUpdateMessageDto;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+@Log4j2
+public class OutboxPublisher {
+    // Payload class per event type; rows of any other type can never be published
+    private static final Map<String, Class<?>> PAYLOAD_TYPES = Map.of(
+            WalletConstants.WALLET_CREATE, WalletCreateMessageDto.class,
+            WalletConstants.WALLET_UPDATE, WalletUpdateMessageDto.class);
+
+    private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper;
+    private final OutboxRelayProperties properties;
+    private final Semaphore inFlight;
+
+    public OutboxPublisher(RabbitTemplate rabbitTemplate, ObjectMapper objectMapper, OutboxRelayProperties properties) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.inFlight = new Semaphore(Math.max(1, properties.getPublishWindow()));
+    }
+
+    // Publish the rows without waiting per message, then wait for their confirms; every row gets an outcome
+    public Map<Long, PublishOutcome> publishConfirmed(List<OutboxRecord> rows) {
+        Map<Long, PublishOutcome> outcomes = new HashMap<>();
+        List<PendingConfirm> pending = new ArrayList<>(rows.size());
+
+        for (OutboxRecord outbox : rows) {
+            PublishOutcome notSent = send(outbox, pending);
+
+            if (notSent != null) {
+                outcomes.put(outbox.id(), notSent);
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getConfirmTimeoutMs());
+
+        for (PendingConfirm confirm : pending) {
+            outcomes.put(confirm.outboxId(), awaitConfirm(confirm, deadline) ? PublishOutcome.CONFIRMED : PublishOutcome.FAILED);
+        }
+
+        return outcomes;
+    }
+
+    // Returns null once the message is on the wire (its confirm is added to pending), otherwise why it was not sent
+    private PublishOutcome send(OutboxRecord outbox, List<PendingConfirm> pending) {
+        Object message;
+        Class<?> payloadType = PAYLOAD_TYPES.get(outbox.eventType());
+
+        if (outbox.payload() == null || outbox.routingKey() == null || payloadType == null) {
+            log.error("Unpublishable outbox entry with ID: {} (eventType={}, routingKey={})",
+                    outbox.id(), outbox.eventType(), outbox.routingKey());
+            return PublishOutcome.UNPUBLISHABLE;
+        }
+
+        try {
+            message = objectMapper.readValue(outbox.payload(), payloadType);
+        } catch (Exception e) {
+            log.error("Unreadable payload for outbox entry with ID: {}: {}", outbox.id(), e.getMessage());
+            return PublishOutcome.UNPUBLISHABLE;
+        }
+
+        try {
+            // Bound the number of unconfirmed messages; the permit comes back when the confirm arrives
+            if (!inFlight.tryAcquire(properties.getConfirmTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                log.warn("Publish window full, deferring outbox message with ID: {}", outbox.id());
+                return PublishOutcome.DEFERRED;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return PublishOutcome.DEFERRED;
+        }
+
+        CorrelationData correlationData = new CorrelationData(outbox.eventId());
+        correlationData.getFuture().whenComplete((confirm, error) -> inFlight.release());
+
+        try {
+            rabbitTemplate.convertAndSend(WalletConstants.WALLET_EXCHANGE, outbox.routingKey(), message, correlationData);
+        } catch (RuntimeException e) {
+            correlationData.getFuture().completeExceptionally(e);
+            log.error("Failed to publish outbox message with ID: {}: {}", outbox.id(), e.getMessage());
+            return PublishOutcome.FAILED;
+        }
+
+        pending.add(new PendingConfirm(outbox.id(), correlationData));
+        return null;
+    }
+
+    private boolean awaitConfirm(PendingConfirm pending, long deadlineNanos) {
+        CorrelationData correlationData = pending.correlationData();
+
+        try {
+            long remaining = Math.max(0, deadlineNanos - System.nanoTime());
+            CorrelationData.Confirm confirm = correlationData.getFuture().get(remaining, TimeUnit.NANOSECONDS);
+
+            if (!confirm.isAck()) {
+                log.warn("Broker nacked outbox event {}: {}", correlationData.getId(), confirm.getReason());
+                return false;
+            }
+
+            // Returns are delivered before the confirm, so an unroutable message is already visible here
+            if (correlationData.getReturned() != null) {
+                log.warn("Outbox event {} was returned as unroutable", correlationData.getId());
+                return false;
+            }
+
+            return true;
+        } catch (TimeoutException e) {
+            log.warn("Timed out waiting for publisher confirm of outbox event {}", correlationData.getId());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error("Failed to publish outbox event {}: {}", correlationData.getId(), e.getCause().getMessage());
+        }
+
+        return false;
+    }
+
+    public enum PublishOutcome {
+        // The broker confirmed the message
+        CONFIRMED,
+        // Sent but nacked, returned or unconfirmed in time, or the send itself failed; counts as an attempt
+        FAILED,
+        // Not sent because the publish window stayed full; retried without counting an attempt
+        DEFERRED,
+        // Can never be published (no payload or routing key, unknown type, unreadable payload)
+        UNPUBLISHABLE
+    }
+
+    private record PendingConfirm(Long outboxId, CorrelationData correlationData) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.jack.common.outbox;
+
+// One claimed outbox row, as much of it as the relay needs to publish it
+public record OutboxRecord(long id, String aggregateType, String aggregateId, long sequenceNumber,
+                           String eventType, String payload, String eventId, String routingKey) {
+
+    public String aggregateKey() {
+        return aggregateType + ":" + aggregateId;
+    }
+}
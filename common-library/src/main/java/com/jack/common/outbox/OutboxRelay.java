@@ -0,0 +1,128 @@
+package com.jack.common.outbox;
+
+import com.jack.common.config.OutboxRelayProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Log4j2
+public class OutboxRelay {
+    private final OutboxBatchProcessor batchProcessor;
+    private final OutboxRelayProperties properties;
+    private final ExecutorService workers;
+    private final ExecutorService wakeups;
+    private final AtomicBoolean wakeupQueued = new AtomicBoolean();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean drainRequested = new AtomicBoolean();
+
+    public OutboxRelay(OutboxBatchProcessor batchProcessor, OutboxRelayProperties properties) {
+        this.batchProcessor = batchProcessor;
+        this.properties = properties;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, properties.getConcurrency()), runnable -> {
+            Thread thread = new Thread(runnable, "outbox-relay-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.wakeups = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-wakeup");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Ask for a drain without blocking the caller; bursts of requests collapse into one pass
+    public void requestDrain() {
+        if (wakeupQueued.compareAndSet(false, true)) {
+            wakeups.execute(() -> {
+                wakeupQueued.set(false);
+                drainSafely();
+            });
+        }
+    }
+
+    // Safety net for rows left PENDING by a failed publish or a crash between commit and wakeup
+    @Scheduled(fixedDelayString = "${app.outbox.sweep-interval-ms:30000}")
+    public void sweep() {
+        drainSafely();
+    }
+
+    private void drainSafely() {
+        try {
+            drain();
+        } catch (Exception e) {
+            log.error("Outbox relay pass failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Drain all pending rows; a request arriving while a pass is running triggers one more pass instead of a parallel one
+    public void drain() {
+        drainRequested.set(true);
+
+        while (drainRequested.get() && draining.compareAndSet(false, true)) {
+            try {
+                while (drainRequested.getAndSet(false)) {
+                    drainAll();
+                }
+            } finally {
+                draining.set(false);
+            }
+        }
+    }
+
+    // Each shard is drained by one worker at a time, so an aggregate's events stay in order while shards run in parallel
+    private void drainAll() {
+        int shardCount = Math.max(1, properties.getShardCount());
+        List<Future<?>> running = new ArrayList<>(shardCount);
+
+        for (int shard = 0; shard < shardCount; shard++) {
+            int current = shard;
+            running.add(workers.submit(() -> drainShard(current, shardCount)));
+        }
+
+        for (Future<?> future : running) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                log.error("Outbox relay worker failed: {}", e.getCause().getMessage(), e.getCause());
+            }
+        }
+    }
+
+    // Walk the shard's pending rows in id order; each step claims a fresh batch so no transaction outlives one batch
+    private void drainShard(int shard, int shardCount) {
+        long afterId = 0;
+        Set<String> blockedAggregates = new HashSet<>();
+
+        while (!Thread.currentThread().isInterrupted()) {
+            OutboxBatchProcessor.BatchResult result = batchProcessor.processBatch(
+                    shard, shardCount, afterId, properties.getBatchSize(), blockedAggregates);
+
+            if (result.claimed() == 0) {
+                return;
+            }
+
+            afterId = result.lastId();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wakeups.shutdownNow();
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,28 @@
+package com.jack.common.outbox;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+// Storage side of the relay; OutboxBatchProcessor calls it in two short transactions per batch, claim and settle
+public interface OutboxStore {
+
+    // Own a shard for the claim transaction so no two relays, on any node, claim from it at the same time
+    boolean tryLockShard(int namespace, int shard);
+
+    // Lease the next pending rows of one aggregate shard after the given id for leaseMs. Rows locked or leased
+    // elsewhere are skipped, and so are aggregates with a row leased elsewhere. Returned in id order.
+    List<OutboxRecord> claimPendingBatch(int shard, int shardCount, long afterId, int batchSize, long leaseMs);
+
+    // Only PENDING rows may move to PROCESSED; status changes also end the lease
+    int markProcessed(Collection<Long> ids, LocalDateTime processedAt);
+
+    // Count one failed publish; a row reaching maxAttempts is dead-lettered as FAILED. Returns the rows dead-lettered.
+    int recordFailedAttempt(Collection<Long> ids, int maxAttempts);
+
+    // Dead-letter rows that can never be published
+    int markFailed(Collection<Long> ids);
+
+    // Hand rows that were claimed but not published back to the next claim
+    int releaseLease(Collection<Long> ids);
+}
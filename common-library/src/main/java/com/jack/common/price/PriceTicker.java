@@ -0,0 +1,85 @@
+package com.jack.common.price;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.common.config.PriceTickerProperties;
+import com.jack.common.dto.response.BTCPriceResponseDto;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Latest BTC price pushed by price-service; reads are a single volatile load unless the tick is missing or stale
+@Log4j2
+public class PriceTicker {
+    private final AtomicReference<PriceSnapshot> latest = new AtomicReference<>();
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final long maxAgeMillis;
+    private final String btcPriceKey;
+
+    public PriceTicker(PriceTickerProperties properties, StringRedisTemplate redisTemplate, ObjectMapper objectMapper) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.maxAgeMillis = properties.getMaxAge().toMillis();
+        this.btcPriceKey = properties.getBtcPriceKey();
+    }
+
+    public Optional<BTCPriceResponseDto> current() {
+        PriceSnapshot snapshot = latest.get();
+
+        if (snapshot != null && System.currentTimeMillis() - snapshot.receivedAtMillis() <= maxAgeMillis) {
+            return Optional.of(snapshot.toDto());
+        }
+
+        // Cold start or missed ticks: fall back to the Redis key written by price-service
+        return readFromRedis().map(dto -> {
+            update(dto);
+            return dto;
+        });
+    }
+
+    // Swap in a newer tick; history ids only grow, so a late or duplicate message never replaces a newer price
+    public void update(BTCPriceResponseDto dto) {
+        if (dto == null || dto.getId() == null || dto.getBtcPrice() == null) {
+            return;
+        }
+
+        PriceSnapshot next = new PriceSnapshot(dto.getId(), dto.getBtcPrice(), System.currentTimeMillis());
+        latest.accumulateAndGet(next, (current, candidate) ->
+                current == null || candidate.historyId() >= current.historyId() ? candidate : current);
+    }
+
+    // Tick messages carry the same JSON as the Redis key
+    public void onTick(String json) {
+        try {
+            update(objectMapper.readValue(json, BTCPriceResponseDto.class));
+        } catch (Exception e) {
+            log.warn("Ignoring malformed BTC price tick: {}", e.getMessage());
+        }
+    }
+
+    private Optional<BTCPriceResponseDto> readFromRedis() {
+        try {
+            String json = redisTemplate.opsForValue().get(btcPriceKey);
+
+            if (json != null) {
+                return Optional.of(objectMapper.readValue(json, BTCPriceResponseDto.class));
+            }
+        } catch (Exception e) {
+            log.error("Error reading BTC price from Redis: {}", e.getMessage());
+        }
+
+        return Optional.empty();
+    }
+
+    private record PriceSnapshot(Long historyId, BigDecimal price, long receivedAtMillis) {
+        private BTCPriceResponseDto toDto() {
+            return BTCPriceResponseDto.builder()
+                    .id(historyId)
+                    .btcPrice(price)
+                    .build();
+        }
+    }
+}
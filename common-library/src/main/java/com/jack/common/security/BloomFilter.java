@@ -0,0 +1,44 @@
+package com.jack.common.security;
+
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Minimal thread-safe Bloom filter over SHA-256 hex ids; the id already is a uniform hash, so its bits feed double hashing directly
+class BloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long n = Math.max(1, expectedInsertions);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new AtomicLongArray((int) Math.max(1, (m + 63) / 64));
+        this.bitCount = bits.length() * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    void put(String sha256Hex) {
+        long h1 = HexFormat.fromHexDigitsToLong(sha256Hex, 0, 16);
+        long h2 = HexFormat.fromHexDigitsToLong(sha256Hex, 16, 32) | 1;
+
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+            bits.getAndAccumulate((int) (index >>> 6), 1L << index, (word, mask) -> word | mask);
+        }
+    }
+
+    boolean mightContain(String sha256Hex) {
+        long h1 = HexFormat.fromHexDigitsToLong(sha256Hex, 0, 16);
+        long h2 = HexFormat.fromHexDigitsToLong(sha256Hex, 16, 32) | 1;
+
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h1 + i * h2, bitCount);
+
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,47 @@
+package com.jack.common.security;
+
+import com.jack.common.constants.SecurityConstants;
+import io.jsonwebtoken.security.Keys;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+
+public final class JwtKeys {
+
+    private JwtKeys() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    public static SecretKey sharedSecretKey() {
+        return Keys.hmacShaKeyFor(SecurityConstants.JWT_SECRET_KEY.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Base64 DER (X.509 SubjectPublicKeyInfo); PEM armour and line breaks are tolerated
+    public static PublicKey rsaPublicKey(String encoded) {
+        try {
+            return KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(decode(encoded)));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid RSA public key for JWT verification", e);
+        }
+    }
+
+    // Base64 DER (PKCS#8); PEM armour and line breaks are tolerated
+    public static PrivateKey rsaPrivateKey(String encoded) {
+        try {
+            return KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(decode(encoded)));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid RSA private key for JWT signing", e);
+        }
+    }
+
+    private static byte[] decode(String encoded) {
+        return Base64.getMimeDecoder().decode(encoded.replaceAll("-----[A-Z ]+-----", ""));
+    }
+}
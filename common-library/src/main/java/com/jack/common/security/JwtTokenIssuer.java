@@ -0,0 +1,65 @@
+package com.jack.common.security;
+
+import com.jack.common.config.JwtProperties;
+import com.jack.common.constants.SecurityConstants;
+import com.jack.common.dto.response.AuthResponseDto;
+import io.jsonwebtoken.Jwts;
+
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Date;
+
+// Mints the same tokens auth-service hands out, so a service that has just verified credentials needs no extra hop.
+// Only issuing services (auth-service, user-service) create one; in RSA mode each of them must hold the private key
+// matching app.jwt.public-key, and fails at startup otherwise instead of signing tokens nobody accepts.
+public class JwtTokenIssuer {
+    private final Key signingKey;
+
+    public JwtTokenIssuer(JwtProperties properties) {
+        boolean rsa = hasText(properties.getPublicKey());
+
+        if (rsa != hasText(properties.getPrivateKey())) {
+            throw new IllegalStateException(rsa
+                    ? "app.jwt.public-key is set but app.jwt.private-key is not: this service issues tokens and needs the RSA private key"
+                    : "app.jwt.private-key is set without app.jwt.public-key: tokens would be RSA-signed but verified with the HMAC secret");
+        }
+
+        this.signingKey = rsa ? matchingPrivateKey(properties) : JwtKeys.sharedSecretKey();
+    }
+
+    public String issue(String subject) {
+        long now = System.currentTimeMillis();
+        return Jwts.builder()
+                .subject(subject)
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + SecurityConstants.JWT_EXPIRATION_MS))
+                .signWith(signingKey)
+                .compact();
+    }
+
+    public AuthResponseDto issueResponse(String subject) {
+        return AuthResponseDto.builder()
+                .token(issue(subject))
+                .tokenType("Bearer")
+                .expiresIn(SecurityConstants.JWT_EXPIRATION_MS)
+                .build();
+    }
+
+    private static PrivateKey matchingPrivateKey(JwtProperties properties) {
+        PrivateKey privateKey = JwtKeys.rsaPrivateKey(properties.getPrivateKey());
+        RSAPublicKey publicKey = (RSAPublicKey) JwtKeys.rsaPublicKey(properties.getPublicKey());
+
+        // PKCS#8 RSA keys carry their modulus, so a key from another pair is caught here rather than at the first login
+        if (privateKey instanceof RSAPrivateCrtKey crtKey && !crtKey.getModulus().equals(publicKey.getModulus())) {
+            throw new IllegalStateException("app.jwt.private-key does not belong to app.jwt.public-key");
+        }
+
+        return privateKey;
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+}
@@ -0,0 +1,90 @@
+package com.jack.common.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.jack.common.config.JwtProperties;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import lombok.extern.log4j.Log4j2;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// In-process JWT verification for any service: signature and exp via one shared parser, then the local blacklist filter.
+// Verified claims are cached by token hash until the token expires, so repeat requests skip the signature check.
+@Log4j2
+public class JwtTokenValidator {
+    private final JwtParser jwtParser;
+    private final TokenBlacklist tokenBlacklist;
+
+    // SHA-256 of the token -> verified claims; an entry expires exactly at the token's exp
+    private final Cache<String, Claims> verifiedClaims;
+
+    public JwtTokenValidator(JwtProperties properties, TokenBlacklist tokenBlacklist) {
+        this.tokenBlacklist = tokenBlacklist;
+        this.jwtParser = properties.getPublicKey() != null && !properties.getPublicKey().isBlank()
+                ? Jwts.parser().verifyWith(JwtKeys.rsaPublicKey(properties.getPublicKey())).build()
+                : Jwts.parser().verifyWith(JwtKeys.sharedSecretKey()).build();
+        this.verifiedClaims = Caffeine.newBuilder()
+                .maximumSize(properties.getClaimsCache().getMaximumSize())
+                .expireAfter(new ExpireAtTokenExpiry())
+                .build();
+    }
+
+    // Signature and expiry only; throws JwtException when either check fails
+    public Claims parseClaims(String token) {
+        String tokenHash = TokenHashes.sha256Hex(token);
+        Claims claims = verifiedClaims.getIfPresent(tokenHash);
+
+        if (claims != null) {
+            return claims;
+        }
+
+        claims = jwtParser.parseSignedClaims(token).getPayload();
+
+        // Tokens without exp would never leave the cache, so only those with one are kept
+        if (claims.getExpiration() != null) {
+            verifiedClaims.put(tokenHash, claims);
+        }
+
+        return claims;
+    }
+
+    // Full check for an incoming request: valid signature, not expired and not logged out
+    public Optional<Claims> validate(String token) {
+        try {
+            Claims claims = parseClaims(token);
+
+            if (tokenBlacklist.isBlacklisted(token)) {
+                log.warn("Rejected blacklisted token for subject: {}", claims.getSubject());
+                return Optional.empty();
+            }
+
+            return Optional.of(claims);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.warn("Invalid JWT token: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static class ExpireAtTokenExpiry implements Expiry<String, Claims> {
+        @Override
+        public long expireAfterCreate(String tokenHash, Claims claims, long currentTime) {
+            long remainingMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMs));
+        }
+
+        @Override
+        public long expireAfterUpdate(String tokenHash, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String tokenHash, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
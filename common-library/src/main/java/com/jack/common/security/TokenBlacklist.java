@@ -0,0 +1,131 @@
+package com.jack.common.security;
+
+import com.jack.common.config.TokenBlacklistProperties;
+import com.jack.common.constants.SecurityConstants;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Blacklisted tokens live in Redis as blacklist:<sha256>; every node mirrors the ids in a Bloom filter so the
+// common case (token not blacklisted) is answered locally and Redis is only asked on a filter hit
+@Log4j2
+public class TokenBlacklist {
+    private static final int SHA256_HEX_LENGTH = 64;
+
+    private final TokenBlacklistProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final ScheduledExecutorService rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "token-blacklist-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // null until the first successful load; every check goes to Redis meanwhile
+    private volatile BloomFilter filter;
+
+    // Ids added while a rebuild scans Redis, replayed into the new filter before it is swapped in
+    private List<String> addedDuringRebuild;
+
+    public TokenBlacklist(TokenBlacklistProperties properties, StringRedisTemplate redisTemplate) {
+        this.properties = properties;
+        this.redisTemplate = redisTemplate;
+    }
+
+    public void start() {
+        long intervalMs = properties.getRebuildInterval().toMillis();
+        rebuildExecutor.scheduleWithFixedDelay(this::rebuildSafely, 0, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    // Store the token hash until the token would have expired anyway and tell the other nodes about it
+    public void blacklist(String token, Duration remainingLifetime) {
+        String tokenId = TokenHashes.sha256Hex(token);
+        redisTemplate.opsForValue().set(SecurityConstants.BLACKLIST_PREFIX + tokenId, "1", remainingLifetime);
+        addLocally(tokenId);
+        redisTemplate.convertAndSend(SecurityConstants.BLACKLIST_CHANNEL, tokenId);
+    }
+
+    public boolean isBlacklisted(String token) {
+        String tokenId = TokenHashes.sha256Hex(token);
+        BloomFilter current = filter;
+
+        if (current != null && !current.mightContain(tokenId)) {
+            return false;
+        }
+
+        // Possible hit (or no filter yet): Redis is authoritative. Entries written before keys were hashed use the raw token
+        return Boolean.TRUE.equals(redisTemplate.hasKey(SecurityConstants.BLACKLIST_PREFIX + tokenId))
+                || Boolean.TRUE.equals(redisTemplate.hasKey(SecurityConstants.BLACKLIST_PREFIX + token));
+    }
+
+    // Pub/sub from peers: the message body is the token id
+    public void onBlacklisted(String tokenId) {
+        if (tokenId.length() == SHA256_HEX_LENGTH) {
+            addLocally(tokenId);
+        } else {
+            log.warn("Ignoring malformed blacklist message");
+        }
+    }
+
+    private synchronized void addLocally(String tokenId) {
+        if (filter != null) {
+            filter.put(tokenId);
+        }
+
+        if (addedDuringRebuild != null) {
+            addedDuringRebuild.add(tokenId);
+        }
+    }
+
+    private void rebuildSafely() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("Failed to rebuild token blacklist filter, keeping the previous one: {}", e.getMessage());
+
+            synchronized (this) {
+                addedDuringRebuild = null;
+            }
+        }
+    }
+
+    // SCAN the blacklist keys into a fresh filter; expired tokens drop out because their keys are gone
+    void rebuild() {
+        synchronized (this) {
+            addedDuringRebuild = new ArrayList<>();
+        }
+
+        List<String> tokenIds = new ArrayList<>();
+        ScanOptions options = ScanOptions.scanOptions().match(SecurityConstants.BLACKLIST_PREFIX + "*").count(1000).build();
+
+        try (Cursor<String> keys = redisTemplate.scan(options)) {
+            keys.forEachRemaining(key -> {
+                String suffix = key.substring(SecurityConstants.BLACKLIST_PREFIX.length());
+                tokenIds.add(suffix.length() == SHA256_HEX_LENGTH ? suffix : TokenHashes.sha256Hex(suffix));
+            });
+        }
+
+        BloomFilter rebuilt = new BloomFilter(Math.max(properties.getExpectedInsertions(), tokenIds.size() * 2L),
+                properties.getFalsePositiveRate());
+        tokenIds.forEach(rebuilt::put);
+
+        synchronized (this) {
+            addedDuringRebuild.forEach(rebuilt::put);
+            addedDuringRebuild = null;
+            filter = rebuilt;
+        }
+
+        log.debug("Rebuilt token blacklist filter with {} entries", tokenIds.size());
+    }
+}
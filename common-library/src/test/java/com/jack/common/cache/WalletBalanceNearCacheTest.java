@@ -0,0 +1,103 @@
+package com.jack.common.cache;
+
+import com.jack.common.config.NearCacheProperties;
+import com.jack.common.constants.WalletConstants;
+import com.jack.common.dto.response.WalletResponseDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class WalletBalanceNearCacheTest {
+    private static final Long USER_ID = 1L;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private WalletBalanceNearCache nearCache;
+
+    @BeforeEach
+    void setUp() {
+        nearCache = new WalletBalanceNearCache(new NearCacheProperties(), redisTemplate);
+    }
+
+    @Test
+    void keepsABalanceReadWithoutAConcurrentInvalidation() {
+        long stamp = nearCache.stamp();
+        nearCache.put(balance("10"), stamp);
+
+        assertThat(nearCache.get(USER_ID)).isEqualTo(balance("10"));
+    }
+
+    @Test
+    void dropsABalanceReadBeforeAnInvalidation() {
+        long stamp = nearCache.stamp();
+
+        // Another instance commits a new balance while this one is still reading the old value
+        nearCache.onInvalidation("other-node:" + USER_ID);
+        nearCache.put(balance("10"), stamp);
+
+        assertThat(nearCache.get(USER_ID)).isNull();
+
+        // A read started after the invalidation is cached again
+        nearCache.put(balance("20"), nearCache.stamp());
+        assertThat(nearCache.get(USER_ID)).isEqualTo(balance("20"));
+    }
+
+    @Test
+    void invalidationOfOneUserDoesNotBlockAnother() {
+        long stamp = nearCache.stamp();
+        nearCache.onInvalidation("other-node:99");
+        nearCache.put(balance("10"), stamp);
+
+        assertThat(nearCache.get(USER_ID)).isNotNull();
+    }
+
+    @Test
+    void publishUpdateEvictsLocallyAndAnnouncesToOtherInstances() {
+        long stamp = nearCache.stamp();
+        nearCache.put(balance("10"), stamp);
+
+        nearCache.publishUpdate(balance("5"));
+
+        assertThat(nearCache.get(USER_ID)).isNull();
+        ArgumentCaptor<String> message = ArgumentCaptor.forClass(String.class);
+        verify(redisTemplate).convertAndSend(eq(WalletConstants.WALLET_BALANCE_INVALIDATION_CHANNEL), message.capture());
+
+        // Our own announcement echoes back and is ignored
+        nearCache.put(balance("5"), nearCache.stamp());
+        nearCache.onInvalidation(message.getValue());
+        assertThat(nearCache.get(USER_ID)).isEqualTo(balance("5"));
+    }
+
+    @Test
+    void evictDropsTheLocalCopyAndRacingReadsWithoutAnnouncing() {
+        long stamp = nearCache.stamp();
+        nearCache.put(balance("10"), stamp);
+
+        nearCache.evict(USER_ID);
+        nearCache.put(balance("10"), stamp);
+
+        assertThat(nearCache.get(USER_ID)).isNull();
+        verifyNoInteractions(redisTemplate);
+    }
+
+    private static WalletResponseDto balance(String usd) {
+        return WalletResponseDto.builder()
+                .userId(USER_ID)
+                .usdBalance(new BigDecimal(usd))
+                .btcBalance(BigDecimal.ZERO)
+                .build();
+    }
+}
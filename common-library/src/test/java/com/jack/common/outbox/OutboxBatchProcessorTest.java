@@ -0,0 +1,221 @@
+package com.jack.common.outbox;
+
+import com.jack.common.config.OutboxRelayProperties;
+import com.jack.common.outbox.OutboxPublisher.PublishOutcome;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxBatchProcessorTest {
+    @Mock
+    private OutboxStore outboxStore;
+
+    @Mock
+    private OutboxPublisher outboxPublisher;
+
+    private OutboxBatchProcessor processor;
+    private final List<Long> sent = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        processor = new OutboxBatchProcessor(outboxStore, outboxPublisher, properties(5000, 60000),
+                TransactionOperations.withoutTransaction());
+        lenient().when(outboxStore.tryLockShard(anyInt(), anyInt())).thenReturn(true);
+    }
+
+    @Test
+    void stopsAnAggregateAtItsFirstFailedPublish() {
+        // Aggregate 1 fails on its second event; aggregate 2 publishes everything
+        claim(row(1, "1", 1), row(2, "2", 1), row(3, "1", 2), row(4, "2", 2), row(5, "1", 3));
+        publishWith(Map.of(3L, PublishOutcome.FAILED));
+        Set<String> blocked = new HashSet<>();
+
+        processor.processBatch(0, 1, 0, 100, blocked);
+
+        assertThat(sent).containsExactly(1L, 2L, 3L, 4L).doesNotContain(5L);
+        assertThat(blocked).containsExactly("WALLET:1");
+        verify(outboxStore).markProcessed(eq(List.of(1L, 2L, 4L)), any());
+        verify(outboxStore).recordFailedAttempt(List.of(3L), 3);
+        verify(outboxStore).releaseLease(List.of(5L));
+    }
+
+    @Test
+    void publishesOnlyOneEventPerAggregateAtATime() {
+        claim(row(1, "1", 1), row(2, "1", 2), row(3, "1", 3));
+        List<List<Long>> rounds = new ArrayList<>();
+        when(outboxPublisher.publishConfirmed(anyList())).thenAnswer(invocation -> {
+            List<OutboxRecord> heads = invocation.getArgument(0);
+            rounds.add(heads.stream().map(OutboxRecord::id).toList());
+            Map<Long, PublishOutcome> outcomes = new HashMap<>();
+            heads.forEach(head -> outcomes.put(head.id(), PublishOutcome.CONFIRMED));
+            return outcomes;
+        });
+
+        processor.processBatch(0, 1, 0, 100, new HashSet<>());
+
+        assertThat(rounds).containsExactly(List.of(1L), List.of(2L), List.of(3L));
+    }
+
+    @Test
+    void deferredPublishBlocksTheAggregateWithoutCountingAnAttempt() {
+        claim(row(1, "1", 1), row(2, "1", 2));
+        publishWith(Map.of(1L, PublishOutcome.DEFERRED));
+        Set<String> blocked = new HashSet<>();
+
+        processor.processBatch(0, 1, 0, 100, blocked);
+
+        assertThat(sent).containsExactly(1L);
+        assertThat(blocked).containsExactly("WALLET:1");
+        verify(outboxStore, never()).recordFailedAttempt(anyList(), anyInt());
+        verify(outboxStore, never()).markProcessed(anyList(), any());
+        verify(outboxStore).releaseLease(List.of(1L, 2L));
+    }
+
+    @Test
+    void deadLettersUnpublishableRowsAndMovesOn() {
+        claim(row(1, "1", 1), row(2, "1", 2));
+        publishWith(Map.of(1L, PublishOutcome.UNPUBLISHABLE));
+
+        processor.processBatch(0, 1, 0, 100, new HashSet<>());
+
+        verify(outboxStore).markFailed(List.of(1L));
+        verify(outboxStore).markProcessed(eq(List.of(2L)), any());
+    }
+
+    @Test
+    void skipsAggregatesBlockedEarlierInThePass() {
+        claim(row(7, "1", 4), row(8, "2", 1));
+        publishWith(Map.of());
+        Set<String> blocked = new HashSet<>(Set.of("WALLET:1"));
+
+        processor.processBatch(0, 1, 0, 100, blocked);
+
+        assertThat(sent).containsExactly(8L);
+        verify(outboxStore).releaseLease(List.of(7L));
+    }
+
+    @Test
+    void publishesOutsideTheClaimAndSettleTransactions() {
+        TransactionTracker transactions = new TransactionTracker();
+        processor = new OutboxBatchProcessor(outboxStore, outboxPublisher, properties(5000, 60000), transactions);
+        claim(row(1, "1", 1), row(2, "2", 1));
+        List<Boolean> publishedInTransaction = new ArrayList<>();
+        when(outboxPublisher.publishConfirmed(anyList())).thenAnswer(invocation -> {
+            publishedInTransaction.add(transactions.open);
+            return Map.of(1L, PublishOutcome.CONFIRMED, 2L, PublishOutcome.CONFIRMED);
+        });
+
+        processor.processBatch(0, 1, 0, 100, new HashSet<>());
+
+        // One short transaction to lease the rows, one to mark them; the broker wait happens in neither
+        assertThat(transactions.count).isEqualTo(2);
+        assertThat(publishedInTransaction).containsExactly(false);
+        verify(outboxStore).claimPendingBatch(0, 1, 0, 100, 60000);
+        verify(outboxStore).markProcessed(eq(List.of(1L, 2L)), any());
+    }
+
+    @Test
+    void stopsStartingRoundsWhenTheLeaseBudgetIsSpent() {
+        // 100ms lease with a 50ms confirm reserve: the slow first round uses up the budget
+        processor = new OutboxBatchProcessor(outboxStore, outboxPublisher, properties(50, 100),
+                TransactionOperations.withoutTransaction());
+        claim(row(1, "1", 1), row(2, "1", 2), row(3, "1", 3), row(4, "2", 1));
+        when(outboxPublisher.publishConfirmed(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(80);
+            Map<Long, PublishOutcome> outcomes = new HashMap<>();
+            invocation.<List<OutboxRecord>>getArgument(0).forEach(head -> outcomes.put(head.id(), PublishOutcome.CONFIRMED));
+            return outcomes;
+        });
+        Set<String> blocked = new HashSet<>();
+
+        processor.processBatch(0, 1, 0, 100, blocked);
+
+        verify(outboxStore).markProcessed(eq(List.of(1L, 4L)), any());
+        verify(outboxStore).releaseLease(List.of(2L, 3L));
+        // Later batches of this pass must not publish aggregate 1 past its released rows
+        assertThat(blocked).containsExactly("WALLET:1");
+    }
+
+    @Test
+    void rejectsALeaseThatCannotCoverAConfirmRound() {
+        assertThatThrownBy(() -> new OutboxBatchProcessor(outboxStore, outboxPublisher, properties(5000, 8000),
+                TransactionOperations.withoutTransaction()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("lease-ms");
+    }
+
+    private static OutboxRelayProperties properties(long confirmTimeoutMs, long leaseMs) {
+        OutboxRelayProperties properties = new OutboxRelayProperties();
+        properties.setMaxAttempts(3);
+        properties.setConfirmTimeoutMs(confirmTimeoutMs);
+        properties.setLeaseMs(leaseMs);
+        return properties;
+    }
+
+    private void claim(OutboxRecord... rows) {
+        when(outboxStore.claimPendingBatch(anyInt(), anyInt(), anyLong(), anyInt(), anyLong())).thenReturn(List.of(rows));
+    }
+
+    // Every row is confirmed unless listed otherwise
+    private void publishWith(Map<Long, PublishOutcome> overrides) {
+        when(outboxPublisher.publishConfirmed(anyList())).thenAnswer(invocation -> {
+            List<OutboxRecord> heads = invocation.getArgument(0);
+            Map<Long, PublishOutcome> outcomes = new HashMap<>();
+
+            for (OutboxRecord head : heads) {
+                sent.add(head.id());
+                outcomes.put(head.id(), overrides.getOrDefault(head.id(), PublishOutcome.CONFIRMED));
+            }
+
+            return outcomes;
+        });
+    }
+
+    // Counts transactions and tells whether one is open right now
+    private static final class TransactionTracker implements TransactionOperations {
+        private int count;
+        private boolean open;
+
+        @Override
+        public <T> T execute(TransactionCallback<T> action) {
+            count++;
+            open = true;
+
+            try {
+                return action.doInTransaction(new SimpleTransactionStatus());
+            } finally {
+                open = false;
+            }
+        }
+    }
+
+    private static OutboxRecord row(long id, String aggregateId, long sequenceNumber) {
+        return new OutboxRecord(id, "WALLET", aggregateId, sequenceNumber, "WALLET_UPDATE", "{}",
+                "event-" + id, "wallet.update");
+    }
+}
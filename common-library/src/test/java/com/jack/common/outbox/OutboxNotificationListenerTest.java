@@ -0,0 +1,137 @@
+package com.jack.common.outbox;
+
+import com.jack.common.config.OutboxRelayProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxNotificationListenerTest {
+    private static final long WAIT_MS = 5000;
+
+    @Mock
+    private OutboxRelay outboxRelay;
+
+    @Mock
+    private OutboxBatchProcessor batchProcessor;
+
+    private OutboxNotificationListener listener;
+
+    @AfterEach
+    void tearDown() {
+        if (listener != null) {
+            listener.stop();
+        }
+    }
+
+    @Test
+    void notificationRequestsADrain() throws SQLException {
+        PGConnection pgConnection = mock(PGConnection.class);
+        // One NOTIFY, then a quiet channel
+        when(pgConnection.getNotifications(anyInt()))
+                .thenReturn(new PGNotification[]{mock(PGNotification.class)})
+                .thenAnswer(invocation -> quietPoll());
+        Statement statement = mock(Statement.class);
+        Connection connection = connection(pgConnection, statement);
+
+        listener = new OutboxNotificationListener(outboxRelay, new OutboxRelayProperties(), () -> connection, 1);
+        listener.start();
+
+        // One drain for the (re)connect and one for the notification
+        verify(outboxRelay, timeout(WAIT_MS).times(2)).requestDrain();
+        verify(statement).execute("LISTEN outbox_pending");
+        assertThat(listener.isRunning()).isTrue();
+    }
+
+    @Test
+    void reconnectsAfterTheConnectionDropsAndDrainsAgain() throws SQLException {
+        PGConnection dropping = mock(PGConnection.class);
+        when(dropping.getNotifications(anyInt())).thenThrow(new SQLException("An I/O error occurred while sending to the backend"));
+        Connection dropped = connection(dropping, mock(Statement.class));
+        PGConnection healthy = mock(PGConnection.class);
+        when(healthy.getNotifications(anyInt())).thenAnswer(invocation -> quietPoll());
+        Connection reconnected = connection(healthy, mock(Statement.class));
+        AtomicInteger attempts = new AtomicInteger();
+
+        // Database unreachable, then a connection that drops, then a healthy one
+        listener = new OutboxNotificationListener(outboxRelay, new OutboxRelayProperties(), () -> switch (attempts.incrementAndGet()) {
+            case 1 -> throw new SQLException("Connection refused");
+            case 2 -> dropped;
+            default -> reconnected;
+        }, 1);
+        listener.start();
+
+        // Rows inserted while disconnected are covered by the drain on every successful connect
+        verify(healthy, timeout(WAIT_MS).atLeastOnce()).getNotifications(anyInt());
+        verify(outboxRelay, atLeast(2)).requestDrain();
+        verify(dropped).close();
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    void disabledListenOpensNoConnectionAndLeavesTheSweepToDrain() {
+        OutboxRelayProperties properties = new OutboxRelayProperties();
+        properties.setListenEnabled(false);
+        properties.setShardCount(2);
+        AtomicInteger attempts = new AtomicInteger();
+        listener = new OutboxNotificationListener(outboxRelay, properties, () -> {
+            attempts.incrementAndGet();
+            throw new SQLException("LISTEN must not connect when disabled");
+        }, 1);
+
+        listener.start();
+
+        assertThat(listener.isRunning()).isFalse();
+        assertThat(attempts).hasValue(0);
+        verifyNoInteractions(outboxRelay);
+
+        // The scheduled sweep still drains every shard without any notification
+        when(batchProcessor.processBatch(anyInt(), eq(2), anyLong(), anyInt(), any()))
+                .thenReturn(new OutboxBatchProcessor.BatchResult(0, 0));
+        OutboxRelay relay = new OutboxRelay(batchProcessor, properties);
+
+        try {
+            relay.sweep();
+        } finally {
+            relay.shutdown();
+        }
+
+        verify(batchProcessor).processBatch(eq(0), eq(2), eq(0L), anyInt(), any());
+        verify(batchProcessor).processBatch(eq(1), eq(2), eq(0L), anyInt(), any());
+    }
+
+    private static Connection connection(PGConnection pgConnection, Statement statement) throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        return connection;
+    }
+
+    // Stands in for the driver's blocking wait on an idle channel
+    private static PGNotification[] quietPoll() throws InterruptedException {
+        Thread.sleep(10);
+        return new PGNotification[0];
+    }
+}
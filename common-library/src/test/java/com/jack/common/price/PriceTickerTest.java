@@ -0,0 +1,66 @@
+package com.jack.common.price;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.common.config.PriceTickerProperties;
+import com.jack.common.dto.response.BTCPriceResponseDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PriceTickerTest {
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private PriceTicker priceTicker;
+
+    @BeforeEach
+    void setUp() {
+        PriceTickerProperties properties = new PriceTickerProperties();
+        properties.setBtcPriceKey("CUSTOM_PRICE_KEY");
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        priceTicker = new PriceTicker(properties, redisTemplate, new ObjectMapper());
+    }
+
+    @Test
+    void coldStartReadsTheConfiguredRedisKey() {
+        when(valueOperations.get("CUSTOM_PRICE_KEY")).thenReturn("{\"id\":7,\"btcPrice\":65000.5}");
+
+        assertThat(priceTicker.current()).contains(price(7L, "65000.5"));
+    }
+
+    @Test
+    void pushedTickIsServedWithoutRedis() {
+        priceTicker.onTick("{\"id\":3,\"btcPrice\":100}");
+
+        assertThat(priceTicker.current()).contains(price(3L, "100"));
+        verify(redisTemplate, never()).opsForValue();
+    }
+
+    @Test
+    void lateTickNeverReplacesANewerPrice() {
+        priceTicker.update(price(5L, "200"));
+        priceTicker.update(price(4L, "150"));
+
+        assertThat(priceTicker.current()).contains(price(5L, "200"));
+    }
+
+    private static BTCPriceResponseDto price(Long id, String value) {
+        return BTCPriceResponseDto.builder().id(id).btcPrice(new BigDecimal(value)).build();
+    }
+}
@@ -0,0 +1,37 @@
+package com.jack.common.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void neverMissesAnAddedId() {
+        BloomFilter filter = new BloomFilter(10_000, 0.001);
+        List<String> ids = ids(0, 10_000);
+
+        ids.forEach(filter::put);
+
+        assertThat(ids).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void falsePositiveRateStaysWithinTheConfiguredBound() {
+        double falsePositiveRate = 0.01;
+        BloomFilter filter = new BloomFilter(10_000, falsePositiveRate);
+        ids(0, 10_000).forEach(filter::put);
+
+        long falsePositives = ids(10_000, 110_000).stream().filter(filter::mightContain).count();
+
+        // Filled to its expected size; allow some sampling noise over 100k probes
+        assertThat(falsePositives / 100_000.0).isLessThan(falsePositiveRate * 1.5);
+    }
+
+    private static List<String> ids(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> TokenHashes.sha256Hex("token-" + i)).toList();
+    }
+}
@@ -0,0 +1,68 @@
+package com.jack.common.security;
+
+import com.jack.common.config.JwtProperties;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtTokenIssuerTest {
+    private static KeyPair keyPair;
+    private static KeyPair otherKeyPair;
+
+    @BeforeAll
+    static void generateKeys() throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+        otherKeyPair = generator.generateKeyPair();
+    }
+
+    @Test
+    void signsWithTheSharedSecretWhenNoKeysAreConfigured() {
+        assertThatCode(() -> new JwtTokenIssuer(new JwtProperties()).issue("user@example.com")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void signsWithAMatchingRsaPair() {
+        assertThatCode(() -> new JwtTokenIssuer(properties(keyPair, keyPair))).doesNotThrowAnyException();
+    }
+
+    @Test
+    void failsFastInRsaModeWithoutThePrivateKey() {
+        JwtProperties properties = properties(keyPair, keyPair);
+        properties.setPrivateKey("");
+
+        assertThatThrownBy(() -> new JwtTokenIssuer(properties))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("app.jwt.private-key");
+    }
+
+    @Test
+    void failsFastWithAPrivateKeyButNoPublicKey() {
+        JwtProperties properties = properties(keyPair, keyPair);
+        properties.setPublicKey(null);
+
+        assertThatThrownBy(() -> new JwtTokenIssuer(properties)).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void failsFastWhenThePrivateKeyBelongsToAnotherPair() {
+        assertThatThrownBy(() -> new JwtTokenIssuer(properties(keyPair, otherKeyPair)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("does not belong");
+    }
+
+    private static JwtProperties properties(KeyPair publicPair, KeyPair privatePair) {
+        JwtProperties properties = new JwtProperties();
+        properties.setPublicKey(Base64.getEncoder().encodeToString(publicPair.getPublic().getEncoded()));
+        properties.setPrivateKey(Base64.getEncoder().encodeToString(privatePair.getPrivate().getEncoded()));
+        return properties;
+    }
+}
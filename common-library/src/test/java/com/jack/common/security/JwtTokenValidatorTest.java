@@ -0,0 +1,101 @@
+package com.jack.common.security;
+
+import com.jack.common.config.JwtProperties;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class JwtTokenValidatorTest {
+    private static final String SUBJECT = "user@example.com";
+
+    @Mock
+    private TokenBlacklist tokenBlacklist;
+
+    private JwtTokenValidator validator;
+
+    @BeforeEach
+    void setUp() {
+        validator = new JwtTokenValidator(new JwtProperties(), tokenBlacklist);
+    }
+
+    @Test
+    void repeatLookupsAreServedFromTheClaimsCache() {
+        String token = new JwtTokenIssuer(new JwtProperties()).issue(SUBJECT);
+
+        Claims first = validator.parseClaims(token);
+        Claims second = validator.parseClaims(token);
+
+        assertThat(first.getSubject()).isEqualTo(SUBJECT);
+        // A re-parse would build a new Claims instance
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    void aCachedTokenIsRejectedOnceItsExpiryPasses() throws InterruptedException {
+        // exp has second precision, so round up to a whole second at least one second away
+        long expiresAt = (System.currentTimeMillis() / 1000 + 2) * 1000;
+        String token = Jwts.builder()
+                .subject(SUBJECT)
+                .expiration(new Date(expiresAt))
+                .signWith(JwtKeys.sharedSecretKey())
+                .compact();
+
+        assertThat(validator.validate(token)).isPresent();
+
+        Thread.sleep(expiresAt - System.currentTimeMillis() + 50);
+
+        assertThat(validator.validate(token)).isEmpty();
+        assertThatThrownBy(() -> validator.parseClaims(token)).isInstanceOf(ExpiredJwtException.class);
+    }
+
+    @Test
+    void theBlacklistOverridesCachedClaims() {
+        String token = new JwtTokenIssuer(new JwtProperties()).issue(SUBJECT);
+        when(tokenBlacklist.isBlacklisted(token)).thenReturn(false, true);
+
+        assertThat(validator.validate(token)).isPresent();
+
+        // Logged out after its claims were cached
+        assertThat(validator.validate(token)).isEmpty();
+    }
+
+    @Test
+    void rejectsATamperedToken() {
+        String token = new JwtTokenIssuer(new JwtProperties()).issue(SUBJECT);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThat(validator.validate(tampered)).isEmpty();
+    }
+
+    @Test
+    void rsaModeAcceptsOnlyTokensSignedWithThePrivateKey() throws NoSuchAlgorithmException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        JwtProperties rsaProperties = new JwtProperties();
+        rsaProperties.setPublicKey(Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+        rsaProperties.setPrivateKey(Base64.getEncoder().encodeToString(keyPair.getPrivate().getEncoded()));
+        JwtTokenValidator rsaValidator = new JwtTokenValidator(rsaProperties, tokenBlacklist);
+        when(tokenBlacklist.isBlacklisted(anyString())).thenReturn(false);
+
+        assertThat(rsaValidator.validate(new JwtTokenIssuer(rsaProperties).issue(SUBJECT))).isPresent();
+        assertThat(rsaValidator.validate(new JwtTokenIssuer(new JwtProperties()).issue(SUBJECT))).isEmpty();
+    }
+}
@@ -0,0 +1,97 @@
+package com.jack.common.security;
+
+import com.jack.common.config.TokenBlacklistProperties;
+import com.jack.common.constants.SecurityConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TokenBlacklistTest {
+    private static final String SCANNED_TOKEN = "scanned-token";
+    private static final String PUBLISHED_TOKEN = "published-token";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private Cursor<String> cursor;
+
+    private TokenBlacklist tokenBlacklist;
+
+    @BeforeEach
+    void setUp() {
+        tokenBlacklist = new TokenBlacklist(new TokenBlacklistProperties(), redisTemplate);
+    }
+
+    @Test
+    void withoutAFilterEveryCheckGoesToRedis() {
+        when(redisTemplate.hasKey(key(SCANNED_TOKEN))).thenReturn(true);
+
+        assertThat(tokenBlacklist.isBlacklisted(SCANNED_TOKEN)).isTrue();
+    }
+
+    @Test
+    void filterMissesAreAnsweredWithoutRedis() {
+        scanReturns(key(SCANNED_TOKEN));
+
+        tokenBlacklist.rebuild();
+
+        assertThat(tokenBlacklist.isBlacklisted("other-token")).isFalse();
+        verify(redisTemplate, never()).hasKey(anyString());
+    }
+
+    @Test
+    void aRebuildKeepsAnIdPublishedWhileItWasScanning() {
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(cursor);
+        doCallRealMethod().when(cursor).forEachRemaining(any());
+        when(cursor.hasNext()).thenReturn(true, false);
+        when(cursor.next()).thenAnswer(invocation -> {
+            // A peer blacklists a token after SCAN has already passed its key
+            tokenBlacklist.onBlacklisted(TokenHashes.sha256Hex(PUBLISHED_TOKEN));
+            return key(SCANNED_TOKEN);
+        });
+        when(redisTemplate.hasKey(key(PUBLISHED_TOKEN))).thenReturn(true);
+        when(redisTemplate.hasKey(key(SCANNED_TOKEN))).thenReturn(true);
+
+        tokenBlacklist.rebuild();
+
+        assertThat(tokenBlacklist.isBlacklisted(PUBLISHED_TOKEN)).isTrue();
+        assertThat(tokenBlacklist.isBlacklisted(SCANNED_TOKEN)).isTrue();
+    }
+
+    @Test
+    void legacyRawTokenKeysAreHashedIntoTheFilter() {
+        scanReturns(SecurityConstants.BLACKLIST_PREFIX + SCANNED_TOKEN);
+        when(redisTemplate.hasKey(key(SCANNED_TOKEN))).thenReturn(false);
+        when(redisTemplate.hasKey(SecurityConstants.BLACKLIST_PREFIX + SCANNED_TOKEN)).thenReturn(true);
+
+        tokenBlacklist.rebuild();
+
+        assertThat(tokenBlacklist.isBlacklisted(SCANNED_TOKEN)).isTrue();
+    }
+
+    private void scanReturns(String key) {
+        when(redisTemplate.scan(any(ScanOptions.class))).thenReturn(cursor);
+        doCallRealMethod().when(cursor).forEachRemaining(any());
+        when(cursor.hasNext()).thenReturn(true, false);
+        when(cursor.next()).thenReturn(key);
+    }
+
+    private static String key(String token) {
+        return SecurityConstants.BLACKLIST_PREFIX + TokenHashes.sha256Hex(token);
+    }
+}
@@ -0,0 +1,81 @@
+-- Claim-latency benchmark for the outbox storage layout. Not packaged with the service.
+-- Run against a scratch database with psql: psql -d outbox_bench -f claim_benchmark.sql
+-- Keep the table and the claim query below in sync with SQL/schema.sql and the claim in
+-- JdbcOutboxStore (common-library), run after OutboxBatchProcessor takes the shard's advisory lock.
+-- Each step grows the PROCESSED history by ~10M rows while keeping a constant 5,000 PENDING rows,
+-- then times the relay's claim query. With idx_outbox_pending the claim plan and latency stay flat;
+-- re-run after "DROP INDEX idx_outbox_pending; CREATE INDEX ON outbox (status);" to compare.
+
+\timing on
+
+DROP TABLE IF EXISTS outbox CASCADE;
+
+CREATE TABLE outbox
+(
+    id              BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY,
+    aggregate_type  VARCHAR(100) NOT NULL,
+    aggregate_id    VARCHAR(100) NOT NULL,
+    event_type      VARCHAR(100) NOT NULL,
+    payload         TEXT         NOT NULL,
+    created_at      TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    sequence_number BIGINT       NOT NULL,
+    status          VARCHAR(20)  NOT NULL DEFAULT 'PENDING',
+    attempts        INTEGER      NOT NULL DEFAULT 0,
+    processed_at    TIMESTAMP,
+    event_id        VARCHAR(36)  NOT NULL UNIQUE,
+    routing_key     VARCHAR(255) NOT NULL,
+    leased_until    TIMESTAMP
+);
+
+CREATE INDEX idx_outbox_pending ON outbox (id) WHERE status = 'PENDING';
+CREATE INDEX idx_outbox_processed_at ON outbox (processed_at) WHERE status = 'PROCESSED';
+CREATE INDEX idx_outbox_leased ON outbox (aggregate_type, aggregate_id) WHERE status = 'PENDING' AND leased_until IS NOT NULL;
+
+-- Grow the processed history by :rows rows and top the pending set back up to 5,000 rows
+CREATE OR REPLACE PROCEDURE bench_grow(rows BIGINT)
+    LANGUAGE plpgsql AS
+$$
+BEGIN
+    INSERT INTO outbox (aggregate_type, aggregate_id, event_type, payload, sequence_number, status,
+                        processed_at, event_id, routing_key)
+    SELECT 'WALLET', (g % 100000)::TEXT, 'WALLET_UPDATE', '{}', g, 'PROCESSED',
+           now() - (g % 30) * INTERVAL '1 day', gen_random_uuid()::TEXT, 'wallet.update'
+    FROM generate_series(1, rows) g;
+
+    UPDATE outbox SET status = 'PROCESSED', processed_at = now() WHERE status = 'PENDING';
+
+    INSERT INTO outbox (aggregate_type, aggregate_id, event_type, payload, sequence_number, event_id, routing_key)
+    SELECT 'WALLET', (g % 1000)::TEXT, 'WALLET_UPDATE', '{}', g, gen_random_uuid()::TEXT, 'wallet.update'
+    FROM generate_series(1, 5000) g;
+END
+$$;
+
+-- The relay's claim for shard 0 of 32 with a 60s lease: the shard lock (namespace 0x0B0C) and JdbcOutboxStore's
+-- claim SQL with sequence_number as the sequence column. Rolled back so the pending set and its leases are reused.
+\set claim 'BEGIN; SELECT pg_try_advisory_xact_lock(2828, 0); EXPLAIN (ANALYZE, BUFFERS) WITH claimed AS (SELECT o.id FROM outbox o WHERE o.status = ''PENDING'' AND o.id > 0 AND (o.leased_until IS NULL OR o.leased_until < now()) AND abs(hashtext(o.aggregate_id)::bigint) % 32 = 0 AND NOT EXISTS (SELECT 1 FROM outbox l WHERE l.status = ''PENDING'' AND l.leased_until >= now() AND l.aggregate_type = o.aggregate_type AND l.aggregate_id = o.aggregate_id) ORDER BY o.id LIMIT 500 FOR UPDATE SKIP LOCKED) UPDATE outbox SET leased_until = now() + 60000 * INTERVAL ''1 millisecond'' FROM claimed WHERE outbox.id = claimed.id RETURNING outbox.id, outbox.aggregate_type, outbox.aggregate_id, outbox.sequence_number AS sequence_number, outbox.event_type, outbox.payload, outbox.event_id, outbox.routing_key; ROLLBACK;'
+
+CALL bench_grow(1000000);
+VACUUM ANALYZE outbox;
+SELECT count(*) AS total_rows FROM outbox;
+:claim
+:claim
+
+CALL bench_grow(9000000);
+VACUUM ANALYZE outbox;
+SELECT count(*) AS total_rows FROM outbox;
+:claim
+:claim
+
+CALL bench_grow(10000000);
+VACUUM ANALYZE outbox;
+SELECT count(*) AS total_rows FROM outbox;
+:claim
+:claim
+
+CALL bench_grow(10000000);
+VACUUM ANALYZE outbox;
+SELECT count(*) AS total_rows FROM outbox;
+:claim
+:claim
+
+DROP PROCEDURE bench_grow(BIGINT);
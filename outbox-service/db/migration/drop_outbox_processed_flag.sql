@@ -0,0 +1,13 @@
+-- One-time migration for databases created before the outbox moved to status-only tracking.
+-- Run it once, after every relay is on the status-based version: psql -d outboxdb -f drop_outbox_processed_flag.sql
+-- Not applied by the service; OutboxStorageInitializer only creates what is missing.
+
+BEGIN;
+
+-- The processed flag duplicated status and is no longer mapped
+ALTER TABLE outbox DROP COLUMN IF EXISTS processed;
+
+-- Superseded by the partial indexes idx_outbox_pending and idx_outbox_processed_at
+DROP INDEX IF EXISTS idx_outbox_processed;
+
+COMMIT;
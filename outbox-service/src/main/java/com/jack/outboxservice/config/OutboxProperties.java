@@ -0,0 +1,33 @@
+package com.jack.outboxservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.outbox")
+public class OutboxProperties {
+    // Relay settings under the same prefix are bound by com.jack.common.config.OutboxRelayProperties
+
+    // Whether processed rows are pruned from the hot outbox table
+    private boolean retentionEnabled = true;
+
+    // ARCHIVE moves pruned rows into the monthly outbox_archive partitions, DELETE drops them
+    private RetentionMode retentionMode = RetentionMode.ARCHIVE;
+
+    // Processed rows older than this are pruned
+    private Duration retentionAge = Duration.ofDays(7);
+
+    // Rows moved or deleted per statement, keeping each retention transaction short
+    private int retentionBatchSize = 5000;
+
+    public enum RetentionMode {
+        ARCHIVE,
+        DELETE
+    }
+}
@@ -0,0 +1,26 @@
+package com.jack.outboxservice.config;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class OutboxStorageInitializer implements ApplicationRunner {
+    private final DataSource dataSource;
+
+    // Hibernate's ddl-auto cannot express partial indexes or partitioned tables, so create them here if missing.
+    // Runs on every instance at every startup, so the script must stay additive; destructive changes live in db/migration.
+    @Override
+    public void run(ApplicationArguments args) {
+        new ResourceDatabasePopulator(new ClassPathResource("SQL/outbox_storage.sql")).execute(dataSource);
+        log.info("Outbox storage layout verified (partial indexes, archive table)");
+    }
+}
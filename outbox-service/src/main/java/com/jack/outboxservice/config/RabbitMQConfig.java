@@ -1,16 +1,32 @@
 package com.jack.outboxservice.config;
 
+import com.jack.common.config.OutboxRelayConfig;
 import com.jack.common.constants.TransactionConstants;
 import com.jack.common.constants.UserConstants;
 import com.jack.common.constants.WalletConstants;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.amqp.RabbitTemplateConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
 
 @Configuration
+@Import(OutboxRelayConfig.class)
 @Log4j2
 public class RabbitMQConfig {
+    // Boot backs off its own template once another RabbitTemplate bean exists, so declare the shared one explicitly
+    @Bean
+    @Primary
+    public RabbitTemplate rabbitTemplate(RabbitTemplateConfigurer configurer, ConnectionFactory connectionFactory) {
+        RabbitTemplate template = new RabbitTemplate();
+        configurer.configure(template, connectionFactory);
+        return template;
+    }
+
     // Wallet Service Configuration
     @Bean
     public Queue walletCreateQueue() {
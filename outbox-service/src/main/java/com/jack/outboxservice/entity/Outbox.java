@@ -7,9 +7,9 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
+// Pending lookups use the partial index idx_outbox_pending (see SQL/schema.sql), which JPA cannot declare
 @Table(name = "outbox", indexes = {
         @Index(name = "idx_outbox_created_at", columnList = "createdAt"),
-        @Index(name = "idx_outbox_processed", columnList = "status"),
         @Index(name = "idx_outbox_aggregate", columnList = "aggregateType, aggregateId, sequenceNumber")
 })
 @Getter
@@ -46,14 +46,20 @@ public class Outbox {
     @Enumerated(EnumType.STRING)
     @Builder.Default
     @Column(name = "status", nullable = false)
-    private EventStatus status = EventStatus.PENDING; // Default to PENDING
+    private EventStatus status = EventStatus.PENDING; // PENDING -> PROCESSED, then archived or deleted by retention; FAILED is dead-lettered
 
-    @Column(name = "processed", nullable = false)
-    private boolean processed; // Flag indicating whether the event has been processed
+    // Failed publish attempts; the relay dead-letters the row as FAILED after app.outbox.max-attempts
+    @Builder.Default
+    @Column(name = "attempts", nullable = false, columnDefinition = "INTEGER NOT NULL DEFAULT 0")
+    private int attempts = 0;
 
     @Column(name = "processed_at")
     private LocalDateTime processedAt;
 
+    // Set while a relay publishes the row outside its claim transaction; an expired lease makes it claimable again
+    @Column(name = "leased_until")
+    private LocalDateTime leasedUntil;
+
     @Column(name = "event_id", nullable = false, unique = true, length = 36)
     private String eventId;
 
@@ -9,7 +9,6 @@ import org.mapstruct.Mapping;
 public interface OutboxMapper {
     // Map OutboxDto to Outbox entity
     @Mapping(target = "status", source = "dto.status")  // Direct mapping from dto.status
-    @Mapping(target = "processed", source = "dto.processed")    // Map processed directly
     @Mapping(target = "routingKey", source = "dto.routingKey")
     // Map routingKey from OutboxDto
     Outbox toEntity(OutboxDto dto);
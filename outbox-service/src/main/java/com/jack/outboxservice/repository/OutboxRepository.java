@@ -1,13 +1,10 @@
 package com.jack.outboxservice.repository;
 
-import com.jack.common.constants.EventStatus;
 import com.jack.outboxservice.entity.Outbox;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
-
+// Writes only; claiming and marking rows is done by the shared relay (com.jack.common.outbox.JdbcOutboxStore)
 @Repository
 public interface OutboxRepository extends JpaRepository<Outbox, Long> {
-    List<Outbox> findByStatus(EventStatus status);
 }
@@ -0,0 +1,91 @@
+package com.jack.outboxservice.retention;
+
+import com.jack.outboxservice.config.OutboxProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class OutboxRetentionJob {
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    // Pick the oldest expired rows through idx_outbox_processed_at; locked rows are left for the next run
+    private static final String EXPIRED_IDS = "SELECT id FROM outbox WHERE status = 'PROCESSED' AND processed_at < ? " +
+            "ORDER BY processed_at LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String ARCHIVE_BATCH = "WITH moved AS (DELETE FROM outbox WHERE id IN (" + EXPIRED_IDS + ") " +
+            "RETURNING id, aggregate_type, aggregate_id, event_type, payload, created_at, sequence_number, status, " +
+            "processed_at, event_id, routing_key) " +
+            "INSERT INTO outbox_archive (id, aggregate_type, aggregate_id, event_type, payload, created_at, " +
+            "sequence_number, status, processed_at, event_id, routing_key) SELECT * FROM moved";
+
+    private static final String DELETE_BATCH = "DELETE FROM outbox WHERE id IN (" + EXPIRED_IDS + ")";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OutboxProperties outboxProperties;
+
+    @Scheduled(fixedDelayString = "${app.outbox.retention-interval-ms:3600000}",
+            initialDelayString = "${app.outbox.retention-interval-ms:3600000}")
+    public void pruneProcessed() {
+        if (!outboxProperties.isRetentionEnabled()) {
+            return;
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().minus(outboxProperties.getRetentionAge());
+        OutboxProperties.RetentionMode mode = outboxProperties.getRetentionMode();
+
+        if (mode == OutboxProperties.RetentionMode.ARCHIVE) {
+            ensureArchivePartitions(cutoff);
+        }
+
+        String sql = mode == OutboxProperties.RetentionMode.ARCHIVE ? ARCHIVE_BATCH : DELETE_BATCH;
+        int batchSize = outboxProperties.getRetentionBatchSize();
+        long total = 0;
+        int affected;
+
+        // Each statement commits on its own, so no single transaction holds more than one batch of locks
+        do {
+            affected = jdbcTemplate.update(sql, Timestamp.valueOf(cutoff), batchSize);
+            total += affected;
+        } while (affected == batchSize);
+
+        if (total > 0) {
+            log.info("Outbox retention {} {} rows processed before {}", mode, total, cutoff);
+        }
+    }
+
+    // Create the monthly archive partitions between the oldest expired row and the cutoff
+    private void ensureArchivePartitions(LocalDateTime cutoff) {
+        Timestamp oldest = jdbcTemplate.queryForObject(
+                "SELECT min(processed_at) FROM outbox WHERE status = 'PROCESSED'", Timestamp.class);
+
+        if (oldest == null || !oldest.toLocalDateTime().isBefore(cutoff)) {
+            return;
+        }
+
+        YearMonth last = YearMonth.from(cutoff);
+
+        for (YearMonth month = YearMonth.from(oldest.toLocalDateTime()); !month.isAfter(last); month = month.plusMonths(1)) {
+            LocalDate from = month.atDay(1);
+            LocalDate to = month.plusMonths(1).atDay(1);
+
+            try {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS outbox_archive_" + month.format(PARTITION_SUFFIX) +
+                        " PARTITION OF outbox_archive FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+            } catch (Exception e) {
+                // Typically the default partition already holds rows for this month; they stay there
+                log.warn("Could not create outbox archive partition for {}: {}", month, e.getMessage());
+            }
+        }
+    }
+}
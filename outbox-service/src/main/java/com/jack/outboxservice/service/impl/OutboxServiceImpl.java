@@ -1,11 +1,11 @@
 package com.jack.outboxservice.service.impl;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.common.config.OutboxRelayProperties;
 import com.jack.common.constants.EventStatus;
 import com.jack.common.constants.WalletConstants;
 import com.jack.common.dto.OutboxDto;
-import com.jack.common.dto.response.WalletCreateMessageDto;
 import com.jack.common.dto.response.WalletUpdateMessageDto;
+import com.jack.common.outbox.OutboxRelay;
 import com.jack.outboxservice.entity.Outbox;
 import com.jack.outboxservice.mapper.OutboxMapper;
 import com.jack.outboxservice.repository.OutboxRepository;
@@ -13,13 +13,11 @@ import com.jack.outboxservice.service.OutboxService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Optional;
 
 @Service
@@ -28,8 +26,10 @@ import java.util.Optional;
 public class OutboxServiceImpl implements OutboxService {
     private final OutboxRepository outboxRepository;
     private final RabbitTemplate rabbitTemplate;
-    private final ObjectMapper objectMapper;
     private final OutboxMapper outboxMapper;
+    private final OutboxRelay outboxRelay;
+    private final OutboxRelayProperties outboxProperties;
+    private final JdbcTemplate jdbcTemplate;
 
     // Save an Outbox entry
     @Override
@@ -38,6 +38,10 @@ public class OutboxServiceImpl implements OutboxService {
         outboxEntity.setCreatedAt(LocalDateTime.now());
         outboxEntity.setStatus(EventStatus.PENDING);
         Outbox savedEntity = outboxRepository.save(outboxEntity);
+
+        // The row is committed at this point; wake the local relay and the relays on other replicas
+        outboxRelay.requestDrain();
+        notifyReplicas();
         return outboxMapper.toDto(savedEntity);
     }
 
@@ -47,67 +51,21 @@ public class OutboxServiceImpl implements OutboxService {
                 .map(outboxMapper::toDto);
     }
 
-    // Process unprocessed outbox messages every 5 seconds
+    // Drain on demand; the relay also sweeps on app.outbox.sweep-interval-ms as a safety net
     @Override
-    @Scheduled(fixedRate = 5000)
-    @Transactional
     public void processOutbox() {
-        List<Outbox> unprocessedMessages = outboxRepository.findByStatus(EventStatus.PENDING);
-
-        for (Outbox outbox : unprocessedMessages) {
-            try {
-                if (outbox.getPayload() != null) {
-                    // Deserialize based on a message type
-                    String messageType = outbox.getEventType();
-                    switch (messageType) {
-                        case WalletConstants.WALLET_CREATE:
-                            WalletCreateMessageDto createMessage = objectMapper.readValue(outbox.getPayload(), WalletCreateMessageDto.class);
-                            rabbitTemplate.convertAndSend(
-                                    WalletConstants.WALLET_EXCHANGE,
-                                    WalletConstants.WALLET_CREATE_ROUTING_KEY,
-                                    createMessage);
-                            break;
-                        case WalletConstants.WALLET_UPDATE:
-                            WalletUpdateMessageDto updateMessage = objectMapper.readValue(outbox.getPayload(), WalletUpdateMessageDto.class);
-                            rabbitTemplate.convertAndSend(
-                                    WalletConstants.WALLET_EXCHANGE,
-                                    WalletConstants.WALLET_UPDATE_ROUTING_KEY,
-                                    updateMessage);
-                            break;
-                        // Add cases for USER_UPDATE, TRANSACTION_UPDATE if needed
-
-
-
-
-
-
-
-
-
-
-                        default:
-                            log.warn("Unknown message type: {}", messageType);
-                            continue;
-                    }
-
-                    // Update Outbox status
-                    outbox.setStatus(EventStatus.PROCESSED);
-                    outbox.setProcessedAt(LocalDateTime.now());
-                    outboxRepository.save(outbox);
-                    log.info("Processed outbox message with ID: {}", outbox.getId());
-                } else {
-                    log.warn("Payload is null for outbox entry with ID: {}", outbox.getId());
-                }
-            } catch (Exception e) {
-                log.error("Failed to process outbox message with ID: {}: {}", outbox.getId(), e.getMessage());
-            }
-        }
+        outboxRelay.drain();
     }
 
     @Override
     public void processTransactionEvent(Long transactionId, Long userId, BigDecimal btcAmount, BigDecimal usdAmount) {
         try {
-            WalletUpdateMessageDto updateMessage = new WalletUpdateMessageDto(userId, btcAmount, usdAmount);
+            // No event id: this direct publish is not tracked, so wallet-service sends no result back
+            WalletUpdateMessageDto updateMessage = WalletUpdateMessageDto.builder()
+                    .userId(userId)
+                    .usdAmount(usdAmount)
+                    .btcAmount(btcAmount)
+                    .build();
 
             // Publish the wallet update event to RabbitMQ
             rabbitTemplate.convertAndSend(
@@ -121,4 +79,12 @@ public class OutboxServiceImpl implements OutboxService {
             log.error("Failed to process transaction event: transactionId={}, userId={}, btcAmount={}, error={}", transactionId, userId, btcAmount, e.getMessage());
         }
     }
+
+    private void notifyReplicas() {
+        try {
+            jdbcTemplate.execute("NOTIFY " + outboxProperties.getNotifyChannel());
+        } catch (Exception e) {
+            log.warn("Failed to notify outbox relays on channel {}: {}", outboxProperties.getNotifyChannel(), e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,31 @@
+-- Idempotent storage setup applied on startup by OutboxStorageInitializer.
+-- Additive only: anything that drops or rewrites existing objects belongs in db/migration and is run once by hand.
+
+-- Lease taken by a relay while it publishes claimed rows outside the claim transaction
+ALTER TABLE outbox ADD COLUMN IF NOT EXISTS leased_until TIMESTAMP;
+
+-- Partial indexes that only cover the rows each query touches
+CREATE INDEX IF NOT EXISTS idx_outbox_pending ON outbox (id) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS idx_outbox_processed_at ON outbox (processed_at) WHERE status = 'PROCESSED';
+CREATE INDEX IF NOT EXISTS idx_outbox_leased ON outbox (aggregate_type, aggregate_id)
+    WHERE status = 'PENDING' AND leased_until IS NOT NULL;
+
+-- Archive of published rows, range-partitioned by month on processed_at
+CREATE TABLE IF NOT EXISTS outbox_archive
+(
+    id              BIGINT       NOT NULL,
+    aggregate_type  VARCHAR(100) NOT NULL,
+    aggregate_id    VARCHAR(100) NOT NULL,
+    event_type      VARCHAR(100) NOT NULL,
+    payload         TEXT         NOT NULL,
+    created_at      TIMESTAMP    NOT NULL,
+    sequence_number BIGINT       NOT NULL,
+    status          VARCHAR(20)  NOT NULL,
+    processed_at    TIMESTAMP    NOT NULL,
+    event_id        VARCHAR(36)  NOT NULL,
+    routing_key     VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id, processed_at)
+) PARTITION BY RANGE (processed_at);
+
+-- Catch-all for rows whose monthly partition could not be created
+CREATE TABLE IF NOT EXISTS outbox_archive_default PARTITION OF outbox_archive DEFAULT;
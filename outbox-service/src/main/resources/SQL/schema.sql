@@ -2,8 +2,9 @@ CREATE DATABASE outboxdb;
 
 \c outboxdb
 
--- Drop outbox table if it exists
+-- Drop outbox tables if they exist
 DROP TABLE IF EXISTS outbox CASCADE;
+DROP TABLE IF EXISTS outbox_archive CASCADE;
 
 -- Create outbox table
 CREATE TABLE outbox
@@ -16,13 +17,39 @@ CREATE TABLE outbox
     created_at      TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP, -- Creation timestamp
     sequence_number BIGINT       NOT NULL,                           -- Sequence number to maintain event order
     status          VARCHAR(20)  NOT NULL DEFAULT 'PENDING',         -- Status of the event (default to PENDING)
-    processed       BOOLEAN      NOT NULL DEFAULT FALSE,             -- Flag indicating whether the event has been processed
+    attempts        INTEGER      NOT NULL DEFAULT 0,                 -- Failed publish attempts; FAILED after app.outbox.max-attempts
     processed_at    TIMESTAMP,                                       -- Timestamp when the event was processed
     event_id        VARCHAR(36)  NOT NULL UNIQUE,                    -- Unique identifier for the event
-    routing_key     VARCHAR(255) NOT NULL                            -- Routing key for the outbox event
+    routing_key     VARCHAR(255) NOT NULL,                           -- Routing key for the outbox event
+    leased_until    TIMESTAMP                                        -- Set while a relay publishes the row outside its claim transaction
 );
 
 -- Create indexes for the outbox table
 CREATE INDEX idx_outbox_created_at ON outbox (created_at);
-CREATE INDEX idx_outbox_processed ON outbox (status);
 CREATE INDEX idx_outbox_aggregate ON outbox (aggregate_type, aggregate_id, sequence_number);
+
+-- Partial indexes: the relay only scans PENDING rows and retention only scans PROCESSED rows
+CREATE INDEX idx_outbox_pending ON outbox (id) WHERE status = 'PENDING';
+CREATE INDEX idx_outbox_processed_at ON outbox (processed_at) WHERE status = 'PROCESSED';
+-- Claims skip aggregates another relay still holds a lease on
+CREATE INDEX idx_outbox_leased ON outbox (aggregate_type, aggregate_id) WHERE status = 'PENDING' AND leased_until IS NOT NULL;
+
+-- Create archive table for published rows, partitioned by month on processed_at
+CREATE TABLE outbox_archive
+(
+    id              BIGINT       NOT NULL,
+    aggregate_type  VARCHAR(100) NOT NULL,
+    aggregate_id    VARCHAR(100) NOT NULL,
+    event_type      VARCHAR(100) NOT NULL,
+    payload         TEXT         NOT NULL,
+    created_at      TIMESTAMP    NOT NULL,
+    sequence_number BIGINT       NOT NULL,
+    status          VARCHAR(20)  NOT NULL,
+    processed_at    TIMESTAMP    NOT NULL,
+    event_id        VARCHAR(36)  NOT NULL,
+    routing_key     VARCHAR(255) NOT NULL,
+    PRIMARY KEY (id, processed_at)
+) PARTITION BY RANGE (processed_at);
+
+-- Monthly partitions are created by the retention job; the default partition catches anything else
+CREATE TABLE outbox_archive_default PARTITION OF outbox_archive DEFAULT;
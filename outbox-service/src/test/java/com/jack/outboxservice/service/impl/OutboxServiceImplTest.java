@@ -0,0 +1,81 @@
+package com.jack.outboxservice.service.impl;
+
+import com.jack.common.config.OutboxRelayProperties;
+import com.jack.common.constants.EventStatus;
+import com.jack.common.dto.OutboxDto;
+import com.jack.common.outbox.OutboxRelay;
+import com.jack.outboxservice.entity.Outbox;
+import com.jack.outboxservice.mapper.OutboxMapper;
+import com.jack.outboxservice.repository.OutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxServiceImplTest {
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private OutboxMapper outboxMapper;
+
+    @Mock
+    private OutboxRelay outboxRelay;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private OutboxServiceImpl outboxService;
+    private final OutboxDto request = OutboxDto.builder().aggregateType("WALLET").aggregateId("7").eventType("USER_CREATED").build();
+    private final OutboxDto saved = OutboxDto.builder().id(1L).status(EventStatus.PENDING).build();
+    // As mapped from a request that carries no status
+    private final Outbox entity = Outbox.builder().aggregateType("WALLET").aggregateId("7").status(null).build();
+
+    @BeforeEach
+    void setUp() {
+        outboxService = new OutboxServiceImpl(outboxRepository, rabbitTemplate, outboxMapper, outboxRelay,
+                new OutboxRelayProperties(), jdbcTemplate);
+        when(outboxMapper.toEntity(request)).thenReturn(entity);
+        when(outboxRepository.save(entity)).thenReturn(entity);
+        when(outboxMapper.toDto(entity)).thenReturn(saved);
+    }
+
+    @Test
+    void savedRowWakesTheLocalRelayAndNotifiesOtherReplicas() {
+        assertThat(outboxService.saveOutbox(request)).isEqualTo(saved);
+
+        ArgumentCaptor<Outbox> written = ArgumentCaptor.forClass(Outbox.class);
+        InOrder order = inOrder(outboxRepository, outboxRelay, jdbcTemplate);
+        order.verify(outboxRepository).save(written.capture());
+        order.verify(outboxRelay).requestDrain();
+        order.verify(jdbcTemplate).execute("NOTIFY outbox_pending");
+        assertThat(written.getValue().getStatus()).isEqualTo(EventStatus.PENDING);
+        assertThat(written.getValue().getCreatedAt()).isNotNull();
+    }
+
+    @Test
+    void failedNotifyStillSavesTheRowAndWakesTheLocalRelay() {
+        // Other replicas pick the row up on their next sweep instead
+        doThrow(new CannotGetJdbcConnectionException("database unavailable")).when(jdbcTemplate).execute("NOTIFY outbox_pending");
+
+        assertThat(outboxService.saveOutbox(request)).isEqualTo(saved);
+
+        verify(outboxRelay).requestDrain();
+    }
+}
@@ -0,0 +1,58 @@
+package com.jack.priceservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.price.feed")
+public class PriceFeedProperties {
+    // wave (default), random-walk or replay
+    private String type = "wave";
+
+    // How often the scheduler polls the feed; random-walk and replay emit every tick due since the last poll
+    private long pollIntervalMs = 5000;
+
+    private RandomWalk randomWalk = new RandomWalk();
+    private Replay replay = new Replay();
+
+    @Getter
+    @Setter
+    public static class RandomWalk {
+        // Target tick rate, independent of the poll interval
+        private double ticksPerSecond = 1000;
+
+        // Standard deviation of the relative price change per tick
+        private double volatility = 0.0005;
+
+        // Price floor so the walk never reaches zero
+        private BigDecimal minPrice = BigDecimal.ONE;
+
+        // Fixed seed for reproducible runs; 0 picks a random seed
+        private long seed = 0;
+
+        // Upper bound on ticks emitted per poll when the scheduler falls behind
+        private int maxTicksPerPoll = 50_000;
+    }
+
+    @Getter
+    @Setter
+    public static class Replay {
+        // CSV of recorded ticks, one "price" or "epochMillis,price" per line
+        private String file;
+
+        // Replay speed relative to the recorded timestamps (2.0 = twice as fast)
+        private double speed = 1.0;
+
+        // Tick rate used when the file has no timestamps
+        private double ticksPerSecond = 1000;
+
+        // Start over when the end of the file is reached
+        private boolean loop = true;
+    }
+}
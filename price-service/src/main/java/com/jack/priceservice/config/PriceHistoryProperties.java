@@ -0,0 +1,29 @@
+package com.jack.priceservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.price.history")
+public class PriceHistoryProperties {
+    // Ticks buffered in memory before the producer has to flush inline
+    private int bufferCapacity = 4096;
+
+    // Rows per JDBC batch insert
+    private int batchSize = 500;
+
+    // Batch inserts of the same rows refused by a constraint before they are inserted one by one and the refused
+    // ones dropped; other failures (database unreachable, timeouts) never drop rows and are retried with backoff
+    private int maxBatchAttempts = 3;
+
+    // Backoff after a failure that is not a constraint violation; doubles per consecutive failure up to the max
+    private long retryBackoffInitialMs = 1000;
+    private long retryBackoffMaxMs = 60000;
+
+    // Most recent ticks kept in the in-memory lookup index (24 bytes each); older lookups go to the database
+    private int indexMaxEntries = 1_000_000;
+}
@@ -1,5 +1,6 @@
 package com.jack.priceservice.config;
 
+import com.jack.common.config.PriceTickerConfig;
 import com.jack.common.config.RedisCommonConfig;
 import com.jack.priceservice.dto.BTCPriceHistoryDto;
 import lombok.extern.log4j.Log4j2;
@@ -12,7 +13,7 @@ import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSeriali
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
-@Import(RedisCommonConfig.class)
+@Import({RedisCommonConfig.class, PriceTickerConfig.class})
 @Log4j2
 public class RedisConfig {
 
@@ -1,24 +1,44 @@
 package com.jack.priceservice.controller;
 
+import com.jack.priceservice.dto.CandleDto;
+import com.jack.priceservice.dto.PriceLookupRequestDto;
+import com.jack.priceservice.dto.PriceLookupResponseDto;
+import com.jack.priceservice.entity.CandleInterval;
+import com.jack.priceservice.service.CandleService;
+import com.jack.priceservice.service.PriceLookupService;
 import com.jack.priceservice.service.PriceService;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/api/price")
 @Log4j2
 public class PriceController {
+    private static final int DEFAULT_CANDLE_COUNT = 100;
+    private static final int MAX_CANDLE_COUNT = 1000;
+    private static final int MAX_LOOKUP_COUNT = 10_000;
+
     private final PriceService priceService;
+    private final CandleService candleService;
+    private final PriceLookupService priceLookupService;
 
     @Autowired
-    public PriceController(PriceService priceService) {
+    public PriceController(PriceService priceService, CandleService candleService, PriceLookupService priceLookupService) {
         this.priceService = priceService;
+        this.candleService = candleService;
+        this.priceLookupService = priceLookupService;
     }
 
     @GetMapping("/current")
@@ -28,4 +48,47 @@ public class PriceController {
         log.info("Current BTC price retrieved: {}", currentPrice);
         return ResponseEntity.ok(currentPrice);
     }
+
+    // OHLC candles for interval 1m, 5m, 1h or 1d; defaults to the most recent 100 buckets
+    @GetMapping("/candles")
+    public ResponseEntity<List<CandleDto>> getCandles(@RequestParam(defaultValue = "1m") String interval,
+                                                      @RequestParam(required = false) Instant from,
+                                                      @RequestParam(required = false) Instant to,
+                                                      @RequestParam(defaultValue = "500") int limit) {
+        CandleInterval candleInterval;
+
+        try {
+            candleInterval = CandleInterval.fromCode(interval);
+        } catch (IllegalArgumentException e) {
+            log.warn(e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+
+        Instant end = to != null ? to : Instant.now();
+        Instant start = from != null ? from : end.minus(candleInterval.getLength().multipliedBy(DEFAULT_CANDLE_COUNT));
+
+        if (start.isAfter(end) || limit <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(candleService.getCandles(candleInterval, start, end, Math.min(limit, MAX_CANDLE_COUNT)));
+    }
+
+    // Batched historical prices by timestamp and/or btcPriceHistoryId, e.g. to value a user's transactions in one call
+    @PostMapping("/lookup")
+    public ResponseEntity<PriceLookupResponseDto> lookupPrices(@RequestBody PriceLookupRequestDto request) {
+        List<Instant> timestamps = request.getTimestamps() != null ? request.getTimestamps() : List.of();
+        List<Long> historyIds = request.getHistoryIds() != null ? request.getHistoryIds() : List.of();
+
+        if (timestamps.size() + historyIds.size() > MAX_LOOKUP_COUNT
+                || timestamps.stream().anyMatch(Objects::isNull) || historyIds.stream().anyMatch(Objects::isNull)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        log.info("Received price lookup for {} timestamps and {} history IDs", timestamps.size(), historyIds.size());
+        return ResponseEntity.ok(PriceLookupResponseDto.builder()
+                .byTimestamp(priceLookupService.findPricesAt(timestamps))
+                .byHistoryId(priceLookupService.findPricesByIds(historyIds))
+                .build());
+    }
 }
@@ -0,0 +1,27 @@
+package com.jack.priceservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class CandleDto implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private String interval;
+    private Instant bucketStart;
+    private BigDecimal open;
+    private BigDecimal high;
+    private BigDecimal low;
+    private BigDecimal close;
+    private long tickCount;
+}
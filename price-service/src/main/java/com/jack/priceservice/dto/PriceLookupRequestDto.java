@@ -0,0 +1,22 @@
+package com.jack.priceservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PriceLookupRequestDto implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private List<Instant> timestamps;
+    private List<Long> historyIds;
+}
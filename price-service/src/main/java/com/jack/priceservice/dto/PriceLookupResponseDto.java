@@ -0,0 +1,22 @@
+package com.jack.priceservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+// Results are in request order; a null entry means no price is known for that timestamp or id
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PriceLookupResponseDto implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private List<BTCPriceHistoryDto> byTimestamp;
+    private List<BTCPriceHistoryDto> byHistoryId;
+}
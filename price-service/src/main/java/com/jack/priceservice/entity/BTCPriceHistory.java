@@ -9,6 +9,7 @@ import java.math.BigDecimal;
 import java.time.Instant;
 
 @Entity
+@Table(indexes = @Index(name = "idx_btc_price_history_timestamp", columnList = "timestamp"))
 @Getter
 @Setter
 @Builder
@@ -17,8 +18,10 @@ import java.time.Instant;
 @RedisHash("BTCPriceHistory")
 public class BTCPriceHistory {
 
+    // Block-allocated from btc_price_history_seq (pooled-lo), so rows can be batch-inserted by PriceHistoryWriter
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "btc_price_history_seq")
+    @SequenceGenerator(name = "btc_price_history_seq", sequenceName = "btc_price_history_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, precision = 19, scale = 4)
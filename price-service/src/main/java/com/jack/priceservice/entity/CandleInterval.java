@@ -0,0 +1,43 @@
+package com.jack.priceservice.entity;
+
+import java.time.Duration;
+import java.time.Instant;
+
+public enum CandleInterval {
+    ONE_MINUTE("1m", Duration.ofMinutes(1)),
+    FIVE_MINUTES("5m", Duration.ofMinutes(5)),
+    ONE_HOUR("1h", Duration.ofHours(1)),
+    ONE_DAY("1d", Duration.ofDays(1));
+
+    private final String code;
+    private final Duration length;
+
+    CandleInterval(String code, Duration length) {
+        this.code = code;
+        this.length = length;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public Duration getLength() {
+        return length;
+    }
+
+    // Buckets are aligned to the epoch in UTC
+    public Instant bucketStart(Instant timestamp) {
+        long lengthMillis = length.toMillis();
+        return Instant.ofEpochMilli(Math.floorDiv(timestamp.toEpochMilli(), lengthMillis) * lengthMillis);
+    }
+
+    public static CandleInterval fromCode(String code) {
+        for (CandleInterval interval : values()) {
+            if (interval.code.equals(code)) {
+                return interval;
+            }
+        }
+
+        throw new IllegalArgumentException("Unsupported candle interval: " + code);
+    }
+}
@@ -0,0 +1,44 @@
+package com.jack.priceservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// One OHLC rollup per interval and bucket; the primary key serves every range query
+@Entity
+@Table(name = "price_candle")
+@IdClass(PriceCandleId.class)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class PriceCandle {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "candle_interval", length = 16)
+    private CandleInterval interval;
+
+    @Id
+    @Column(name = "bucket_start")
+    private Instant bucketStart;
+
+    @Column(name = "open_price", nullable = false, precision = 19, scale = 4)
+    private BigDecimal open;
+
+    @Column(name = "high_price", nullable = false, precision = 19, scale = 4)
+    private BigDecimal high;
+
+    @Column(name = "low_price", nullable = false, precision = 19, scale = 4)
+    private BigDecimal low;
+
+    @Column(name = "close_price", nullable = false, precision = 19, scale = 4)
+    private BigDecimal close;
+
+    @Column(name = "tick_count", nullable = false)
+    private long tickCount;
+}
@@ -0,0 +1,19 @@
+package com.jack.priceservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceCandleId implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private CandleInterval interval;
+    private Instant bucketStart;
+}
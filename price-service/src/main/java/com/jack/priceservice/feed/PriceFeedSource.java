@@ -0,0 +1,13 @@
+package com.jack.priceservice.feed;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Source of BTC prices; selected with app.price.feed.type
+public interface PriceFeedSource {
+    // Price published at startup
+    BigDecimal initialPrice();
+
+    // Prices that became due since the previous poll, oldest first; may be empty
+    List<BigDecimal> poll();
+}
@@ -0,0 +1,73 @@
+package com.jack.priceservice.feed;
+
+import com.jack.priceservice.config.PriceFeedProperties;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Geometric random walk at a configurable tick rate; with a fixed seed every run produces the same prices
+@Component
+@ConditionalOnProperty(prefix = "app.price.feed", name = "type", havingValue = "random-walk")
+@Log4j2
+public class RandomWalkPriceFeedSource implements PriceFeedSource {
+    private static final int SCALE = 4; // Matches btc_price_history.price precision in the entity
+
+    private final PriceFeedProperties.RandomWalk settings;
+    private final SplittableRandom random;
+    private final double minPrice;
+    private double price;
+    private long lastPollNanos;
+    private double ticksOwed;
+
+    public RandomWalkPriceFeedSource(PriceFeedProperties properties,
+                                     @Value("${initial.price:100.00}") BigDecimal initialPrice) {
+        this.settings = properties.getRandomWalk();
+        this.random = settings.getSeed() != 0 ? new SplittableRandom(settings.getSeed()) : new SplittableRandom();
+        this.minPrice = settings.getMinPrice().doubleValue();
+        this.price = initialPrice.doubleValue();
+        this.lastPollNanos = System.nanoTime();
+        log.info("Random-walk price feed: ticksPerSecond={}, volatility={}, seed={}",
+                settings.getTicksPerSecond(), settings.getVolatility(), settings.getSeed());
+    }
+
+    @Override
+    public BigDecimal initialPrice() {
+        return toPrice(price);
+    }
+
+    @Override
+    public synchronized List<BigDecimal> poll() {
+        long now = System.nanoTime();
+        ticksOwed += (now - lastPollNanos) / 1_000_000_000.0 * settings.getTicksPerSecond();
+        lastPollNanos = now;
+
+        int due = (int) Math.min(ticksOwed, settings.getMaxTicksPerPoll());
+        ticksOwed = Math.min(ticksOwed - due, settings.getMaxTicksPerPoll());
+        List<BigDecimal> prices = new ArrayList<>(due);
+
+        for (int i = 0; i < due; i++) {
+            price = Math.max(minPrice, price * Math.exp(settings.getVolatility() * nextGaussian()));
+            prices.add(toPrice(price));
+        }
+
+        return prices;
+    }
+
+    // Box-Muller; SplittableRandom has no nextGaussian of its own
+    private double nextGaussian() {
+        double u1 = 1.0 - random.nextDouble();
+        double u2 = random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u1)) * Math.cos(2.0 * Math.PI * u2);
+    }
+
+    private static BigDecimal toPrice(double value) {
+        return BigDecimal.valueOf(value).setScale(SCALE, RoundingMode.HALF_UP);
+    }
+}
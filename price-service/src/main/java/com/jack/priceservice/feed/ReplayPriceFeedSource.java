@@ -0,0 +1,118 @@
+package com.jack.priceservice.feed;
+
+import com.jack.priceservice.config.PriceFeedProperties;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Replays recorded ticks from a local CSV, preserving their recorded spacing (scaled by speed) when timestamps exist
+@Component
+@ConditionalOnProperty(prefix = "app.price.feed", name = "type", havingValue = "replay")
+@Log4j2
+public class ReplayPriceFeedSource implements PriceFeedSource {
+    private static final int MAX_TICKS_PER_POLL = 50_000; // Bounds a single poll after a long pause
+    private final PriceFeedProperties.Replay settings;
+    private final BigDecimal[] prices;
+    private final long[] offsetsMillis; // Offset of each tick from the first one; null when the file has no timestamps
+    private final long recordingLengthMillis;
+    private int position;
+    private long startNanos;
+
+    public ReplayPriceFeedSource(PriceFeedProperties properties) {
+        this.settings = properties.getReplay();
+
+        if (settings.getFile() == null || settings.getFile().isBlank()) {
+            throw new IllegalStateException("app.price.feed.replay.file must be set for the replay price feed");
+        }
+
+        List<String> lines = readLines(Path.of(settings.getFile()));
+        List<BigDecimal> parsedPrices = new ArrayList<>(lines.size());
+        List<Long> parsedTimes = new ArrayList<>(lines.size());
+
+        for (String line : lines) {
+            String trimmed = line.trim();
+
+            if (trimmed.isEmpty() || trimmed.startsWith("#") || !Character.isDigit(trimmed.charAt(0))) {
+                continue; // Skip blanks, comments and a header row
+            }
+
+            String[] columns = trimmed.split(",");
+            parsedPrices.add(new BigDecimal(columns[columns.length - 1].trim()));
+
+            if (columns.length > 1) {
+                parsedTimes.add(Long.parseLong(columns[0].trim()));
+            }
+        }
+
+        if (parsedPrices.isEmpty()) {
+            throw new IllegalStateException("Replay file contains no ticks: " + settings.getFile());
+        }
+
+        this.prices = parsedPrices.toArray(BigDecimal[]::new);
+
+        if (parsedTimes.size() == parsedPrices.size()) {
+            long first = parsedTimes.get(0);
+            this.offsetsMillis = parsedTimes.stream().mapToLong(time -> time - first).toArray();
+            this.recordingLengthMillis = offsetsMillis[offsetsMillis.length - 1];
+        } else {
+            this.offsetsMillis = null;
+            this.recordingLengthMillis = 0;
+        }
+
+        this.startNanos = System.nanoTime();
+        log.info("Replay price feed loaded {} ticks from {} (timestamps: {}, speed: {})",
+                prices.length, settings.getFile(), offsetsMillis != null, settings.getSpeed());
+    }
+
+    @Override
+    public BigDecimal initialPrice() {
+        return prices[0];
+    }
+
+    @Override
+    public synchronized List<BigDecimal> poll() {
+        double elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000.0 * settings.getSpeed();
+        List<BigDecimal> due = new ArrayList<>();
+
+        while (due.size() < MAX_TICKS_PER_POLL) {
+            if (position >= prices.length) {
+                if (!settings.isLoop()) {
+                    return due;
+                }
+
+                // Restart the recording right after its last tick
+                position = 0;
+                long lengthNanos = (long) ((offsetsMillis != null ? recordingLengthMillis
+                        : prices.length * 1000.0 / settings.getTicksPerSecond()) / settings.getSpeed() * 1_000_000);
+                startNanos += Math.max(1_000_000, lengthNanos);
+                elapsedMillis = (System.nanoTime() - startNanos) / 1_000_000.0 * settings.getSpeed();
+            }
+
+            double dueAtMillis = offsetsMillis != null ? offsetsMillis[position] : position * 1000.0 / settings.getTicksPerSecond();
+
+            if (dueAtMillis > elapsedMillis) {
+                return due;
+            }
+
+            due.add(prices[position++]);
+        }
+
+        return due;
+    }
+
+    private static List<String> readLines(Path file) {
+        try {
+            return Files.readAllLines(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read replay file " + file, e);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.jack.priceservice.feed;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// The original synthetic feed: a triangle wave between 100 and 460 in steps of 10, one tick per poll
+@Component
+@ConditionalOnProperty(prefix = "app.price.feed", name = "type", havingValue = "wave", matchIfMissing = true)
+public class WavePriceFeedSource implements PriceFeedSource {
+    private static final BigDecimal MIN_PRICE = BigDecimal.valueOf(100);
+    private static final BigDecimal MAX_PRICE = BigDecimal.valueOf(460);
+    private static final BigDecimal PRICE_INCREMENT = BigDecimal.valueOf(10);
+    private boolean isIncreasing = true;
+
+    @Value("${initial.price:100.00}")
+    private BigDecimal currentPrice;
+
+    @Override
+    public BigDecimal initialPrice() {
+        return currentPrice;
+    }
+
+    @Override
+    public synchronized List<BigDecimal> poll() {
+        // Update the current price based on the increasing flag
+        if (isIncreasing) {
+            currentPrice = currentPrice.add(PRICE_INCREMENT);
+
+            if (currentPrice.compareTo(MAX_PRICE) >= 0) {
+                isIncreasing = false;
+            }
+        } else {
+            currentPrice = currentPrice.subtract(PRICE_INCREMENT);
+
+            if (currentPrice.compareTo(MIN_PRICE) <= 0) {
+                isIncreasing = true;
+            }
+        }
+
+        return List.of(currentPrice);
+    }
+}
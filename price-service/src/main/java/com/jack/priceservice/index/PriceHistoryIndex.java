@@ -0,0 +1,169 @@
+package com.jack.priceservice.index;
+
+import com.jack.priceservice.config.PriceHistoryProperties;
+import com.jack.priceservice.entity.BTCPriceHistory;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.OptionalInt;
+
+// Time-sorted, append-only index of recent ticks held in parallel primitive arrays for binary search.
+// One writer (the price scheduler) appends; readers work on an immutable view published through a volatile field.
+@Component
+@Log4j2
+public class PriceHistoryIndex {
+    private static final int PRICE_SCALE = 4; // Matches btc_price_history.price
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final String LOAD_SQL = "SELECT id, price, timestamp FROM (SELECT id, price, timestamp " +
+            "FROM btc_price_history ORDER BY timestamp DESC, id DESC LIMIT ?) recent ORDER BY timestamp, id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxEntries;
+    private volatile View view = new View(new long[0], new long[0], new long[0], 0, true, true);
+
+    public PriceHistoryIndex(JdbcTemplate jdbcTemplate, PriceHistoryProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxEntries = Math.max(INITIAL_CAPACITY, properties.getIndexMaxEntries());
+    }
+
+    // Load the newest ticks; runs before the scheduler publishes its first tick
+    @PostConstruct
+    void load() {
+        Loader loader = new Loader();
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(LOAD_SQL);
+            statement.setFetchSize(10_000);
+            statement.setInt(1, maxEntries);
+            return statement;
+        }, (RowCallbackHandler) rs -> loader.add(rs.getLong(1), rs.getBigDecimal(2), rs.getTimestamp(3).getTime()));
+
+        view = loader.toView(loader.size < maxEntries);
+        log.info("Price history index loaded {} ticks (complete: {})", view.size, view.complete);
+    }
+
+    // Add a tick that is newer than everything indexed so far
+    public synchronized void append(BTCPriceHistory tick) {
+        View current = view;
+        long millis = tick.getTimestamp().toEpochMilli();
+        int size = current.size;
+
+        if (size > 0 && millis < current.timestamps[size - 1]) {
+            log.warn("Out-of-order tick ID: {} skipped by the price history index", tick.getId());
+            return;
+        }
+
+        long[] timestamps = current.timestamps;
+        long[] ids = current.ids;
+        long[] prices = current.prices;
+        boolean complete = current.complete;
+
+        if (size == timestamps.length) {
+            int from = 0;
+
+            if (size >= maxEntries) {
+                // Keep the newest half; older lookups fall back to the database from now on
+                from = size / 2;
+                complete = false;
+            }
+
+            int capacity = Math.min(maxEntries, Math.max(INITIAL_CAPACITY, (size - from) * 2));
+            timestamps = Arrays.copyOfRange(timestamps, from, from + capacity);
+            ids = Arrays.copyOfRange(ids, from, from + capacity);
+            prices = Arrays.copyOfRange(prices, from, from + capacity);
+            size -= from;
+        }
+
+        // Slots past the published size are invisible to readers, so they can be written in place
+        timestamps[size] = millis;
+        ids[size] = tick.getId();
+        prices[size] = toUnscaled(tick.getPrice());
+        boolean idsSorted = current.idsSorted && (size == 0 || ids[size - 1] < tick.getId());
+        view = new View(timestamps, ids, prices, size + 1, complete, idsSorted);
+    }
+
+    public View view() {
+        return view;
+    }
+
+    static long toUnscaled(BigDecimal price) {
+        return price.setScale(PRICE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    // Consistent snapshot for one batch of lookups
+    public record View(long[] timestamps, long[] ids, long[] prices, int size, boolean complete, boolean idsSorted) {
+
+        // Position of the last tick at or before the given instant; empty when it predates the index
+        public OptionalInt floor(long epochMillis) {
+            int position = Arrays.binarySearch(timestamps, 0, size, epochMillis);
+
+            if (position >= 0) {
+                // Several ticks can share a millisecond; take the last of them
+                while (position + 1 < size && timestamps[position + 1] == epochMillis) {
+                    position++;
+                }
+                return OptionalInt.of(position);
+            }
+
+            int insertionPoint = -position - 1;
+            return insertionPoint == 0 ? OptionalInt.empty() : OptionalInt.of(insertionPoint - 1);
+        }
+
+        // Position of the tick with the given id, if it is indexed
+        public OptionalInt findById(long id) {
+            if (!idsSorted) {
+                return OptionalInt.empty();
+            }
+
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            return position >= 0 ? OptionalInt.of(position) : OptionalInt.empty();
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        public long id(int position) {
+            return ids[position];
+        }
+
+        public long epochMillis(int position) {
+            return timestamps[position];
+        }
+
+        public BigDecimal price(int position) {
+            return BigDecimal.valueOf(prices[position], PRICE_SCALE);
+        }
+    }
+
+    private static class Loader {
+        private long[] timestamps = new long[INITIAL_CAPACITY];
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private long[] prices = new long[INITIAL_CAPACITY];
+        private int size;
+        private boolean idsSorted = true;
+
+        void add(long id, BigDecimal price, long epochMillis) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+                prices = Arrays.copyOf(prices, size * 2);
+            }
+
+            idsSorted &= size == 0 || ids[size - 1] < id;
+            timestamps[size] = epochMillis;
+            ids[size] = id;
+            prices[size] = toUnscaled(price);
+            size++;
+        }
+
+        View toView(boolean complete) {
+            return new View(timestamps, ids, prices, size, complete, idsSorted);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.jack.priceservice.mapper;
+
+import com.jack.priceservice.dto.CandleDto;
+import com.jack.priceservice.entity.PriceCandle;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface PriceCandleMapper {
+    @Mapping(target = "interval", expression = "java(candle.getInterval().getCode())")
+    CandleDto toDto(PriceCandle candle);
+}
@@ -2,11 +2,22 @@ package com.jack.priceservice.repository;
 
 import com.jack.priceservice.entity.BTCPriceHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.util.Optional;
 
 @Repository
 public interface BTCPriceHistoryRepository extends JpaRepository<BTCPriceHistory, Long> {
     Optional<BTCPriceHistory> findTopByOrderByTimestampDesc();
+
+    // Rebuild a single bucket from raw ticks via idx_btc_price_history_timestamp
+    @Query(value = "SELECT (array_agg(price ORDER BY timestamp, id))[1] AS open, max(price) AS high, " +
+            "min(price) AS low, (array_agg(price ORDER BY timestamp DESC, id DESC))[1] AS close, " +
+            "count(*) AS tickCount FROM btc_price_history WHERE timestamp >= :from AND timestamp < :to " +
+            "AND id <> :excludeId", nativeQuery = true)
+    CandleAggregate aggregateBetween(@Param("from") Instant from, @Param("to") Instant to,
+                                     @Param("excludeId") long excludeId);
 }
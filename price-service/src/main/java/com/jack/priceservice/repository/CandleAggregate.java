@@ -0,0 +1,16 @@
+package com.jack.priceservice.repository;
+
+import java.math.BigDecimal;
+
+// OHLC of the raw ticks inside one bucket
+public interface CandleAggregate {
+    BigDecimal getOpen();
+
+    BigDecimal getHigh();
+
+    BigDecimal getLow();
+
+    BigDecimal getClose();
+
+    long getTickCount();
+}
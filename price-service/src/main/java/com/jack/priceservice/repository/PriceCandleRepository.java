@@ -0,0 +1,34 @@
+package com.jack.priceservice.repository;
+
+import com.jack.priceservice.entity.CandleInterval;
+import com.jack.priceservice.entity.PriceCandle;
+import com.jack.priceservice.entity.PriceCandleId;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface PriceCandleRepository extends JpaRepository<PriceCandle, PriceCandleId> {
+
+    // Served by the (candle_interval, bucket_start) primary key, independent of raw tick volume
+    List<PriceCandle> findByIntervalAndBucketStartBetweenOrderByBucketStartAsc(CandleInterval interval, Instant from,
+                                                                               Instant to, Limit limit);
+
+    // The caller holds the complete bucket state, so the stored row is simply replaced
+    @Modifying
+    @Query(value = "INSERT INTO price_candle (candle_interval, bucket_start, open_price, high_price, low_price, " +
+            "close_price, tick_count) VALUES (:interval, :bucketStart, :open, :high, :low, :close, :tickCount) " +
+            "ON CONFLICT (candle_interval, bucket_start) DO UPDATE SET open_price = EXCLUDED.open_price, " +
+            "high_price = EXCLUDED.high_price, low_price = EXCLUDED.low_price, close_price = EXCLUDED.close_price, " +
+            "tick_count = EXCLUDED.tick_count", nativeQuery = true)
+    void upsert(@Param("interval") String interval, @Param("bucketStart") Instant bucketStart,
+                @Param("open") BigDecimal open, @Param("high") BigDecimal high, @Param("low") BigDecimal low,
+                @Param("close") BigDecimal close, @Param("tickCount") long tickCount);
+}
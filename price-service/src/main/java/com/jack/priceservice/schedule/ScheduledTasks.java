@@ -1,75 +1,71 @@
 package com.jack.priceservice.schedule;
 
 import com.jack.priceservice.entity.BTCPriceHistory;
-import com.jack.priceservice.repository.BTCPriceHistoryRepository;
+import com.jack.priceservice.feed.PriceFeedSource;
+import com.jack.priceservice.index.PriceHistoryIndex;
+import com.jack.priceservice.service.CandleService;
 import com.jack.priceservice.service.PriceService;
+import com.jack.priceservice.writer.PriceHistoryWriter;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Component
 @RequiredArgsConstructor
 @Log4j2
 public class ScheduledTasks {
-    private static final BigDecimal MIN_PRICE = BigDecimal.valueOf(100);
-    private static final BigDecimal MAX_PRICE = BigDecimal.valueOf(460);
-    private static final BigDecimal PRICE_INCREMENT = BigDecimal.valueOf(10);
-    public static final int SCHEDULE_RATE_MS = 5 * 1000;
-    private boolean isIncreasing = true;
-
-    @Value("${initial.price:100.00}")
-    private BigDecimal currentPrice;
-
+    private final PriceFeedSource priceFeedSource;
     private final PriceService priceService;
-    private final BTCPriceHistoryRepository btcPriceHistoryRepository;
+    private final PriceHistoryWriter priceHistoryWriter;
+    private final CandleService candleService;
+    private final PriceHistoryIndex priceHistoryIndex;
 
     @PostConstruct
     protected void saveInitialPrice() {
-        // Create and save the initial BTCPriceHistory entity
-        BTCPriceHistory initialPriceHistory = BTCPriceHistory.builder()
-                .price(currentPrice)
-                .build();
-        BTCPriceHistory savedInitialPrice = btcPriceHistoryRepository.save(initialPriceHistory);
+        BigDecimal initialPrice = priceFeedSource.initialPrice();
+
+        // Buffer the initial BTCPriceHistory row; it is written behind with the next batch
+        BTCPriceHistory savedInitialPrice = priceHistoryWriter.append(initialPrice);
 
         // Save the price to Redis with the btchistoryID
-        priceService.setPriceWithId(savedInitialPrice.getId(), currentPrice);
+        priceService.setPriceWithId(savedInitialPrice.getId(), initialPrice);
+        candleService.recordTick(savedInitialPrice);
+        priceHistoryIndex.append(savedInitialPrice);
 
-        log.info("Saved initial BTC Price to Redis and database: ID={}, Price={}", savedInitialPrice.getId(), currentPrice);
+        log.info("Published initial BTC Price and queued history row: ID={}, Price={}", savedInitialPrice.getId(), initialPrice);
     }
 
-    @Scheduled(fixedRate = SCHEDULE_RATE_MS)
+    @Scheduled(fixedRateString = "${app.price.feed.poll-interval-ms:5000}")
     public void updateCurrentPrice() {
-        // Update the current price based on the increasing flag
-        if (isIncreasing) {
-            currentPrice = currentPrice.add(PRICE_INCREMENT);
-
-            if (currentPrice.compareTo(MAX_PRICE) >= 0) {
-                isIncreasing = false;
-            }
-        } else {
-            currentPrice = currentPrice.subtract(PRICE_INCREMENT);
+        List<BigDecimal> prices = priceFeedSource.poll();
 
-            if (currentPrice.compareTo(MIN_PRICE) <= 0) {
-                isIncreasing = true;
-            }
+        if (prices.isEmpty()) {
+            return;
         }
 
-        log.info("Updated BTC Price: {}", currentPrice);
+        BTCPriceHistory latest = null;
 
-        // Create and save the new BTCPriceHistory entity
-        BTCPriceHistory priceHistory = BTCPriceHistory.builder()
-                .price(currentPrice)
-                .build();
-        BTCPriceHistory savedPriceHistory = btcPriceHistoryRepository.save(priceHistory);
+        for (BigDecimal price : prices) {
+            // Buffer the new BTCPriceHistory row; the id is assigned now so Redis and candles can use it immediately
+            latest = priceHistoryWriter.append(price);
 
-        // Save the updated price to Redis with the btchistoryID
-        priceService.setPriceWithId(savedPriceHistory.getId(), currentPrice);
+            // Roll the tick into the 1m/5m/1h/1d candles
+            candleService.recordTick(latest);
+            priceHistoryIndex.append(latest);
+        }
+
+        // Only the newest price is published; readers never need the intermediate ticks of a burst
+        priceService.setPriceWithId(latest.getId(), latest.getPrice());
 
-        log.info("Saved updated BTC Price to Redis and database: ID={}, Price={}", savedPriceHistory.getId(), currentPrice);
+        if (prices.size() == 1) {
+            log.info("Published updated BTC Price and queued history row: ID={}, Price={}", latest.getId(), latest.getPrice());
+        } else {
+            log.debug("Queued {} ticks, published latest BTC Price: ID={}, Price={}", prices.size(), latest.getId(), latest.getPrice());
+        }
     }
 }
@@ -0,0 +1,14 @@
+package com.jack.priceservice.service;
+
+import com.jack.priceservice.dto.CandleDto;
+import com.jack.priceservice.entity.BTCPriceHistory;
+import com.jack.priceservice.entity.CandleInterval;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface CandleService {
+    void recordTick(BTCPriceHistory tick);
+
+    List<CandleDto> getCandles(CandleInterval interval, Instant from, Instant to, int limit);
+}
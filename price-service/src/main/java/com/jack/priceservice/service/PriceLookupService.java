@@ -0,0 +1,14 @@
+package com.jack.priceservice.service;
+
+import com.jack.priceservice.dto.BTCPriceHistoryDto;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface PriceLookupService {
+    // Tick in effect at each instant (the last one at or before it), in request order
+    List<BTCPriceHistoryDto> findPricesAt(List<Instant> timestamps);
+
+    // Tick for each history id, in request order
+    List<BTCPriceHistoryDto> findPricesByIds(List<Long> historyIds);
+}
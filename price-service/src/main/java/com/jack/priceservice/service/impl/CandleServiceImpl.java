@@ -0,0 +1,157 @@
+package com.jack.priceservice.service.impl;
+
+import com.jack.priceservice.dto.CandleDto;
+import com.jack.priceservice.entity.BTCPriceHistory;
+import com.jack.priceservice.entity.CandleInterval;
+import com.jack.priceservice.entity.PriceCandleId;
+import com.jack.priceservice.mapper.PriceCandleMapper;
+import com.jack.priceservice.repository.BTCPriceHistoryRepository;
+import com.jack.priceservice.repository.CandleAggregate;
+import com.jack.priceservice.repository.PriceCandleRepository;
+import com.jack.priceservice.service.CandleService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class CandleServiceImpl implements CandleService {
+    private final PriceCandleRepository priceCandleRepository;
+    private final BTCPriceHistoryRepository btcPriceHistoryRepository;
+    private final PriceCandleMapper priceCandleMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    // The bucket currently receiving ticks, per interval
+    private final Map<CandleInterval, OpenCandle> openCandles = new EnumMap<>(CandleInterval.class);
+
+    // Buckets touched since the last flush, as immutable snapshots
+    private final Map<PriceCandleId, CandleState> dirtyCandles = new LinkedHashMap<>();
+
+    // Fold one tick into the open bucket of every interval; only those buckets are marked for the next flush
+    @Override
+    public synchronized void recordTick(BTCPriceHistory tick) {
+        for (CandleInterval interval : CandleInterval.values()) {
+            Instant bucketStart = interval.bucketStart(tick.getTimestamp());
+            OpenCandle candle = openCandles.get(interval);
+
+            if (candle == null) {
+                // First tick since startup: rebuild this one bucket from the raw ticks already stored
+                candle = recompute(interval, bucketStart, tick);
+            } else if (!candle.bucketStart.equals(bucketStart)) {
+                // The previous bucket's final state is already in dirtyCandles; start the next one
+                candle = new OpenCandle(bucketStart, tick.getPrice());
+            } else {
+                candle.apply(tick.getPrice());
+            }
+
+            openCandles.put(interval, candle);
+            dirtyCandles.put(new PriceCandleId(interval, bucketStart), candle.snapshot(interval));
+        }
+    }
+
+    // Upsert the touched buckets in one transaction; the open bucket lags by at most one flush interval
+    @Scheduled(fixedDelayString = "${app.price.history.flush-interval-ms:1000}")
+    @PreDestroy
+    public void flushCandles() {
+        List<CandleState> pending;
+
+        synchronized (this) {
+            if (dirtyCandles.isEmpty()) {
+                return;
+            }
+
+            pending = new ArrayList<>(dirtyCandles.values());
+            dirtyCandles.clear();
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> pending.forEach(candle ->
+                    priceCandleRepository.upsert(candle.interval().name(), candle.bucketStart(), candle.open(),
+                            candle.high(), candle.low(), candle.close(), candle.tickCount())));
+        } catch (Exception e) {
+            log.error("Failed to flush {} candles, will retry: {}", pending.size(), e.getMessage());
+
+            // Put them back unless a newer snapshot of the same bucket arrived meanwhile
+            synchronized (this) {
+                pending.forEach(candle -> dirtyCandles.putIfAbsent(
+                        new PriceCandleId(candle.interval(), candle.bucketStart()), candle));
+            }
+        }
+    }
+
+    @Override
+    public List<CandleDto> getCandles(CandleInterval interval, Instant from, Instant to, int limit) {
+        return priceCandleRepository.findByIntervalAndBucketStartBetweenOrderByBucketStartAsc(
+                        interval, interval.bucketStart(from), to, Limit.of(limit))
+                .stream()
+                .map(priceCandleMapper::toDto)
+                .toList();
+    }
+
+    private OpenCandle recompute(CandleInterval interval, Instant bucketStart, BTCPriceHistory tick) {
+        // The current tick may or may not have been written behind yet, so it is excluded and applied explicitly
+        CandleAggregate aggregate = btcPriceHistoryRepository.aggregateBetween(bucketStart,
+                bucketStart.plus(interval.getLength()), tick.getId());
+
+        if (aggregate == null || aggregate.getTickCount() == 0) {
+            return new OpenCandle(bucketStart, tick.getPrice());
+        }
+
+        log.info("Recomputed {} candle at {} from {} raw ticks", interval.getCode(), bucketStart, aggregate.getTickCount());
+        OpenCandle candle = new OpenCandle(bucketStart, aggregate.getOpen(), aggregate.getHigh(), aggregate.getLow(),
+                aggregate.getClose(), aggregate.getTickCount());
+        candle.apply(tick.getPrice());
+        return candle;
+    }
+
+    private record CandleState(CandleInterval interval, Instant bucketStart, BigDecimal open, BigDecimal high,
+                               BigDecimal low, BigDecimal close, long tickCount) {
+    }
+
+    private static final class OpenCandle {
+        private final Instant bucketStart;
+        private final BigDecimal open;
+        private BigDecimal high;
+        private BigDecimal low;
+        private BigDecimal close;
+        private long tickCount;
+
+        private OpenCandle(Instant bucketStart, BigDecimal price) {
+            this(bucketStart, price, price, price, price, 1);
+        }
+
+        private OpenCandle(Instant bucketStart, BigDecimal open, BigDecimal high, BigDecimal low, BigDecimal close,
+                           long tickCount) {
+            this.bucketStart = bucketStart;
+            this.open = open;
+            this.high = high;
+            this.low = low;
+            this.close = close;
+            this.tickCount = tickCount;
+        }
+
+        private CandleState snapshot(CandleInterval interval) {
+            return new CandleState(interval, bucketStart, open, high, low, close, tickCount);
+        }
+
+        private void apply(BigDecimal price) {
+            high = high.max(price);
+            low = low.min(price);
+            close = price;
+            tickCount++;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.jack.priceservice.service.impl;
+
+import com.jack.priceservice.dto.BTCPriceHistoryDto;
+import com.jack.priceservice.index.PriceHistoryIndex;
+import com.jack.priceservice.mapper.BTCPriceHistoryMapper;
+import com.jack.priceservice.repository.BTCPriceHistoryRepository;
+import com.jack.priceservice.service.PriceLookupService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+// Lookups are answered from PriceHistoryIndex; only ticks older than the index go to the database, in one query per batch
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class PriceLookupServiceImpl implements PriceLookupService {
+    private static final String PRICE_AT_SQL = "SELECT r.ord, h.id, h.price, h.timestamp " +
+            "FROM unnest(?::timestamptz[]) WITH ORDINALITY AS r(at, ord) " +
+            "JOIN LATERAL (SELECT id, price, timestamp FROM btc_price_history WHERE timestamp <= r.at " +
+            "ORDER BY timestamp DESC, id DESC LIMIT 1) h ON true";
+
+    private final PriceHistoryIndex priceHistoryIndex;
+    private final BTCPriceHistoryRepository btcPriceHistoryRepository;
+    private final BTCPriceHistoryMapper btcPriceHistoryMapper;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<BTCPriceHistoryDto> findPricesAt(List<Instant> timestamps) {
+        PriceHistoryIndex.View view = priceHistoryIndex.view();
+        BTCPriceHistoryDto[] results = new BTCPriceHistoryDto[timestamps.size()];
+        List<Integer> misses = new ArrayList<>();
+
+        for (int i = 0; i < results.length; i++) {
+            OptionalInt position = view.floor(timestamps.get(i).toEpochMilli());
+
+            if (position.isPresent()) {
+                results[i] = toDto(view, position.getAsInt());
+            } else if (!view.complete()) {
+                misses.add(i);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            loadPricesAt(timestamps, misses, results);
+        }
+
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public List<BTCPriceHistoryDto> findPricesByIds(List<Long> historyIds) {
+        PriceHistoryIndex.View view = priceHistoryIndex.view();
+        BTCPriceHistoryDto[] results = new BTCPriceHistoryDto[historyIds.size()];
+        List<Long> misses = new ArrayList<>();
+
+        for (int i = 0; i < results.length; i++) {
+            OptionalInt position = view.findById(historyIds.get(i));
+
+            if (position.isPresent()) {
+                results[i] = toDto(view, position.getAsInt());
+            } else {
+                misses.add(historyIds.get(i));
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            log.debug("Loading {} price history ids missing from the index", misses.size());
+            Map<Long, BTCPriceHistoryDto> loaded = new HashMap<>();
+            btcPriceHistoryRepository.findAllById(misses)
+                    .forEach(history -> loaded.put(history.getId(), btcPriceHistoryMapper.toDto(history)));
+
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) {
+                    results[i] = loaded.get(historyIds.get(i));
+                }
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    // One round trip for every timestamp that predates the index
+    private void loadPricesAt(List<Instant> timestamps, List<Integer> misses, BTCPriceHistoryDto[] results) {
+        log.debug("Loading {} historical prices older than the index", misses.size());
+        Timestamp[] instants = misses.stream().map(i -> Timestamp.from(timestamps.get(i))).toArray(Timestamp[]::new);
+
+        jdbcTemplate.query(PRICE_AT_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("timestamptz", instants)),
+                rs -> {
+                    int requestIndex = misses.get(rs.getInt(1) - 1);
+                    results[requestIndex] = BTCPriceHistoryDto.builder()
+                            .id(rs.getLong(2))
+                            .price(rs.getBigDecimal(3))
+                            .timestamp(rs.getTimestamp(4).toInstant())
+                            .build();
+                });
+    }
+
+    private static BTCPriceHistoryDto toDto(PriceHistoryIndex.View view, int position) {
+        return BTCPriceHistoryDto.builder()
+                .id(view.id(position))
+                .price(view.price(position))
+                .timestamp(Instant.ofEpochMilli(view.epochMillis(position)))
+                .build();
+    }
+}
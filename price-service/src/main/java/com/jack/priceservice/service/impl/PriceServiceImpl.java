@@ -2,38 +2,41 @@ package com.jack.priceservice.service.impl;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.common.constants.ApplicationConstants;
 import com.jack.common.dto.response.BTCPriceResponseDto;
+import com.jack.common.price.PriceTicker;
+import com.jack.priceservice.config.PriceFeedProperties;
 import com.jack.priceservice.config.PriceServiceProperties;
-import com.jack.priceservice.schedule.ScheduledTasks;
 import com.jack.priceservice.service.PriceService;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.Duration;
-import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
 @Log4j2
 public class PriceServiceImpl implements PriceService {
+    // The published price outlives one missed poll before it expires
+    private static final int PRICE_TTL_POLLS = 2;
+
     private final RedisTemplate<String, String> redisTemplate;
     private final ObjectMapper objectMapper;
     private final PriceServiceProperties properties;
+    private final PriceFeedProperties feedProperties;
+    private final PriceTicker priceTicker;
 
+    // Served from the in-memory ticker; Redis is only read on cold start or when the last tick is stale
     @Override
     public BigDecimal getPrice() {
-        String btcPriceKey = properties.getBtcPriceKey();
-        log.info("Fetching current BTC price from Redis with key: {}", btcPriceKey);
-        // Fetch the price from Redis
-        return getPriceFromRedis(btcPriceKey)
+        return priceTicker.current()
                 .map(BTCPriceResponseDto::getBtcPrice)
                 .orElseGet(() -> {
-                    log.warn("BTC price data not found in Redis for key: {}", btcPriceKey);
+                    log.warn("BTC price data not found in Redis for key: {}", properties.getBtcPriceKey());
                     return BigDecimal.ZERO;  // Return a default value or throw a custom exception
                 });
     }
@@ -47,27 +50,16 @@ public class PriceServiceImpl implements PriceService {
         setPriceInRedis(dto);
     }
 
-    private Optional<BTCPriceResponseDto> getPriceFromRedis(String key) {
-        try {
-            ValueOperations<String, String> valueOperations = redisTemplate.opsForValue();
-            String json = valueOperations.get(key);
-
-            if (json != null) {
-                return Optional.of(objectMapper.readValue(json, BTCPriceResponseDto.class));
-            }
-        } catch (Exception e) {
-            log.error("Error retrieving BTC price from Redis for key: {}", key, e);
-        }
-
-        return Optional.empty();
-    }
-
     private void setPriceInRedis(BTCPriceResponseDto dto) {
         try {
             String priceJson = objectMapper.writeValueAsString(dto);
             String btcPriceKey = properties.getBtcPriceKey();
-            redisTemplate.opsForValue().set(btcPriceKey, priceJson, Duration.ofMillis(ScheduledTasks.SCHEDULE_RATE_MS));
+            redisTemplate.opsForValue().set(btcPriceKey, priceJson, Duration.ofMillis(feedProperties.getPollIntervalMs() * PRICE_TTL_POLLS));
             log.info("Set BTC price in Redis with key {} and data: {}", btcPriceKey, priceJson);
+
+            // Push the tick to every consumer's in-memory ticker, including our own
+            priceTicker.update(dto);
+            redisTemplate.convertAndSend(ApplicationConstants.BTC_PRICE_CHANNEL, priceJson);
         } catch (JsonProcessingException e) {
             log.error("Error serializing BTC price data for ID: {}", dto.getId(), e);
         }
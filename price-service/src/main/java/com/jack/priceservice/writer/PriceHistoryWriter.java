@@ -0,0 +1,210 @@
+package com.jack.priceservice.writer;
+
+import com.jack.priceservice.config.PriceHistoryProperties;
+import com.jack.priceservice.entity.BTCPriceHistory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Write-behind for btc_price_history: ticks get their id up front and are inserted later in JDBC batches
+@Component
+@Log4j2
+public class PriceHistoryWriter {
+    private static final String SEQUENCE = "btc_price_history_seq";
+    private static final int ID_BLOCK_SIZE = 50; // Must match the sequence INCREMENT BY
+    private static final String INSERT_SQL = "INSERT INTO btc_price_history (id, price, timestamp) VALUES (?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PriceHistoryProperties properties;
+    private final BlockingQueue<BTCPriceHistory> buffer;
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // Rows drained from the buffer but not yet written; retried first on the next flush
+    private final List<BTCPriceHistory> unwritten = new ArrayList<>();
+
+    // Consecutive batch inserts of the rows in unwritten refused by a constraint
+    private int failedAttempts;
+
+    // Consecutive failures of any other kind, and when writing may be tried again
+    private int transientFailures;
+    private long retryAtNanos;
+
+    private long nextId;
+    private long blockEnd = -1;
+
+    public PriceHistoryWriter(JdbcTemplate jdbcTemplate, PriceHistoryProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.buffer = new ArrayBlockingQueue<>(properties.getBufferCapacity());
+    }
+
+    // Ids used to come from the IDENTITY column; move the sequence past them before handing out blocks
+    @PostConstruct
+    void syncSequence() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + SEQUENCE + " INCREMENT BY " + ID_BLOCK_SIZE);
+        jdbcTemplate.queryForObject("SELECT setval('" + SEQUENCE + "', GREATEST(" +
+                "(SELECT COALESCE(max(id), 0) FROM btc_price_history), (SELECT last_value FROM " + SEQUENCE + ")))", Long.class);
+    }
+
+    // Assign id and timestamp and buffer the row; when the buffer is full the caller flushes inline (backpressure).
+    // The buffer is bounded: while the database is down and backing off, ticks beyond it are not kept.
+    public BTCPriceHistory append(BigDecimal price) {
+        BTCPriceHistory tick = BTCPriceHistory.builder()
+                .id(allocateId())
+                .price(price)
+                .timestamp(Instant.now())
+                .build();
+
+        if (!buffer.offer(tick)) {
+            log.warn("Price history buffer full ({} rows), flushing on the producer thread", properties.getBufferCapacity());
+            flush();
+
+            if (!buffer.offer(tick)) {
+                log.error("Price history buffer still full, not keeping history row for tick ID: {}", tick.getId());
+            }
+        }
+
+        return tick;
+    }
+
+    @Scheduled(fixedDelayString = "${app.price.history.flush-interval-ms:1000}")
+    public void flush() {
+        flush(true);
+    }
+
+    private void flush(boolean honorBackoff) {
+        flushLock.lock();
+
+        try {
+            while (true) {
+                if (honorBackoff && transientFailures > 0 && System.nanoTime() - retryAtNanos < 0) {
+                    return;
+                }
+
+                if (unwritten.isEmpty()) {
+                    buffer.drainTo(unwritten, properties.getBatchSize());
+                }
+
+                if (unwritten.isEmpty() || !writeUnwritten()) {
+                    return;
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // One batch insert per flush attempt. A batch refused by a constraint maxBatchAttempts times is split, so one bad
+    // row cannot hold back the rest (and, with the buffer full, every new tick); rows are only ever dropped for a
+    // constraint violation. Returns false when rows are left for a retry.
+    private boolean writeUnwritten() {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, unwritten, unwritten.size(), (ps, tick) -> {
+                ps.setLong(1, tick.getId());
+                ps.setBigDecimal(2, tick.getPrice());
+                ps.setObject(3, OffsetDateTime.ofInstant(tick.getTimestamp(), ZoneOffset.UTC));
+            });
+            log.debug("Flushed {} price history rows", unwritten.size());
+        } catch (DataIntegrityViolationException e) {
+            failedAttempts++;
+
+            if (failedAttempts < properties.getMaxBatchAttempts()) {
+                log.error("Price history batch of {} rows refused (attempt {} of {}), will retry: {}",
+                        unwritten.size(), failedAttempts, properties.getMaxBatchAttempts(), e.getMessage());
+                return false;
+            }
+
+            log.error("Price history batch of {} rows refused {} times, inserting them one by one: {}",
+                    unwritten.size(), failedAttempts, e.getMessage());
+
+            if (!writeRowByRow()) {
+                return false;
+            }
+        } catch (Exception e) {
+            backOff(unwritten.size(), e);
+            return false;
+        }
+
+        unwritten.clear();
+        failedAttempts = 0;
+        transientFailures = 0;
+        return true;
+    }
+
+    // Drops the rows a constraint refuses; any other failure stops the pass and keeps that row and the rest
+    private boolean writeRowByRow() {
+        int written = 0;
+        int dropped = 0;
+
+        try {
+            for (BTCPriceHistory tick : unwritten) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, tick.getId(), tick.getPrice(),
+                            OffsetDateTime.ofInstant(tick.getTimestamp(), ZoneOffset.UTC));
+                } catch (DataIntegrityViolationException e) {
+                    dropped++;
+                    log.error("Dropping price history row ID: {} (price={}, timestamp={}): {}",
+                            tick.getId(), tick.getPrice(), tick.getTimestamp(), e.getMessage());
+                }
+
+                written++;
+            }
+        } catch (Exception e) {
+            backOff(unwritten.size() - written, e);
+            return false;
+        } finally {
+            if (dropped > 0) {
+                log.error("Dropped {} of {} price history rows", dropped, written);
+            }
+
+            unwritten.subList(0, written).clear();
+        }
+
+        return true;
+    }
+
+    private void backOff(int rows, Exception e) {
+        transientFailures++;
+        long delayMs = Math.min(properties.getRetryBackoffMaxMs(),
+                properties.getRetryBackoffInitialMs() << Math.min(transientFailures - 1, 20));
+        retryAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        log.error("Failed to write {} price history rows ({} failures in a row), keeping them and retrying in {} ms: {}",
+                rows, transientFailures, delayMs, e.getMessage());
+    }
+
+    // One last attempt even while backing off
+    @PreDestroy
+    public void shutdown() {
+        flush(false);
+
+        if (!unwritten.isEmpty() || !buffer.isEmpty()) {
+            log.error("Shutting down with {} price history rows unwritten", unwritten.size() + buffer.size());
+        }
+    }
+
+    // Pooled-lo: each nextval reserves [value, value + ID_BLOCK_SIZE)
+    private synchronized long allocateId() {
+        if (nextId > blockEnd) {
+            Long blockStart = jdbcTemplate.queryForObject("SELECT nextval('" + SEQUENCE + "')", Long.class);
+            nextId = blockStart;
+            blockEnd = blockStart + ID_BLOCK_SIZE - 1;
+        }
+
+        return nextId++;
+    }
+}
@@ -10,7 +10,30 @@ DROP TABLE IF EXISTS btc_price_history CASCADE;
 -- Create btc_price_history table
 CREATE TABLE btc_price_history
 (
-    id        SERIAL PRIMARY KEY,
+    id        BIGINT PRIMARY KEY,
     price     DECIMAL(18, 8) NOT NULL CHECK (price >= 0),
     timestamp TIMESTAMP      NOT NULL DEFAULT CURRENT_TIMESTAMP
 );
+
+-- Ids are allocated in blocks of 50 by the write-behind writer (pooled-lo)
+DROP SEQUENCE IF EXISTS btc_price_history_seq;
+CREATE SEQUENCE btc_price_history_seq INCREMENT BY 50;
+
+-- Index raw ticks by time so a single candle bucket can be rebuilt cheaply
+CREATE INDEX idx_btc_price_history_timestamp ON btc_price_history (timestamp);
+
+-- Drop price_candle table if exists
+DROP TABLE IF EXISTS price_candle CASCADE;
+
+-- Create price_candle table holding the 1m/5m/1h/1d OHLC rollups
+CREATE TABLE price_candle
+(
+    candle_interval VARCHAR(16)    NOT NULL,
+    bucket_start    TIMESTAMP      NOT NULL,
+    open_price      DECIMAL(19, 4) NOT NULL,
+    high_price      DECIMAL(19, 4) NOT NULL,
+    low_price       DECIMAL(19, 4) NOT NULL,
+    close_price     DECIMAL(19, 4) NOT NULL,
+    tick_count      BIGINT         NOT NULL,
+    PRIMARY KEY (candle_interval, bucket_start)
+);
@@ -0,0 +1,45 @@
+package com.jack.priceservice.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CandleIntervalTest {
+
+    @Test
+    void bucketsAreAlignedToTheEpochInUtc() {
+        Instant timestamp = Instant.parse("2024-03-10T13:47:29.123Z");
+
+        assertThat(CandleInterval.ONE_MINUTE.bucketStart(timestamp)).isEqualTo(Instant.parse("2024-03-10T13:47:00Z"));
+        assertThat(CandleInterval.FIVE_MINUTES.bucketStart(timestamp)).isEqualTo(Instant.parse("2024-03-10T13:45:00Z"));
+        assertThat(CandleInterval.ONE_HOUR.bucketStart(timestamp)).isEqualTo(Instant.parse("2024-03-10T13:00:00Z"));
+        assertThat(CandleInterval.ONE_DAY.bucketStart(timestamp)).isEqualTo(Instant.parse("2024-03-10T00:00:00Z"));
+    }
+
+    @Test
+    void aTimestampOnABoundaryOpensThatBucket() {
+        Instant boundary = Instant.parse("2024-03-10T13:45:00Z");
+
+        assertThat(CandleInterval.FIVE_MINUTES.bucketStart(boundary)).isEqualTo(boundary);
+        assertThat(CandleInterval.FIVE_MINUTES.bucketStart(boundary.minusMillis(1)))
+                .isEqualTo(Instant.parse("2024-03-10T13:40:00Z"));
+    }
+
+    @Test
+    void timestampsBeforeTheEpochRoundDown() {
+        assertThat(CandleInterval.ONE_MINUTE.bucketStart(Instant.ofEpochMilli(-1)))
+                .isEqualTo(Instant.ofEpochMilli(-60_000));
+    }
+
+    @Test
+    void codesRoundTrip() {
+        for (CandleInterval interval : CandleInterval.values()) {
+            assertThat(CandleInterval.fromCode(interval.getCode())).isSameAs(interval);
+        }
+
+        assertThatThrownBy(() -> CandleInterval.fromCode("2m")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
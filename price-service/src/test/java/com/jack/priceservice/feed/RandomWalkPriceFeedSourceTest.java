@@ -0,0 +1,56 @@
+package com.jack.priceservice.feed;
+
+import com.jack.priceservice.config.PriceFeedProperties;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RandomWalkPriceFeedSourceTest {
+
+    @Test
+    void aFixedSeedReproducesThePricePath() throws InterruptedException {
+        RandomWalkPriceFeedSource first = new RandomWalkPriceFeedSource(properties(42, 0.01, "1"), new BigDecimal("100"));
+        RandomWalkPriceFeedSource second = new RandomWalkPriceFeedSource(properties(42, 0.01, "1"), new BigDecimal("100"));
+        Thread.sleep(20);
+
+        List<BigDecimal> firstPrices = first.poll();
+        List<BigDecimal> secondPrices = second.poll();
+
+        assertThat(firstPrices).hasSize(100).isEqualTo(secondPrices);
+    }
+
+    @Test
+    void emitsEveryTickDueSinceTheLastPollUpToTheCap() throws InterruptedException {
+        RandomWalkPriceFeedSource source = new RandomWalkPriceFeedSource(properties(7, 0.01, "1"), new BigDecimal("100"));
+        Thread.sleep(20);
+
+        // 1M ticks/s for 20 ms is far above the cap of 100
+        assertThat(source.poll()).hasSize(100);
+    }
+
+    @Test
+    void neverFallsBelowTheFloorAndKeepsTheHistoryScale() throws InterruptedException {
+        // A violent walk from just above the floor
+        RandomWalkPriceFeedSource source = new RandomWalkPriceFeedSource(properties(3, 0.5, "50"), new BigDecimal("51"));
+        Thread.sleep(20);
+
+        assertThat(source.initialPrice()).isEqualByComparingTo("51");
+        assertThat(source.poll()).isNotEmpty().allSatisfy(price -> {
+            assertThat(price).isGreaterThanOrEqualTo(new BigDecimal("50"));
+            assertThat(price.scale()).isEqualTo(4);
+        });
+    }
+
+    private static PriceFeedProperties properties(long seed, double volatility, String minPrice) {
+        PriceFeedProperties properties = new PriceFeedProperties();
+        properties.getRandomWalk().setSeed(seed);
+        properties.getRandomWalk().setTicksPerSecond(1_000_000);
+        properties.getRandomWalk().setMaxTicksPerPoll(100);
+        properties.getRandomWalk().setVolatility(volatility);
+        properties.getRandomWalk().setMinPrice(new BigDecimal(minPrice));
+        return properties;
+    }
+}
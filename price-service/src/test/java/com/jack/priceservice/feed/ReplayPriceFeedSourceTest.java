@@ -0,0 +1,81 @@
+package com.jack.priceservice.feed;
+
+import com.jack.priceservice.config.PriceFeedProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReplayPriceFeedSourceTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysTimestampedTicksSkippingHeaderAndComments() throws IOException {
+        ReplayPriceFeedSource source = new ReplayPriceFeedSource(properties(file(
+                "epochMillis,price",
+                "# recorded 2024-03-10",
+                "1710000000000,100.5",
+                "",
+                "1710000000100,101.0",
+                "1710000000300,99.75"), false));
+
+        assertThat(source.initialPrice()).isEqualByComparingTo("100.5");
+        assertThat(source.poll()).containsExactly(new BigDecimal("100.5"), new BigDecimal("101.0"), new BigDecimal("99.75"));
+
+        // Without loop the feed ends after the last tick
+        assertThat(source.poll()).isEmpty();
+    }
+
+    @Test
+    void holdsBackTicksThatAreNotDueYet() throws IOException {
+        PriceFeedProperties properties = properties(file("1000,1", "61000,2"), false);
+        properties.getReplay().setSpeed(1.0);
+        ReplayPriceFeedSource source = new ReplayPriceFeedSource(properties);
+
+        // The second tick is recorded a minute after the first
+        assertThat(source.poll()).containsExactly(BigDecimal.ONE);
+        assertThat(source.poll()).isEmpty();
+    }
+
+    @Test
+    void loopsPriceOnlyFiles() throws IOException, InterruptedException {
+        ReplayPriceFeedSource source = new ReplayPriceFeedSource(properties(file("10", "20", "30"), true));
+        Thread.sleep(5);
+
+        // Each restart is pushed at least a millisecond past the previous one
+        List<BigDecimal> prices = source.poll();
+
+        assertThat(prices).hasSizeGreaterThanOrEqualTo(6);
+        assertThat(prices.subList(0, 6)).extracting(BigDecimal::intValue).containsExactly(10, 20, 30, 10, 20, 30);
+    }
+
+    @Test
+    void rejectsAMissingOrEmptyFile() throws IOException {
+        assertThatThrownBy(() -> new ReplayPriceFeedSource(new PriceFeedProperties()))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new ReplayPriceFeedSource(properties(file("price", "# nothing recorded"), false)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private Path file(String... lines) throws IOException {
+        return Files.write(Files.createTempFile(directory, "ticks", ".csv"), List.of(lines));
+    }
+
+    // Effectively instantaneous replay so every tick is due on the first poll
+    private static PriceFeedProperties properties(Path file, boolean loop) {
+        PriceFeedProperties properties = new PriceFeedProperties();
+        properties.getReplay().setFile(file.toString());
+        properties.getReplay().setSpeed(1e9);
+        properties.getReplay().setTicksPerSecond(1e9);
+        properties.getReplay().setLoop(loop);
+        return properties;
+    }
+}
@@ -0,0 +1,33 @@
+package com.jack.priceservice.feed;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WavePriceFeedSourceTest {
+
+    @Test
+    void emitsOneTickPerPollAlongATriangleWave() {
+        WavePriceFeedSource source = new WavePriceFeedSource();
+        ReflectionTestUtils.setField(source, "currentPrice", new BigDecimal("100"));
+        List<BigDecimal> prices = new ArrayList<>();
+
+        // 36 steps up to 460, then back down to 100
+        for (int i = 0; i < 72; i++) {
+            List<BigDecimal> tick = source.poll();
+            assertThat(tick).hasSize(1);
+            prices.add(tick.get(0));
+        }
+
+        assertThat(prices.get(0)).isEqualByComparingTo("110");
+        assertThat(prices.get(35)).isEqualByComparingTo("460");
+        assertThat(prices.get(36)).isEqualByComparingTo("450");
+        assertThat(prices.get(71)).isEqualByComparingTo("100");
+        assertThat(source.poll().get(0)).isEqualByComparingTo("110");
+    }
+}
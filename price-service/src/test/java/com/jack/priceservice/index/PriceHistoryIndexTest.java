@@ -0,0 +1,116 @@
+package com.jack.priceservice.index;
+
+import com.jack.priceservice.config.PriceHistoryProperties;
+import com.jack.priceservice.entity.BTCPriceHistory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+class PriceHistoryIndexTest {
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private PriceHistoryIndex index;
+
+    @BeforeEach
+    void setUp() {
+        PriceHistoryProperties properties = new PriceHistoryProperties();
+        properties.setIndexMaxEntries(1024);
+        index = new PriceHistoryIndex(jdbcTemplate, properties);
+    }
+
+    @Test
+    void floorFindsTheLastTickAtOrBeforeTheInstant() {
+        append(1, 1_000, "100");
+        append(2, 2_000, "101");
+        append(3, 3_000, "102");
+
+        PriceHistoryIndex.View view = index.view();
+
+        assertThat(view.floor(999)).isEmpty();
+        assertThat(view.floor(1_000)).hasValue(0);
+        assertThat(view.floor(2_500)).hasValue(1);
+        assertThat(view.floor(3_000)).hasValue(2);
+        assertThat(view.floor(10_000)).hasValue(2);
+        assertThat(view.price(1)).isEqualByComparingTo("101");
+    }
+
+    @Test
+    void floorTakesTheLastOfTicksSharingAMillisecond() {
+        append(1, 1_000, "100");
+        append(2, 2_000, "101");
+        append(3, 2_000, "102");
+        append(4, 2_000, "103");
+        append(5, 3_000, "104");
+
+        PriceHistoryIndex.View view = index.view();
+
+        assertThat(view.floor(2_000)).hasValue(3);
+        assertThat(view.id(view.floor(2_000).getAsInt())).isEqualTo(4);
+    }
+
+    @Test
+    void aPublishedViewIsNotChangedByLaterAppends() {
+        append(1, 1_000, "100");
+        PriceHistoryIndex.View before = index.view();
+
+        append(2, 2_000, "101");
+
+        assertThat(before.size()).isEqualTo(1);
+        assertThat(before.floor(5_000)).hasValue(0);
+        assertThat(index.view().floor(5_000)).hasValue(1);
+    }
+
+    @Test
+    void outOfOrderTicksAreSkipped() {
+        append(1, 2_000, "100");
+        append(2, 1_000, "101");
+
+        assertThat(index.view().size()).isEqualTo(1);
+        assertThat(index.view().floor(1_500)).isEmpty();
+    }
+
+    @Test
+    void findByIdIsDisabledOnceIdsStopIncreasing() {
+        append(5, 1_000, "100");
+        append(7, 2_000, "101");
+        assertThat(index.view().findById(7)).hasValue(1);
+        assertThat(index.view().findById(6)).isEmpty();
+
+        append(6, 3_000, "102");
+
+        assertThat(index.view().findById(7)).isEmpty();
+    }
+
+    @Test
+    void afterFillingUpOnlyTheNewestHalfIsKept() {
+        for (int i = 0; i <= 1024; i++) {
+            append(i + 1, 1_000L * i, "100");
+        }
+
+        PriceHistoryIndex.View view = index.view();
+
+        assertThat(view.size()).isEqualTo(513);
+        assertThat(view.complete()).isFalse();
+        // Ticks older than the retained half predate the index now
+        assertThat(view.floor(511_000)).isEmpty();
+        assertThat(view.epochMillis(view.floor(512_000).getAsInt())).isEqualTo(512_000);
+    }
+
+    private void append(long id, long epochMillis, String price) {
+        index.append(BTCPriceHistory.builder()
+                .id(id)
+                .price(new BigDecimal(price))
+                .timestamp(Instant.ofEpochMilli(epochMillis))
+                .build());
+    }
+}
@@ -0,0 +1,115 @@
+package com.jack.priceservice.service.impl;
+
+import com.jack.priceservice.entity.BTCPriceHistory;
+import com.jack.priceservice.mapper.PriceCandleMapper;
+import com.jack.priceservice.repository.BTCPriceHistoryRepository;
+import com.jack.priceservice.repository.PriceCandleRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class CandleServiceImplTest {
+    private static final Instant MINUTE = Instant.parse("2024-03-10T13:47:00Z");
+
+    @Mock
+    private PriceCandleRepository priceCandleRepository;
+
+    @Mock
+    private BTCPriceHistoryRepository btcPriceHistoryRepository;
+
+    @Mock
+    private PriceCandleMapper priceCandleMapper;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private CandleServiceImpl candleService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any(Consumer.class));
+        candleService = new CandleServiceImpl(priceCandleRepository, btcPriceHistoryRepository, priceCandleMapper,
+                transactionTemplate);
+    }
+
+    @Test
+    void foldsTicksIntoOneCandlePerBucket() {
+        candleService.recordTick(tick(1, "100", MINUTE.plusSeconds(1)));
+        candleService.recordTick(tick(2, "120", MINUTE.plusSeconds(20)));
+        candleService.recordTick(tick(3, "90", MINUTE.plusSeconds(40)));
+        candleService.recordTick(tick(4, "110", MINUTE.plusSeconds(59)));
+
+        candleService.flushCandles();
+
+        verify(priceCandleRepository).upsert("ONE_MINUTE", MINUTE, price("100"), price("120"), price("90"), price("110"), 4);
+        verify(priceCandleRepository).upsert(eq("ONE_DAY"), eq(Instant.parse("2024-03-10T00:00:00Z")),
+                eq(price("100")), eq(price("120")), eq(price("90")), eq(price("110")), eq(4L));
+    }
+
+    @Test
+    void aNewBucketStartsFromItsFirstTickAndTheOldOneIsStillFlushed() {
+        candleService.recordTick(tick(1, "100", MINUTE.plusSeconds(30)));
+        candleService.recordTick(tick(2, "130", MINUTE.plusSeconds(61)));
+
+        candleService.flushCandles();
+
+        verify(priceCandleRepository).upsert("ONE_MINUTE", MINUTE, price("100"), price("100"), price("100"), price("100"), 1);
+        verify(priceCandleRepository).upsert("ONE_MINUTE", MINUTE.plusSeconds(60),
+                price("130"), price("130"), price("130"), price("130"), 1);
+    }
+
+    @Test
+    void onlyTouchedBucketsAreFlushedAndOnlyOnce() {
+        candleService.recordTick(tick(1, "100", MINUTE));
+        candleService.flushCandles();
+        candleService.flushCandles();
+
+        // One upsert per interval for the single tick, none for the second, empty flush
+        verify(priceCandleRepository, times(4)).upsert(any(), any(), any(), any(), any(), any(), anyLong());
+    }
+
+    @Test
+    void aFailedFlushIsRetried() {
+        candleService.recordTick(tick(1, "100", MINUTE));
+        doThrow(new RuntimeException("db down")).doNothing()
+                .when(priceCandleRepository).upsert(any(), any(), any(), any(), any(), any(), anyLong());
+
+        candleService.flushCandles();
+        candleService.flushCandles();
+
+        // The first attempt fails on its first upsert; the retry writes all four intervals
+        verify(priceCandleRepository, times(5)).upsert(any(), any(), any(), any(), any(), any(), anyLong());
+        verify(btcPriceHistoryRepository, times(4)).aggregateBetween(any(), any(), anyLong());
+        verifyNoMoreInteractions(btcPriceHistoryRepository);
+    }
+
+    private static BTCPriceHistory tick(long id, String price, Instant timestamp) {
+        return BTCPriceHistory.builder().id(id).price(price(price)).timestamp(timestamp).build();
+    }
+
+    private static BigDecimal price(String value) {
+        return new BigDecimal(value);
+    }
+}
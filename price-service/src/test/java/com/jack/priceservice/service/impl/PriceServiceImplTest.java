@@ -0,0 +1,69 @@
+package com.jack.priceservice.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.common.constants.ApplicationConstants;
+import com.jack.common.dto.response.BTCPriceResponseDto;
+import com.jack.common.price.PriceTicker;
+import com.jack.priceservice.config.PriceFeedProperties;
+import com.jack.priceservice.config.PriceServiceProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PriceServiceImplTest {
+    private static final String PRICE_KEY = "BTC_CURRENT_PRICE";
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private PriceTicker priceTicker;
+
+    private final PriceFeedProperties feedProperties = new PriceFeedProperties();
+    private PriceServiceImpl priceService;
+
+    @BeforeEach
+    void setUp() {
+        PriceServiceProperties properties = new PriceServiceProperties();
+        properties.setBtcPriceKey(PRICE_KEY);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        priceService = new PriceServiceImpl(redisTemplate, new ObjectMapper(), properties, feedProperties, priceTicker);
+    }
+
+    @Test
+    void publishedPriceExpiresAfterTwoPollIntervals() {
+        feedProperties.setPollIntervalMs(100);
+
+        priceService.setPriceWithId(1L, new BigDecimal("60000"));
+
+        verify(valueOperations).set(eq(PRICE_KEY), anyString(), eq(Duration.ofMillis(200)));
+    }
+
+    @Test
+    void slowPollsKeepThePriceForTwoOfTheirIntervals() {
+        feedProperties.setPollIntervalMs(30_000);
+
+        priceService.setPriceWithId(1L, new BigDecimal("60000"));
+
+        // A fixed 5s TTL would leave no price between these polls
+        verify(valueOperations).set(eq(PRICE_KEY), anyString(), eq(Duration.ofMinutes(1)));
+        verify(priceTicker).update(BTCPriceResponseDto.builder().id(1L).btcPrice(new BigDecimal("60000")).build());
+        verify(redisTemplate).convertAndSend(eq(ApplicationConstants.BTC_PRICE_CHANNEL), anyString());
+    }
+}
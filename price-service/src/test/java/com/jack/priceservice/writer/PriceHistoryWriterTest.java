@@ -0,0 +1,198 @@
+package com.jack.priceservice.writer;
+
+import com.jack.priceservice.config.PriceHistoryProperties;
+import com.jack.priceservice.entity.BTCPriceHistory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PriceHistoryWriterTest {
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private PriceHistoryWriter writer;
+    private PriceHistoryProperties properties;
+    private final List<List<Long>> batches = new ArrayList<>();
+    private final List<Long> insertedOneByOne = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        properties = new PriceHistoryProperties();
+        properties.setBufferCapacity(4);
+        properties.setBatchSize(10);
+        properties.setMaxBatchAttempts(3);
+        properties.setRetryBackoffInitialMs(0);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1L);
+        writer = new PriceHistoryWriter(jdbcTemplate, properties);
+    }
+
+    @Test
+    void flushDrainsTheBufferInOneBatch() {
+        recordBatches(false);
+        append(3);
+
+        writer.flush();
+        writer.flush();
+
+        assertThat(batches).containsExactly(List.of(1L, 2L, 3L));
+    }
+
+    @Test
+    void aFailedBatchIsRetriedOnTheNextFlush() {
+        recordBatches(true, false);
+        append(2);
+
+        writer.flush();
+        writer.flush();
+
+        assertThat(batches).containsExactly(List.of(1L, 2L), List.of(1L, 2L));
+        verify(jdbcTemplate, never()).update(anyString(), any(), any(), any());
+    }
+
+    @Test
+    void afterMaxAttemptsRowsAreInsertedOneByOneAndTheFailingOneDropped() {
+        recordBatches(true);
+        append(3);
+        when(jdbcTemplate.update(anyString(), eq(1L), any(), any())).thenAnswer(this::recordInsert);
+        when(jdbcTemplate.update(anyString(), eq(2L), any(), any())).thenThrow(new DuplicateKeyException("duplicate id 2"));
+        when(jdbcTemplate.update(anyString(), eq(3L), any(), any())).thenAnswer(this::recordInsert);
+
+        writer.flush();
+        writer.flush();
+        writer.flush();
+
+        // Only the row the constraint refused is dropped
+        assertThat(insertedOneByOne).containsExactly(1L, 3L);
+
+        // The poisoned batch is gone, so the next flush has nothing left to retry
+        writer.flush();
+        assertThat(batches).hasSize(3);
+    }
+
+    @Test
+    void transientFailuresNeverDropRows() {
+        // More failures than maxBatchAttempts, none of them a constraint violation
+        recordBatches(new CannotGetJdbcConnectionException("database down"), 5);
+        append(2);
+
+        for (int i = 0; i < 6; i++) {
+            writer.flush();
+        }
+
+        assertThat(batches).hasSize(6).allMatch(List.of(1L, 2L)::equals);
+        verify(jdbcTemplate, never()).update(anyString(), any(), any(), any());
+    }
+
+    @Test
+    void transientFailureBacksOffBeforeTheNextAttempt() {
+        properties.setRetryBackoffInitialMs(60_000);
+        recordBatches(new CannotGetJdbcConnectionException("database down"), 1);
+        append(2);
+
+        writer.flush();
+        writer.flush();
+        assertThat(batches).hasSize(1);
+
+        // Shutdown still makes one last attempt, which writes the kept rows
+        writer.shutdown();
+        assertThat(batches).containsExactly(List.of(1L, 2L), List.of(1L, 2L));
+    }
+
+    @Test
+    void oneByOnePassStopsAtATransientFailureAndKeepsTheRest() {
+        recordBatches(true, true, true, false);
+        append(3);
+        when(jdbcTemplate.update(anyString(), eq(1L), any(), any())).thenAnswer(this::recordInsert);
+        when(jdbcTemplate.update(anyString(), eq(2L), any(), any())).thenThrow(new CannotGetJdbcConnectionException("database down"));
+
+        writer.flush();
+        writer.flush();
+        writer.flush();
+        assertThat(insertedOneByOne).containsExactly(1L);
+
+        // Rows 2 and 3 were kept and go in with the next batch
+        writer.flush();
+        assertThat(batches.get(batches.size() - 1)).containsExactly(2L, 3L);
+        verify(jdbcTemplate, never()).update(anyString(), eq(3L), any(), any());
+    }
+
+    @Test
+    void theBufferAcceptsTicksAgainOnceAStuckBatchIsDropped() {
+        recordBatches(true, true, true, true, false);
+
+        // Ticks 1-4 fill the buffer; tick 5 flushes inline (attempt 1) and 5-8 fill it again behind the stuck batch
+        append(8);
+
+        // Tick 9 flushes inline (attempt 2) into a still-full buffer and is dropped
+        append(1);
+
+        // Tick 10 makes attempt 3: rows 1-4 go in one by one and the buffer drains again
+        append(1);
+        verify(jdbcTemplate, times(4)).update(anyString(), any(), any(), any());
+
+        writer.flush();
+        assertThat(batches.subList(3, batches.size())).containsExactly(List.of(5L, 6L, 7L, 8L), List.of(5L, 6L, 7L, 8L), List.of(10L));
+    }
+
+    private void append(int count) {
+        for (int i = 0; i < count; i++) {
+            writer.append(BigDecimal.valueOf(100 + i));
+        }
+    }
+
+    private Object recordInsert(InvocationOnMock invocation) {
+        insertedOneByOne.add(invocation.getArgument(1));
+        return 1;
+    }
+
+    // Record the ids of every batch insert; the first failingCalls calls throw the given exception
+    private void recordBatches(RuntimeException failure, int failingCalls) {
+        when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(), any())).thenAnswer(invocation -> {
+            Collection<BTCPriceHistory> rows = invocation.getArgument(1);
+            batches.add(rows.stream().map(BTCPriceHistory::getId).toList());
+
+            if (batches.size() <= failingCalls) {
+                throw failure;
+            }
+
+            return new int[][]{};
+        });
+    }
+
+    // Record the ids of every batch insert; each flag says whether that call fails, the last one repeats
+    private void recordBatches(boolean... failures) {
+        when(jdbcTemplate.batchUpdate(anyString(), any(Collection.class), anyInt(), any())).thenAnswer(invocation -> {
+            Collection<BTCPriceHistory> rows = invocation.getArgument(1);
+            batches.add(rows.stream().map(BTCPriceHistory::getId).toList());
+            boolean fail = failures[Math.min(batches.size(), failures.length) - 1];
+
+            if (fail) {
+                throw new DuplicateKeyException("batch failed");
+            }
+
+            return new int[][]{};
+        });
+    }
+}
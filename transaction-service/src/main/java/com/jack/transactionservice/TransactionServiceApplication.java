@@ -1,11 +1,16 @@
 package com.jack.transactionservice;
 
+import com.jack.common.exception.GlobalExceptionHandler;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.openfeign.EnableFeignClients;
+import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableFeignClients
+@Import(GlobalExceptionHandler.class)
+@EnableScheduling
 public class TransactionServiceApplication {
 
     public static void main(String[] args) {
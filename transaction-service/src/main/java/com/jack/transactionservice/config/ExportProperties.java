@@ -0,0 +1,20 @@
+package com.jack.transactionservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.export")
+public class ExportProperties {
+    // Rows the driver pulls per round trip from the server-side cursor; bounds heap use regardless of history size
+    private int fetchSize = 1000;
+
+    // Upper bound on one export, including the time the client takes to read it
+    private Duration timeout = Duration.ofMinutes(30);
+}
@@ -0,0 +1,25 @@
+package com.jack.transactionservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.idempotency")
+public class IdempotencyProperties {
+    // How long a completed response is replayed for its Idempotency-Key
+    private Duration ttl = Duration.ofHours(24);
+
+    // Lease on an in-flight reservation; a crashed instance frees the key after this
+    private Duration reservationTtl = Duration.ofSeconds(60);
+
+    // Hot keys answered from the heap without a Redis round trip
+    private long localCacheMaximumSize = 10_000;
+
+    private Duration localCacheTtl = Duration.ofMinutes(10);
+}
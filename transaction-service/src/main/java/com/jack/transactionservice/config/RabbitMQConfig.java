@@ -1,17 +1,33 @@
 package com.jack.transactionservice.config;
 
+import com.jack.common.config.OutboxRelayConfig;
 import com.jack.common.constants.TransactionConstants;
+import com.jack.common.constants.WalletConstants;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.amqp.RabbitTemplateConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
 
 @Configuration
+@Import(OutboxRelayConfig.class)
 @Log4j2
 public class RabbitMQConfig {
+    // Boot backs off its own template once another RabbitTemplate bean exists, so declare the shared one explicitly
+    @Bean
+    @Primary
+    public RabbitTemplate rabbitTemplate(RabbitTemplateConfigurer configurer, ConnectionFactory connectionFactory) {
+        RabbitTemplate template = new RabbitTemplate();
+        configurer.configure(template, connectionFactory);
+        return template;
+    }
 
     // Define the create queue
     @Bean
@@ -76,4 +92,29 @@ public class RabbitMQConfig {
                 .to(transactionExchange())
                 .with(TransactionConstants.TRANSACTION_BALANCE_ROUTING_KEY);
     }
+
+    // Outcomes of our wallet update events; wallet-service publishes them to its exchange
+    @Bean
+    public Queue walletUpdateResultQueue() {
+        log.info("Creating WalletUpdateResultQueue: {}", WalletConstants.WALLET_UPDATE_RESULT_QUEUE);
+        return new Queue(WalletConstants.WALLET_UPDATE_RESULT_QUEUE, true);
+    }
+
+    // Declared here too, so the binding does not depend on wallet-service starting first
+    @Bean
+    public TopicExchange walletExchange() {
+        log.info("Creating exchange: {}", WalletConstants.WALLET_EXCHANGE);
+        return new TopicExchange(WalletConstants.WALLET_EXCHANGE);
+    }
+
+    @Bean
+    public Binding bindingWalletUpdateResultQueue() {
+        log.info("Binding WalletUpdateResultQueue {} to exchange {} with routing key {}",
+                WalletConstants.WALLET_UPDATE_RESULT_QUEUE,
+                WalletConstants.WALLET_EXCHANGE,
+                WalletConstants.WALLET_UPDATE_RESULT_ROUTING_KEY);
+        return BindingBuilder.bind(walletUpdateResultQueue())
+                .to(walletExchange())
+                .with(WalletConstants.WALLET_UPDATE_RESULT_ROUTING_KEY);
+    }
 }
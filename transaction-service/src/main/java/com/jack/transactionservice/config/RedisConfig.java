@@ -1,6 +1,8 @@
 package com.jack.transactionservice.config;
 
+import com.jack.common.config.PriceTickerConfig;
 import com.jack.common.config.RedisCommonConfig;
+import com.jack.common.config.WalletNearCacheConfig;
 import com.jack.transactionservice.dto.TransactionDto;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.context.annotation.Bean;
@@ -13,7 +15,7 @@ import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSeriali
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
-@Import(RedisCommonConfig.class)
+@Import({RedisCommonConfig.class, WalletNearCacheConfig.class, PriceTickerConfig.class})
 @Log4j2
 public class RedisConfig {
 
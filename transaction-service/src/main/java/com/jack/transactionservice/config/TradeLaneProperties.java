@@ -0,0 +1,23 @@
+package com.jack.transactionservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.trade-lane")
+public class TradeLaneProperties {
+    // Number of lock stripes; users hashing to the same stripe share a lane, different stripes run in parallel
+    private int stripes = 1024;
+
+    // How long a trade waits for its lane before it is rejected
+    private Duration lockTimeout = Duration.ofSeconds(5);
+
+    // How often holds answered on another instance are released and dead-lettered wallet events are voided
+    private long settlementReconcileIntervalMs = 10000;
+}
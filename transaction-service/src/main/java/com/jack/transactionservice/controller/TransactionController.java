@@ -1,16 +1,28 @@
 package com.jack.transactionservice.controller;
 
 
+import com.jack.common.constants.ErrorCode;
+import com.jack.common.constants.TransactionConstants;
 import com.jack.common.dto.request.CreateTransactionRequestDto;
+import com.jack.common.exception.CustomErrorException;
+import com.jack.transactionservice.dto.BatchTradeResultDto;
 import com.jack.transactionservice.dto.TransactionDto;
+import com.jack.transactionservice.dto.TransactionHistoryPageDto;
 import com.jack.transactionservice.entity.TransactionType;
+import com.jack.transactionservice.service.ExportFormat;
+import com.jack.transactionservice.service.TransactionExportService;
 import com.jack.transactionservice.service.TransactionService;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.List;
+import java.util.Locale;
 
 import static com.jack.common.constants.ApplicationConstants.DEFAULT_PAGE_NUMBER;
 import static com.jack.common.constants.ApplicationConstants.DEFAULT_PAGE_SIZE;
@@ -19,28 +31,45 @@ import static com.jack.common.constants.ApplicationConstants.DEFAULT_PAGE_SIZE;
 @RequestMapping("/api/transactions")
 @Log4j2
 public class TransactionController {
+    private static final int MAX_HISTORY_PAGE_SIZE = 500;
+    private static final int MAX_BATCH_SIZE = 5000;
+
     private final TransactionService transactionService;
+    private final TransactionExportService transactionExportService;
 
-    public TransactionController(TransactionService transactionService) {
+    public TransactionController(TransactionService transactionService, TransactionExportService transactionExportService) {
         this.transactionService = transactionService;
+        this.transactionExportService = transactionExportService;
     }
 
     @PostMapping("/buy")
-    public ResponseEntity<TransactionDto> buyBtc(@RequestBody CreateTransactionRequestDto request) {
+    public ResponseEntity<TransactionDto> buyBtc(@RequestBody CreateTransactionRequestDto request,
+                                                 @RequestHeader(value = TransactionConstants.IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
         log.info("Initiating BTC buy transaction for user ID: {}", request.getUserId());
-        TransactionDto transactionDTO = transactionService.createTransaction(request, TransactionType.BUY);
+        TransactionDto transactionDTO = transactionService.createTransaction(request, TransactionType.BUY, idempotencyKey);
         log.info("BTC buy transaction completed for user ID: {}", request.getUserId());
         return ResponseEntity.ok(transactionDTO);
     }
 
     @PostMapping("/sell")
-    public ResponseEntity<TransactionDto> sellBtc(@RequestBody CreateTransactionRequestDto request) {
+    public ResponseEntity<TransactionDto> sellBtc(@RequestBody CreateTransactionRequestDto request,
+                                                  @RequestHeader(value = TransactionConstants.IDEMPOTENCY_HEADER, required = false) String idempotencyKey) {
         log.info("Initiating BTC sell transaction for user ID: {}", request.getUserId());
-        TransactionDto transactionDTO = transactionService.createTransaction(request, TransactionType.SELL);
+        TransactionDto transactionDTO = transactionService.createTransaction(request, TransactionType.SELL, idempotencyKey);
         log.info("BTC sell transaction completed for user ID: {}", request.getUserId());
         return ResponseEntity.ok(transactionDTO);
     }
 
+    @PostMapping("/buy/batch")
+    public ResponseEntity<List<BatchTradeResultDto>> buyBtcBatch(@RequestBody List<CreateTransactionRequestDto> requests) {
+        return ResponseEntity.ok(submitBatch(requests, TransactionType.BUY));
+    }
+
+    @PostMapping("/sell/batch")
+    public ResponseEntity<List<BatchTradeResultDto>> sellBtcBatch(@RequestBody List<CreateTransactionRequestDto> requests) {
+        return ResponseEntity.ok(submitBatch(requests, TransactionType.SELL));
+    }
+
     @GetMapping("/history/{userId}")
     public ResponseEntity<Page<TransactionDto>> getUserTransactionHistory(
             @PathVariable Long userId,
@@ -53,4 +82,60 @@ public class TransactionController {
         log.info("Fetched {} transactions for user ID: {}", transactions.getTotalElements(), userId);
         return ResponseEntity.ok(transactions);
     }
+
+    // Cursor-based history, newest first: no OFFSET scan and no count query, so deep pages cost the same as the first
+    @GetMapping("/history/{userId}/cursor")
+    public ResponseEntity<TransactionHistoryPageDto> getUserTransactionHistoryPage(
+            @PathVariable Long userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int size) {
+
+        if (size <= 0 || size > MAX_HISTORY_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            TransactionHistoryPageDto page = transactionService.getUserTransactionHistory(userId, cursor, size);
+            log.info("Fetched {} transactions for user ID: {} (more: {})", page.getItems().size(), userId, page.getNextCursor() != null);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected history request for user ID {}: {}", userId, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Full history in one response, written row by row from a database cursor; format is ndjson or csv
+    @GetMapping("/export/{userId}")
+    public ResponseEntity<StreamingResponseBody> exportUserTransactions(
+            @PathVariable Long userId,
+            @RequestParam(defaultValue = "ndjson") String format) {
+
+        ExportFormat exportFormat;
+
+        try {
+            exportFormat = ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected export for user ID {}: unknown format {}", userId, format);
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody body = out -> transactionExportService.exportUserTransactions(userId, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"transactions-" + userId + "." + exportFormat.getExtension() + "\"")
+                .body(body);
+    }
+
+    private List<BatchTradeResultDto> submitBatch(List<CreateTransactionRequestDto> requests, TransactionType transactionType) {
+        if (requests == null || requests.isEmpty() || requests.size() > MAX_BATCH_SIZE) {
+            throw new CustomErrorException(ErrorCode.INVALID_INPUT_DATA,
+                    "POST /api/transactions/" + transactionType.name().toLowerCase(Locale.ROOT) + "/batch");
+        }
+
+        log.info("Initiating batch of {} BTC {} transactions", requests.size(), transactionType);
+        List<BatchTradeResultDto> results = transactionService.createTransactions(requests, transactionType);
+        log.info("Batch of {} BTC {} transactions completed, {} accepted", requests.size(), transactionType,
+                results.stream().filter(result -> result.getStatus() == BatchTradeResultDto.Status.ACCEPTED).count());
+        return results;
+    }
 }
@@ -0,0 +1,28 @@
+package com.jack.transactionservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+// Outcome of one item of a batch, in request order; transaction is set when accepted, error when rejected
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchTradeResultDto implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private int index;
+    private Status status;
+    private TransactionDto transaction;
+    private String error;
+
+    public enum Status {
+        ACCEPTED,
+        REJECTED
+    }
+}
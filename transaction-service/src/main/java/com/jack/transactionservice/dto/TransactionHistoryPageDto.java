@@ -0,0 +1,22 @@
+package com.jack.transactionservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+// One page of history, newest first; pass nextCursor back to continue, null means there is nothing older
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionHistoryPageDto implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+    private List<TransactionDto> items;
+    private String nextCursor;
+}
@@ -0,0 +1,61 @@
+package com.jack.transactionservice.entity;
+
+import com.jack.common.constants.EventStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Pending lookups use the partial index idx_outbox_pending (see SQL/schema.sql), which JPA cannot declare
+@Entity
+@Table(name = "outbox")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@ToString
+public class Outbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "aggregate_type", nullable = false, length = 100)
+    private String aggregateType;
+
+    @Column(name = "aggregate_id", nullable = false, length = 100)
+    private String aggregateId;
+
+    @Column(name = "event_type", nullable = false, length = 100)
+    private String eventType;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "routing_key", nullable = false)
+    private String routingKey;
+
+    @Column(name = "event_id", nullable = false, unique = true, length = 36)
+    private String eventId;
+
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    @Column(name = "status", nullable = false)
+    private EventStatus status = EventStatus.PENDING; // PENDING until the broker confirms the publish; FAILED is dead-lettered
+
+    // Failed publish attempts; the relay dead-letters the row as FAILED after app.outbox.max-attempts
+    @Builder.Default
+    @Column(name = "attempts", nullable = false, columnDefinition = "INTEGER NOT NULL DEFAULT 0")
+    private int attempts = 0;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    // Set while a relay publishes the row outside its claim transaction; an expired lease makes it claimable again
+    @Column(name = "leased_until")
+    private LocalDateTime leasedUntil;
+}
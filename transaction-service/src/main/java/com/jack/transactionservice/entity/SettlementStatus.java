@@ -0,0 +1,8 @@
+package com.jack.transactionservice.entity;
+
+// Whether wallet-service has applied the wallet delta of a transaction
+public enum SettlementStatus {
+    PENDING,
+    SETTLED,
+    REJECTED
+}
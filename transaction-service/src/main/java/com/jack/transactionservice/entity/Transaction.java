@@ -11,8 +11,10 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "transactions", indexes = {
-        @Index(name = "idx_user_id", columnList = "user_id"),
-        @Index(name = "idx_btc_price_history_id", columnList = "btc_price_history_id")
+        // Serves keyset history pages; schema.sql also INCLUDEs the listed columns so pages are index-only scans
+        @Index(name = "idx_transactions_user_time_id", columnList = "user_id, transaction_time DESC, id DESC"),
+        @Index(name = "idx_btc_price_history_id", columnList = "btc_price_history_id"),
+        @Index(name = "idx_transactions_wallet_event_id", columnList = "wallet_event_id")
 })
 @Getter
 @Setter
@@ -49,6 +51,17 @@ public class Transaction {
     @Column(nullable = false, updatable = false)
     private TransactionType transactionType;
 
+    // PENDING until wallet-service reports the outcome of the wallet event below. Every insert sets it; the column
+    // default only backfills rows that predate settlement tracking, whose wallet updates were applied synchronously.
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, columnDefinition = "VARCHAR(20) NOT NULL DEFAULT 'SETTLED'")
+    @Builder.Default
+    private SettlementStatus status = SettlementStatus.PENDING;
+
+    // Outbox event carrying this transaction's wallet delta; batch trades of one user share it
+    @Column(name = "wallet_event_id", length = 36, updatable = false)
+    private String walletEventId;
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,115 @@
+package com.jack.transactionservice.lane;
+
+import com.jack.common.dto.response.WalletResponseDto;
+import com.jack.transactionservice.entity.SettlementStatus;
+import com.jack.transactionservice.entity.Transaction;
+import com.jack.transactionservice.entity.TransactionType;
+import com.jack.transactionservice.repository.TransactionRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+// Wallet deltas committed here that wallet-service has not confirmed yet, keyed by their outbox event.
+// A delta is held until its result message arrives, however long the relay or the wallet takes.
+// Holds are added and balances read inside the user's lane; results release them from the listener thread.
+// Results are consumed from a queue shared by all instances, so holds whose result another instance took
+// are released by SettlementReconciler once the database shows the event answered.
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class ProjectedBalanceLedger {
+    private final TransactionRepository transactionRepository;
+    // userId -> eventId -> delta; a user's map is only created or dropped under the outer map's lock for that key
+    private final ConcurrentMap<Long, Map<String, Delta>> pending = new ConcurrentHashMap<>();
+
+    // Trades committed before a restart are still unconfirmed until wallet-service says otherwise
+    @PostConstruct
+    void restore() {
+        int restored = 0;
+
+        for (Transaction transaction : transactionRepository.findByStatusAndWalletEventIdNotNull(SettlementStatus.PENDING)) {
+            // usdAmount is negative for a SELL, so its negation is the USD delta of either side
+            BigDecimal btcDelta = transaction.getTransactionType() == TransactionType.BUY
+                    ? transaction.getBtcAmount() : transaction.getBtcAmount().negate();
+            add(transaction.getUserId(), transaction.getWalletEventId(), new Delta(transaction.getUsdAmount().negate(), btcDelta));
+            restored++;
+        }
+
+        log.info("Restored {} unconfirmed trades into the projected balance ledger", restored);
+    }
+
+    // Wallet read less every unconfirmed debit; unconfirmed credits are not spendable yet.
+    // A debit the wallet applied but has not confirmed counts twice for a moment, which only ever under-reports.
+    public WalletResponseDto available(WalletResponseDto walletBalance) {
+        Map<String, Delta> deltas = pending.get(walletBalance.getUserId());
+
+        if (deltas == null) {
+            return walletBalance;
+        }
+
+        BigDecimal usdBalance = walletBalance.getUsdBalance();
+        BigDecimal btcBalance = walletBalance.getBtcBalance();
+
+        for (Delta delta : deltas.values()) {
+            usdBalance = usdBalance.add(delta.usd().min(BigDecimal.ZERO));
+            btcBalance = btcBalance.add(delta.btc().min(BigDecimal.ZERO));
+        }
+
+        return WalletResponseDto.builder()
+                .userId(walletBalance.getUserId())
+                .usdBalance(usdBalance)
+                .btcBalance(btcBalance)
+                .build();
+    }
+
+    // Called before the commit: wallet-service may confirm the event before the committing thread returns
+    public void hold(Long userId, String eventId, BigDecimal usdDelta, BigDecimal btcDelta) {
+        add(userId, eventId, new Delta(usdDelta, btcDelta));
+    }
+
+    // Result received (or the commit failed); unknown events are ignored, so redelivered results are harmless
+    public boolean release(Long userId, String eventId) {
+        boolean[] released = new boolean[1];
+
+        pending.computeIfPresent(userId, (id, deltas) -> {
+            released[0] = deltas.remove(eventId) != null;
+            return deltas.isEmpty() ? null : deltas;
+        });
+
+        return released[0];
+    }
+
+    // Snapshot of held events and the user of each
+    public Map<String, Long> heldEvents() {
+        Map<String, Long> held = new HashMap<>();
+        pending.forEach((userId, deltas) -> deltas.keySet().forEach(eventId -> held.put(eventId, userId)));
+        return held;
+    }
+
+    // Unconfirmed wallet events of a user
+    public int pendingEvents(Long userId) {
+        Map<String, Delta> deltas = pending.get(userId);
+        return deltas == null ? 0 : deltas.size();
+    }
+
+    private void add(Long userId, String eventId, Delta delta) {
+        pending.compute(userId, (id, deltas) -> {
+            Map<String, Delta> held = deltas != null ? deltas : new ConcurrentHashMap<>();
+            held.merge(eventId, delta, Delta::plus);
+            return held;
+        });
+    }
+
+    private record Delta(BigDecimal usd, BigDecimal btc) {
+        private Delta plus(Delta other) {
+            return new Delta(usd.add(other.usd), btc.add(other.btc));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.jack.transactionservice.lane;
+
+import com.jack.common.cache.WalletBalanceNearCache;
+import com.jack.common.dto.response.WalletUpdateResultDto;
+import com.jack.transactionservice.entity.Transaction;
+import com.jack.transactionservice.repository.TransactionRepository;
+import com.jack.transactionservice.service.TransactionService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Catches up on wallet results this instance never sees: results consumed by another instance,
+// and dead-lettered wallet events that never reach wallet-service and so never produce a result
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class SettlementReconciler {
+    static final String DEAD_LETTERED_REASON = "Wallet update event was dead-lettered by the outbox relay";
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionService transactionService;
+    private final ProjectedBalanceLedger projectedBalanceLedger;
+    private final WalletBalanceNearCache walletBalanceNearCache;
+
+    @Scheduled(fixedDelayString = "${app.trade-lane.settlement-reconcile-interval-ms:10000}")
+    public void reconcile() {
+        voidDeadLetteredTrades();
+        releaseAnsweredHolds();
+    }
+
+    // Settled like a rejected result, so every instance ends up with the same status, cache and holds
+    void voidDeadLetteredTrades() {
+        Map<String, Long> events = new LinkedHashMap<>();
+
+        for (Transaction transaction : transactionRepository.findPendingWithDeadLetteredWalletEvent()) {
+            events.putIfAbsent(transaction.getWalletEventId(), transaction.getUserId());
+        }
+
+        events.forEach((eventId, userId) -> {
+            try {
+                transactionService.settleWalletUpdate(WalletUpdateResultDto.builder()
+                        .eventId(eventId)
+                        .userId(userId)
+                        .applied(false)
+                        .reason(DEAD_LETTERED_REASON)
+                        .build());
+            } catch (Exception e) {
+                // Still PENDING, so the next run picks it up again
+                log.warn("Failed to void dead-lettered wallet event {} of user {}: {}", eventId, userId, e.getMessage());
+            }
+        });
+    }
+
+    void releaseAnsweredHolds() {
+        Map<String, Long> held = projectedBalanceLedger.heldEvents();
+
+        if (held.isEmpty()) {
+            return;
+        }
+
+        int released = 0;
+
+        for (String eventId : transactionRepository.findAnsweredWalletEventIds(held.keySet())) {
+            Long userId = held.get(eventId);
+
+            // Same order as settleWalletUpdate: reload the balance before the hold stops covering it
+            walletBalanceNearCache.evict(userId);
+
+            if (projectedBalanceLedger.release(userId, eventId)) {
+                released++;
+            }
+        }
+
+        if (released > 0) {
+            log.info("Released {} holds answered on another instance", released);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.jack.transactionservice.lane;
+
+import com.jack.transactionservice.config.TradeLaneProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Per-user execution lanes: trades of one user run one at a time in arrival order, other users are not blocked
+@Component
+@Log4j2
+public class UserTradeLanes {
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final long lockTimeoutNanos;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Timer holdTimer;
+    private final Counter timeouts;
+
+    public UserTradeLanes(TradeLaneProperties properties, MeterRegistry meterRegistry) {
+        // Round up to a power of two so the stripe is a mask of the spread hash
+        int size = Integer.highestOneBit(Math.max(1, properties.getStripes() - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            // Fair locks hand the lane over in arrival order
+            stripes[i] = new ReentrantLock(true);
+        }
+        this.mask = size - 1;
+        this.lockTimeoutNanos = properties.getLockTimeout().toNanos();
+
+        Gauge.builder("trade.lane.waiting", waiting, AtomicInteger::get)
+                .description("Trades queued behind another trade of the same lane")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("trade.lane.wait")
+                .description("Time a trade waited for its lane")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.holdTimer = Timer.builder("trade.lane.hold")
+                .description("Time a trade held its lane")
+                .register(meterRegistry);
+        this.timeouts = Counter.builder("trade.lane.timeouts")
+                .description("Trades rejected because their lane stayed busy")
+                .register(meterRegistry);
+        log.info("Configured {} trade lanes, lock timeout {}", size, properties.getLockTimeout());
+    }
+
+    public <T> T execute(Long userId, Supplier<T> trade) {
+        ReentrantLock lock = stripes[spread(userId) & mask];
+        long start = System.nanoTime();
+        boolean acquired;
+
+        waiting.incrementAndGet();
+        try {
+            acquired = lock.tryLock(lockTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the trade lane of user " + userId, e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        long acquiredAt = System.nanoTime();
+        waitTimer.record(acquiredAt - start, TimeUnit.NANOSECONDS);
+
+        if (!acquired) {
+            timeouts.increment();
+            throw new IllegalStateException("Too many concurrent trades for user " + userId + ", please retry");
+        }
+
+        try {
+            return trade.get();
+        } finally {
+            lock.unlock();
+            holdTimer.record(System.nanoTime() - acquiredAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static int spread(Long userId) {
+        int h = userId.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
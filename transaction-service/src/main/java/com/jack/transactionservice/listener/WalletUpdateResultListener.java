@@ -0,0 +1,31 @@
+package com.jack.transactionservice.listener;
+
+import com.jack.common.constants.WalletConstants;
+import com.jack.common.dto.response.WalletUpdateResultDto;
+import com.jack.transactionservice.service.TransactionService;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+@Component
+@Log4j2
+public class WalletUpdateResultListener {
+    private final TransactionService transactionService;
+
+    public WalletUpdateResultListener(TransactionService transactionService) {
+        this.transactionService = transactionService;
+    }
+
+    // A failure here propagates, so the broker redelivers the result and the hold is not lost
+    @RabbitListener(queues = WalletConstants.WALLET_UPDATE_RESULT_QUEUE)
+    public void handleWalletUpdateResult(WalletUpdateResultDto result) {
+        if (result.getEventId() == null || result.getUserId() == null) {
+            log.error("Ignoring wallet update result without event or user ID: {}", result);
+            return;
+        }
+
+        log.info("Received wallet update result for event {} (user ID: {}, applied: {})",
+                result.getEventId(), result.getUserId(), result.isApplied());
+        transactionService.settleWalletUpdate(result);
+    }
+}
@@ -0,0 +1,10 @@
+package com.jack.transactionservice.repository;
+
+import com.jack.transactionservice.entity.Outbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+// Writes only; claiming and marking rows is done by the shared relay (com.jack.common.outbox.JdbcOutboxStore)
+@Repository
+public interface OutboxRepository extends JpaRepository<Outbox, Long> {
+}
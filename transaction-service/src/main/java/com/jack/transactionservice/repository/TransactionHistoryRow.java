@@ -0,0 +1,23 @@
+package com.jack.transactionservice.repository;
+
+import com.jack.transactionservice.entity.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Just the columns a history entry shows, all served from idx_transactions_user_time_id
+public interface TransactionHistoryRow {
+    Long getId();
+
+    Long getUserId();
+
+    Long getBtcPriceHistoryId();
+
+    BigDecimal getBtcAmount();
+
+    BigDecimal getUsdAmount();
+
+    LocalDateTime getTransactionTime();
+
+    TransactionType getTransactionType();
+}
@@ -1,12 +1,53 @@
 package com.jack.transactionservice.repository;
 
+import com.jack.transactionservice.entity.SettlementStatus;
 import com.jack.transactionservice.entity.Transaction;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     Page<Transaction> findByUserId(Long userId, Pageable pageable);
+
+    // Newest history entries; List return type, so no count query
+    @Query("SELECT t.id AS id, t.userId AS userId, t.btcPriceHistoryId AS btcPriceHistoryId, t.btcAmount AS btcAmount, " +
+            "t.usdAmount AS usdAmount, t.transactionTime AS transactionTime, t.transactionType AS transactionType " +
+            "FROM Transaction t WHERE t.userId = :userId ORDER BY t.transactionTime DESC, t.id DESC")
+    List<TransactionHistoryRow> findHistory(@Param("userId") Long userId, Pageable pageable);
+
+    // Seek past the last entry of the previous page with a row-value comparison, so the index range starts right there
+    @Query("SELECT t.id AS id, t.userId AS userId, t.btcPriceHistoryId AS btcPriceHistoryId, t.btcAmount AS btcAmount, " +
+            "t.usdAmount AS usdAmount, t.transactionTime AS transactionTime, t.transactionType AS transactionType " +
+            "FROM Transaction t WHERE t.userId = :userId AND (t.transactionTime, t.id) < (:afterTime, :afterId) " +
+            "ORDER BY t.transactionTime DESC, t.id DESC")
+    List<TransactionHistoryRow> findHistoryBefore(@Param("userId") Long userId, @Param("afterTime") LocalDateTime afterTime,
+                                                  @Param("afterId") Long afterId, Pageable pageable);
+
+    // Wallet events not yet answered by wallet-service
+    List<Transaction> findByStatusAndWalletEventIdNotNull(SettlementStatus status);
+
+    // Pending trades whose wallet event the relay dead-lettered: it never reaches wallet-service, so no result will come
+    @Query(value = "SELECT t.* FROM transactions t JOIN outbox o ON o.event_id = t.wallet_event_id " +
+            "WHERE t.status = 'PENDING' AND o.status = 'FAILED'", nativeQuery = true)
+    List<Transaction> findPendingWithDeadLetteredWalletEvent();
+
+    // Of the given wallet events, those already settled or voided (possibly by another instance)
+    @Query("SELECT DISTINCT t.walletEventId FROM Transaction t WHERE t.walletEventId IN :walletEventIds " +
+            "AND t.status <> com.jack.transactionservice.entity.SettlementStatus.PENDING")
+    List<String> findAnsweredWalletEventIds(@Param("walletEventIds") Collection<String> walletEventIds);
+
+    // Only PENDING rows move, so a redelivered result changes nothing
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = :status WHERE t.walletEventId = :walletEventId " +
+            "AND t.status = com.jack.transactionservice.entity.SettlementStatus.PENDING")
+    int settle(@Param("walletEventId") String walletEventId, @Param("status") SettlementStatus status);
 }
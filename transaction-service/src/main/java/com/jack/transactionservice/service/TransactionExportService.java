@@ -0,0 +1,9 @@
+package com.jack.transactionservice.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface TransactionExportService {
+    // Writes every transaction of the user, oldest first, straight to the stream; returns the number of rows written
+    long exportUserTransactions(Long userId, ExportFormat format, OutputStream out) throws IOException;
+}
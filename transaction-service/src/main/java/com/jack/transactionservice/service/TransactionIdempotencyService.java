@@ -0,0 +1,20 @@
+package com.jack.transactionservice.service;
+
+import com.jack.common.dto.request.CreateTransactionRequestDto;
+import com.jack.transactionservice.dto.TransactionDto;
+import com.jack.transactionservice.entity.TransactionType;
+
+import java.util.function.Consumer;
+
+public interface TransactionIdempotencyService {
+    // Runs the trade once per key; retries with the same key get the first response back
+    TransactionDto execute(String idempotencyKey, CreateTransactionRequestDto request, TransactionType transactionType,
+                           Trade trade);
+
+    // A trade hands its response to onCommit as soon as its transaction commits, before any post-commit work,
+    // so a failure after that point is replayed instead of freeing the key for a second trade
+    @FunctionalInterface
+    interface Trade {
+        TransactionDto run(Consumer<TransactionDto> onCommit);
+    }
+}
@@ -1,15 +1,32 @@
 package com.jack.transactionservice.service;
 
 import com.jack.common.dto.request.CreateTransactionRequestDto;
+import com.jack.common.dto.response.WalletUpdateResultDto;
+import com.jack.transactionservice.dto.BatchTradeResultDto;
 import com.jack.transactionservice.dto.TransactionDto;
+import com.jack.transactionservice.dto.TransactionHistoryPageDto;
 import com.jack.transactionservice.entity.TransactionType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.List;
+
 public interface TransactionService {
     TransactionDto createTransaction(CreateTransactionRequestDto request, TransactionType transactionType);
 
+    // Same as createTransaction, but a repeated non-null key replays the first response instead of trading again
+    TransactionDto createTransaction(CreateTransactionRequestDto request, TransactionType transactionType, String idempotencyKey);
+
+    // Many orders of one side at once: one wallet read, one commit and one wallet delta per user; results follow request order
+    List<BatchTradeResultDto> createTransactions(List<CreateTransactionRequestDto> requests, TransactionType transactionType);
+
+    // Settles or voids the transactions of one wallet event once wallet-service reports its outcome
+    void settleWalletUpdate(WalletUpdateResultDto result);
+
     Page<TransactionDto> getUserTransactionHistory(Long userId, Pageable pageable);
 
+    // Keyset page of history, newest first; cursor is null for the first page
+    TransactionHistoryPageDto getUserTransactionHistory(Long userId, String cursor, int size);
+
     TransactionDto getTransactionById(Long transactionId);
 }
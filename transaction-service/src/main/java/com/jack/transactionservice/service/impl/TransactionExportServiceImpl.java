@@ -0,0 +1,161 @@
+package com.jack.transactionservice.service.impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.transactionservice.config.ExportProperties;
+import com.jack.transactionservice.service.ExportFormat;
+import com.jack.transactionservice.service.TransactionExportService;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+@Service
+@Log4j2
+public class TransactionExportServiceImpl implements TransactionExportService {
+    private static final String EXPORT_SQL = "SELECT id, btc_price_history_id, btc_amount, usd_amount, transaction_time, transaction_type " +
+            "FROM transactions WHERE user_id = ? ORDER BY transaction_time, id";
+    private static final String CSV_HEADER = "id,userId,btcPriceHistoryId,btcAmount,usdAmount,transactionTime,transactionType\n";
+
+    private final JdbcTemplate exportJdbcTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    public TransactionExportServiceImpl(DataSource dataSource,
+                                        PlatformTransactionManager transactionManager,
+                                        ObjectMapper objectMapper,
+                                        ExportProperties exportProperties) {
+        // Own template so the fetch size only applies to exports; the default ResultSet is already forward-only/read-only
+        this.exportJdbcTemplate = new JdbcTemplate(dataSource);
+        this.exportJdbcTemplate.setFetchSize(exportProperties.getFetchSize());
+        this.exportJdbcTemplate.setQueryTimeout((int) exportProperties.getTimeout().toSeconds());
+
+        // The PostgreSQL driver only honours the fetch size (server-side cursor) with auto-commit off, so run inside a transaction
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public long exportUserTransactions(Long userId, ExportFormat format, OutputStream out) throws IOException {
+        log.info("Exporting transactions for user: {} as {}", userId, format);
+
+        try {
+            Long written = switch (format) {
+                case NDJSON -> exportNdjson(userId, out);
+                case CSV -> exportCsv(userId, out);
+            };
+            log.info("Exported {} transactions for user: {}", written, userId);
+            return written;
+        } catch (UncheckedIOException e) {
+            // Usually the client went away mid-download; the cursor and connection are already released
+            throw e.getCause();
+        }
+    }
+
+    private long exportNdjson(Long userId, OutputStream out) throws IOException {
+        // One generator for the whole stream; rows are separated by newlines and never collected
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            Long written = streamRows(userId, rs -> {
+                try {
+                    generator.writeStartObject();
+                    generator.writeNumberField("id", rs.getLong("id"));
+                    generator.writeNumberField("userId", userId);
+                    generator.writeNumberField("btcPriceHistoryId", rs.getLong("btc_price_history_id"));
+                    generator.writeNumberField("btcAmount", rs.getBigDecimal("btc_amount"));
+                    generator.writeNumberField("usdAmount", rs.getBigDecimal("usd_amount"));
+                    generator.writeStringField("transactionTime", transactionTime(rs));
+                    generator.writeStringField("transactionType", rs.getString("transaction_type"));
+                    generator.writeEndObject();
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.flush();
+            return written;
+        }
+    }
+
+    private long exportCsv(Long userId, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+
+        // Every field goes through csvField (RFC 4180 quoting), so a value holding a comma, quote or line break cannot shift columns
+        Long written = streamRows(userId, rs -> {
+            try {
+                writer.write(csvField(rs.getString("id")));
+                writer.write(',');
+                writer.write(csvField(userId.toString()));
+                writer.write(',');
+                writer.write(csvField(rs.getString("btc_price_history_id")));
+                writer.write(',');
+                writer.write(csvField(plain(rs.getBigDecimal("btc_amount"))));
+                writer.write(',');
+                writer.write(csvField(plain(rs.getBigDecimal("usd_amount"))));
+                writer.write(',');
+                writer.write(csvField(transactionTime(rs)));
+                writer.write(',');
+                writer.write(csvField(rs.getString("transaction_type")));
+                writer.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+        return written;
+    }
+
+    private Long streamRows(Long userId, RowCallbackHandler rowWriter) {
+        return readOnlyTransactionTemplate.execute(status -> {
+            long[] count = {0};
+            exportJdbcTemplate.query(EXPORT_SQL, rs -> {
+                rowWriter.processRow(rs);
+                count[0]++;
+            }, userId);
+            return count[0];
+        });
+    }
+
+    private static String transactionTime(ResultSet rs) throws SQLException {
+        Timestamp time = rs.getTimestamp("transaction_time");
+        return time != null ? time.toLocalDateTime().toString() : null;
+    }
+
+    private static String plain(BigDecimal amount) {
+        return amount != null ? amount.toPlainString() : null;
+    }
+
+    // Quote a field when it holds a delimiter, quote or line break, doubling embedded quotes; null is an empty field
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,196 @@
+package com.jack.transactionservice.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jack.common.constants.ErrorCode;
+import com.jack.common.constants.TransactionConstants;
+import com.jack.common.dto.request.CreateTransactionRequestDto;
+import com.jack.common.exception.CustomErrorException;
+import com.jack.transactionservice.config.IdempotencyProperties;
+import com.jack.transactionservice.dto.TransactionDto;
+import com.jack.transactionservice.entity.TransactionType;
+import com.jack.transactionservice.service.TransactionIdempotencyService;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Redis holds the source of truth per key: a PENDING reservation (SET NX with a lease) and then the COMPLETED response.
+// Completed responses are also kept in a bounded local cache so hot retries skip Redis entirely.
+// Without Redis a key cannot be reserved, so keyed requests fail with 503 rather than risk a second trade;
+// only responses already in the local cache are still replayed.
+@Service
+@Log4j2
+public class TransactionIdempotencyServiceImpl implements TransactionIdempotencyService {
+    // Drop the reservation only if it is still ours; a lease that expired may already belong to another request
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final IdempotencyProperties properties;
+    private final Cache<String, IdempotencyRecord> completed;
+
+    public TransactionIdempotencyServiceImpl(StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                                             IdempotencyProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalCacheMaximumSize())
+                .expireAfterWrite(min(properties.getLocalCacheTtl(), properties.getTtl()))
+                .build();
+    }
+
+    @Override
+    public TransactionDto execute(String idempotencyKey, CreateTransactionRequestDto request, TransactionType transactionType,
+                                  Trade trade) {
+        String path = "POST /api/transactions/" + transactionType.name().toLowerCase(Locale.ROOT);
+
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > TransactionConstants.IDEMPOTENCY_KEY_MAX_LENGTH) {
+            throw new CustomErrorException(ErrorCode.INVALID_INPUT_DATA, path);
+        }
+
+        // The fingerprint needs both fields, so a malformed body is a 400 here rather than an NPE
+        if (request == null || request.getUserId() == null || request.getBtcAmount() == null
+                || request.getBtcAmount().signum() <= 0) {
+            throw new CustomErrorException(ErrorCode.INVALID_INPUT_DATA, path);
+        }
+
+        String redisKey = TransactionConstants.IDEMPOTENCY_KEY_PREFIX + idempotencyKey;
+        String fingerprint = fingerprint(request, transactionType);
+
+        // Step 1: Hot replay straight from the heap
+        IdempotencyRecord local = completed.getIfPresent(redisKey);
+        if (local != null) {
+            return replay(local, fingerprint, path);
+        }
+
+        // Step 2: Reserve the key; only one request per key gets past this point
+        String reservation = serialize(IdempotencyRecord.pending(UUID.randomUUID().toString(), fingerprint));
+        Boolean reserved;
+        String existing = null;
+
+        try {
+            reserved = redisTemplate.opsForValue().setIfAbsent(redisKey, reservation, properties.getReservationTtl());
+
+            if (!Boolean.TRUE.equals(reserved)) {
+                existing = redisTemplate.opsForValue().get(redisKey);
+            }
+        } catch (DataAccessException e) {
+            log.error("Cannot reserve Idempotency-Key {}, Redis is unavailable: {}", idempotencyKey, e.getMessage());
+            throw new CustomErrorException(ErrorCode.CACHE_SERVICE_UNAVAILABLE, path);
+        }
+
+        if (!Boolean.TRUE.equals(reserved)) {
+            IdempotencyRecord record = existing == null ? null : deserialize(existing);
+
+            if (record == null || !record.isCompleted()) {
+                // Either still running elsewhere or the lease just lapsed; the client retries either way
+                log.info("Idempotency-Key {} is still in progress", idempotencyKey);
+                throw new CustomErrorException(ErrorCode.TRANSACTION_IN_PROGRESS, path);
+            }
+
+            completed.put(redisKey, record);
+            return replay(record, fingerprint, path);
+        }
+
+        // Step 3: First attempt runs the trade. A failure before the commit frees the key so a retry can run it again;
+        // a failure after it (caching, relay wake-up) keeps the committed response for replay.
+        AtomicReference<TransactionDto> committed = new AtomicReference<>();
+        TransactionDto response;
+        try {
+            response = trade.run(committed::set);
+        } catch (RuntimeException e) {
+            if (committed.get() == null) {
+                release(redisKey, reservation);
+            } else {
+                complete(redisKey, idempotencyKey, fingerprint, committed.get());
+            }
+
+            throw e;
+        }
+
+        // Step 4: Replace the reservation with the response for the replay window
+        complete(redisKey, idempotencyKey, fingerprint, response);
+        return response;
+    }
+
+    private void complete(String redisKey, String idempotencyKey, String fingerprint, TransactionDto response) {
+        IdempotencyRecord record = IdempotencyRecord.completed(fingerprint, response);
+        try {
+            redisTemplate.opsForValue().set(redisKey, serialize(record), properties.getTtl());
+        } catch (RuntimeException e) {
+            // The trade is committed; a lost record only means the reservation lease runs out instead
+            log.warn("Failed to store idempotent response for key {}: {}", idempotencyKey, e.getMessage());
+        }
+        completed.put(redisKey, record);
+    }
+
+    private TransactionDto replay(IdempotencyRecord record, String fingerprint, String path) {
+        if (!record.fingerprint().equals(fingerprint)) {
+            throw new CustomErrorException(ErrorCode.IDEMPOTENCY_KEY_REUSED, path);
+        }
+
+        log.info("Replaying transaction {} for a repeated Idempotency-Key", record.response().getId());
+        return record.response();
+    }
+
+    private void release(String redisKey, String reservation) {
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, List.of(redisKey), reservation);
+        } catch (RuntimeException e) {
+            log.warn("Failed to release idempotency reservation {}: {}", redisKey, e.getMessage());
+        }
+    }
+
+    // Same key with a different body is a client bug, not a retry
+    private static String fingerprint(CreateTransactionRequestDto request, TransactionType transactionType) {
+        return request.getUserId() + "|" + transactionType + "|" + request.getBtcAmount().stripTrailingZeros().toPlainString();
+    }
+
+    private String serialize(IdempotencyRecord record) {
+        try {
+            return objectMapper.writeValueAsString(record);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize idempotency record", e);
+        }
+    }
+
+    private IdempotencyRecord deserialize(String json) {
+        try {
+            return objectMapper.readValue(json, IdempotencyRecord.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to deserialize idempotency record", e);
+        }
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    // owner makes each reservation unique so only its creator can release it; response is set once completed
+    private record IdempotencyRecord(String owner, String fingerprint, TransactionDto response) {
+        private static IdempotencyRecord pending(String owner, String fingerprint) {
+            return new IdempotencyRecord(owner, fingerprint, null);
+        }
+
+        private static IdempotencyRecord completed(String fingerprint, TransactionDto response) {
+            return new IdempotencyRecord(null, fingerprint, response);
+        }
+
+        private boolean isCompleted() {
+            return response != null;
+        }
+    }
+}
@@ -1,51 +1,110 @@
 package com.jack.transactionservice.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.jack.common.constants.ApplicationConstants;
+import com.jack.common.cache.WalletBalanceNearCache;
+import com.jack.common.constants.WalletConstants;
 import com.jack.common.dto.request.CreateTransactionRequestDto;
 import com.jack.common.dto.response.BTCPriceResponseDto;
 import com.jack.common.dto.response.WalletResponseDto;
-import com.jack.transactionservice.client.OutboxClient;
+import com.jack.common.dto.response.WalletUpdateMessageDto;
+import com.jack.common.dto.response.WalletUpdateResultDto;
+import com.jack.common.outbox.OutboxRelay;
+import com.jack.common.price.PriceTicker;
 import com.jack.transactionservice.client.WalletServiceClient;
+import com.jack.transactionservice.dto.BatchTradeResultDto;
 import com.jack.transactionservice.dto.TransactionDto;
+import com.jack.transactionservice.dto.TransactionHistoryPageDto;
+import com.jack.transactionservice.entity.Outbox;
+import com.jack.transactionservice.entity.SettlementStatus;
 import com.jack.transactionservice.entity.Transaction;
 import com.jack.transactionservice.entity.TransactionType;
+import com.jack.transactionservice.lane.ProjectedBalanceLedger;
+import com.jack.transactionservice.lane.UserTradeLanes;
 import com.jack.transactionservice.mapper.TransactionMapper;
+import com.jack.transactionservice.repository.OutboxRepository;
+import com.jack.transactionservice.repository.TransactionHistoryRow;
 import com.jack.transactionservice.repository.TransactionRepository;
+import com.jack.transactionservice.service.TransactionIdempotencyService;
 import com.jack.transactionservice.service.TransactionRedisService;
 import com.jack.transactionservice.service.TransactionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 @Log4j2
 public class TransactionServiceImpl implements TransactionService {
+    private static final String INSERT_TRANSACTION_SQL = "INSERT INTO transactions " +
+            "(user_id, btc_price_history_id, btc_amount, usd_amount, transaction_time, transaction_type, status, wallet_event_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
     private final TransactionRepository transactionRepository;
     private final TransactionMapper transactionMapper;
-    private final OutboxClient outboxClient;
     private final WalletServiceClient walletServiceClient;
     private final TransactionRedisService transactionRedisService;
     private final ObjectMapper objectMapper;
+    private final OutboxRepository outboxRepository;
+    private final OutboxRelay outboxRelay;
+    private final TransactionTemplate transactionTemplate;
+    private final WalletBalanceNearCache walletBalanceNearCache;
+    private final PriceTicker priceTicker;
+    private final UserTradeLanes userTradeLanes;
+    private final ProjectedBalanceLedger projectedBalanceLedger;
+    private final TransactionIdempotencyService transactionIdempotencyService;
+    private final JdbcTemplate jdbcTemplate;
 
+    // Trades of one user run serially in its lane, so two requests can never both spend the same balance
     @Override
-    @Transactional
     public TransactionDto createTransaction(CreateTransactionRequestDto request, TransactionType transactionType) {
+        return userTradeLanes.execute(request.getUserId(), () -> executeTrade(request, transactionType, response -> { }));
+    }
+
+    @Override
+    public TransactionDto createTransaction(CreateTransactionRequestDto request, TransactionType transactionType, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return createTransaction(request, transactionType);
+        }
+
+        return transactionIdempotencyService.execute(idempotencyKey, request, transactionType, onCommit ->
+                userTradeLanes.execute(request.getUserId(), () -> executeTrade(request, transactionType, onCommit)));
+    }
+
+    // No DB connection is held across the remote balance read; the only commit is the Transaction row plus its outbox event.
+    // onCommit gets the response right after that commit, before the relay wake-up and caching that may still fail.
+    private TransactionDto executeTrade(CreateTransactionRequestDto request, TransactionType transactionType,
+                                        Consumer<TransactionDto> onCommit) {
         log.info("Creating transaction for user: {}", request.getUserId());
 
-        // Step 1: Fetch BTC price and btcPriceHistoryId from Redis
-        BTCPriceResponseDto btcPrice = getCurrentBTCPriceFromRedis();
+        // Step 1: Read BTC price and btcPriceHistoryId from the pushed price ticker
+        BTCPriceResponseDto btcPrice = priceTicker.current()
+                .orElseThrow(() -> new IllegalStateException("BTC price not found in Redis"));
 
-        // Step 2: Fetch user's current wallet balances from WalletService
-        WalletResponseDto currentBalances = walletServiceClient.getWalletBalance(request.getUserId());
+        // Step 2: Fetch user's current wallet balances from WalletService, net of trades the wallet has not applied yet
+        WalletResponseDto currentBalances = projectedBalanceLedger.available(getWalletBalance(request.getUserId()));
         log.info("Fetched wallet balances for user {}: USD - {}, BTC - {}", request.getUserId(),
                 currentBalances.getUsdBalance(), currentBalances.getBtcBalance());
 
@@ -61,32 +120,103 @@ public class TransactionServiceImpl implements TransactionService {
         // Step 5: Validate the new balances
         validateBalances(newUsdBalance, newBtcBalance);
 
-        // Step 6: Create and save the transaction in the database
-        Transaction transaction = Transaction.builder()
-                .userId(request.getUserId())
-                .btcAmount(request.getBtcAmount())
-                .usdAmount(usdAmount)
-                .btcPriceHistoryId(btcPrice.getId())
-                .transactionType(transactionType)
-                .transactionTime(LocalDateTime.now())
-                .build();
-        transaction = transactionRepository.save(transaction);
+        // Step 6: Save the transaction and its wallet update event in one local commit; the delta is held until the wallet answers
+        String walletEventId = UUID.randomUUID().toString();
+        BigDecimal usdDelta = newUsdBalance.subtract(currentBalances.getUsdBalance());
+        BigDecimal btcDelta = newBtcBalance.subtract(currentBalances.getBtcBalance());
+        Transaction transaction = commitHeld(request.getUserId(), walletEventId, usdDelta, btcDelta, () -> {
+            Transaction saved = transactionRepository.save(Transaction.builder()
+                    .userId(request.getUserId())
+                    .btcAmount(request.getBtcAmount())
+                    .usdAmount(usdAmount)
+                    .btcPriceHistoryId(btcPrice.getId())
+                    .transactionType(transactionType)
+                    .transactionTime(LocalDateTime.now())
+                    .walletEventId(walletEventId)
+                    .build());
 
-        log.info("Transaction created with ID: {}", transaction.getId());
+            // The wallet applies signed deltas, so events commute and need no cross-replica ordering
+            outboxRepository.save(buildWalletUpdateEvent(saved.getUserId(), walletEventId, usdDelta, btcDelta));
+            return saved;
+        });
 
-        // Step 7: Publish the event to the outbox service
-        outboxClient.sendTransactionEvent(transaction.getId(), request.getUserId(), transaction.getBtcAmount(),
-                transaction.getUsdAmount());
+        log.info("Transaction created with ID: {}", transaction.getId());
+        TransactionDto response = transactionMapper.toDto(transaction, currentBalances.getUsdBalance(),
+                currentBalances.getBtcBalance(), newUsdBalance, newBtcBalance);
+        onCommit.accept(response);
 
-        // Step 8: Call the WalletService to update the user's wallet balances
-        walletServiceClient.updateWalletBalance(request.getUserId(), newUsdBalance, newBtcBalance);
+        // Step 7: Wake the relay; the committed event is published asynchronously
+        outboxRelay.requestDrain();
 
-        // Step 9: Cache the transaction data in Redis via TransactionRedisService
+        // Step 8: Cache the transaction data in Redis via TransactionRedisService
         cacheTransaction(transaction);
 
-        // Step 10: Return the transaction response DTO
-        return transactionMapper.toDto(transaction, currentBalances.getUsdBalance(),
-                currentBalances.getBtcBalance(), newUsdBalance, newBtcBalance);
+        // Step 9: Return the transaction response DTO
+        return response;
+    }
+
+    @Override
+    public List<BatchTradeResultDto> createTransactions(List<CreateTransactionRequestDto> requests, TransactionType transactionType) {
+        log.info("Creating batch of {} {} transactions", requests.size(), transactionType);
+        BatchTradeResultDto[] results = new BatchTradeResultDto[requests.size()];
+
+        // Step 1: One price for the whole batch
+        BTCPriceResponseDto btcPrice = priceTicker.current()
+                .orElseThrow(() -> new IllegalStateException("BTC price not found in Redis"));
+
+        // Step 2: Reject malformed items up front and group the rest per user, keeping request order inside each group
+        Map<Long, List<Integer>> itemsByUser = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            CreateTransactionRequestDto request = requests.get(i);
+
+            if (request == null || request.getUserId() == null || request.getBtcAmount() == null
+                    || request.getBtcAmount().signum() <= 0) {
+                results[i] = rejected(i, "userId and a positive btcAmount are required");
+            } else {
+                itemsByUser.computeIfAbsent(request.getUserId(), userId -> new ArrayList<>()).add(i);
+            }
+        }
+
+        // Step 3: Each user's group runs in that user's lane, so it is serialized with single trades too
+        itemsByUser.forEach((userId, indexes) -> {
+            try {
+                userTradeLanes.execute(userId, () -> executeUserBatch(userId, indexes, requests, transactionType, btcPrice, results));
+            } catch (RuntimeException e) {
+                log.warn("Batch trades for user {} failed: {}", userId, e.getMessage());
+                indexes.forEach(i -> results[i] = rejected(i, e.getMessage()));
+            }
+        });
+
+        // Step 4: Wake the relay once for all committed wallet events
+        if (!itemsByUser.isEmpty()) {
+            outboxRelay.requestDrain();
+        }
+
+        return Arrays.asList(results);
+    }
+
+    // Runs in the user's lane, so no trade reads the wallet between the eviction and the release of the hold
+    @Override
+    public void settleWalletUpdate(WalletUpdateResultDto result) {
+        SettlementStatus status = result.isApplied() ? SettlementStatus.SETTLED : SettlementStatus.REJECTED;
+
+        userTradeLanes.execute(result.getUserId(), () -> {
+            Integer settled = transactionTemplate.execute(tx -> transactionRepository.settle(result.getEventId(), status));
+
+            // An applied delta is in the wallet now: reload the balance before the hold stops covering it
+            walletBalanceNearCache.evict(result.getUserId());
+            projectedBalanceLedger.release(result.getUserId(), result.getEventId());
+
+            if (result.isApplied()) {
+                log.info("Wallet event {} applied; {} transactions of user {} settled", result.getEventId(), settled, result.getUserId());
+            } else {
+                // Nothing was debited or credited, so the trades are void rather than left looking executed
+                log.warn("Wallet event {} rejected ({}); {} transactions of user {} marked REJECTED",
+                        result.getEventId(), result.getReason(), settled, result.getUserId());
+            }
+
+            return null;
+        });
     }
 
     @Override
@@ -96,6 +226,31 @@ public class TransactionServiceImpl implements TransactionService {
                 .map(transaction -> transactionMapper.toDto(transaction, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO));
     }
 
+    @Override
+    public TransactionHistoryPageDto getUserTransactionHistory(Long userId, String cursor, int size) {
+        log.info("Fetching transaction history for user: {} (cursor page, size {})", userId, size);
+
+        // One extra row tells whether an older page exists without counting
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<TransactionHistoryRow> rows;
+
+        if (cursor == null || cursor.isBlank()) {
+            rows = transactionRepository.findHistory(userId, limit);
+        } else {
+            HistoryCursor position = HistoryCursor.decode(cursor);
+            rows = transactionRepository.findHistoryBefore(userId, position.transactionTime(), position.id(), limit);
+        }
+
+        boolean hasMore = rows.size() > size;
+        List<TransactionHistoryRow> page = hasMore ? rows.subList(0, size) : rows;
+        TransactionHistoryRow last = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return TransactionHistoryPageDto.builder()
+                .items(page.stream().map(TransactionServiceImpl::toHistoryDto).toList())
+                .nextCursor(hasMore ? new HistoryCursor(last.getTransactionTime(), last.getId()).encode() : null)
+                .build();
+    }
+
     @Override
     public TransactionDto getTransactionById(Long transactionId) {
         log.info("Retrieving transaction with ID: {}", transactionId);
@@ -120,6 +275,176 @@ public class TransactionServiceImpl implements TransactionService {
         return transactionDto;
     }
 
+    // Validates the group cumulatively against one balance read, then commits every accepted row plus one coalesced wallet delta
+    private Void executeUserBatch(Long userId, List<Integer> indexes, List<CreateTransactionRequestDto> requests,
+                                  TransactionType transactionType, BTCPriceResponseDto btcPrice, BatchTradeResultDto[] results) {
+        WalletResponseDto startBalances = projectedBalanceLedger.available(getWalletBalance(userId));
+        String walletEventId = UUID.randomUUID().toString();
+        BigDecimal usdBalance = startBalances.getUsdBalance();
+        BigDecimal btcBalance = startBalances.getBtcBalance();
+        LocalDateTime transactionTime = LocalDateTime.now();
+        List<Transaction> accepted = new ArrayList<>();
+        List<Integer> acceptedIndexes = new ArrayList<>();
+        List<BigDecimal[]> balances = new ArrayList<>();
+
+        for (int i : indexes) {
+            BigDecimal btcAmount = requests.get(i).getBtcAmount();
+            BigDecimal newUsdBalance = calculateNewUsdBalance(usdBalance, btcAmount, transactionType, btcPrice.getBtcPrice());
+            BigDecimal newBtcBalance = calculateNewBtcBalance(btcBalance, btcAmount, transactionType);
+
+            try {
+                validateBalances(newUsdBalance, newBtcBalance);
+            } catch (IllegalStateException e) {
+                results[i] = rejected(i, e.getMessage());
+                continue;
+            }
+
+            accepted.add(Transaction.builder()
+                    .userId(userId)
+                    .btcAmount(btcAmount)
+                    .usdAmount(calculateUsdAmount(btcPrice.getBtcPrice(), btcAmount, transactionType))
+                    .btcPriceHistoryId(btcPrice.getId())
+                    .transactionType(transactionType)
+                    .transactionTime(transactionTime)
+                    .walletEventId(walletEventId)
+                    .build());
+            acceptedIndexes.add(i);
+            balances.add(new BigDecimal[]{usdBalance, btcBalance, newUsdBalance, newBtcBalance});
+            usdBalance = newUsdBalance;
+            btcBalance = newBtcBalance;
+        }
+
+        if (accepted.isEmpty()) {
+            return null;
+        }
+
+        BigDecimal usdDelta = usdBalance.subtract(startBalances.getUsdBalance());
+        BigDecimal btcDelta = btcBalance.subtract(startBalances.getBtcBalance());
+
+        // One local commit: all rows as a single JDBC batch and one wallet event carrying the summed delta
+        List<Long> ids = commitHeld(userId, walletEventId, usdDelta, btcDelta, () -> {
+            List<Long> generated = insertTransactions(accepted);
+            outboxRepository.save(buildWalletUpdateEvent(userId, walletEventId, usdDelta, btcDelta));
+            return generated;
+        });
+
+        log.info("Committed {} of {} batch transactions for user {}", accepted.size(), indexes.size(), userId);
+
+        for (int n = 0; n < accepted.size(); n++) {
+            Transaction transaction = accepted.get(n);
+            transaction.setId(ids.get(n));
+            BigDecimal[] b = balances.get(n);
+            int i = acceptedIndexes.get(n);
+            results[i] = BatchTradeResultDto.builder()
+                    .index(i)
+                    .status(BatchTradeResultDto.Status.ACCEPTED)
+                    .transaction(transactionMapper.toDto(transaction, b[0], b[1], b[2], b[3]))
+                    .build();
+        }
+
+        return null;
+    }
+
+    private List<Long> insertTransactions(List<Transaction> transactions) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT_TRANSACTION_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Transaction transaction = transactions.get(i);
+                        ps.setLong(1, transaction.getUserId());
+                        ps.setLong(2, transaction.getBtcPriceHistoryId());
+                        ps.setBigDecimal(3, transaction.getBtcAmount());
+                        ps.setBigDecimal(4, transaction.getUsdAmount());
+                        ps.setTimestamp(5, Timestamp.valueOf(transaction.getTransactionTime()));
+                        ps.setString(6, transaction.getTransactionType().name());
+                        ps.setString(7, transaction.getStatus().name());
+                        ps.setString(8, transaction.getWalletEventId());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return transactions.size();
+                    }
+                }, keyHolder);
+
+        return keyHolder.getKeyList().stream()
+                .map(keys -> ((Number) keys.get("id")).longValue())
+                .toList();
+    }
+
+    private static BatchTradeResultDto rejected(int index, String error) {
+        return BatchTradeResultDto.builder()
+                .index(index)
+                .status(BatchTradeResultDto.Status.REJECTED)
+                .error(error)
+                .build();
+    }
+
+    private static TransactionDto toHistoryDto(TransactionHistoryRow row) {
+        return TransactionDto.builder()
+                .id(row.getId())
+                .userId(row.getUserId())
+                .btcPriceHistoryId(row.getBtcPriceHistoryId())
+                .btcAmount(row.getBtcAmount())
+                .usdAmount(row.getUsdAmount())
+                .transactionTime(row.getTransactionTime())
+                .transactionType(row.getTransactionType())
+                .usdBalanceBefore(BigDecimal.ZERO)
+                .btcBalanceBefore(BigDecimal.ZERO)
+                .usdBalanceAfter(BigDecimal.ZERO)
+                .btcBalanceAfter(BigDecimal.ZERO)
+                .build();
+    }
+
+    // Near-cache first; wallet-service invalidates it whenever the balance changes
+    private WalletResponseDto getWalletBalance(Long userId) {
+        WalletResponseDto balance = walletBalanceNearCache.get(userId);
+
+        if (balance == null) {
+            long stamp = walletBalanceNearCache.stamp();
+            balance = walletServiceClient.getWalletBalance(userId);
+            walletBalanceNearCache.put(balance, stamp);
+        }
+
+        return balance;
+    }
+
+    // The hold is in place before the commit and dropped again if the commit fails
+    private <T> T commitHeld(Long userId, String walletEventId, BigDecimal usdDelta, BigDecimal btcDelta, Supplier<T> work) {
+        projectedBalanceLedger.hold(userId, walletEventId, usdDelta, btcDelta);
+
+        try {
+            return transactionTemplate.execute(status -> work.get());
+        } catch (RuntimeException e) {
+            projectedBalanceLedger.release(userId, walletEventId);
+            throw e;
+        }
+    }
+
+    private Outbox buildWalletUpdateEvent(Long userId, String walletEventId, BigDecimal usdDelta, BigDecimal btcDelta) {
+        WalletUpdateMessageDto message = WalletUpdateMessageDto.builder()
+                .userId(userId)
+                .usdAmount(usdDelta)
+                .btcAmount(btcDelta)
+                .eventId(walletEventId)
+                .build();
+
+        try {
+            return Outbox.builder()
+                    .aggregateType("WALLET")
+                    .aggregateId(userId.toString())
+                    .eventType(WalletConstants.WALLET_UPDATE)
+                    .payload(objectMapper.writeValueAsString(message))
+                    .routingKey(WalletConstants.WALLET_UPDATE_ROUTING_KEY)
+                    .eventId(walletEventId)
+                    .createdAt(LocalDateTime.now())
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize wallet update for user " + userId, e);
+        }
+    }
+
     private void cacheTransaction(Transaction transaction) {
         TransactionDto transactionDto = transactionMapper.toDto(transaction, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
         transactionRedisService.saveTransactionToRedis(transactionDto);
@@ -158,25 +483,6 @@ public class TransactionServiceImpl implements TransactionService {
         }
     }
 
-    private BTCPriceResponseDto getCurrentBTCPriceFromRedis() {
-        String btcPriceKey = ApplicationConstants.BTC_PRICE_KEY;
-        log.info("Fetching BTC price from Redis with key: {}", btcPriceKey);
-        String btcPriceStr = transactionRedisService.getBTCPriceFromRedis(btcPriceKey);
-        return Optional.ofNullable(btcPriceStr)
-                .map(this::parseBTCPriceResponse)
-                .orElseThrow(() -> new IllegalStateException("BTC price not found in Redis"));
-    }
-
-    private BTCPriceResponseDto parseBTCPriceResponse(String btcPriceStr) {
-        try {
-            log.info("Parsing BTC price response string: {}", btcPriceStr);
-            return objectMapper.readValue(btcPriceStr, BTCPriceResponseDto.class);
-        } catch (Exception e) {
-            log.error("Error deserializing BTCPriceResponseDto from JSON: {}", e.getMessage());
-            throw new IllegalStateException("Failed to parse BTC price from Redis: " + e.getMessage(), e);
-        }
-    }
-
     private BigDecimal calculateUsdAmount(BigDecimal btcPrice, BigDecimal btcAmount, TransactionType transactionType) {
         BigDecimal amount = btcPrice.multiply(btcAmount);
 
@@ -4,6 +4,7 @@ CREATE DATABASE transactiondb;
 
 -- Drop transactions' table if it exists
 DROP TABLE IF EXISTS transactions CASCADE;
+DROP TABLE IF EXISTS outbox CASCADE;
 
 -- Create transactions table
 CREATE TABLE transactions
@@ -15,9 +16,36 @@ CREATE TABLE transactions
     usd_amount           NUMERIC CHECK (usd_amount >= 0) NOT NULL,  -- New field for USD amount
     transaction_time     TIMESTAMP                       NOT NULL DEFAULT CURRENT_TIMESTAMP,
     transaction_type     VARCHAR(255)                    NOT NULL,
+    status               VARCHAR(20)                     NOT NULL DEFAULT 'SETTLED', -- Inserted as PENDING; set by wallet-service's update result
+    wallet_event_id      VARCHAR(36),                                                -- Outbox event of the wallet delta
     CONSTRAINT chk_transaction_time CHECK (transaction_time <= CURRENT_TIMESTAMP)
 );
 
 -- Creating indexes based on your entity's index annotations
-CREATE INDEX idx_user_id ON transactions (user_id);
+-- Keyset history pages: seek on (user_id, transaction_time, id) and read the rest from the index (index-only scan)
+CREATE INDEX idx_transactions_user_time_id ON transactions (user_id, transaction_time DESC, id DESC)
+    INCLUDE (btc_price_history_id, btc_amount, usd_amount, transaction_type);
 CREATE INDEX idx_btc_price_history_id ON transactions (btc_price_history_id);
+-- Settlement looks transactions up by their wallet event; startup reloads the PENDING ones
+CREATE INDEX idx_transactions_wallet_event_id ON transactions (wallet_event_id) WHERE status = 'PENDING';
+
+-- Create outbox table; wallet update events are written in the same commit as their transaction
+CREATE TABLE outbox
+(
+    id             BIGINT PRIMARY KEY GENERATED ALWAYS AS IDENTITY,
+    aggregate_type VARCHAR(100) NOT NULL,
+    aggregate_id   VARCHAR(100) NOT NULL,
+    event_type     VARCHAR(100) NOT NULL,
+    payload        TEXT         NOT NULL,
+    routing_key    VARCHAR(255) NOT NULL,
+    event_id       VARCHAR(36)  NOT NULL UNIQUE,
+    status         VARCHAR(20)  NOT NULL DEFAULT 'PENDING',
+    attempts       INTEGER      NOT NULL DEFAULT 0,
+    created_at     TIMESTAMP    NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    processed_at   TIMESTAMP,
+    leased_until   TIMESTAMP -- Set while the relay publishes the row outside its claim transaction
+);
+
+-- The relay only ever scans PENDING rows
+CREATE INDEX idx_outbox_pending ON outbox (id) WHERE status = 'PENDING';
+CREATE INDEX idx_outbox_leased ON outbox (aggregate_type, aggregate_id) WHERE status = 'PENDING' AND leased_until IS NOT NULL;
@@ -0,0 +1,100 @@
+package com.jack.transactionservice.lane;
+
+import com.jack.common.dto.response.WalletResponseDto;
+import com.jack.transactionservice.entity.SettlementStatus;
+import com.jack.transactionservice.entity.Transaction;
+import com.jack.transactionservice.entity.TransactionType;
+import com.jack.transactionservice.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProjectedBalanceLedgerTest {
+    private static final Long USER_ID = 7L;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private ProjectedBalanceLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        ledger = new ProjectedBalanceLedger(transactionRepository);
+    }
+
+    @Test
+    void debitIsHeldUntilTheWalletAnswersHoweverLongThatTakes() {
+        ledger.hold(USER_ID, "e1", new BigDecimal("-300"), BigDecimal.ONE);
+
+        // No time-based expiry: the wallet read still lacks the debit, so it stays subtracted
+        assertThat(ledger.available(wallet("1000", "0")).getUsdBalance()).isEqualByComparingTo("700");
+
+        assertThat(ledger.release(USER_ID, "e1")).isTrue();
+        assertThat(ledger.available(wallet("700", "1")).getUsdBalance()).isEqualByComparingTo("700");
+        assertThat(ledger.pendingEvents(USER_ID)).isZero();
+    }
+
+    @Test
+    void unconfirmedCreditsAreNotSpendable() {
+        ledger.hold(USER_ID, "buy", new BigDecimal("-100"), BigDecimal.ONE);
+        ledger.hold(USER_ID, "sell", new BigDecimal("50"), new BigDecimal("-2"));
+
+        WalletResponseDto available = ledger.available(wallet("1000", "5"));
+
+        assertThat(available.getUsdBalance()).isEqualByComparingTo("900");
+        assertThat(available.getBtcBalance()).isEqualByComparingTo("3");
+    }
+
+    @Test
+    void releasingAnUnknownOrAlreadyReleasedEventChangesNothing() {
+        ledger.hold(USER_ID, "e1", new BigDecimal("-100"), BigDecimal.ZERO);
+
+        assertThat(ledger.release(USER_ID, "other")).isFalse();
+        assertThat(ledger.release(99L, "e1")).isFalse();
+        assertThat(ledger.release(USER_ID, "e1")).isTrue();
+        assertThat(ledger.release(USER_ID, "e1")).isFalse();
+    }
+
+    @Test
+    void restoreHoldsThePendingTradesOfEachWalletEvent() {
+        // A BUY and a SELL coalesced into one batch event, plus a single BUY; usdAmount is negative for a SELL
+        when(transactionRepository.findByStatusAndWalletEventIdNotNull(SettlementStatus.PENDING)).thenReturn(List.of(
+                trade("batch", TransactionType.BUY, "200", "2"),
+                trade("batch", TransactionType.SELL, "-100", "1"),
+                trade("single", TransactionType.BUY, "50", "0.5")));
+
+        ledger.restore();
+
+        WalletResponseDto available = ledger.available(wallet("1000", "10"));
+        assertThat(ledger.pendingEvents(USER_ID)).isEqualTo(2);
+        assertThat(available.getUsdBalance()).isEqualByComparingTo("850");
+        assertThat(available.getBtcBalance()).isEqualByComparingTo("10");
+    }
+
+    private static Transaction trade(String eventId, TransactionType type, String usdAmount, String btcAmount) {
+        return Transaction.builder()
+                .userId(USER_ID)
+                .transactionType(type)
+                .usdAmount(new BigDecimal(usdAmount))
+                .btcAmount(new BigDecimal(btcAmount))
+                .walletEventId(eventId)
+                .build();
+    }
+
+    private static WalletResponseDto wallet(String usd, String btc) {
+        return WalletResponseDto.builder()
+                .userId(USER_ID)
+                .usdBalance(new BigDecimal(usd))
+                .btcBalance(new BigDecimal(btc))
+                .build();
+    }
+}
@@ -0,0 +1,103 @@
+package com.jack.transactionservice.lane;
+
+import com.jack.common.cache.WalletBalanceNearCache;
+import com.jack.common.dto.response.WalletUpdateResultDto;
+import com.jack.transactionservice.entity.Transaction;
+import com.jack.transactionservice.repository.TransactionRepository;
+import com.jack.transactionservice.service.TransactionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SettlementReconcilerTest {
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private WalletBalanceNearCache walletBalanceNearCache;
+
+    private ProjectedBalanceLedger ledger;
+    private SettlementReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        ledger = new ProjectedBalanceLedger(transactionRepository);
+        reconciler = new SettlementReconciler(transactionRepository, transactionService, ledger, walletBalanceNearCache);
+    }
+
+    @Test
+    void deadLetteredWalletEventsAreVoidedOncePerEvent() {
+        // Two trades coalesced into one batch event, plus a single trade
+        when(transactionRepository.findPendingWithDeadLetteredWalletEvent())
+                .thenReturn(List.of(trade(7L, "batch"), trade(7L, "batch"), trade(8L, "single")));
+
+        reconciler.voidDeadLetteredTrades();
+
+        ArgumentCaptor<WalletUpdateResultDto> results = ArgumentCaptor.forClass(WalletUpdateResultDto.class);
+        verify(transactionService, times(2)).settleWalletUpdate(results.capture());
+        assertThat(results.getAllValues())
+                .extracting(WalletUpdateResultDto::getEventId, WalletUpdateResultDto::getUserId, WalletUpdateResultDto::isApplied)
+                .containsExactly(tuple("batch", 7L, false), tuple("single", 8L, false));
+    }
+
+    @Test
+    void oneFailedVoidDoesNotStopTheOthers() {
+        when(transactionRepository.findPendingWithDeadLetteredWalletEvent())
+                .thenReturn(List.of(trade(7L, "busy"), trade(8L, "free")));
+        doThrow(new IllegalStateException("lane busy"))
+                .when(transactionService).settleWalletUpdate(argThat(result -> "busy".equals(result.getEventId())));
+
+        reconciler.voidDeadLetteredTrades();
+
+        verify(transactionService).settleWalletUpdate(argThat(result -> "free".equals(result.getEventId())));
+    }
+
+    @Test
+    void holdsAnsweredOnAnotherInstanceAreReleased() {
+        ledger.hold(7L, "answered", new BigDecimal("-100"), BigDecimal.ONE);
+        ledger.hold(8L, "waiting", new BigDecimal("-50"), BigDecimal.ONE);
+        when(transactionRepository.findAnsweredWalletEventIds(Set.of("answered", "waiting"))).thenReturn(List.of("answered"));
+
+        reconciler.releaseAnsweredHolds();
+
+        assertThat(ledger.pendingEvents(7L)).isZero();
+        assertThat(ledger.pendingEvents(8L)).isEqualTo(1);
+        verify(walletBalanceNearCache).evict(7L);
+        verify(walletBalanceNearCache, never()).evict(8L);
+    }
+
+    @Test
+    void nothingIsQueriedWithoutHolds() {
+        reconciler.releaseAnsweredHolds();
+
+        verify(transactionRepository, never()).findAnsweredWalletEventIds(any());
+    }
+
+    private static Transaction trade(Long userId, String walletEventId) {
+        return Transaction.builder()
+                .userId(userId)
+                .walletEventId(walletEventId)
+                .build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.jack.transactionservice.service.impl;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HistoryCursorTest {
+
+    @Test
+    void roundTripsThroughAUrlSafeToken() {
+        HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(2024, 3, 10, 14, 5, 7, 123_456_000), 987_654_321L);
+
+        String encoded = cursor.encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+        assertThat(HistoryCursor.decode(encoded)).isEqualTo(cursor);
+    }
+
+    @Test
+    void roundTripsWholeSecondTimes() {
+        // LocalDateTime.toString drops zero seconds and fractions, so these must still parse back
+        HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(2024, 3, 10, 14, 5), 1L);
+
+        assertThat(HistoryCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "not base64!",
+            "MjAyNC0wMy0xMFQxNDowNQ",   // time without "|id"
+            "MjAyNC0wMy0xMFQxNDowNXw",  // "|" with no id
+            "MjAyNC0wMy0xMFQxNDowNXwxMng", // id "12x"
+            "bm90LWEtdGltZXwx",         // "not-a-time|1"
+            ""
+    })
+    void rejectsTamperedCursors(String cursor) {
+        assertThatThrownBy(() -> HistoryCursor.decode(cursor))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid history cursor");
+    }
+
+    @Test
+    void rejectsACursorWithATruncatedToken() {
+        String encoded = new HistoryCursor(LocalDateTime.of(2024, 3, 10, 14, 5, 7), 42L).encode();
+
+        assertThatThrownBy(() -> HistoryCursor.decode(encoded.substring(0, encoded.length() / 2)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,92 @@
+package com.jack.transactionservice.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.transactionservice.config.ExportProperties;
+import com.jack.transactionservice.service.ExportFormat;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionExportServiceImplTest {
+    private static final Long USER_ID = 7L;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement statement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionExportServiceImpl exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new TransactionExportServiceImpl(dataSource, transactionManager, new ObjectMapper(), new ExportProperties());
+    }
+
+    @Test
+    void csvFieldsWithDelimitersQuotesOrLineBreaksAreQuoted() {
+        assertThat(TransactionExportServiceImpl.csvField("BUY")).isEqualTo("BUY");
+        assertThat(TransactionExportServiceImpl.csvField("-12.50")).isEqualTo("-12.50");
+        assertThat(TransactionExportServiceImpl.csvField("a,b")).isEqualTo("\"a,b\"");
+        assertThat(TransactionExportServiceImpl.csvField("say \"hi\"")).isEqualTo("\"say \"\"hi\"\"\"");
+        assertThat(TransactionExportServiceImpl.csvField("line\nbreak")).isEqualTo("\"line\nbreak\"");
+        assertThat(TransactionExportServiceImpl.csvField("cr\rhere")).isEqualTo("\"cr\rhere\"");
+        assertThat(TransactionExportServiceImpl.csvField(null)).isEmpty();
+    }
+
+    @Test
+    void csvExportKeepsEveryRowInItsColumns() throws SQLException, IOException {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getString("id")).thenReturn("1", "2");
+        when(resultSet.getString("btc_price_history_id")).thenReturn("10", null);
+        when(resultSet.getBigDecimal("btc_amount")).thenReturn(new BigDecimal("0.5"), new BigDecimal("-1E-8"));
+        when(resultSet.getBigDecimal("usd_amount")).thenReturn(new BigDecimal("-50.00"), new BigDecimal("25"));
+        when(resultSet.getTimestamp("transaction_time"))
+                .thenReturn(Timestamp.valueOf(LocalDateTime.of(2024, 3, 10, 14, 5, 7)));
+        when(resultSet.getString("transaction_type")).thenReturn("BUY", "SELL,\"odd\"");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long written = exportService.exportUserTransactions(USER_ID, ExportFormat.CSV, out);
+
+        assertThat(written).isEqualTo(2);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "id,userId,btcPriceHistoryId,btcAmount,usdAmount,transactionTime,transactionType\n" +
+                "1,7,10,0.5,-50.00,2024-03-10T14:05:07,BUY\n" +
+                "2,7,,-0.00000001,25,2024-03-10T14:05:07,\"SELL,\"\"odd\"\"\"\n");
+    }
+}
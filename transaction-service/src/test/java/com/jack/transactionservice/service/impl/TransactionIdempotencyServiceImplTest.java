@@ -0,0 +1,188 @@
+package com.jack.transactionservice.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.common.constants.ErrorCode;
+import com.jack.common.dto.request.CreateTransactionRequestDto;
+import com.jack.common.exception.CustomErrorException;
+import com.jack.transactionservice.config.IdempotencyProperties;
+import com.jack.transactionservice.dto.TransactionDto;
+import com.jack.transactionservice.entity.TransactionType;
+import com.jack.transactionservice.service.TransactionIdempotencyService.Trade;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionIdempotencyServiceImplTest {
+    private static final String KEY = "order-1";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    // Redis contents behind the mocks; shared by every service instance of a test, like a real Redis
+    private final Map<String, String> redis = new ConcurrentHashMap<>();
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final AtomicInteger trades = new AtomicInteger();
+    private TransactionIdempotencyServiceImpl service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenAnswer(invocation ->
+                redis.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null);
+        lenient().when(valueOperations.get(anyString())).thenAnswer(invocation -> redis.get(invocation.<String>getArgument(0)));
+        lenient().doAnswer(invocation -> redis.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(valueOperations).set(anyString(), anyString(), any(Duration.class));
+        lenient().when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenAnswer(invocation -> {
+            List<String> keys = invocation.getArgument(1);
+            return redis.remove(keys.get(0), invocation.getArgument(2)) ? 1L : 0L;
+        });
+        service = newService();
+    }
+
+    @Test
+    void repeatedKeyReplaysTheFirstResponseWithoutTradingAgain() {
+        TransactionDto first = service.execute(KEY, request("0.5"), TransactionType.BUY, trade());
+        TransactionDto hot = service.execute(KEY, request("0.50"), TransactionType.BUY, trade());
+
+        // Another instance has nothing in its heap and replays from Redis
+        TransactionDto fromRedis = newService().execute(KEY, request("0.5"), TransactionType.BUY, trade());
+
+        assertThat(trades).hasValue(1);
+        assertThat(hot).isEqualTo(first);
+        assertThat(fromRedis).isEqualTo(first);
+    }
+
+    @Test
+    void sameKeyWithADifferentRequestIsRejected() {
+        service.execute(KEY, request("0.5"), TransactionType.BUY, trade());
+
+        assertThatThrownBy(() -> service.execute(KEY, request("0.6"), TransactionType.BUY, trade()))
+                .isInstanceOf(CustomErrorException.class)
+                .hasMessage(ErrorCode.IDEMPOTENCY_KEY_REUSED.getMessage());
+        assertThatThrownBy(() -> newService().execute(KEY, request("0.5"), TransactionType.SELL, trade()))
+                .hasMessage(ErrorCode.IDEMPOTENCY_KEY_REUSED.getMessage());
+        assertThat(trades).hasValue(1);
+    }
+
+    @Test
+    void keyStillRunningElsewhereIsReportedInProgress() {
+        // The retry arrives while the first request is still inside its trade
+        service.execute(KEY, request("0.5"), TransactionType.BUY, onCommit -> {
+            assertThatThrownBy(() -> newService().execute(KEY, request("0.5"), TransactionType.BUY, trade()))
+                    .isInstanceOf(CustomErrorException.class)
+                    .hasMessage(ErrorCode.TRANSACTION_IN_PROGRESS.getMessage());
+            return trade().run(onCommit);
+        });
+
+        assertThat(trades).hasValue(1);
+    }
+
+    @Test
+    void failureBeforeTheCommitFreesTheKeyForARetry() {
+        assertThatThrownBy(() -> service.execute(KEY, request("0.5"), TransactionType.BUY, onCommit -> {
+            throw new IllegalStateException("wallet-service down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(redis).isEmpty();
+        service.execute(KEY, request("0.5"), TransactionType.BUY, trade());
+        assertThat(trades).hasValue(1);
+    }
+
+    @Test
+    void failureAfterTheCommitKeepsTheResponseForReplay() {
+        TransactionDto committed = response(42L);
+
+        assertThatThrownBy(() -> service.execute(KEY, request("0.5"), TransactionType.BUY, onCommit -> {
+            onCommit.accept(committed);
+            throw new IllegalStateException("Redis down while caching the transaction");
+        })).isInstanceOf(IllegalStateException.class);
+
+        // The trade is in the database, so the retry must replay it rather than trade a second time
+        assertThat(newService().execute(KEY, request("0.5"), TransactionType.BUY, trade())).isEqualTo(committed);
+        assertThat(trades).hasValue(0);
+    }
+
+    @Test
+    void malformedRequestIsRejectedBeforeTouchingRedis() {
+        CreateTransactionRequestDto noAmount = CreateTransactionRequestDto.builder().userId(7L).build();
+
+        assertThatThrownBy(() -> service.execute(KEY, noAmount, TransactionType.BUY, trade()))
+                .isInstanceOf(CustomErrorException.class)
+                .hasMessage(ErrorCode.INVALID_INPUT_DATA.getMessage());
+        verifyNoInteractions(redisTemplate);
+        assertThat(trades).hasValue(0);
+    }
+
+    @Test
+    void redisDownFailsClosedButHotKeysStillReplay() {
+        TransactionDto first = service.execute(KEY, request("0.5"), TransactionType.BUY, trade());
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+                .thenThrow(new RedisConnectionFailureException("Redis down"));
+
+        // Answered from the heap without Redis
+        assertThat(service.execute(KEY, request("0.5"), TransactionType.BUY, trade())).isEqualTo(first);
+
+        // A key that cannot be reserved is not traded without its guard
+        assertThatThrownBy(() -> service.execute("order-2", request("0.5"), TransactionType.BUY, trade()))
+                .isInstanceOf(CustomErrorException.class)
+                .hasMessage(ErrorCode.CACHE_SERVICE_UNAVAILABLE.getMessage());
+        assertThat(trades).hasValue(1);
+    }
+
+    private TransactionIdempotencyServiceImpl newService() {
+        return new TransactionIdempotencyServiceImpl(redisTemplate, objectMapper, new IdempotencyProperties());
+    }
+
+    // Commits a new transaction, reports it and returns it
+    private Trade trade() {
+        return onCommit -> {
+            TransactionDto response = response((long) trades.incrementAndGet());
+            onCommit.accept(response);
+            return response;
+        };
+    }
+
+    private static TransactionDto response(Long id) {
+        return TransactionDto.builder()
+                .id(id)
+                .userId(7L)
+                .btcAmount(new BigDecimal("0.5"))
+                .usdAmount(new BigDecimal("15000"))
+                .transactionType(TransactionType.BUY)
+                .build();
+    }
+
+    private static CreateTransactionRequestDto request(String btcAmount) {
+        return CreateTransactionRequestDto.builder()
+                .userId(7L)
+                .btcAmount(new BigDecimal(btcAmount))
+                .build();
+    }
+}
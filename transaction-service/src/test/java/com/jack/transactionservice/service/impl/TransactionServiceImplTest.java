@@ -0,0 +1,391 @@
+package com.jack.transactionservice.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.common.cache.WalletBalanceNearCache;
+import com.jack.common.dto.request.CreateTransactionRequestDto;
+import com.jack.common.dto.response.BTCPriceResponseDto;
+import com.jack.common.dto.response.WalletResponseDto;
+import com.jack.common.dto.response.WalletUpdateMessageDto;
+import com.jack.common.dto.response.WalletUpdateResultDto;
+import com.jack.common.outbox.OutboxRelay;
+import com.jack.common.price.PriceTicker;
+import com.jack.transactionservice.client.WalletServiceClient;
+import com.jack.transactionservice.config.TradeLaneProperties;
+import com.jack.transactionservice.dto.BatchTradeResultDto;
+import com.jack.transactionservice.entity.Outbox;
+import com.jack.transactionservice.entity.SettlementStatus;
+import com.jack.transactionservice.entity.Transaction;
+import com.jack.transactionservice.entity.TransactionType;
+import com.jack.transactionservice.lane.ProjectedBalanceLedger;
+import com.jack.transactionservice.lane.UserTradeLanes;
+import com.jack.transactionservice.mapper.TransactionMapper;
+import com.jack.transactionservice.repository.OutboxRepository;
+import com.jack.transactionservice.repository.TransactionRepository;
+import com.jack.transactionservice.service.TransactionIdempotencyService;
+import com.jack.transactionservice.service.TransactionRedisService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionServiceImplTest {
+    private static final Long USER_ID = 7L;
+    private static final BigDecimal BTC_PRICE = new BigDecimal("100");
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransactionMapper transactionMapper;
+
+    @Mock
+    private WalletServiceClient walletServiceClient;
+
+    @Mock
+    private TransactionRedisService transactionRedisService;
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @Mock
+    private OutboxRelay outboxRelay;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private WalletBalanceNearCache walletBalanceNearCache;
+
+    @Mock
+    private PriceTicker priceTicker;
+
+    @Mock
+    private TransactionIdempotencyService transactionIdempotencyService;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ProjectedBalanceLedger projectedBalanceLedger;
+    private TransactionServiceImpl transactionService;
+
+    @BeforeEach
+    void setUp() {
+        projectedBalanceLedger = new ProjectedBalanceLedger(transactionRepository);
+        UserTradeLanes userTradeLanes = new UserTradeLanes(new TradeLaneProperties(), new SimpleMeterRegistry());
+        transactionService = new TransactionServiceImpl(transactionRepository, transactionMapper, walletServiceClient,
+                transactionRedisService, objectMapper, outboxRepository, outboxRelay, transactionTemplate,
+                walletBalanceNearCache, priceTicker, userTradeLanes, projectedBalanceLedger,
+                transactionIdempotencyService, jdbcTemplate);
+
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<Object>>getArgument(0).doInTransaction(new SimpleTransactionStatus()));
+        lenient().when(priceTicker.current()).thenReturn(Optional.of(new BTCPriceResponseDto(1L, BTC_PRICE)));
+    }
+
+    @Test
+    void concurrentTradesNeverSendTheWalletAnOverdraft() throws Exception {
+        int users = 4;
+        int threads = 32;
+        int tradesPerThread = 150;
+        Map<Long, FakeWallet> wallets = new ConcurrentHashMap<>();
+        for (long userId = 1; userId <= users; userId++) {
+            wallets.put(userId, new FakeWallet(new BigDecimal("1000"), new BigDecimal("10")));
+        }
+
+        // The wallet applies each event after a random relay delay and then reports back, like the result listener does
+        ScheduledExecutorService wallet = Executors.newScheduledThreadPool(4);
+        AtomicLong ids = new AtomicLong();
+        when(walletServiceClient.getWalletBalance(any())).thenAnswer(invocation -> {
+            Long userId = invocation.getArgument(0);
+            return wallets.get(userId).balance(userId);
+        });
+        when(transactionRepository.save(any())).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            transaction.setId(ids.incrementAndGet());
+            return transaction;
+        });
+        when(outboxRepository.save(any())).thenAnswer(invocation -> {
+            WalletUpdateMessageDto message = objectMapper.readValue(invocation.<Outbox>getArgument(0).getPayload(),
+                    WalletUpdateMessageDto.class);
+            wallet.schedule(() -> {
+                boolean applied = wallets.get(message.getUserId()).apply(message.getUsdAmount(), message.getBtcAmount());
+                transactionService.settleWalletUpdate(WalletUpdateResultDto.builder()
+                        .eventId(message.getEventId())
+                        .userId(message.getUserId())
+                        .applied(applied)
+                        .build());
+            }, ThreadLocalRandom.current().nextLong(3000), TimeUnit.MICROSECONDS);
+            return invocation.getArgument(0);
+        });
+
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        ExecutorService traders = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(traders.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int n = 0; n < tradesPerThread; n++) {
+                    CreateTransactionRequestDto request = CreateTransactionRequestDto.builder()
+                            .userId(random.nextLong(1, users + 1))
+                            .btcAmount(BigDecimal.valueOf(random.nextInt(1, 4)))
+                            .build();
+                    try {
+                        transactionService.createTransaction(request, random.nextBoolean() ? TransactionType.BUY : TransactionType.SELL);
+                        accepted.incrementAndGet();
+                    } catch (IllegalStateException e) {
+                        refused.incrementAndGet();
+                    }
+                }
+            }));
+        }
+
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        traders.shutdown();
+        // Delayed wallet applies still run after shutdown
+        wallet.shutdown();
+        assertThat(wallet.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+
+        // Both outcomes happened, so the checks ran against balances that were actually contended
+        assertThat(accepted.get()).isPositive();
+        assertThat(refused.get()).isPositive();
+        assertThat(accepted.get() + refused.get()).isEqualTo(threads * tradesPerThread);
+
+        for (long userId = 1; userId <= users; userId++) {
+            FakeWallet fakeWallet = wallets.get(userId);
+            assertThat(fakeWallet.overdrafts).as("overdrafts sent to wallet of user %d", userId).isZero();
+            assertThat(fakeWallet.usd.signum()).isNotNegative();
+            assertThat(fakeWallet.btc.signum()).isNotNegative();
+            assertThat(projectedBalanceLedger.pendingEvents(userId)).isZero();
+        }
+        assertThat(wallets.values().stream().mapToInt(fakeWallet -> fakeWallet.applied).sum()).isEqualTo(accepted.get());
+    }
+
+    @Test
+    void rejectedWalletEventVoidsItsTransactionsAndReleasesTheHold() {
+        projectedBalanceLedger.hold(USER_ID, "event-1", new BigDecimal("-300"), BigDecimal.ONE);
+
+        transactionService.settleWalletUpdate(WalletUpdateResultDto.builder()
+                .eventId("event-1")
+                .userId(USER_ID)
+                .applied(false)
+                .reason("Insufficient funds")
+                .build());
+
+        verify(transactionRepository).settle("event-1", SettlementStatus.REJECTED);
+        verify(walletBalanceNearCache).evict(USER_ID);
+        assertThat(projectedBalanceLedger.pendingEvents(USER_ID)).isZero();
+    }
+
+    @Test
+    void appliedWalletEventSettlesItsTransactions() {
+        projectedBalanceLedger.hold(USER_ID, "event-1", new BigDecimal("-300"), BigDecimal.ONE);
+
+        transactionService.settleWalletUpdate(WalletUpdateResultDto.builder()
+                .eventId("event-1")
+                .userId(USER_ID)
+                .applied(true)
+                .build());
+
+        verify(transactionRepository).settle("event-1", SettlementStatus.SETTLED);
+        verify(walletBalanceNearCache).evict(USER_ID);
+        assertThat(projectedBalanceLedger.pendingEvents(USER_ID)).isZero();
+    }
+
+    @Test
+    void failedCommitDropsItsHold() {
+        when(walletServiceClient.getWalletBalance(USER_ID)).thenReturn(WalletResponseDto.builder()
+                .userId(USER_ID).usdBalance(new BigDecimal("1000")).btcBalance(BigDecimal.ZERO).build());
+        when(transactionRepository.save(any())).thenThrow(new DataAccessResourceFailureException("connection reset"));
+
+        CreateTransactionRequestDto request = CreateTransactionRequestDto.builder()
+                .userId(USER_ID)
+                .btcAmount(BigDecimal.ONE)
+                .build();
+
+        assertThatThrownBy(() -> transactionService.createTransaction(request, TransactionType.BUY))
+                .isInstanceOf(DataAccessResourceFailureException.class);
+        assertThat(projectedBalanceLedger.pendingEvents(USER_ID)).isZero();
+    }
+
+    @Test
+    void batchCoalescesEachUsersAcceptedTradesIntoOneReadAndOneWalletEvent() throws Exception {
+        // User 1 can afford two of its three 1 BTC buys at 100; user 2 buys 2 BTC; item 1 is malformed
+        when(walletServiceClient.getWalletBalance(1L)).thenReturn(WalletResponseDto.builder()
+                .userId(1L).usdBalance(new BigDecimal("250")).btcBalance(BigDecimal.ZERO).build());
+        when(walletServiceClient.getWalletBalance(2L)).thenReturn(WalletResponseDto.builder()
+                .userId(2L).usdBalance(new BigDecimal("1000")).btcBalance(BigDecimal.ZERO).build());
+        List<Map<Integer, Object>> insertedRows = stubBatchInsert();
+        List<WalletUpdateMessageDto> walletEvents = new ArrayList<>();
+        when(outboxRepository.save(any())).thenAnswer(invocation -> {
+            walletEvents.add(objectMapper.readValue(invocation.<Outbox>getArgument(0).getPayload(), WalletUpdateMessageDto.class));
+            return invocation.getArgument(0);
+        });
+
+        List<BatchTradeResultDto> results = transactionService.createTransactions(List.of(
+                buy(1L, "1"), buy(1L, null), buy(2L, "2"), buy(1L, "1"), buy(1L, "1")), TransactionType.BUY);
+
+        // Results follow request order; the third buy of user 1 is checked against the first two, not the raw balance
+        assertThat(results).extracting(BatchTradeResultDto::getIndex, BatchTradeResultDto::getStatus).containsExactly(
+                tuple(0, BatchTradeResultDto.Status.ACCEPTED),
+                tuple(1, BatchTradeResultDto.Status.REJECTED),
+                tuple(2, BatchTradeResultDto.Status.ACCEPTED),
+                tuple(3, BatchTradeResultDto.Status.ACCEPTED),
+                tuple(4, BatchTradeResultDto.Status.REJECTED));
+        assertThat(results.get(4).getError()).isEqualTo("Insufficient USD balance for this transaction.");
+
+        // One wallet read and one summed wallet event per user, however many items the user had
+        verify(walletServiceClient, times(1)).getWalletBalance(1L);
+        verify(walletServiceClient, times(1)).getWalletBalance(2L);
+        assertThat(walletEvents).extracting(WalletUpdateMessageDto::getUserId).containsExactly(1L, 2L);
+        assertThat(walletEvents.get(0).getUsdAmount()).isEqualByComparingTo("-200");
+        assertThat(walletEvents.get(0).getBtcAmount()).isEqualByComparingTo("2");
+        assertThat(walletEvents.get(1).getUsdAmount()).isEqualByComparingTo("-200");
+        assertThat(walletEvents.get(1).getBtcAmount()).isEqualByComparingTo("2");
+
+        // Accepted rows only, each tagged with the event carrying its delta
+        assertThat(insertedRows).extracting(row -> row.get(1)).containsExactly(1L, 1L, 2L);
+        assertThat(insertedRows).extracting(row -> row.get(8)).containsExactly(
+                walletEvents.get(0).getEventId(), walletEvents.get(0).getEventId(), walletEvents.get(1).getEventId());
+
+        // The summed debit is held until the wallet answers, and the relay is woken once for the batch
+        assertThat(projectedBalanceLedger.pendingEvents(1L)).isEqualTo(1);
+        assertThat(projectedBalanceLedger.available(WalletResponseDto.builder()
+                .userId(1L).usdBalance(new BigDecimal("250")).btcBalance(BigDecimal.ZERO).build())
+                .getUsdBalance()).isEqualByComparingTo("50");
+        verify(outboxRelay, times(1)).requestDrain();
+    }
+
+    @Test
+    void batchGroupWithNoAffordableTradeCommitsNothing() {
+        when(walletServiceClient.getWalletBalance(1L)).thenReturn(WalletResponseDto.builder()
+                .userId(1L).usdBalance(new BigDecimal("50")).btcBalance(BigDecimal.ZERO).build());
+
+        List<BatchTradeResultDto> results = transactionService.createTransactions(
+                List.of(buy(1L, "1"), buy(1L, "2")), TransactionType.BUY);
+
+        assertThat(results).extracting(BatchTradeResultDto::getStatus)
+                .containsOnly(BatchTradeResultDto.Status.REJECTED);
+        verifyNoInteractions(jdbcTemplate, outboxRepository);
+        assertThat(projectedBalanceLedger.pendingEvents(1L)).isZero();
+    }
+
+    // Runs the batch setter against a recording statement and hands out generated ids like the database would
+    @SuppressWarnings("unchecked")
+    private List<Map<Integer, Object>> stubBatchInsert() throws SQLException {
+        List<Map<Integer, Object>> rows = new ArrayList<>();
+        AtomicLong ids = new AtomicLong();
+        when(jdbcTemplate.batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class), any(KeyHolder.class)))
+                .thenAnswer(invocation -> {
+                    BatchPreparedStatementSetter setter = invocation.getArgument(1);
+                    KeyHolder keyHolder = invocation.getArgument(2);
+                    PreparedStatement statement = mock(PreparedStatement.class);
+                    Map<Integer, Object>[] current = new Map[1];
+                    doAnswer(bind(current)).when(statement).setLong(anyInt(), anyLong());
+                    doAnswer(bind(current)).when(statement).setString(anyInt(), any());
+                    doAnswer(bind(current)).when(statement).setBigDecimal(anyInt(), any());
+                    doAnswer(bind(current)).when(statement).setTimestamp(anyInt(), any());
+
+                    for (int i = 0; i < setter.getBatchSize(); i++) {
+                        current[0] = new HashMap<>();
+                        setter.setValues(statement, i);
+                        rows.add(current[0]);
+                        keyHolder.getKeyList().add(Map.of("id", ids.incrementAndGet()));
+                    }
+
+                    return new int[setter.getBatchSize()];
+                });
+        return rows;
+    }
+
+    private static Answer<Void> bind(Map<Integer, Object>[] row) {
+        return invocation -> {
+            row[0].put(invocation.getArgument(0), invocation.getArgument(1));
+            return null;
+        };
+    }
+
+    private static CreateTransactionRequestDto buy(Long userId, String btcAmount) {
+        return CreateTransactionRequestDto.builder()
+                .userId(userId)
+                .btcAmount(btcAmount == null ? null : new BigDecimal(btcAmount))
+                .build();
+    }
+
+    // One wallet row applying deltas with the same "never below zero" guard as wallet-service
+    private static final class FakeWallet {
+        private BigDecimal usd;
+        private BigDecimal btc;
+        private int applied;
+        private int overdrafts;
+
+        private FakeWallet(BigDecimal usd, BigDecimal btc) {
+            this.usd = usd;
+            this.btc = btc;
+        }
+
+        private synchronized WalletResponseDto balance(Long userId) {
+            return WalletResponseDto.builder().userId(userId).usdBalance(usd).btcBalance(btc).build();
+        }
+
+        private synchronized boolean apply(BigDecimal usdDelta, BigDecimal btcDelta) {
+            if (usd.add(usdDelta).signum() < 0 || btc.add(btcDelta).signum() < 0) {
+                overdrafts++;
+                return false;
+            }
+
+            usd = usd.add(usdDelta);
+            btc = btc.add(btcDelta);
+            applied++;
+            return true;
+        }
+    }
+}
@@ -4,10 +4,16 @@ import com.jack.common.dto.response.WalletResponseDto;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
 
 @FeignClient(name = "wallet-service", url = "${WALLET_SERVICE_URL:https://wallet-service:8082}")
 public interface WalletServiceClient {
 
     @PostMapping("/api/wallet/{userId}")
     WalletResponseDto getWalletBalance(@PathVariable("userId") Long userId);
+
+    @PostMapping("/api/wallet/balances")
+    List<WalletResponseDto> getWalletBalances(@RequestBody List<Long> userIds);
 }
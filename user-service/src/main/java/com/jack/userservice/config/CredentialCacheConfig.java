@@ -0,0 +1,26 @@
+package com.jack.userservice.config;
+
+import com.jack.common.constants.UserConstants;
+import com.jack.userservice.security.CredentialVerifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+@Configuration
+public class CredentialCacheConfig {
+
+    @Bean
+    public RedisMessageListenerContainer credentialInvalidationListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                                 CredentialVerifier credentialVerifier) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener((message, pattern) ->
+                        credentialVerifier.onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(UserConstants.CREDENTIAL_INVALIDATION_CHANNEL));
+        return container;
+    }
+}
@@ -0,0 +1,29 @@
+package com.jack.userservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.credentials")
+public class CredentialProperties {
+    // Threads allowed to run bcrypt at once; request threads only wait on them
+    private int hashThreads = Runtime.getRuntime().availableProcessors();
+
+    // Verifications allowed to wait for a hash thread before new logins are turned away
+    private int queueCapacity = 256;
+
+    // Longest a request waits for its verification, queueing included
+    private Duration timeout = Duration.ofSeconds(5);
+
+    // email -> (id, password hash) entries held per instance
+    private long cacheMaximumSize = 100_000;
+
+    // Upper bound on staleness should an invalidation message be lost
+    private Duration cacheTtl = Duration.ofMinutes(10);
+}
@@ -1,6 +1,9 @@
 package com.jack.userservice.config;
 
+import com.jack.common.config.JwtIssuerConfig;
+import com.jack.common.config.JwtValidationConfig;
 import com.jack.common.config.RedisCommonConfig;
+import com.jack.common.config.WalletNearCacheConfig;
 import com.jack.userservice.dto.UsersDto;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.context.annotation.Bean;
@@ -12,7 +15,7 @@ import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSeriali
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
-@Import(RedisCommonConfig.class)
+@Import({RedisCommonConfig.class, WalletNearCacheConfig.class, JwtValidationConfig.class, JwtIssuerConfig.class})
 @Log4j2
 public class RedisConfig {
 
@@ -0,0 +1,17 @@
+package com.jack.userservice.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class RegistrationConfig {
+
+    // Registration steps are mostly waiting on Postgres, Redis and outbox-service, so each gets a cheap virtual thread
+    @Bean(destroyMethod = "close")
+    public ExecutorService registrationExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("registration-", 0).factory());
+    }
+}
@@ -0,0 +1,20 @@
+package com.jack.userservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.registration")
+public class RegistrationProperties {
+    // Tries at deleting a user whose wallet event could not be handed to outbox-service
+    private int removalAttempts = 3;
+
+    // Pause before the next try, doubled after each failure
+    private Duration removalBackoff = Duration.ofMillis(100);
+}
@@ -7,6 +7,7 @@ import com.jack.common.dto.request.AuthRequestDto;
 import com.jack.common.dto.request.UserRegistrationRequestDto;
 import com.jack.common.dto.response.AuthResponseDto;
 import com.jack.common.exception.CustomErrorException;
+import com.jack.common.security.JwtTokenValidator;
 import com.jack.userservice.client.AuthServiceClient;
 import com.jack.userservice.dto.UserResponseDto;
 import com.jack.userservice.dto.UserUpdateRequestDto;
@@ -23,6 +24,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
+import java.util.List;
 import java.util.Optional;
 
 @RestController
@@ -30,8 +32,11 @@ import java.util.Optional;
 @RequiredArgsConstructor
 @Log4j2
 public class UserController {
+    private static final int MAX_BATCH_SIZE = 5000;
+
     private final UserService userService;
     private final AuthServiceClient authServiceClient;
+    private final JwtTokenValidator jwtTokenValidator;
 
     @PostMapping("/register")
     public ResponseEntity<UserResponseDto> register(@Valid @RequestBody UserRegistrationRequestDto userRegistrationRequestDto) {
@@ -59,19 +64,15 @@ public class UserController {
     public ResponseEntity<AuthResponseDto> login(@Valid @RequestBody AuthRequestDto loginRequest) {
         log.info("User login attempt with email: {}", loginRequest.getEmail());
 
-        if (!userService.isPasswordValid(loginRequest.getEmail(), loginRequest.getPassword())) {
-            log.warn("Invalid credentials for email: {}", loginRequest.getEmail());
-            throw new CustomErrorException(ErrorCode.INVALID_EMAIL_OR_PASSWORD, ErrorPath.POST_LOGIN_API.getPath());
-        }
+        // Verified on the bounded hash pool and minted locally; no round trip through auth-service
+        AuthResponseDto authResponse = userService.login(loginRequest.getEmail(), loginRequest.getPassword())
+                .orElseThrow(() -> {
+                    log.warn("Invalid credentials for email: {}", loginRequest.getEmail());
+                    return new CustomErrorException(ErrorCode.INVALID_EMAIL_OR_PASSWORD, ErrorPath.POST_LOGIN_API.getPath());
+                });
 
-        try {
-            AuthResponseDto authResponse = authServiceClient.login(loginRequest);
-            log.info("User with email: {} logged in successfully.", loginRequest.getEmail());
-            return ResponseEntity.ok(authResponse);
-        } catch (FeignException e) {
-            log.error("Error during login via auth-service: {}", e.getMessage());
-            throw new CustomErrorException(ErrorCode.LOGOUT_SERVICE_ERROR, ErrorPath.POST_LOGIN_API.getPath());
-        }
+        log.info("User with email: {} logged in successfully.", loginRequest.getEmail());
+        return ResponseEntity.ok(authResponse);
     }
 
     @GetMapping("/logout")
@@ -110,13 +111,23 @@ public class UserController {
         return ResponseEntity.ok(userWithBalance);
     }
 
+    // Users with balances for a list of IDs in one call; unknown IDs are omitted
+    @PostMapping("/balances")
+    public ResponseEntity<List<UsersDto>> getUsersWithBalance(@RequestBody List<Long> userIds) {
+        if (userIds.size() > MAX_BATCH_SIZE) {
+            throw new CustomErrorException(ErrorCode.INVALID_INPUT_DATA, ErrorPath.POST_USERS_BALANCES_API.getPath());
+        }
+
+        return ResponseEntity.ok(userService.getUsersWithBalance(userIds));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<UserResponseDto> updateUser(
             @PathVariable Long id,
             @RequestBody UserUpdateRequestDto userUpdateRequestDto,
             @RequestHeader(SecurityConstants.AUTHORIZATION_HEADER) String token) throws Exception {
-        // Validate token before calling the service
-        if (!authServiceClient.validateToken(token, id)) {
+        // Validate token locally (signature, expiry, blacklist) before calling the service
+        if (!isTokenOwner(token, id)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
@@ -143,6 +154,16 @@ public class UserController {
         }
     }
 
+    private boolean isTokenOwner(String authHeader, Long id) {
+        if (authHeader == null || !authHeader.startsWith(SecurityConstants.BEARER_PREFIX)) {
+            return false;
+        }
+
+        return jwtTokenValidator.validate(authHeader.substring(SecurityConstants.PREFIX_INDEX))
+                .map(claims -> userService.isTokenSubjectOf(id, claims.getSubject()))
+                .orElse(false);
+    }
+
     private String maskToken(String token) {
         if (token.length() <= 10) {
             return "*****";
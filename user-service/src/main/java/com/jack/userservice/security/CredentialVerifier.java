@@ -0,0 +1,156 @@
+package com.jack.userservice.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.jack.common.constants.ErrorCode;
+import com.jack.common.constants.ErrorPath;
+import com.jack.common.constants.UserConstants;
+import com.jack.common.exception.CustomErrorException;
+import com.jack.userservice.config.CredentialProperties;
+import com.jack.userservice.repository.UsersRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Password checks for login: the email -> (id, hash) lookup is cached, and bcrypt runs on a small bounded pool
+// so a login storm queues (and is eventually shed) instead of occupying every request thread
+@Component
+@Log4j2
+public class CredentialVerifier {
+    private final UsersRepository usersRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final StringRedisTemplate redisTemplate;
+    private final CredentialProperties properties;
+    private final Cache<String, Credential> credentials;
+    private final ThreadPoolExecutor hashExecutor;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public record Credential(Long userId, String passwordHash) {
+    }
+
+    public CredentialVerifier(UsersRepository usersRepository, PasswordEncoder passwordEncoder,
+                              StringRedisTemplate redisTemplate, CredentialProperties properties) {
+        this.usersRepository = usersRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.redisTemplate = redisTemplate;
+        this.properties = properties;
+        this.credentials = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheMaximumSize())
+                .expireAfterWrite(properties.getCacheTtl())
+                .build();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.hashExecutor = new ThreadPoolExecutor(properties.getHashThreads(), properties.getHashThreads(),
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()), runnable -> {
+            Thread thread = new Thread(runnable, "credential-hash-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Id of the user when the password matches; empty for an unknown email or a wrong password
+    public Optional<Long> verify(String email, String rawPassword) {
+        Credential credential = lookup(email);
+
+        if (credential == null) {
+            return Optional.empty();
+        }
+
+        boolean matches = matchesOnHashPool(credential, rawPassword);
+        return matches ? Optional.of(credential.userId()) : Optional.empty();
+    }
+
+    // bcrypt encode on the same bounded pool, so registrations and logins share one CPU budget
+    public CompletableFuture<String> encodeAsync(String rawPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> passwordEncoder.encode(rawPassword), hashExecutor);
+        } catch (RejectedExecutionException e) {
+            log.warn("Credential hash queue is full ({} waiting), rejecting registration", properties.getQueueCapacity());
+            throw new CustomErrorException(ErrorCode.AUTHENTICATION_BUSY, ErrorPath.POST_REGISTER_API.getPath());
+        }
+    }
+
+    // Seed the lookup for a user that was just created, so the first login skips the database
+    public void remember(String email, Long userId, String passwordHash) {
+        credentials.put(email, new Credential(userId, passwordHash));
+    }
+
+    // Drop the cached entry here and on every other instance, e.g. after a password change or delete
+    public void invalidate(String email) {
+        credentials.invalidate(email);
+
+        try {
+            redisTemplate.convertAndSend(UserConstants.CREDENTIAL_INVALIDATION_CHANNEL, nodeId + ":" + email);
+        } catch (Exception e) {
+            log.warn("Failed to publish credential invalidation: {}", e.getMessage());
+        }
+    }
+
+    // Messages are "<nodeId>:<email>"; our own announcements were already applied locally
+    public void onInvalidation(String message) {
+        if (!message.startsWith(nodeId + ":")) {
+            credentials.invalidate(message.substring(message.indexOf(':') + 1));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashExecutor.shutdownNow();
+    }
+
+    private Credential lookup(String email) {
+        Credential cached = credentials.getIfPresent(email);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        // Unknown emails are not cached, so a registration is visible to the very next login
+        return usersRepository.findByEmail(email)
+                .map(user -> {
+                    Credential credential = new Credential(user.getId(), user.getPassword());
+                    credentials.put(email, credential);
+                    return credential;
+                })
+                .orElse(null);
+    }
+
+    private boolean matchesOnHashPool(Credential credential, String rawPassword) {
+        Future<Boolean> match;
+
+        try {
+            match = hashExecutor.submit(() -> passwordEncoder.matches(rawPassword, credential.passwordHash()));
+        } catch (RejectedExecutionException e) {
+            log.warn("Credential verification queue is full ({} waiting), rejecting login", properties.getQueueCapacity());
+            throw new CustomErrorException(ErrorCode.AUTHENTICATION_BUSY, ErrorPath.POST_LOGIN_API.getPath());
+        }
+
+        try {
+            return match.get(properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            match.cancel(true);
+            log.warn("Credential verification timed out after {}", properties.getTimeout());
+            throw new CustomErrorException(ErrorCode.AUTHENTICATION_BUSY, ErrorPath.POST_LOGIN_API.getPath());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            match.cancel(true);
+            throw new CustomErrorException(ErrorCode.AUTHENTICATION_BUSY, ErrorPath.POST_LOGIN_API.getPath());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Password verification failed", e.getCause());
+        }
+    }
+}
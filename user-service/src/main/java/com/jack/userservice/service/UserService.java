@@ -1,10 +1,12 @@
 package com.jack.userservice.service;
 
 import com.jack.common.dto.request.UserRegistrationRequestDto;
+import com.jack.common.dto.response.AuthResponseDto;
 import com.jack.userservice.dto.UserResponseDto;
 import com.jack.userservice.dto.UserUpdateRequestDto;
 import com.jack.userservice.dto.UsersDto;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserService {
@@ -16,5 +18,14 @@ public interface UserService {
 
     boolean isPasswordValid(String email, String rawPassword);
 
+    // Verify credentials and mint the token locally; empty when the email or password is wrong
+    Optional<AuthResponseDto> login(String email, String rawPassword);
+
+    // Whether a verified token subject (the email it was issued for) belongs to this user
+    boolean isTokenSubjectOf(Long id, String subject);
+
     Optional<UsersDto> getUserWithBalance(Long userId) throws Exception;
+
+    // Batch form for dashboards: users in request order, unknown IDs left out, balances null if wallet-service is down
+    List<UsersDto> getUsersWithBalance(List<Long> userIds);
 }
@@ -2,6 +2,9 @@ package com.jack.userservice.service;
 
 import com.jack.userservice.dto.UsersDto;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface UsersRedisService {
 
     // Save UserDTO to Redis
@@ -10,6 +13,9 @@ public interface UsersRedisService {
     // Retrieve UserDTO from Redis
     UsersDto getUserFromRedis(Long userId) throws Exception;
 
+    // Retrieve many UserDTOs with one MGET, loading misses in one query; unknown IDs are absent from the map
+    Map<Long, UsersDto> getUsersFromRedis(Collection<Long> userIds);
+
     // Delete UserDTO from Redis
     void deleteUserFromRedis(Long userId);
 }
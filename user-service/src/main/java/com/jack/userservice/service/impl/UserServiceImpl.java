@@ -2,39 +2,52 @@ package com.jack.userservice.service.impl;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.common.cache.WalletBalanceNearCache;
 import com.jack.common.constants.*;
-import com.jack.common.dto.request.AuthRequestDto;
 import com.jack.common.dto.request.OutboxRequestDto;
 import com.jack.common.dto.request.UserRegistrationRequestDto;
 import com.jack.common.dto.response.AuthResponseDto;
 import com.jack.common.dto.response.WalletResponseDto;
 import com.jack.common.exception.CustomErrorException;
-import com.jack.userservice.client.AuthServiceClient;
+import com.jack.common.security.JwtTokenIssuer;
 import com.jack.userservice.client.OutboxServiceClient;
 import com.jack.userservice.client.WalletBalanceRequestSender;
 import com.jack.userservice.client.WalletServiceClient;
+import com.jack.userservice.config.RegistrationProperties;
 import com.jack.userservice.dto.UserResponseDto;
 import com.jack.userservice.dto.UserUpdateRequestDto;
 import com.jack.userservice.dto.UsersDto;
 import com.jack.userservice.entity.Users;
 import com.jack.userservice.mapper.UsersMapper;
 import com.jack.userservice.repository.UsersRepository;
+import com.jack.userservice.security.CredentialVerifier;
 import com.jack.userservice.service.UserService;
 import com.jack.userservice.service.UsersRedisService;
-import feign.FeignException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 
 @Service
@@ -43,7 +56,10 @@ import java.util.concurrent.TimeUnit;
 public class UserServiceImpl implements UserService {
     private final UsersRepository usersRepository;
     private final PasswordEncoder passwordEncoder;
-    private final AuthServiceClient authServiceClient;
+    private final CredentialVerifier credentialVerifier;
+    private final JwtTokenIssuer jwtTokenIssuer;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService registrationExecutor;
     private final UsersMapper usersMapper;
     private final RedisTemplate<String, WalletResponseDto> redisTemplate;
     private final OutboxServiceClient outboxServiceClient;
@@ -51,47 +67,76 @@ public class UserServiceImpl implements UserService {
     private final WalletBalanceRequestSender walletBalanceRequestSender;
     private final ObjectMapper objectMapper;
     private final UsersRedisService usersRedisService;
+    private final WalletBalanceNearCache walletBalanceNearCache;
+    private final RegistrationProperties registrationProperties;
     private static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(1000.00);
 
+    // Staged pipeline: hash and duplicate check in parallel, a transaction that only inserts the row,
+    // then cache write and outbox event concurrently on virtual threads once the row is committed
     @Override
-    @Transactional
     public UserResponseDto register(UserRegistrationRequestDto registrationDto) {
         log.info("Attempting to register user with email: {}", registrationDto.getEmail());
 
-        if (usersRepository.findByEmail(registrationDto.getEmail()).isPresent()) {
+        // Stage 1: bcrypt runs on the hash pool while this thread checks for the email
+        CompletableFuture<String> encodedPassword = credentialVerifier.encodeAsync(registrationDto.getPassword());
+
+        if (usersRepository.existsByEmail(registrationDto.getEmail())) {
+            encodedPassword.cancel(true);
             log.error("User registration failed. User with email '{}' already exists", registrationDto.getEmail());
             throw new CustomErrorException(ErrorCode.MAIL_ALREADY_EXISTS, ErrorPath.POST_REGISTER_API.getPath());
         }
 
-        String encodedPassword = passwordEncoder.encode(registrationDto.getPassword());
-
         Users newUser = Users.builder()
                 .name(registrationDto.getName())
                 .email(registrationDto.getEmail())
-                .password(encodedPassword)
+                .password(encodedPassword.join())
                 .build();
 
-        // Save to a database
-        Users savedUser = usersRepository.save(newUser);
+        // Stage 2: the transaction holds only the insert; the unique email constraint settles concurrent duplicates
+        Users savedUser;
 
-        // Convert to DTO and cache in Redis
-        UsersDto userDto = usersMapper.toDto(savedUser);
-        usersRedisService.saveUserToRedis(userDto); // Cache only
+        try {
+            savedUser = transactionTemplate.execute(status -> usersRepository.saveAndFlush(newUser));
+        } catch (DataIntegrityViolationException e) {
+            log.error("User registration failed. User with email '{}' was registered concurrently", registrationDto.getEmail());
+            throw new CustomErrorException(ErrorCode.MAIL_ALREADY_EXISTS, ErrorPath.POST_REGISTER_API.getPath());
+        }
 
         log.info("User registered successfully with ID: {}", savedUser.getId());
 
-        // Authenticate user to get token
-        AuthResponseDto authResponse = authenticateUser(savedUser.getEmail(), registrationDto.getPassword());
+        // Stage 3: independent side effects, run concurrently after the commit
+        UsersDto userDto = usersMapper.toDto(savedUser);
+        CompletableFuture<Void> cacheWrite = CompletableFuture
+                .runAsync(() -> usersRedisService.saveUserToRedis(userDto), registrationExecutor)
+                .exceptionally(e -> {
+                    log.warn("Failed to cache new user ID {} in Redis: {}", savedUser.getId(), e.getMessage());
+                    return null;
+                });
+        CompletableFuture<Void> outboxEvent = CompletableFuture.runAsync(() -> {
+            log.info("Sending outbox event for user ID: {}", savedUser.getId());
+            outboxServiceClient.sendOutboxEvent(createOutboxEvent(savedUser.getId()));
+        }, registrationExecutor);
+
+        try {
+            outboxEvent.join();
+        } catch (CompletionException e) {
+            // Without the event no wallet is ever created; undo the registration as the single transaction used to
+            log.error("Outbox event failed for user ID {}, removing the registration: {}", savedUser.getId(), e.getMessage());
+            cacheWrite.join();
+            removeRegistration(savedUser, e.getCause());
+            throw new CustomErrorException(ErrorCode.OUTBOX_EVENT_CREATION_FAILED, ErrorPath.POST_REGISTER_API.getPath());
+        }
 
-        // Prepare and send the outbox event via the outbox service
-        OutboxRequestDto outboxEvent = createOutboxEvent(savedUser.getId());
-        log.info("Sending outbox event for user ID: {}", savedUser.getId());
-        outboxServiceClient.sendOutboxEvent(outboxEvent);
+        cacheWrite.join();
 
+        // The wallet event is accepted and the password was just set, so mint the token here instead of
+        // verifying it again through auth-service
+        credentialVerifier.remember(savedUser.getEmail(), savedUser.getId(), savedUser.getPassword());
+        String token = jwtTokenIssuer.issue(savedUser.getEmail());
         return UserResponseDto.builder()
                 .id(savedUser.getId())
                 .email(savedUser.getEmail())
-                .token(authResponse.getToken())
+                .token(token)
                 .build();
     }
 
@@ -133,6 +178,7 @@ public class UserServiceImpl implements UserService {
 
         Users updatedUser = usersRepository.save(existingUser);
         log.info("User with ID: {} updated successfully.", id);
+        invalidateCredentialsAfterCommit(existingUserDto.getEmail());
 
         // Update the cache
         UsersDto updatedUserDto = usersMapper.toDto(updatedUser);
@@ -150,6 +196,7 @@ public class UserServiceImpl implements UserService {
         log.info("Attempting to delete user with ID: {}", id);
 
         // Delete user from database and invalidate cache
+        usersRepository.findById(id).ifPresent(user -> invalidateCredentialsAfterCommit(user.getEmail()));
         usersRepository.deleteById(id);
         usersRedisService.deleteUserFromRedis(id);
         log.info("User with ID: {} deleted successfully.", id);
@@ -159,12 +206,32 @@ public class UserServiceImpl implements UserService {
     public boolean isPasswordValid(String email, String rawPassword) {
         log.debug("Verifying password for email: {}", email);
 
-        Users user = findUserByEmail(email);
-        boolean isValid = passwordEncoder.matches(rawPassword, user.getPassword());
+        boolean isValid = credentialVerifier.verify(email, rawPassword).isPresent();
         log.debug("Password verification for email {}: {}", email, isValid);
         return isValid;
     }
 
+    @Override
+    public Optional<AuthResponseDto> login(String email, String rawPassword) {
+        return credentialVerifier.verify(email, rawPassword)
+                .map(userId -> jwtTokenIssuer.issueResponse(email));
+    }
+
+    @Override
+    public boolean isTokenSubjectOf(Long id, String subject) {
+        if (subject == null) {
+            return false;
+        }
+
+        try {
+            // Served from the users: Redis cache in the common case
+            return subject.equalsIgnoreCase(usersRedisService.getUserFromRedis(id).getEmail());
+        } catch (Exception e) {
+            log.warn("User with ID {} not found while checking token subject", id);
+            return false;
+        }
+    }
+
     @Override
     public Optional<UsersDto> getUserWithBalance(Long userId) {
         log.info("Retrieving user with balance for user ID: {}", userId);
@@ -178,7 +245,17 @@ public class UserServiceImpl implements UserService {
             throw new CustomErrorException(ErrorCode.USER_NOT_FOUND, ErrorPath.GET_USER_BALANCE_API.getPath());
         }
 
+        // Step 0: Hot balances are served from the in-process near-cache
+        WalletResponseDto nearBalance = walletBalanceNearCache.get(userId);
+
+        if (nearBalance != null) {
+            usersDTO.setUsdBalance(nearBalance.getUsdBalance());
+            usersDTO.setBtcBalance(nearBalance.getBtcBalance());
+            return Optional.of(usersDTO);
+        }
+
         String cacheKey = WalletConstants.WALLET_CACHE_PREFIX + userId;
+        long nearCacheStamp = walletBalanceNearCache.stamp();
 
         // Step 1: Try getting balance from Redis cache first
         WalletResponseDto cachedBalance = redisTemplate.opsForValue()
@@ -186,6 +263,7 @@ public class UserServiceImpl implements UserService {
 
         if (cachedBalance != null) {
             log.info("Returning balance from Redis for user ID: {}", userId);
+            walletBalanceNearCache.put(cachedBalance, nearCacheStamp);
             usersDTO.setUsdBalance(cachedBalance.getUsdBalance());
             usersDTO.setBtcBalance(cachedBalance.getBtcBalance());
             return Optional.of(usersDTO);
@@ -200,6 +278,7 @@ public class UserServiceImpl implements UserService {
             // Cache the balance in Redis for future requests
             redisTemplate.opsForValue()
                     .set(cacheKey, walletBalance, TransactionConstants.TRANSACTION_CACHE_TTL, TimeUnit.MINUTES);
+            walletBalanceNearCache.put(walletBalance, nearCacheStamp);
             log.info("Balance for user ID {} cached in Redis.", userId);
             return Optional.of(usersDTO);
         } catch (Exception e) {
@@ -215,27 +294,148 @@ public class UserServiceImpl implements UserService {
         }
     }
 
-    private Users findUserByEmail(String email) {
-        return usersRepository.findByEmail(email).orElseThrow(() -> {
-            log.error("Invalid email or password for email: {}", email);
-            return new CustomErrorException(ErrorCode.INVALID_EMAIL_OR_PASSWORD, ErrorPath.POST_VERIFY_PASSWORD_API.getPath());
+    @Override
+    public List<UsersDto> getUsersWithBalance(List<Long> userIds) {
+        List<Long> distinctIds = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        Map<Long, UsersDto> users = usersRedisService.getUsersFromRedis(distinctIds);
+        Map<Long, WalletResponseDto> balances = new HashMap<>();
+        List<Long> remoteIds = new ArrayList<>();
+        long nearCacheStamp = walletBalanceNearCache.stamp();
+
+        // Step 0: near-cache
+        for (Long userId : users.keySet()) {
+            WalletResponseDto nearBalance = walletBalanceNearCache.get(userId);
+
+            if (nearBalance != null) {
+                balances.put(userId, nearBalance);
+            } else {
+                remoteIds.add(userId);
+            }
+        }
+
+        // Step 1: one MGET for everything the near-cache did not have
+        List<Long> missingIds = new ArrayList<>();
+
+        if (!remoteIds.isEmpty()) {
+            List<WalletResponseDto> cached = redisTemplate.opsForValue()
+                    .multiGet(remoteIds.stream().map(userId -> WalletConstants.WALLET_CACHE_PREFIX + userId).toList());
+
+            for (int i = 0; i < remoteIds.size(); i++) {
+                WalletResponseDto balance = cached != null ? cached.get(i) : null;
+
+                if (balance != null) {
+                    balances.put(remoteIds.get(i), balance);
+                    walletBalanceNearCache.put(balance, nearCacheStamp);
+                } else {
+                    missingIds.add(remoteIds.get(i));
+                }
+            }
+        }
+
+        // Step 2: one call to wallet-service (one IN query there), then a single pipelined backfill
+        if (!missingIds.isEmpty()) {
+            try {
+                List<WalletResponseDto> loaded = walletServiceClient.getWalletBalances(missingIds);
+                loaded.forEach(balance -> {
+                    balances.put(balance.getUserId(), balance);
+                    walletBalanceNearCache.put(balance, nearCacheStamp);
+                });
+                backfillBalances(loaded);
+            } catch (Exception e) {
+                log.warn("Batch balance lookup in wallet-service failed for {} users: {}", missingIds.size(), e.getMessage());
+            }
+        }
+
+        log.info("Retrieved {} users with balances ({} balances from wallet-service)", users.size(), missingIds.size());
+        return userIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .map(user -> {
+                    WalletResponseDto balance = balances.get(user.getId());
+                    user.setUsdBalance(balance != null ? balance.getUsdBalance() : null);
+                    user.setBtcBalance(balance != null ? balance.getBtcBalance() : null);
+                    return user;
+                })
+                .toList();
+    }
+
+    // SET NX with the usual TTL, all in one pipeline, so newer balances written meanwhile are kept
+    private void backfillBalances(List<WalletResponseDto> balances) {
+        if (balances.isEmpty()) {
+            return;
+        }
+
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) {
+                balances.forEach(balance -> operations.opsForValue().setIfAbsent(
+                        WalletConstants.WALLET_CACHE_PREFIX + balance.getUserId(), balance,
+                        TransactionConstants.TRANSACTION_CACHE_TTL, TimeUnit.MINUTES));
+                return null;
+            }
         });
     }
 
-    private AuthResponseDto authenticateUser(String email, String password) {
-        AuthRequestDto authRequest = AuthRequestDto.builder()
-                .email(email)
-                .password(password)
-                .build();
+    // The row is retried with backoff; if it still cannot be deleted the failure is thrown, since a user left behind
+    // has no wallet and blocks the email from registering again
+    private void removeRegistration(Users user, Throwable outboxFailure) {
+        long backoffMs = registrationProperties.getRemovalBackoff().toMillis();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                usersRepository.deleteById(user.getId());
+                break;
+            } catch (RuntimeException e) {
+                if (attempt >= registrationProperties.getRemovalAttempts()) {
+                    log.error("Failed to remove registration for user ID {} after {} attempts; the user has no wallet",
+                            user.getId(), attempt, e);
+                    IllegalStateException failure = new IllegalStateException(
+                            "Registration for user ID " + user.getId() + " could neither be completed nor removed", e);
+                    failure.addSuppressed(outboxFailure);
+                    throw failure;
+                }
+
+                log.warn("Failed to remove registration for user ID {} (attempt {}), retrying: {}", user.getId(), attempt, e.getMessage());
+                sleepBeforeRetry(backoffMs);
+                backoffMs *= 2;
+            }
+        }
 
+        // The row is gone; stale cache entries only matter until they are overwritten or expire
         try {
-            AuthResponseDto authResponse = authServiceClient.login(authRequest);
-            log.info("User with email: {} authenticated successfully.", email);
-            return authResponse;
-        } catch (FeignException e) {
-            log.error("Authentication failed for email: {}. Error: {}", email, e.getMessage());
-            throw new CustomErrorException(ErrorCode.AUTHENTICATION_FAILED, ErrorPath.POST_LOGIN_API.getPath());
+            usersRedisService.deleteUserFromRedis(user.getId());
+        } catch (Exception e) {
+            log.warn("Failed to evict removed user ID {} from Redis: {}", user.getId(), e.getMessage());
         }
+
+        credentialVerifier.invalidate(user.getEmail());
+    }
+
+    private static void sleepBeforeRetry(long backoffMs) {
+        try {
+            Thread.sleep(backoffMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while removing a registration", e);
+        }
+    }
+
+    // A concurrent login could re-cache the old hash before the commit, so the entry is dropped once the change is visible
+    private void invalidateCredentialsAfterCommit(String email) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            credentialVerifier.invalidate(email);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                credentialVerifier.invalidate(email);
+            }
+        });
     }
 
     private OutboxRequestDto createOutboxEvent(Long userId) {
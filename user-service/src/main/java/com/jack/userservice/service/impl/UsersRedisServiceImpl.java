@@ -7,9 +7,16 @@ import com.jack.userservice.mapper.UsersMapper;
 import com.jack.userservice.repository.UsersRepository;
 import com.jack.userservice.service.UsersRedisService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 @Service
@@ -51,6 +58,51 @@ public class UsersRedisServiceImpl implements UsersRedisService {
         return userDto;
     }
 
+    @Override
+    public Map<Long, UsersDto> getUsersFromRedis(Collection<Long> userIds) {
+        List<Long> ids = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        Map<Long, UsersDto> users = new HashMap<>();
+
+        if (ids.isEmpty()) {
+            return users;
+        }
+
+        List<UsersDto> cached = redisTemplate.opsForValue()
+                .multiGet(ids.stream().map(userId -> UserConstants.USER_CACHE_PREFIX + userId).toList());
+        List<Long> missingIds = new ArrayList<>();
+
+        for (int i = 0; i < ids.size(); i++) {
+            UsersDto user = cached != null ? cached.get(i) : null;
+
+            if (user != null) {
+                users.put(ids.get(i), user);
+            } else {
+                missingIds.add(ids.get(i));
+            }
+        }
+
+        if (missingIds.isEmpty()) {
+            return users;
+        }
+
+        List<UsersDto> loaded = usersRepository.findAllById(missingIds).stream()
+                .map(usersMapper::toDto)
+                .toList();
+        loaded.forEach(user -> users.put(user.getId(), user));
+
+        // Backfill in one pipeline; SET NX keeps a concurrent update from being overwritten with this older read
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) {
+                loaded.forEach(user -> operations.opsForValue().setIfAbsent(UserConstants.USER_CACHE_PREFIX + user.getId(), user));
+                return null;
+            }
+        });
+
+        return users;
+    }
+
     @Override
     public void deleteUserFromRedis(Long userId) {
         Objects.requireNonNull(userId, "User ID must not be null");
@@ -0,0 +1,155 @@
+package com.jack.userservice.security;
+
+import com.jack.common.constants.UserConstants;
+import com.jack.common.exception.CustomErrorException;
+import com.jack.userservice.config.CredentialProperties;
+import com.jack.userservice.entity.Users;
+import com.jack.userservice.repository.UsersRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CredentialVerifierTest {
+    private static final String EMAIL = "user@example.com";
+    private static final String HASH = "$2a$10$hash";
+
+    @Mock
+    private UsersRepository usersRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private CredentialVerifier credentialVerifier;
+
+    @BeforeEach
+    void setUp() {
+        // One hash thread and one queue slot, so the third piece of bcrypt work has nowhere to go
+        CredentialProperties properties = new CredentialProperties();
+        properties.setHashThreads(1);
+        properties.setQueueCapacity(1);
+        properties.setTimeout(Duration.ofMillis(200));
+        credentialVerifier = new CredentialVerifier(usersRepository, passwordEncoder, redisTemplate, properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        credentialVerifier.shutdown();
+    }
+
+    @Test
+    void matchesAgainstTheCachedHash() {
+        when(usersRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user()));
+        when(passwordEncoder.matches("secret", HASH)).thenReturn(true);
+
+        assertThat(credentialVerifier.verify(EMAIL, "secret")).hasValue(1L);
+        assertThat(credentialVerifier.verify(EMAIL, "secret")).hasValue(1L);
+        assertThat(credentialVerifier.verify(EMAIL, "wrong")).isEmpty();
+
+        verify(usersRepository, times(1)).findByEmail(EMAIL);
+    }
+
+    @Test
+    void unknownEmailsAreNotCached() {
+        when(usersRepository.findByEmail(EMAIL)).thenReturn(Optional.empty());
+
+        assertThat(credentialVerifier.verify(EMAIL, "secret")).isEmpty();
+        assertThat(credentialVerifier.verify(EMAIL, "secret")).isEmpty();
+
+        verify(usersRepository, times(2)).findByEmail(EMAIL);
+    }
+
+    @Test
+    void rejectsWorkOnceThePoolAndQueueAreFull() {
+        blockHashing();
+        credentialVerifier.remember(EMAIL, 1L, HASH);
+
+        // One encode runs, one waits in the queue
+        CompletableFuture<String> running = credentialVerifier.encodeAsync("first");
+        CompletableFuture<String> queued = credentialVerifier.encodeAsync("second");
+
+        assertBusy(() -> credentialVerifier.verify(EMAIL, "secret"));
+        assertBusy(() -> credentialVerifier.encodeAsync("third"));
+
+        release.countDown();
+        assertThat(running.join()).isEqualTo("encoded");
+        assertThat(queued.join()).isEqualTo("encoded");
+    }
+
+    @Test
+    void givesUpWhenVerificationTakesLongerThanTheTimeout() {
+        credentialVerifier.remember(EMAIL, 1L, HASH);
+        when(passwordEncoder.matches("secret", HASH)).thenAnswer(invocation -> release.await(10, TimeUnit.SECONDS));
+
+        long started = System.nanoTime();
+        assertBusy(() -> credentialVerifier.verify(EMAIL, "secret"));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void invalidateDropsTheEntryAndTellsTheOtherInstances() {
+        when(usersRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user()));
+        when(passwordEncoder.matches("secret", HASH)).thenReturn(true);
+        credentialVerifier.verify(EMAIL, "secret");
+
+        credentialVerifier.invalidate(EMAIL);
+        credentialVerifier.verify(EMAIL, "secret");
+
+        verify(redisTemplate).convertAndSend(eq(UserConstants.CREDENTIAL_INVALIDATION_CHANNEL), anyString());
+        verify(usersRepository, times(2)).findByEmail(EMAIL);
+    }
+
+    @Test
+    void invalidationsFromOtherInstancesDropTheEntry() {
+        credentialVerifier.remember(EMAIL, 1L, HASH);
+        when(usersRepository.findByEmail(EMAIL)).thenReturn(Optional.empty());
+
+        credentialVerifier.onInvalidation("other-node:" + EMAIL);
+
+        assertThat(credentialVerifier.verify(EMAIL, "secret")).isEmpty();
+    }
+
+    private void blockHashing() {
+        lenient().when(passwordEncoder.encode(anyString())).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return "encoded";
+        });
+    }
+
+    private static void assertBusy(Runnable call) {
+        assertThatThrownBy(call::run)
+                .isInstanceOfSatisfying(CustomErrorException.class, e ->
+                        assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE.value()));
+    }
+
+    private static Users user() {
+        return Users.builder().id(1L).name("User").email(EMAIL).password(HASH).build();
+    }
+}
@@ -0,0 +1,151 @@
+package com.jack.userservice.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.common.cache.WalletBalanceNearCache;
+import com.jack.common.dto.request.UserRegistrationRequestDto;
+import com.jack.common.dto.response.WalletResponseDto;
+import com.jack.common.security.JwtTokenIssuer;
+import com.jack.userservice.client.OutboxServiceClient;
+import com.jack.userservice.client.WalletBalanceRequestSender;
+import com.jack.userservice.client.WalletServiceClient;
+import com.jack.userservice.config.RegistrationProperties;
+import com.jack.userservice.entity.Users;
+import com.jack.userservice.mapper.UsersMapper;
+import com.jack.userservice.repository.UsersRepository;
+import com.jack.userservice.security.CredentialVerifier;
+import com.jack.userservice.service.UsersRedisService;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Load harness for the registration pipeline. Postgres, Redis, outbox-service and bcrypt are replaced by fixed
+// latencies, so the reported throughput shows how far the stages overlap rather than how fast any dependency is.
+// Size it with -Dregistration.load.users and -Dregistration.load.concurrency.
+@Log4j2
+class RegistrationLoadTest {
+    private static final int USERS = Integer.getInteger("registration.load.users", 400);
+    private static final int CONCURRENCY = Integer.getInteger("registration.load.concurrency", 64);
+    private static final int HASH_THREADS = 4;
+
+    // Simulated latency of each step in milliseconds
+    private static final long BCRYPT_MS = 10;
+    private static final long EXISTS_QUERY_MS = 2;
+    private static final long INSERT_MS = 3;
+    private static final long REDIS_WRITE_MS = 1;
+    private static final long OUTBOX_CALL_MS = 5;
+
+    private final ExecutorService registrationExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ExecutorService hashPool = Executors.newFixedThreadPool(HASH_THREADS);
+    private UserServiceImpl userService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        UsersRepository usersRepository = mock(UsersRepository.class);
+        CredentialVerifier credentialVerifier = mock(CredentialVerifier.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        UsersMapper usersMapper = mock(UsersMapper.class);
+        OutboxServiceClient outboxServiceClient = mock(OutboxServiceClient.class);
+        UsersRedisService usersRedisService = mock(UsersRedisService.class);
+        JwtTokenIssuer jwtTokenIssuer = mock(JwtTokenIssuer.class);
+        AtomicLong ids = new AtomicLong();
+
+        when(credentialVerifier.encodeAsync(anyString())).thenAnswer(invocation ->
+                CompletableFuture.supplyAsync(() -> pause(BCRYPT_MS, "hash"), hashPool));
+        when(usersRepository.existsByEmail(anyString())).thenAnswer(invocation -> pause(EXISTS_QUERY_MS, false));
+        when(usersRepository.saveAndFlush(any(Users.class))).thenAnswer(invocation -> {
+            Users user = invocation.getArgument(0);
+            user.setId(ids.incrementAndGet());
+            return pause(INSERT_MS, user);
+        });
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<Users>>getArgument(0).doInTransaction(mock(TransactionStatus.class)));
+        doAnswer(invocation -> pause(REDIS_WRITE_MS, null)).when(usersRedisService).saveUserToRedis(any());
+        doAnswer(invocation -> pause(OUTBOX_CALL_MS, null)).when(outboxServiceClient).sendOutboxEvent(any());
+        when(jwtTokenIssuer.issue(anyString())).thenReturn("token");
+
+        userService = new UserServiceImpl(usersRepository, mock(PasswordEncoder.class), credentialVerifier, jwtTokenIssuer,
+                transactionTemplate, registrationExecutor, usersMapper, mock(RedisTemplate.class), outboxServiceClient,
+                mock(WalletServiceClient.class), mock(WalletBalanceRequestSender.class), new ObjectMapper(),
+                usersRedisService, mock(WalletBalanceNearCache.class), new RegistrationProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        registrationExecutor.close();
+        hashPool.shutdownNow();
+    }
+
+    @Test
+    void reportsRegistrationThroughput() {
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        List<Long> latenciesMicros = Collections.synchronizedList(new ArrayList<>(USERS));
+        long started = System.nanoTime();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < USERS; i++) {
+                String email = "load-" + i + "@example.com";
+                inFlight.acquireUninterruptibly();
+                clients.execute(() -> {
+                    long requestStarted = System.nanoTime();
+
+                    try {
+                        assertThat(userService.register(request(email)).getToken()).isEqualTo("token");
+                        latenciesMicros.add((System.nanoTime() - requestStarted) / 1_000);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+
+        double elapsedSeconds = (System.nanoTime() - started) / 1e9;
+        double throughput = USERS / elapsedSeconds;
+        List<Long> sorted = latenciesMicros.stream().sorted().toList();
+        log.info("Registered {} users with {} concurrent clients in {} s: {} registrations/s, p50 {} ms, p99 {} ms",
+                USERS, CONCURRENCY, String.format("%.2f", elapsedSeconds), String.format("%.0f", throughput),
+                sorted.get(sorted.size() / 2) / 1_000.0, sorted.get(sorted.size() * 99 / 100) / 1_000.0);
+
+        assertThat(sorted).hasSize(USERS);
+        // One request at a time would manage 1000 / (bcrypt + insert + outbox) registrations per second at best;
+        // overlapping requests are bounded by the hash pool instead
+        double sequentialBound = 1000.0 / (BCRYPT_MS + INSERT_MS + OUTBOX_CALL_MS);
+        assertThat(throughput).isGreaterThan(sequentialBound * 2);
+    }
+
+    private static UserRegistrationRequestDto request(String email) {
+        return UserRegistrationRequestDto.builder().name("Load").email(email).password("secret1").build();
+    }
+
+    private static <T> T pause(long millis, T result) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,321 @@
+package com.jack.userservice.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jack.common.cache.WalletBalanceNearCache;
+import com.jack.common.constants.TransactionConstants;
+import com.jack.common.constants.WalletConstants;
+import com.jack.common.dto.request.UserRegistrationRequestDto;
+import com.jack.common.dto.response.WalletResponseDto;
+import com.jack.common.exception.CustomErrorException;
+import com.jack.common.security.JwtTokenIssuer;
+import com.jack.userservice.client.OutboxServiceClient;
+import com.jack.userservice.client.WalletBalanceRequestSender;
+import com.jack.userservice.client.WalletServiceClient;
+import com.jack.userservice.config.RegistrationProperties;
+import com.jack.userservice.dto.UserResponseDto;
+import com.jack.userservice.dto.UserUpdateRequestDto;
+import com.jack.userservice.dto.UsersDto;
+import com.jack.userservice.entity.Users;
+import com.jack.userservice.mapper.UsersMapper;
+import com.jack.userservice.repository.UsersRepository;
+import com.jack.userservice.security.CredentialVerifier;
+import com.jack.userservice.service.UsersRedisService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserServiceImplTest {
+    private static final Long USER_ID = 1L;
+    private static final String EMAIL = "user@example.com";
+
+    @Mock
+    private UsersRepository usersRepository;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private CredentialVerifier credentialVerifier;
+
+    @Mock
+    private JwtTokenIssuer jwtTokenIssuer;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private UsersMapper usersMapper;
+
+    @Mock
+    private RedisTemplate<String, WalletResponseDto> redisTemplate;
+
+    @Mock
+    private OutboxServiceClient outboxServiceClient;
+
+    @Mock
+    private WalletServiceClient walletServiceClient;
+
+    @Mock
+    private WalletBalanceRequestSender walletBalanceRequestSender;
+
+    @Mock
+    private UsersRedisService usersRedisService;
+
+    @Mock
+    private WalletBalanceNearCache walletBalanceNearCache;
+
+    private final ExecutorService registrationExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private UserServiceImpl userService;
+
+    @BeforeEach
+    void setUp() {
+        RegistrationProperties registrationProperties = new RegistrationProperties();
+        registrationProperties.setRemovalBackoff(Duration.ofMillis(1));
+        userService = new UserServiceImpl(usersRepository, passwordEncoder, credentialVerifier, jwtTokenIssuer,
+                transactionTemplate, registrationExecutor, usersMapper, redisTemplate, outboxServiceClient,
+                walletServiceClient, walletBalanceRequestSender, new ObjectMapper(), usersRedisService,
+                walletBalanceNearCache, registrationProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registrationExecutor.close();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void registrationMintsTheTokenOnlyOnceTheWalletEventIsAccepted() {
+        stubRegistration();
+        when(jwtTokenIssuer.issue(EMAIL)).thenReturn("token");
+
+        UserResponseDto response = userService.register(registrationRequest());
+
+        assertThat(response.getId()).isEqualTo(USER_ID);
+        assertThat(response.getToken()).isEqualTo("token");
+        InOrder order = inOrder(outboxServiceClient, jwtTokenIssuer);
+        order.verify(outboxServiceClient).sendOutboxEvent(any());
+        order.verify(jwtTokenIssuer).issue(EMAIL);
+    }
+
+    @Test
+    void aFailedWalletEventRemovesTheUserWithoutMintingAToken() {
+        stubRegistration();
+        doThrow(new IllegalStateException("outbox-service down")).when(outboxServiceClient).sendOutboxEvent(any());
+
+        assertThatThrownBy(() -> userService.register(registrationRequest())).isInstanceOf(CustomErrorException.class);
+
+        verify(usersRepository).deleteById(USER_ID);
+        verify(credentialVerifier).invalidate(EMAIL);
+        verify(credentialVerifier, never()).remember(anyString(), any(), anyString());
+        verify(jwtTokenIssuer, never()).issue(anyString());
+    }
+
+    @Test
+    void aFailedRemovalIsRetried() {
+        stubRegistration();
+        doThrow(new IllegalStateException("outbox-service down")).when(outboxServiceClient).sendOutboxEvent(any());
+        doThrow(new IllegalStateException("connection reset")).doNothing().when(usersRepository).deleteById(USER_ID);
+
+        assertThatThrownBy(() -> userService.register(registrationRequest())).isInstanceOf(CustomErrorException.class);
+
+        verify(usersRepository, times(2)).deleteById(USER_ID);
+        verify(usersRedisService).deleteUserFromRedis(USER_ID);
+    }
+
+    @Test
+    void aRemovalThatKeepsFailingIsSurfacedInsteadOfSwallowed() {
+        stubRegistration();
+        doThrow(new IllegalStateException("outbox-service down")).when(outboxServiceClient).sendOutboxEvent(any());
+        doThrow(new IllegalStateException("database down")).when(usersRepository).deleteById(USER_ID);
+
+        assertThatThrownBy(() -> userService.register(registrationRequest()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("could neither be completed nor removed")
+                .satisfies(e -> assertThat(e.getSuppressed()).hasSize(1));
+
+        verify(usersRepository, times(3)).deleteById(USER_ID);
+        verify(jwtTokenIssuer, never()).issue(anyString());
+    }
+
+    @Test
+    void passwordChangeInvalidatesCredentialsOnlyAfterCommit() throws Exception {
+        Users user = Users.builder().id(USER_ID).name("User").email(EMAIL).password("old").build();
+        UsersDto userDto = UsersDto.builder().id(USER_ID).name("User").email(EMAIL).build();
+        when(usersRedisService.getUserFromRedis(USER_ID)).thenReturn(userDto);
+        when(usersMapper.toEntity(userDto)).thenReturn(user);
+        when(passwordEncoder.encode("new-secret")).thenReturn("new");
+        when(usersRepository.save(any(Users.class))).thenReturn(user);
+        when(usersMapper.toResponseDto(user)).thenReturn(UserResponseDto.builder().id(USER_ID).email(EMAIL).build());
+        TransactionSynchronizationManager.initSynchronization();
+
+        userService.updateUser(USER_ID, UserUpdateRequestDto.builder().password("new-secret").build());
+
+        // A login racing the update could re-cache the old hash, so nothing is dropped before the commit
+        verify(credentialVerifier, never()).invalidate(EMAIL);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        verify(credentialVerifier).invalidate(EMAIL);
+    }
+
+    @Test
+    void deleteInvalidatesCredentialsOnlyAfterCommit() {
+        when(usersRepository.findById(USER_ID)).thenReturn(Optional.of(Users.builder().id(USER_ID).email(EMAIL).build()));
+        TransactionSynchronizationManager.initSynchronization();
+
+        userService.deleteUser(USER_ID);
+
+        verify(credentialVerifier, never()).invalidate(EMAIL);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        verify(credentialVerifier).invalidate(EMAIL);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void batchBalancesReadTheNearCacheThenOneMgetThenOneWalletCall() {
+        when(usersRedisService.getUsersFromRedis(List.of(2L, 1L, 3L, 4L, 5L)))
+                .thenReturn(Map.of(1L, user(1L), 2L, user(2L), 3L, user(3L), 4L, user(4L)));
+        when(walletBalanceNearCache.stamp()).thenReturn(5L);
+        when(walletBalanceNearCache.get(anyLong())).thenAnswer(invocation -> invocation.getArgument(0).equals(1L) ? balance(1L, "10") : null);
+        ValueOperations<String, WalletResponseDto> valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyList())).thenAnswer(invocation -> invocation.<List<String>>getArgument(0).stream()
+                .map(key -> key.equals(WalletConstants.WALLET_CACHE_PREFIX + 2) ? balance(2L, "20") : null)
+                .toList());
+        when(walletServiceClient.getWalletBalances(anyList())).thenReturn(List.of(balance(3L, "30")));
+
+        // User 5 does not exist and user 4 has no wallet
+        List<UsersDto> users = userService.getUsersWithBalance(Arrays.asList(2L, 1L, null, 3L, 2L, 4L, 5L));
+
+        assertThat(users).extracting(UsersDto::getId).containsExactly(2L, 1L, 3L, 4L);
+        assertThat(users).extracting(UsersDto::getUsdBalance)
+                .containsExactly(new BigDecimal("20"), new BigDecimal("10"), new BigDecimal("30"), null);
+        verify(walletBalanceNearCache).put(balance(2L, "20"), 5L);
+        verify(walletBalanceNearCache).put(balance(3L, "30"), 5L);
+
+        // Only what neither cache had goes to wallet-service, and only its answer is backfilled
+        ArgumentCaptor<List<Long>> walletIds = ArgumentCaptor.forClass(List.class);
+        verify(walletServiceClient).getWalletBalances(walletIds.capture());
+        assertThat(walletIds.getValue()).containsExactlyInAnyOrder(3L, 4L);
+        ValueOperations<String, Object> pipelined = runPipeline();
+        verify(pipelined).setIfAbsent(WalletConstants.WALLET_CACHE_PREFIX + 3, balance(3L, "30"),
+                TransactionConstants.TRANSACTION_CACHE_TTL, TimeUnit.MINUTES);
+        verifyNoMoreInteractions(pipelined);
+    }
+
+    @Test
+    void batchBalancesFullyCachedNeverCallWalletService() {
+        when(usersRedisService.getUsersFromRedis(List.of(1L))).thenReturn(Map.of(1L, user(1L)));
+        when(walletBalanceNearCache.get(1L)).thenReturn(balance(1L, "10"));
+
+        List<UsersDto> users = userService.getUsersWithBalance(List.of(1L, 1L));
+
+        assertThat(users).singleElement().extracting(UsersDto::getUsdBalance).isEqualTo(new BigDecimal("10"));
+        verifyNoInteractions(redisTemplate, walletServiceClient);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void batchBalancesSurviveAWalletServiceFailureWithoutBalances() {
+        when(usersRedisService.getUsersFromRedis(List.of(1L))).thenReturn(Map.of(1L, user(1L)));
+        ValueOperations<String, WalletResponseDto> valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyList())).thenReturn(Collections.singletonList(null));
+        when(walletServiceClient.getWalletBalances(List.of(1L))).thenThrow(new IllegalStateException("wallet-service down"));
+
+        List<UsersDto> users = userService.getUsersWithBalance(List.of(1L));
+
+        assertThat(users).singleElement().satisfies(user -> {
+            assertThat(user.getUsdBalance()).isNull();
+            assertThat(user.getBtcBalance()).isNull();
+        });
+        verify(redisTemplate, never()).executePipelined(any(SessionCallback.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ValueOperations<String, Object> runPipeline() {
+        ArgumentCaptor<SessionCallback<Object>> callback = ArgumentCaptor.forClass(SessionCallback.class);
+        verify(redisTemplate).executePipelined(callback.capture());
+        RedisOperations<String, Object> operations = mock(RedisOperations.class);
+        ValueOperations<String, Object> pipelined = mock(ValueOperations.class);
+        when(operations.opsForValue()).thenReturn(pipelined);
+        callback.getValue().execute(operations);
+        return pipelined;
+    }
+
+    private static UsersDto user(Long userId) {
+        return UsersDto.builder().id(userId).name("User " + userId).build();
+    }
+
+    private static WalletResponseDto balance(Long userId, String usd) {
+        return WalletResponseDto.builder()
+                .userId(userId)
+                .usdBalance(new BigDecimal(usd))
+                .btcBalance(BigDecimal.ZERO)
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubRegistration() {
+        Users saved = Users.builder().id(USER_ID).name("User").email(EMAIL).password("hash").build();
+        when(credentialVerifier.encodeAsync("secret1")).thenReturn(CompletableFuture.completedFuture("hash"));
+        when(usersRepository.existsByEmail(EMAIL)).thenReturn(false);
+        when(usersRepository.saveAndFlush(any(Users.class))).thenReturn(saved);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<Users>>getArgument(0).doInTransaction(mock(TransactionStatus.class)));
+        when(usersMapper.toDto(saved)).thenReturn(UsersDto.builder().id(USER_ID).email(EMAIL).build());
+    }
+
+    private static UserRegistrationRequestDto registrationRequest() {
+        return UserRegistrationRequestDto.builder().name("User").email(EMAIL).password("secret1").build();
+    }
+}
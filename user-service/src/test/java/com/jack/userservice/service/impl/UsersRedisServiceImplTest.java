@@ -0,0 +1,108 @@
+package com.jack.userservice.service.impl;
+
+import com.jack.common.constants.UserConstants;
+import com.jack.userservice.dto.UsersDto;
+import com.jack.userservice.entity.Users;
+import com.jack.userservice.mapper.UsersMapper;
+import com.jack.userservice.repository.UsersRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UsersRedisServiceImplTest {
+    @Mock
+    private RedisTemplate<String, UsersDto> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, UsersDto> valueOperations;
+
+    @Mock
+    private UsersRepository usersRepository;
+
+    @Mock
+    private UsersMapper usersMapper;
+
+    private UsersRedisServiceImpl usersRedisService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(usersMapper.toDto(any(Users.class))).thenAnswer(invocation -> user(invocation.<Users>getArgument(0).getId()));
+        usersRedisService = new UsersRedisServiceImpl(redisTemplate, usersRepository, usersMapper);
+    }
+
+    @Test
+    void cachedUsersComeFromOneMgetAndMissesFromOneQuery() {
+        when(valueOperations.multiGet(List.of(key(1L), key(2L), key(3L)))).thenReturn(Arrays.asList(user(1L), null, null));
+        // User 3 does not exist
+        when(usersRepository.findAllById(List.of(2L, 3L))).thenReturn(List.of(Users.builder().id(2L).build()));
+
+        // Duplicates are looked up once
+        assertThat(usersRedisService.getUsersFromRedis(Arrays.asList(1L, 2L, 1L, null, 3L, 2L)))
+                .containsOnlyKeys(1L, 2L)
+                .containsEntry(1L, user(1L))
+                .containsEntry(2L, user(2L));
+
+        // Only the database read is backfilled, with SET NX in one pipeline
+        ValueOperations<String, Object> pipelined = runPipeline();
+        verify(pipelined).setIfAbsent(key(2L), user(2L));
+        verifyNoMoreInteractions(pipelined);
+    }
+
+    @Test
+    void fullyCachedUsersNeverReachTheDatabase() {
+        when(valueOperations.multiGet(List.of(key(1L), key(2L)))).thenReturn(List.of(user(1L), user(2L)));
+
+        assertThat(usersRedisService.getUsersFromRedis(List.of(1L, 2L))).containsOnlyKeys(1L, 2L);
+
+        verifyNoInteractions(usersRepository);
+        verify(redisTemplate, never()).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    void noIdsMeansNoRedisCall() {
+        assertThat(usersRedisService.getUsersFromRedis(List.of())).isEmpty();
+
+        verifyNoInteractions(redisTemplate, usersRepository);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ValueOperations<String, Object> runPipeline() {
+        ArgumentCaptor<SessionCallback<Object>> callback = ArgumentCaptor.forClass(SessionCallback.class);
+        verify(redisTemplate).executePipelined(callback.capture());
+        RedisOperations<String, Object> operations = mock(RedisOperations.class);
+        ValueOperations<String, Object> pipelined = mock(ValueOperations.class);
+        when(operations.opsForValue()).thenReturn(pipelined);
+        callback.getValue().execute(operations);
+        return pipelined;
+    }
+
+    private static String key(Long userId) {
+        return UserConstants.USER_CACHE_PREFIX + userId;
+    }
+
+    private static UsersDto user(Long userId) {
+        return UsersDto.builder().id(userId).name("User " + userId).build();
+    }
+}
@@ -0,0 +1,10 @@
+package com.jack.walletservice.config;
+
+import com.jack.common.config.WalletNearCacheConfig;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+@Configuration
+@Import(WalletNearCacheConfig.class)
+public class RedisConfig {
+}
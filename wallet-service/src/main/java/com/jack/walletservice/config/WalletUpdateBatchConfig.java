@@ -0,0 +1,33 @@
+package com.jack.walletservice.config;
+
+import lombok.extern.log4j.Log4j2;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "app.wallet.update-batch", name = "enabled", havingValue = "true")
+@Log4j2
+public class WalletUpdateBatchConfig {
+
+    // Container that hands the listener up to `size` messages; the batch is acked only after the listener returns
+    @Bean
+    public SimpleRabbitListenerContainerFactory walletUpdateBatchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            WalletUpdateBatchProperties properties) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(properties.getSize());
+        factory.setReceiveTimeout(properties.getReceiveTimeoutMs());
+        factory.setPrefetchCount(Math.max(250, properties.getSize()));
+        factory.setConcurrentConsumers(properties.getConcurrency());
+        log.info("Configured wallet update batch consumer: size={}, receiveTimeoutMs={}, concurrency={}",
+                properties.getSize(), properties.getReceiveTimeoutMs(), properties.getConcurrency());
+        return factory;
+    }
+}
@@ -0,0 +1,24 @@
+package com.jack.walletservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.wallet.update-batch")
+public class WalletUpdateBatchProperties {
+    // Consume wallet.update.queue in micro-batches instead of one message per delivery
+    private boolean enabled = false;
+
+    // Maximum number of messages handed to the listener at once
+    private int size = 200;
+
+    // How long the consumer waits to fill a batch before delivering a partial one
+    private long receiveTimeoutMs = 50;
+
+    // Parallel consumers; batches for the same user are serialized by the row lock
+    private int concurrency = 1;
+}
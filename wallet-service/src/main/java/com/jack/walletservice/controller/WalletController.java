@@ -7,11 +7,13 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/wallet")
 @RequiredArgsConstructor
 public class WalletController {
+    private static final int MAX_BATCH_SIZE = 5000;
 
     private final WalletService walletService;
 
@@ -20,7 +22,8 @@ public class WalletController {
     public ResponseEntity<Void> updateWalletBalance(@PathVariable Long userId,
                                              @RequestParam("usdBalance") BigDecimal usdBalance,
                                              @RequestParam("btcBalance") BigDecimal btcBalance) {
-        walletService.updateWallet(userId, usdBalance, btcBalance);
+        // A direct adjustment carries no producer event, so there is nothing to deduplicate
+        walletService.updateWallet(userId, usdBalance, btcBalance, null);
         return ResponseEntity.ok().build();
     }
 
@@ -30,4 +33,14 @@ public class WalletController {
         WalletResponseDto walletResponseDto = walletService.getWalletBalance(userId);
         return ResponseEntity.ok(walletResponseDto);
     }
+
+    // Balances for a list of user IDs in one call; users without a wallet are omitted
+    @PostMapping("/balances")
+    public ResponseEntity<List<WalletResponseDto>> getWalletBalances(@RequestBody List<Long> userIds) {
+        if (userIds.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        return ResponseEntity.ok(walletService.getWalletBalances(userIds));
+    }
 }
@@ -0,0 +1,29 @@
+package com.jack.walletservice.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// Producer event ids already applied to a wallet; written in the same commit as the balance change
+@Entity
+@Table(name = "wallet_applied_event")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppliedWalletEvent {
+
+    @Id
+    @Column(name = "event_id", length = 36)
+    private String eventId;
+
+    @Column(name = "applied_at", nullable = false, columnDefinition = "TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP")
+    private LocalDateTime appliedAt;
+}
@@ -34,4 +34,9 @@ public class Wallet {
     @Min(value = 0, message = "BTC balance must be non-negative")
     @Column(nullable = false)
     private BigDecimal btcBalance;
+
+    // Guards full-entity saves; the delta path bumps it in SQL
+    @Version
+    @Column(nullable = false, columnDefinition = "BIGINT DEFAULT 0")
+    private Long version;
 }
@@ -0,0 +1,32 @@
+package com.jack.walletservice.listener;
+
+import com.jack.common.constants.WalletConstants;
+import com.jack.common.dto.response.WalletUpdateMessageDto;
+import com.jack.walletservice.publisher.WalletUpdateResultPublisher;
+import com.jack.walletservice.service.WalletService;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(prefix = "app.wallet.update-batch", name = "enabled", havingValue = "true")
+@Log4j2
+public class WalletUpdateBatchListener {
+    private final WalletService walletService;
+    private final WalletUpdateResultPublisher walletUpdateResultPublisher;
+
+    public WalletUpdateBatchListener(WalletService walletService, WalletUpdateResultPublisher walletUpdateResultPublisher) {
+        this.walletService = walletService;
+        this.walletUpdateResultPublisher = walletUpdateResultPublisher;
+    }
+
+    // Returning normally acks the whole batch, which happens only after updateWallets has committed
+    @RabbitListener(queues = WalletConstants.WALLET_UPDATE_QUEUE, containerFactory = "walletUpdateBatchContainerFactory")
+    public void handleWalletUpdates(List<WalletUpdateMessageDto> messages) {
+        log.info("Received batch of {} wallet updates", messages.size());
+        walletUpdateResultPublisher.publish(walletService.updateWallets(messages));
+    }
+}
@@ -2,20 +2,25 @@ package com.jack.walletservice.listener;
 
 import com.jack.common.constants.WalletConstants;
 import com.jack.common.dto.response.WalletUpdateMessageDto;
+import com.jack.walletservice.exception.InsufficientFundsException;
+import com.jack.walletservice.exception.WalletNotFoundException;
+import com.jack.walletservice.publisher.WalletUpdateResultPublisher;
 import com.jack.walletservice.service.WalletService;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
-
 @Component
+@ConditionalOnProperty(prefix = "app.wallet.update-batch", name = "enabled", havingValue = "false", matchIfMissing = true)
 @Log4j2
 public class WalletUpdateListener {
     private final WalletService walletService;
+    private final WalletUpdateResultPublisher walletUpdateResultPublisher;
 
-    public WalletUpdateListener(WalletService walletService) {
+    public WalletUpdateListener(WalletService walletService, WalletUpdateResultPublisher walletUpdateResultPublisher) {
         this.walletService = walletService;
+        this.walletUpdateResultPublisher = walletUpdateResultPublisher;
     }
 
     @RabbitListener(queues = WalletConstants.WALLET_UPDATE_QUEUE)
@@ -23,18 +28,25 @@ public class WalletUpdateListener {
         log.info("Received Wallet Update for UserID: {}. USD: {}, BTC: {}", message.getUserId(), message.getUsdAmount(), message.getBtcAmount());
 
         try {
-            // Validate the incoming message before proceeding
-            if (message.getUsdAmount().compareTo(BigDecimal.ZERO) < 0 ||
-                    message.getBtcAmount().compareTo(BigDecimal.ZERO) < 0) {
-                log.error("Invalid update amounts for user ID: {}. USD: {}, BTC: {}. Amounts must be non-negative.",
+            // Amounts are signed deltas (a BUY debits USD, a SELL debits BTC); both must be present
+            if (message.getUserId() == null || message.getUsdAmount() == null || message.getBtcAmount() == null) {
+                log.error("Invalid wallet update for user ID: {}. USD: {}, BTC: {}. Amounts must be present.",
                         message.getUserId(), message.getUsdAmount(), message.getBtcAmount());
+                walletUpdateResultPublisher.publishRejected(message, "userId, usdAmount and btcAmount are required");
                 return;
             }
 
-            walletService.updateWallet(message.getUserId(), message.getUsdAmount(), message.getBtcAmount());
+            walletService.updateWallet(message.getUserId(), message.getUsdAmount(), message.getBtcAmount(), message.getEventId());
             log.info("Wallet updated successfully for user ID: {}", message.getUserId());
-        } catch (Exception e) {
-            log.error("Failed to update wallet for user ID: {}. Error: {}", message.getUserId(), e.getMessage(), e);
+        } catch (InsufficientFundsException | WalletNotFoundException e) {
+            // Nothing was applied and a retry would be refused again; the producer compensates once it hears about it.
+            // Anything else (database or broker trouble) propagates so the message is redelivered, not rejected for good.
+            log.error("Failed to update wallet for user ID: {}. Error: {}", message.getUserId(), e.getMessage());
+            walletUpdateResultPublisher.publishRejected(message, e.getMessage());
+            return;
         }
+
+        // updateWallet has committed by now; a redelivered event was applied earlier and is confirmed again
+        walletUpdateResultPublisher.publishApplied(message);
     }
 }
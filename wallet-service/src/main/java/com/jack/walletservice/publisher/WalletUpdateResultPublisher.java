@@ -0,0 +1,57 @@
+package com.jack.walletservice.publisher;
+
+import com.jack.common.constants.WalletConstants;
+import com.jack.common.dto.response.WalletUpdateMessageDto;
+import com.jack.common.dto.response.WalletUpdateResultDto;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+// Tells the producer of a wallet update whether it was applied, so it can settle or compensate its own record
+@Service
+@Log4j2
+public class WalletUpdateResultPublisher {
+    private final RabbitTemplate rabbitTemplate;
+
+    public WalletUpdateResultPublisher(RabbitTemplate rabbitTemplate) {
+        this.rabbitTemplate = rabbitTemplate;
+    }
+
+    public void publishApplied(WalletUpdateMessageDto message) {
+        publish(result(message, true, null));
+    }
+
+    public void publishRejected(WalletUpdateMessageDto message, String reason) {
+        publish(result(message, false, reason));
+    }
+
+    // Only called after the commit (or the refusal); a failed send is logged, the producer keeps its hold until a result arrives
+    public void publish(List<WalletUpdateResultDto> results) {
+        results.forEach(this::publish);
+    }
+
+    private void publish(WalletUpdateResultDto result) {
+        if (result.getEventId() == null) {
+            return;
+        }
+
+        try {
+            rabbitTemplate.convertAndSend(WalletConstants.WALLET_EXCHANGE, WalletConstants.WALLET_UPDATE_RESULT_ROUTING_KEY, result);
+            log.info("Published wallet update result for event {} (user ID: {}, applied: {})",
+                    result.getEventId(), result.getUserId(), result.isApplied());
+        } catch (Exception e) {
+            log.error("Failed to publish wallet update result for event {}: {}", result.getEventId(), e.getMessage(), e);
+        }
+    }
+
+    private static WalletUpdateResultDto result(WalletUpdateMessageDto message, boolean applied, String reason) {
+        return WalletUpdateResultDto.builder()
+                .eventId(message.getEventId())
+                .userId(message.getUserId())
+                .applied(applied)
+                .reason(reason)
+                .build();
+    }
+}
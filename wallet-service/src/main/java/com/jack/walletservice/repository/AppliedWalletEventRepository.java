@@ -0,0 +1,26 @@
+package com.jack.walletservice.repository;
+
+import com.jack.walletservice.entity.AppliedWalletEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface AppliedWalletEventRepository extends JpaRepository<AppliedWalletEvent, String> {
+    // Records the ids and returns only those not recorded before; a concurrent insert of the same id
+    // waits on the primary key until the other transaction ends, so exactly one of them gets it back
+    @Query(value = "INSERT INTO wallet_applied_event (event_id, applied_at) " +
+            "SELECT event_id, now() FROM unnest(CAST(:eventIds AS VARCHAR[])) AS event_id " +
+            "ON CONFLICT (event_id) DO NOTHING RETURNING event_id", nativeQuery = true)
+    List<String> markApplied(@Param("eventIds") String[] eventIds);
+
+    // Undo markApplied for updates that turned out to be rejected inside the same transaction
+    @Modifying
+    @Query(value = "DELETE FROM wallet_applied_event WHERE event_id IN (:eventIds)", nativeQuery = true)
+    int unmarkApplied(@Param("eventIds") Collection<String> eventIds);
+}
@@ -2,11 +2,28 @@ package com.jack.walletservice.repository;
 
 import com.jack.walletservice.entity.Wallet;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface WalletRepository extends JpaRepository<Wallet, Long> {
     Optional<Wallet> findByUserId(Long userId);
+
+    boolean existsByUserId(Long userId);
+
+    // One IN query for a batch of cache misses
+    List<Wallet> findByUserIdIn(Collection<Long> userIds);
+
+    // Apply signed deltas in one round trip; no row comes back when the wallet is missing or a balance would go negative
+    @Query(value = "UPDATE wallet SET usd_balance = usd_balance + :usdDelta, btc_balance = btc_balance + :btcDelta, " +
+            "version = version + 1 WHERE user_id = :userId " +
+            "AND usd_balance + :usdDelta >= 0 AND btc_balance + :btcDelta >= 0 RETURNING *", nativeQuery = true)
+    Optional<Wallet> applyDelta(@Param("userId") Long userId, @Param("usdDelta") BigDecimal usdDelta,
+                                @Param("btcDelta") BigDecimal btcDelta);
 }
@@ -2,16 +2,27 @@ package com.jack.walletservice.service;
 
 import com.jack.common.dto.response.WalletCreateMessageDto;
 import com.jack.common.dto.response.WalletResponseDto;
+import com.jack.common.dto.response.WalletUpdateMessageDto;
+import com.jack.common.dto.response.WalletUpdateResultDto;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 public interface WalletService {
 
     void createWallet(WalletCreateMessageDto message);
 
-    void updateWallet(Long userId, BigDecimal usdAmount, BigDecimal btcAmount);
+    // A non-null eventId is applied at most once; a redelivered event is a no-op
+    void updateWallet(Long userId, BigDecimal usdAmount, BigDecimal btcAmount, String eventId);
+
+    // Applies a batch in one commit and returns one result per message, to be published once this returns.
+    // Events applied before, in an earlier delivery or earlier in the batch, are reported as applied again.
+    List<WalletUpdateResultDto> updateWallets(List<WalletUpdateMessageDto> messages);
 
     WalletResponseDto getWalletBalance(Long userId);
 
+    // Balances for many users at once, in request order and once per user; users without a wallet are left out
+    List<WalletResponseDto> getWalletBalances(List<Long> userIds);
+
     boolean walletExists(Long userId);
 }
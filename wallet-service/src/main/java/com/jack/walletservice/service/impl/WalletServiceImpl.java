@@ -1,28 +1,54 @@
 package com.jack.walletservice.service.impl;
 
+import com.jack.common.cache.WalletBalanceNearCache;
 import com.jack.common.constants.WalletConstants;
 import com.jack.common.dto.response.WalletCreateMessageDto;
 import com.jack.common.dto.response.WalletResponseDto;
+import com.jack.common.dto.response.WalletUpdateMessageDto;
+import com.jack.common.dto.response.WalletUpdateResultDto;
 import com.jack.walletservice.entity.Wallet;
+import com.jack.walletservice.exception.InsufficientFundsException;
 import com.jack.walletservice.exception.WalletNotFoundException;
 import com.jack.walletservice.publisher.WalletBalancePublisher;
+import com.jack.walletservice.repository.AppliedWalletEventRepository;
 import com.jack.walletservice.repository.WalletRepository;
 import com.jack.walletservice.service.WalletService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 
 @Service
 @RequiredArgsConstructor
 @Log4j2
 public class WalletServiceImpl implements WalletService {
     private final WalletRepository walletRepository;
+    private final AppliedWalletEventRepository appliedWalletEventRepository;
     private final RedisTemplate<String, WalletResponseDto> redisTemplate;
     private final WalletBalancePublisher walletBalancePublisher;
+    private final WalletBalanceNearCache walletBalanceNearCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
     private final String cachePrefix = WalletConstants.WALLET_CACHE_PREFIX;
 
 
@@ -45,18 +71,18 @@ public class WalletServiceImpl implements WalletService {
 
     @Transactional
     @Override
-    public void updateWallet(Long userId, BigDecimal usdAmount, BigDecimal btcAmount) {
-        Wallet wallet = walletRepository.findByUserId(userId)
-                .orElseThrow(() -> new WalletNotFoundException("Wallet not found for user ID: " + userId));
-
+    public void updateWallet(Long userId, BigDecimal usdAmount, BigDecimal btcAmount, String eventId) {
         log.info("Updating wallet for user ID: {} | USD: {} | BTC: {}", userId, usdAmount, btcAmount);
 
-        // Update the wallet balances
-        wallet.setUsdBalance(wallet.getUsdBalance().add(usdAmount));
-        wallet.setBtcBalance(wallet.getBtcBalance().add(btcAmount));
+        // Recorded in this transaction, so a rejected update below rolls the record back with it
+        if (eventId != null && appliedWalletEventRepository.markApplied(new String[]{eventId}).isEmpty()) {
+            log.warn("Wallet update event {} for user ID {} was already applied; skipping", eventId, userId);
+            return;
+        }
 
-        // Save the updated wallet entity in the database
-        walletRepository.save(wallet);
+        // Apply the deltas atomically in the database so concurrent updates never overwrite each other
+        Wallet wallet = walletRepository.applyDelta(userId, usdAmount, btcAmount)
+                .orElseThrow(() -> rejectedUpdate(userId, usdAmount, btcAmount));
 
         // Cache the updated wallet and notify the system (e.g., via RabbitMQ)
         updateCacheAndNotify(wallet);
@@ -64,20 +90,273 @@ public class WalletServiceImpl implements WalletService {
         log.info("Wallet updated and balance published for user ID: {}", userId);
     }
 
+    // Coalesce a batch per user, apply it in one JDBC batch and one commit, then write the cache and publish once per user
+    @Override
+    public List<WalletUpdateResultDto> updateWallets(List<WalletUpdateMessageDto> messages) {
+        Map<Long, BatchDelta> deltas = new TreeMap<>(); // Sorted by user so concurrent batches lock rows in the same order
+        List<WalletUpdateResultDto> results = new ArrayList<>(messages.size());
+
+        for (WalletUpdateMessageDto message : messages) {
+            if (message.getUserId() == null || message.getUsdAmount() == null || message.getBtcAmount() == null) {
+                log.error("Skipping invalid wallet update in batch: {}", message);
+                results.add(result(message, false, "userId, usdAmount and btcAmount are required"));
+                continue;
+            }
+
+            deltas.computeIfAbsent(message.getUserId(), BatchDelta::new).add(message);
+        }
+
+        if (deltas.isEmpty()) {
+            return results;
+        }
+
+        // Results of a rolled-back attempt are discarded with it; the broker redelivers the whole batch
+        List<WalletUpdateResultDto> applyResults = new ArrayList<>(messages.size());
+        List<WalletResponseDto> balances = transactionTemplate.execute(status -> {
+            applyResults.clear();
+            return applyBatch(deltas, applyResults);
+        });
+        results.addAll(applyResults);
+
+        if (balances == null || balances.isEmpty()) {
+            return results;
+        }
+
+        // Committed at this point: one cache write for the batch and one balance event per user.
+        // Failures here must not propagate, or the broker would redeliver deltas that are already applied.
+        try {
+            Map<String, WalletResponseDto> cacheEntries = new HashMap<>();
+            balances.forEach(balance -> cacheEntries.put(cachePrefix + balance.getUserId(), balance));
+            redisTemplate.opsForValue().multiSet(cacheEntries);
+            balances.forEach(walletBalanceNearCache::publishUpdate);
+            balances.forEach(walletBalancePublisher::publishWalletBalance);
+        } catch (Exception e) {
+            log.error("Wallet update batch committed but cache/notify failed: {}", e.getMessage(), e);
+        }
+
+        log.info("Applied wallet update batch: messages={}, users={}", messages.size(), balances.size());
+        return results;
+    }
+
+    private List<WalletResponseDto> applyBatch(Map<Long, BatchDelta> deltas, List<WalletUpdateResultDto> results) {
+        List<BatchDelta> ordered = skipAppliedEvents(deltas, results);
+
+        if (ordered.isEmpty()) {
+            return List.of();
+        }
+
+        // The guard uses the lowest running balance change, so the net update succeeds exactly when every message would
+        int[] counts = jdbcTemplate.batchUpdate("UPDATE wallet SET usd_balance = usd_balance + ?, " +
+                        "btc_balance = btc_balance + ?, version = version + 1 WHERE user_id = ? " +
+                        "AND usd_balance + ? >= 0 AND btc_balance + ? >= 0",
+                ordered, ordered.size(), (ps, delta) -> {
+                    ps.setBigDecimal(1, delta.usdNet);
+                    ps.setBigDecimal(2, delta.btcNet);
+                    ps.setLong(3, delta.userId);
+                    ps.setBigDecimal(4, delta.usdLowest);
+                    ps.setBigDecimal(5, delta.btcLowest);
+                })[0];
+
+        List<Long> applied = new ArrayList<>(ordered.size());
+        List<WalletResponseDto> balances = new ArrayList<>(ordered.size());
+
+        for (int i = 0; i < ordered.size(); i++) {
+            if (counts[i] > 0) {
+                applied.add(ordered.get(i).userId);
+                ordered.get(i).messages.forEach(message -> results.add(result(message, true, null)));
+            } else {
+                // Missing wallet or an overdraft somewhere in the sequence; replay this user message by message
+                applyOneByOne(ordered.get(i), results).ifPresent(balances::add);
+            }
+        }
+
+        if (!applied.isEmpty()) {
+            // The rows are locked by this transaction, so this reads exactly the balances just written
+            balances.addAll(jdbcTemplate.query("SELECT user_id, usd_balance, btc_balance FROM wallet WHERE user_id = ANY (?)",
+                    ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", applied.toArray())),
+                    WalletServiceImpl::toBalance));
+        }
+
+        return balances;
+    }
+
+    // Records every event id of the batch and drops the messages whose id was recorded before;
+    // a user left with no message to apply drops out of the batch
+    private List<BatchDelta> skipAppliedEvents(Map<Long, BatchDelta> deltas, List<WalletUpdateResultDto> results) {
+        String[] eventIds = deltas.values().stream()
+                .flatMap(delta -> delta.messages.stream())
+                .map(WalletUpdateMessageDto::getEventId)
+                .filter(Objects::nonNull)
+                .toArray(String[]::new);
+
+        if (eventIds.length == 0) {
+            return new ArrayList<>(deltas.values());
+        }
+
+        Set<String> fresh = new HashSet<>(appliedWalletEventRepository.markApplied(eventIds));
+        List<BatchDelta> ordered = new ArrayList<>(deltas.size());
+
+        for (BatchDelta delta : deltas.values()) {
+            BatchDelta remaining = new BatchDelta(delta.userId);
+
+            for (WalletUpdateMessageDto message : delta.messages) {
+                // remove() so a second copy of the same event within this batch counts as a duplicate too
+                if (message.getEventId() == null || fresh.remove(message.getEventId())) {
+                    remaining.add(message);
+                } else {
+                    log.warn("Wallet update event {} for user ID {} was already applied; skipping", message.getEventId(), delta.userId);
+                    results.add(result(message, true, null));
+                }
+            }
+
+            if (!remaining.messages.isEmpty()) {
+                ordered.add(remaining);
+            }
+        }
+
+        return ordered;
+    }
+
+    private Optional<WalletResponseDto> applyOneByOne(BatchDelta delta, List<WalletUpdateResultDto> results) {
+        WalletResponseDto latest = null;
+        List<String> rejectedEventIds = new ArrayList<>();
+
+        for (WalletUpdateMessageDto message : delta.messages) {
+            List<WalletResponseDto> updated = jdbcTemplate.query("UPDATE wallet SET usd_balance = usd_balance + ?, " +
+                            "btc_balance = btc_balance + ?, version = version + 1 WHERE user_id = ? " +
+                            "AND usd_balance + ? >= 0 AND btc_balance + ? >= 0 " +
+                            "RETURNING user_id, usd_balance, btc_balance",
+                    WalletServiceImpl::toBalance,
+                    message.getUsdAmount(), message.getBtcAmount(), delta.userId,
+                    message.getUsdAmount(), message.getBtcAmount());
+
+            if (updated.isEmpty()) {
+                log.error("Rejected wallet update for user ID: {} | USD: {} | BTC: {} (wallet missing or insufficient funds)",
+                        delta.userId, message.getUsdAmount(), message.getBtcAmount());
+                results.add(result(message, false, "Wallet missing or insufficient funds"));
+
+                if (message.getEventId() != null) {
+                    rejectedEventIds.add(message.getEventId());
+                }
+            } else {
+                latest = updated.get(0);
+                results.add(result(message, true, null));
+            }
+        }
+
+        // Rejected events were not applied, so they must not be recorded as such
+        if (!rejectedEventIds.isEmpty()) {
+            appliedWalletEventRepository.unmarkApplied(rejectedEventIds);
+        }
+
+        return Optional.ofNullable(latest);
+    }
+
+    private static WalletResponseDto toBalance(ResultSet rs, int rowNum) throws SQLException {
+        return WalletResponseDto.builder()
+                .userId(rs.getLong("user_id"))
+                .usdBalance(rs.getBigDecimal("usd_balance"))
+                .btcBalance(rs.getBigDecimal("btc_balance"))
+                .build();
+    }
+
     @Transactional
     @Override
     public WalletResponseDto getWalletBalance(Long userId) {
+        WalletResponseDto nearBalance = walletBalanceNearCache.get(userId);
+
+        if (nearBalance != null) {
+            return nearBalance;
+        }
+
         String cacheKey = cachePrefix + userId;
+        long nearCacheStamp = walletBalanceNearCache.stamp();
         WalletResponseDto cachedBalance = redisTemplate.opsForValue().get(cacheKey);
 
         if (cachedBalance != null) {
             log.info("Cache hit for user ID: {}", userId);
+            walletBalanceNearCache.put(cachedBalance, nearCacheStamp);
             return cachedBalance;
         }
 
         Wallet wallet = walletRepository.findByUserId(userId)
                 .orElseThrow(() -> new WalletNotFoundException("Wallet not found for user ID: " + userId));
-        return updateCacheAndNotify(wallet);
+        WalletResponseDto balance = toResponse(wallet);
+
+        // SET NX and a stamped put: a balance committed while this row was read must not be replaced by it
+        redisTemplate.opsForValue().setIfAbsent(cacheKey, balance);
+        walletBalanceNearCache.put(balance, nearCacheStamp);
+        walletBalancePublisher.publishWalletBalance(balance);
+        return balance;
+    }
+
+    // Near-cache, then one MGET, then one IN query; misses are backfilled in a single pipeline
+    @Override
+    public List<WalletResponseDto> getWalletBalances(List<Long> userIds) {
+        List<Long> distinctIds = userIds.stream().filter(Objects::nonNull).distinct().toList();
+        Map<Long, WalletResponseDto> found = new HashMap<>();
+        List<Long> remoteIds = new ArrayList<>();
+        long nearCacheStamp = walletBalanceNearCache.stamp();
+
+        for (Long userId : distinctIds) {
+            WalletResponseDto nearBalance = walletBalanceNearCache.get(userId);
+
+            if (nearBalance != null) {
+                found.put(userId, nearBalance);
+            } else {
+                remoteIds.add(userId);
+            }
+        }
+
+        List<Long> missingIds = new ArrayList<>();
+
+        if (!remoteIds.isEmpty()) {
+            List<WalletResponseDto> cached = redisTemplate.opsForValue()
+                    .multiGet(remoteIds.stream().map(userId -> cachePrefix + userId).toList());
+
+            for (int i = 0; i < remoteIds.size(); i++) {
+                WalletResponseDto balance = cached != null ? cached.get(i) : null;
+
+                if (balance != null) {
+                    found.put(remoteIds.get(i), balance);
+                    walletBalanceNearCache.put(balance, nearCacheStamp);
+                } else {
+                    missingIds.add(remoteIds.get(i));
+                }
+            }
+        }
+
+        if (!missingIds.isEmpty()) {
+            List<WalletResponseDto> loaded = walletRepository.findByUserIdIn(missingIds).stream()
+                    .map(WalletServiceImpl::toResponse)
+                    .toList();
+            loaded.forEach(balance -> found.put(balance.getUserId(), balance));
+            backfillCache(loaded);
+        }
+
+        log.info("Resolved {} wallet balances: {} from Redis/near-cache, {} from the database",
+                found.size(), distinctIds.size() - missingIds.size(), missingIds.size());
+        return distinctIds.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    // SET NX so a balance written by a concurrent update is never replaced by the older row read here
+    private void backfillCache(List<WalletResponseDto> balances) {
+        if (balances.isEmpty()) {
+            return;
+        }
+
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) {
+                    balances.forEach(balance -> operations.opsForValue().setIfAbsent(cachePrefix + balance.getUserId(), balance));
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Failed to backfill {} wallet balances into Redis: {}", balances.size(), e.getMessage());
+        }
     }
 
     @Override
@@ -85,18 +364,83 @@ public class WalletServiceImpl implements WalletService {
         return walletRepository.findByUserId(userId).isPresent();
     }
 
-    private WalletResponseDto updateCacheAndNotify(Wallet wallet) {
-        WalletResponseDto walletResponseDto = WalletResponseDto.builder()
+    // Only reached when the conditional update matched no row; tell a missing wallet apart from an overdraft
+    private RuntimeException rejectedUpdate(Long userId, BigDecimal usdAmount, BigDecimal btcAmount) {
+        if (!walletRepository.existsByUserId(userId)) {
+            return new WalletNotFoundException("Wallet not found for user ID: " + userId);
+        }
+
+        return new InsufficientFundsException(String.format(
+                "Insufficient funds for user ID: %d (USD delta: %s, BTC delta: %s)", userId, usdAmount, btcAmount));
+    }
+
+    // Readers must not see (and re-cache) the new balance before it is committed, so caches and events follow the commit
+    private void updateCacheAndNotify(Wallet wallet) {
+        WalletResponseDto walletResponseDto = toResponse(wallet);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cacheAndNotify(walletResponseDto);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cacheAndNotify(walletResponseDto);
+            }
+        });
+    }
+
+    // The update is already committed; a failure here must not propagate, or the broker would redeliver it
+    private void cacheAndNotify(WalletResponseDto walletResponseDto) {
+        try {
+            redisTemplate.opsForValue().set(cachePrefix + walletResponseDto.getUserId(), walletResponseDto);
+            walletBalanceNearCache.publishUpdate(walletResponseDto);
+            log.info("Cache updated for user ID: {}", walletResponseDto.getUserId());
+            walletBalancePublisher.publishWalletBalance(walletResponseDto);
+            log.info("Balance published for user ID: {}", walletResponseDto.getUserId());
+        } catch (Exception e) {
+            log.error("Wallet update for user ID {} committed but cache/notify failed: {}",
+                    walletResponseDto.getUserId(), e.getMessage(), e);
+        }
+    }
+
+    private static WalletUpdateResultDto result(WalletUpdateMessageDto message, boolean applied, String reason) {
+        return WalletUpdateResultDto.builder()
+                .eventId(message.getEventId())
+                .userId(message.getUserId())
+                .applied(applied)
+                .reason(reason)
+                .build();
+    }
+
+    private static WalletResponseDto toResponse(Wallet wallet) {
+        return WalletResponseDto.builder()
                 .userId(wallet.getUserId())
                 .usdBalance(wallet.getUsdBalance())
                 .btcBalance(wallet.getBtcBalance())
                 .build();
+    }
+
+    // Net change of one user's messages plus the lowest point the running change reaches
+    private static final class BatchDelta {
+        private final Long userId;
+        private final List<WalletUpdateMessageDto> messages = new ArrayList<>();
+        private BigDecimal usdNet = BigDecimal.ZERO;
+        private BigDecimal btcNet = BigDecimal.ZERO;
+        private BigDecimal usdLowest = BigDecimal.ZERO;
+        private BigDecimal btcLowest = BigDecimal.ZERO;
 
-        String cacheKey = cachePrefix + wallet.getUserId();
-        redisTemplate.opsForValue().set(cacheKey, walletResponseDto);
-        log.info("Cache updated for user ID: {}", wallet.getUserId());
-        walletBalancePublisher.publishWalletBalance(walletResponseDto);
-        log.info("Balance published for user ID: {}", wallet.getUserId());
-        return walletResponseDto;
+        private BatchDelta(Long userId) {
+            this.userId = userId;
+        }
+
+        private void add(WalletUpdateMessageDto message) {
+            messages.add(message);
+            usdNet = usdNet.add(message.getUsdAmount());
+            btcNet = btcNet.add(message.getBtcAmount());
+            usdLowest = usdLowest.min(usdNet);
+            btcLowest = btcLowest.min(btcNet);
+        }
     }
 }
@@ -14,9 +14,18 @@ CREATE TABLE wallet
     user_id     INTEGER                    NOT NULL,                                  -- User ID associated with the wallet
     usd_balance DECIMAL(18, 2) DEFAULT 0.00 NOT NULL CHECK (usd_balance >= 0),         -- USD balance with 2 decimal precision, non-negative
     btc_balance DECIMAL(18, 8) DEFAULT 0.00000000 NOT NULL CHECK (btc_balance >= 0),   -- BTC balance with 8 decimal precision, non-negative
+    version     BIGINT         DEFAULT 0 NOT NULL,                                    -- Optimistic lock version, bumped by every balance update
     CONSTRAINT check_usd_balance CHECK (usd_balance >= 0),                            -- Ensure USD balance is non-negative
     CONSTRAINT check_btc_balance CHECK (btc_balance >= 0)                             -- Ensure BTC balance is non-negative
 );
 
 -- Create an index for faster lookup by user_id
 CREATE INDEX idx_user_id ON wallet (user_id);
+
+-- Producer event ids already applied, written in the same commit as the balance change so redeliveries are skipped
+DROP TABLE IF EXISTS wallet_applied_event CASCADE;
+CREATE TABLE wallet_applied_event
+(
+    event_id   VARCHAR(36) PRIMARY KEY,                      -- Outbox event id of the applied update
+    applied_at TIMESTAMP   NOT NULL DEFAULT CURRENT_TIMESTAMP -- When the update was applied
+);
@@ -0,0 +1,20 @@
+-- Lost-update stress check for WalletRepository.applyDelta, run with pgbench against walletdb.
+--
+-- Setup (one wallet with enough USD for every debit):
+--   psql -d walletdb -c "INSERT INTO wallet (user_id, usd_balance, btc_balance, version) VALUES (999999, 100000.00, 0, 0)"
+--
+-- 64 concurrent clients, 1,000 updates each, all against the same wallet:
+--   pgbench -n -c 64 -j 8 -t 1000 -f wallet_update_stress.sql walletdb
+--
+-- Verify no update was lost: 64,000 applied deltas of -1.00 USD / +0.001 BTC, and one version bump each:
+--   psql -d walletdb -c "SELECT usd_balance = 36000.00 AND btc_balance = 64.000 AND version = 64000 AS no_lost_updates
+--                        FROM wallet WHERE user_id = 999999"
+
+UPDATE wallet
+SET usd_balance = usd_balance + -1.00,
+    btc_balance = btc_balance + 0.001,
+    version     = version + 1
+WHERE user_id = 999999
+  AND usd_balance + -1.00 >= 0
+  AND btc_balance + 0.001 >= 0
+RETURNING *;
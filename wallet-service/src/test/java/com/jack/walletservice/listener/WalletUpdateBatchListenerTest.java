@@ -0,0 +1,132 @@
+package com.jack.walletservice.listener;
+
+import com.jack.common.dto.response.WalletUpdateMessageDto;
+import com.jack.common.dto.response.WalletUpdateResultDto;
+import com.jack.walletservice.config.WalletUpdateBatchConfig;
+import com.jack.walletservice.config.WalletUpdateBatchProperties;
+import com.jack.walletservice.publisher.WalletUpdateResultPublisher;
+import com.jack.walletservice.service.WalletService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WalletUpdateBatchListenerTest {
+    private static final Long USER_ID = 7L;
+
+    // Both listeners with everything they need; the property decides which of them exists
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withBean(WalletService.class, () -> mock(WalletService.class))
+            .withBean(WalletUpdateResultPublisher.class, () -> mock(WalletUpdateResultPublisher.class))
+            .withBean(SimpleRabbitListenerContainerFactoryConfigurer.class, () -> mock(SimpleRabbitListenerContainerFactoryConfigurer.class))
+            .withBean(ConnectionFactory.class, () -> mock(ConnectionFactory.class))
+            .withBean(WalletUpdateBatchProperties.class, WalletUpdateBatchProperties::new)
+            .withUserConfiguration(WalletUpdateListener.class, WalletUpdateBatchListener.class, WalletUpdateBatchConfig.class);
+
+    @Mock
+    private WalletService walletService;
+
+    @Mock
+    private WalletUpdateResultPublisher walletUpdateResultPublisher;
+
+    private WalletUpdateBatchListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new WalletUpdateBatchListener(walletService, walletUpdateResultPublisher);
+    }
+
+    @Test
+    void mixedBatchPublishesOneResultPerMessageAfterTheCommit() {
+        List<WalletUpdateMessageDto> batch = List.of(message("event-1", "-50"), message("event-2", "-500"), message("event-3", "20"));
+        when(walletService.updateWallets(batch)).thenReturn(List.of(
+                result("event-1", true, null),
+                result("event-2", false, "Insufficient funds for user ID: 7"),
+                result("event-3", true, null)));
+
+        listener.handleWalletUpdates(batch);
+
+        InOrder order = inOrder(walletService, walletUpdateResultPublisher);
+        order.verify(walletService).updateWallets(batch);
+        ArgumentCaptor<List<WalletUpdateResultDto>> published = ArgumentCaptor.captor();
+        order.verify(walletUpdateResultPublisher).publish(published.capture());
+        assertThat(published.getValue()).extracting(WalletUpdateResultDto::getEventId, WalletUpdateResultDto::isApplied)
+                .containsExactly(tuple("event-1", true), tuple("event-2", false), tuple("event-3", true));
+    }
+
+    @Test
+    void failedBatchIsRethrownSoTheWholeBatchIsRedelivered() {
+        List<WalletUpdateMessageDto> batch = List.of(message("event-1", "-50"), message("event-2", "20"));
+        when(walletService.updateWallets(batch)).thenThrow(new CannotGetJdbcConnectionException("database unavailable"));
+
+        assertThatThrownBy(() -> listener.handleWalletUpdates(batch))
+                .isInstanceOf(CannotGetJdbcConnectionException.class);
+
+        // Nothing was committed, so no producer may settle on a result
+        verifyNoInteractions(walletUpdateResultPublisher);
+    }
+
+    @Test
+    void singleMessageListenerIsTheDefault() {
+        contextRunner.run(context -> {
+            assertThat(context).hasSingleBean(WalletUpdateListener.class);
+            assertThat(context).doesNotHaveBean(WalletUpdateBatchListener.class);
+            assertThat(context).doesNotHaveBean("walletUpdateBatchContainerFactory");
+        });
+    }
+
+    @Test
+    void batchListenerAndItsContainerReplaceTheSingleListenerWhenEnabled() {
+        contextRunner.withPropertyValues("app.wallet.update-batch.enabled=true").run(context -> {
+            assertThat(context).hasSingleBean(WalletUpdateBatchListener.class);
+            assertThat(context).hasBean("walletUpdateBatchContainerFactory");
+            assertThat(context).doesNotHaveBean(WalletUpdateListener.class);
+        });
+    }
+
+    @Test
+    void explicitlyDisabledBatchKeepsTheSingleListener() {
+        contextRunner.withPropertyValues("app.wallet.update-batch.enabled=false").run(context -> {
+            assertThat(context).hasSingleBean(WalletUpdateListener.class);
+            assertThat(context).doesNotHaveBean(WalletUpdateBatchListener.class);
+        });
+    }
+
+    private static WalletUpdateMessageDto message(String eventId, String usd) {
+        return WalletUpdateMessageDto.builder()
+                .userId(USER_ID)
+                .usdAmount(new BigDecimal(usd))
+                .btcAmount(BigDecimal.ZERO)
+                .eventId(eventId)
+                .build();
+    }
+
+    private static WalletUpdateResultDto result(String eventId, boolean applied, String reason) {
+        return WalletUpdateResultDto.builder()
+                .eventId(eventId)
+                .userId(USER_ID)
+                .applied(applied)
+                .reason(reason)
+                .build();
+    }
+}
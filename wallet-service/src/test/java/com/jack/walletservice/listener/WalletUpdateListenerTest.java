@@ -0,0 +1,122 @@
+package com.jack.walletservice.listener;
+
+import com.jack.common.dto.response.WalletUpdateMessageDto;
+import com.jack.walletservice.exception.InsufficientFundsException;
+import com.jack.walletservice.exception.WalletNotFoundException;
+import com.jack.walletservice.publisher.WalletUpdateResultPublisher;
+import com.jack.walletservice.service.WalletService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class WalletUpdateListenerTest {
+    private static final Long USER_ID = 7L;
+
+    @Mock
+    private WalletService walletService;
+
+    @Mock
+    private WalletUpdateResultPublisher walletUpdateResultPublisher;
+
+    private WalletUpdateListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new WalletUpdateListener(walletService, walletUpdateResultPublisher);
+    }
+
+    @Test
+    void appliedUpdateIsConfirmedAfterTheWalletCommits() {
+        WalletUpdateMessageDto message = message(new BigDecimal("-50"));
+
+        listener.handleWalletUpdate(message);
+
+        InOrder order = inOrder(walletService, walletUpdateResultPublisher);
+        order.verify(walletService).updateWallet(USER_ID, new BigDecimal("-50"), BigDecimal.ZERO, "event-1");
+        order.verify(walletUpdateResultPublisher).publishApplied(message);
+        verify(walletUpdateResultPublisher, never()).publishRejected(any(), any());
+    }
+
+    @Test
+    void refusedUpdateIsReportedSoTheProducerCanCompensate() {
+        WalletUpdateMessageDto message = message(new BigDecimal("-500"));
+        doThrow(new InsufficientFundsException("Insufficient funds for user ID: 7"))
+                .when(walletService).updateWallet(USER_ID, new BigDecimal("-500"), BigDecimal.ZERO, "event-1");
+
+        listener.handleWalletUpdate(message);
+
+        verify(walletUpdateResultPublisher).publishRejected(eq(message), eq("Insufficient funds for user ID: 7"));
+        verify(walletUpdateResultPublisher, never()).publishApplied(any());
+    }
+
+    @Test
+    void redeliveredUpdateIsPassedWithItsEventIdAndConfirmedAgain() {
+        WalletUpdateMessageDto message = message(new BigDecimal("-50"));
+
+        listener.handleWalletUpdate(message);
+        listener.handleWalletUpdate(message);
+
+        // The service skips the second copy by its event id; the producer still hears that it was applied
+        verify(walletService, times(2)).updateWallet(USER_ID, new BigDecimal("-50"), BigDecimal.ZERO, "event-1");
+        verify(walletUpdateResultPublisher, times(2)).publishApplied(message);
+    }
+
+    @Test
+    void transientFailureIsRethrownForRedeliveryInsteadOfRejected() {
+        WalletUpdateMessageDto message = message(new BigDecimal("-50"));
+        doThrow(new CannotGetJdbcConnectionException("database unavailable"))
+                .when(walletService).updateWallet(USER_ID, new BigDecimal("-50"), BigDecimal.ZERO, "event-1");
+
+        assertThatThrownBy(() -> listener.handleWalletUpdate(message))
+                .isInstanceOf(CannotGetJdbcConnectionException.class);
+
+        verifyNoInteractions(walletUpdateResultPublisher);
+    }
+
+    @Test
+    void missingWalletIsReportedAsRejected() {
+        WalletUpdateMessageDto message = message(new BigDecimal("-50"));
+        doThrow(new WalletNotFoundException("Wallet not found for user ID: 7"))
+                .when(walletService).updateWallet(USER_ID, new BigDecimal("-50"), BigDecimal.ZERO, "event-1");
+
+        listener.handleWalletUpdate(message);
+
+        verify(walletUpdateResultPublisher).publishRejected(eq(message), eq("Wallet not found for user ID: 7"));
+    }
+
+    @Test
+    void malformedUpdateIsReportedWithoutTouchingTheWallet() {
+        WalletUpdateMessageDto message = message(null);
+
+        listener.handleWalletUpdate(message);
+
+        verifyNoInteractions(walletService);
+        verify(walletUpdateResultPublisher).publishRejected(eq(message), any());
+    }
+
+    private static WalletUpdateMessageDto message(BigDecimal usd) {
+        return WalletUpdateMessageDto.builder()
+                .userId(USER_ID)
+                .usdAmount(usd)
+                .btcAmount(BigDecimal.ZERO)
+                .eventId("event-1")
+                .build();
+    }
+}
@@ -0,0 +1,156 @@
+package com.jack.walletservice.repository;
+
+import com.jack.walletservice.entity.Wallet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Runs applyDelta against a real PostgreSQL; skipped where Docker is unavailable
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=create-drop")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WalletRepositoryTest {
+    private static final long USER_ID = 42L;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private AppliedWalletEventRepository appliedWalletEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        walletRepository.deleteAll();
+        appliedWalletEventRepository.deleteAll();
+        walletRepository.save(Wallet.builder()
+                .userId(USER_ID)
+                .usdBalance(new BigDecimal("100.00"))
+                .btcBalance(BigDecimal.ZERO)
+                .build());
+    }
+
+    @Test
+    void concurrentDebitsNeverOverdrawOrLoseAnUpdate() throws Exception {
+        int threads = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<Wallet>>> results = new ArrayList<>();
+
+        try {
+            // 32 debits of 10 USD against 100 USD: exactly ten can apply
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return transactionTemplate.execute(status ->
+                            walletRepository.applyDelta(USER_ID, new BigDecimal("-10.00"), new BigDecimal("0.001")));
+                }));
+            }
+
+            start.countDown();
+            long applied = 0;
+
+            for (Future<Optional<Wallet>> result : results) {
+                Optional<Wallet> wallet = result.get();
+
+                if (wallet.isPresent()) {
+                    applied++;
+                    assertThat(wallet.get().getUsdBalance()).isGreaterThanOrEqualTo(BigDecimal.ZERO);
+                }
+            }
+
+            Wallet wallet = walletRepository.findByUserId(USER_ID).orElseThrow();
+            assertThat(applied).isEqualTo(10);
+            assertThat(wallet.getUsdBalance()).isEqualByComparingTo("0");
+            assertThat(wallet.getBtcBalance()).isEqualByComparingTo("0.010");
+            assertThat(wallet.getVersion()).isEqualTo(10L);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void insufficientFundsReturnsNothingAndLeavesTheRowUntouched() {
+        Optional<Wallet> rejected = transactionTemplate.execute(status ->
+                walletRepository.applyDelta(USER_ID, new BigDecimal("-100.01"), BigDecimal.ZERO));
+
+        assertThat(rejected).isEmpty();
+        Wallet wallet = walletRepository.findByUserId(USER_ID).orElseThrow();
+        assertThat(wallet.getUsdBalance()).isEqualByComparingTo("100.00");
+        assertThat(wallet.getVersion()).isZero();
+    }
+
+    @Test
+    void missingWalletReturnsNothing() {
+        Optional<Wallet> missing = transactionTemplate.execute(status ->
+                walletRepository.applyDelta(USER_ID + 1, BigDecimal.ONE, BigDecimal.ZERO));
+
+        assertThat(missing).isEmpty();
+    }
+
+    @Test
+    void deltaBumpsTheVersionSoAStaleEntitySaveFails() {
+        Wallet stale = walletRepository.findByUserId(USER_ID).orElseThrow();
+
+        Wallet updated = transactionTemplate.execute(status ->
+                walletRepository.applyDelta(USER_ID, new BigDecimal("-25.00"), BigDecimal.ONE)).orElseThrow();
+        assertThat(updated.getVersion()).isEqualTo(stale.getVersion() + 1);
+        assertThat(updated.getUsdBalance()).isEqualByComparingTo("75.00");
+
+        // A full-entity save read before the delta must not overwrite it
+        stale.setUsdBalance(new BigDecimal("500.00"));
+        assertThatThrownBy(() -> walletRepository.save(stale))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(walletRepository.findByUserId(USER_ID).orElseThrow().getUsdBalance()).isEqualByComparingTo("75.00");
+    }
+
+    @Test
+    void markAppliedReturnsOnlyEventIdsNotRecordedBefore() {
+        List<String> first = transactionTemplate.execute(status ->
+                appliedWalletEventRepository.markApplied(new String[]{"event-1", "event-2"}));
+        assertThat(first).containsExactlyInAnyOrder("event-1", "event-2");
+
+        // A redelivered id is refused, and so is a second copy within one call
+        List<String> second = transactionTemplate.execute(status ->
+                appliedWalletEventRepository.markApplied(new String[]{"event-2", "event-3", "event-3"}));
+        assertThat(second).containsExactly("event-3");
+
+        transactionTemplate.executeWithoutResult(status -> appliedWalletEventRepository.unmarkApplied(List.of("event-3")));
+        assertThat(appliedWalletEventRepository.count()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,440 @@
+package com.jack.walletservice.service.impl;
+
+import com.jack.common.cache.WalletBalanceNearCache;
+import com.jack.common.constants.WalletConstants;
+import com.jack.common.dto.response.WalletResponseDto;
+import com.jack.common.dto.response.WalletUpdateMessageDto;
+import com.jack.common.dto.response.WalletUpdateResultDto;
+import com.jack.walletservice.entity.Wallet;
+import com.jack.walletservice.exception.InsufficientFundsException;
+import com.jack.walletservice.exception.WalletNotFoundException;
+import com.jack.walletservice.publisher.WalletBalancePublisher;
+import com.jack.walletservice.repository.AppliedWalletEventRepository;
+import com.jack.walletservice.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WalletServiceImplTest {
+    private static final Long USER_ID = 7L;
+    private static final String CACHE_PREFIX = WalletConstants.WALLET_CACHE_PREFIX;
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private AppliedWalletEventRepository appliedWalletEventRepository;
+
+    @Mock
+    private RedisTemplate<String, WalletResponseDto> redisTemplate;
+
+    @Mock
+    private ValueOperations<String, WalletResponseDto> valueOperations;
+
+    @Mock
+    private WalletBalancePublisher walletBalancePublisher;
+
+    @Mock
+    private WalletBalanceNearCache walletBalanceNearCache;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private WalletServiceImpl walletService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        walletService = new WalletServiceImpl(walletRepository, appliedWalletEventRepository, redisTemplate, walletBalancePublisher,
+                walletBalanceNearCache, jdbcTemplate, transactionTemplate);
+    }
+
+    @Test
+    void batchBalancesReadTheNearCacheThenOneMgetThenOneQuery() {
+        WalletResponseDto near = balance(1L, "10");
+        WalletResponseDto cached = balance(2L, "20");
+        when(walletBalanceNearCache.stamp()).thenReturn(5L);
+        when(walletBalanceNearCache.get(anyLong())).thenAnswer(invocation -> invocation.getArgument(0).equals(1L) ? near : null);
+        when(valueOperations.multiGet(List.of(CACHE_PREFIX + 2, CACHE_PREFIX + 3, CACHE_PREFIX + 4)))
+                .thenReturn(Arrays.asList(cached, null, null));
+        // User 4 has no wallet
+        when(walletRepository.findByUserIdIn(List.of(3L, 4L))).thenReturn(List.of(wallet(3L, "30")));
+
+        List<WalletResponseDto> balances = walletService.getWalletBalances(Arrays.asList(2L, 1L, null, 3L, 2L, 4L));
+
+        // Request order, each user once, users without a wallet left out
+        assertThat(balances).containsExactly(cached, near, balance(3L, "30"));
+        verify(walletBalanceNearCache).put(cached, 5L);
+
+        // Only the database read is backfilled, with SET NX in one pipeline
+        ValueOperations<String, Object> pipelined = runPipeline();
+        verify(pipelined).setIfAbsent(CACHE_PREFIX + 3, balance(3L, "30"));
+        verifyNoMoreInteractions(pipelined);
+    }
+
+    @Test
+    void batchBalancesFullyCachedNeverReachTheDatabase() {
+        when(walletBalanceNearCache.get(anyLong())).thenReturn(null);
+        when(valueOperations.multiGet(List.of(CACHE_PREFIX + 1, CACHE_PREFIX + 2)))
+                .thenReturn(List.of(balance(1L, "10"), balance(2L, "20")));
+
+        assertThat(walletService.getWalletBalances(List.of(1L, 2L, 1L))).containsExactly(balance(1L, "10"), balance(2L, "20"));
+
+        verifyNoInteractions(walletRepository);
+        verify(redisTemplate, never()).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    void batchBalancesAnsweredByTheNearCacheSkipRedis() {
+        when(walletBalanceNearCache.get(1L)).thenReturn(balance(1L, "10"));
+
+        assertThat(walletService.getWalletBalances(List.of(1L))).containsExactly(balance(1L, "10"));
+
+        verifyNoInteractions(valueOperations, walletRepository);
+    }
+
+    @Test
+    void overdraftIsRejectedWithoutTouchingCachesOrPublishing() {
+        BigDecimal usd = new BigDecimal("-50.00");
+        when(walletRepository.applyDelta(USER_ID, usd, BigDecimal.ZERO)).thenReturn(Optional.empty());
+        when(walletRepository.existsByUserId(USER_ID)).thenReturn(true);
+
+        assertThatThrownBy(() -> walletService.updateWallet(USER_ID, usd, BigDecimal.ZERO, null))
+                .isInstanceOf(InsufficientFundsException.class);
+
+        verifyNoInteractions(valueOperations, walletBalanceNearCache, walletBalancePublisher);
+    }
+
+    @Test
+    void missingWalletIsToldApartFromAnOverdraft() {
+        when(walletRepository.applyDelta(any(), any(), any())).thenReturn(Optional.empty());
+        when(walletRepository.existsByUserId(USER_ID)).thenReturn(false);
+
+        assertThatThrownBy(() -> walletService.updateWallet(USER_ID, BigDecimal.ONE, BigDecimal.ZERO, null))
+                .isInstanceOf(WalletNotFoundException.class);
+    }
+
+    @Test
+    void appliedDeltaCachesAndPublishesTheReturnedRow() {
+        Wallet updated = Wallet.builder()
+                .userId(USER_ID)
+                .usdBalance(new BigDecimal("50.00"))
+                .btcBalance(BigDecimal.ONE)
+                .version(3L)
+                .build();
+        when(walletRepository.applyDelta(USER_ID, new BigDecimal("-50.00"), BigDecimal.ONE)).thenReturn(Optional.of(updated));
+
+        walletService.updateWallet(USER_ID, new BigDecimal("-50.00"), BigDecimal.ONE, null);
+
+        WalletResponseDto expected = WalletResponseDto.builder()
+                .userId(USER_ID)
+                .usdBalance(new BigDecimal("50.00"))
+                .btcBalance(BigDecimal.ONE)
+                .build();
+        verify(valueOperations).set(any(), any());
+        verify(walletBalanceNearCache).publishUpdate(expected);
+        verify(walletBalancePublisher).publishWalletBalance(expected);
+    }
+
+    @Test
+    void cachesAndInvalidationsWaitForTheCommit() {
+        Wallet updated = Wallet.builder()
+                .userId(USER_ID)
+                .usdBalance(BigDecimal.TEN)
+                .btcBalance(BigDecimal.ZERO)
+                .version(1L)
+                .build();
+        when(walletRepository.applyDelta(USER_ID, BigDecimal.TEN, BigDecimal.ZERO)).thenReturn(Optional.of(updated));
+        TransactionSynchronizationManager.initSynchronization();
+
+        try {
+            walletService.updateWallet(USER_ID, BigDecimal.TEN, BigDecimal.ZERO, null);
+
+            // Nothing is visible to other readers until the transaction commits
+            verifyNoInteractions(valueOperations, walletBalanceNearCache, walletBalancePublisher);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            verify(walletBalanceNearCache).publishUpdate(any());
+            verify(walletBalancePublisher).publishWalletBalance(any());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void redeliveredEventIsAppliedOnce() {
+        Wallet updated = Wallet.builder()
+                .userId(USER_ID)
+                .usdBalance(BigDecimal.TEN)
+                .btcBalance(BigDecimal.ZERO)
+                .version(1L)
+                .build();
+        when(appliedWalletEventRepository.markApplied(new String[]{"event-1"}))
+                .thenReturn(List.of("event-1"))
+                .thenReturn(List.of());
+        when(walletRepository.applyDelta(USER_ID, BigDecimal.TEN, BigDecimal.ZERO)).thenReturn(Optional.of(updated));
+
+        walletService.updateWallet(USER_ID, BigDecimal.TEN, BigDecimal.ZERO, "event-1");
+        walletService.updateWallet(USER_ID, BigDecimal.TEN, BigDecimal.ZERO, "event-1");
+
+        verify(walletRepository, times(1)).applyDelta(any(), any(), any());
+        verify(walletBalancePublisher, times(1)).publishWalletBalance(any());
+    }
+
+    @Test
+    void redeliveredBatchIsAppliedOnceAndConfirmedAgain() {
+        WalletDatabase database = new WalletDatabase(USER_ID, new BigDecimal("100"));
+        database.stubOn(jdbcTemplate, transactionTemplate, appliedWalletEventRepository);
+        List<WalletUpdateMessageDto> batch = List.of(usd("-30"), usd("50"));
+
+        walletService.updateWallets(batch);
+        List<WalletUpdateResultDto> redelivered = walletService.updateWallets(batch);
+
+        assertThat(database.usd).isEqualByComparingTo("120");
+        assertThat(redelivered).extracting(WalletUpdateResultDto::getEventId, WalletUpdateResultDto::isApplied)
+                .containsExactlyInAnyOrder(tuple("event--30", true), tuple("event-50", true));
+        // Nothing was left to apply, so the second delivery ran no update at all
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @Test
+    void duplicateEventWithinOneBatchIsAppliedOnce() {
+        WalletDatabase database = new WalletDatabase(USER_ID, new BigDecimal("100"));
+        database.stubOn(jdbcTemplate, transactionTemplate, appliedWalletEventRepository);
+
+        List<WalletUpdateResultDto> results = walletService.updateWallets(List.of(usd("-30"), usd("-30")));
+
+        assertThat(database.usd).isEqualByComparingTo("70");
+        assertThat(results).extracting(WalletUpdateResultDto::isApplied).containsExactly(true, true);
+        verify(appliedWalletEventRepository, never()).unmarkApplied(any());
+    }
+
+    @Test
+    void invalidBatchMessagesAreReportedAsRejected() {
+        WalletUpdateMessageDto invalid = WalletUpdateMessageDto.builder().userId(USER_ID).eventId("event-invalid").build();
+
+        List<WalletUpdateResultDto> results = walletService.updateWallets(List.of(invalid));
+
+        assertThat(results).extracting(WalletUpdateResultDto::getEventId, WalletUpdateResultDto::isApplied)
+                .containsExactly(tuple("event-invalid", false));
+        verifyNoInteractions(jdbcTemplate, transactionTemplate);
+    }
+
+    @Test
+    void batchGuardRejectsAnOverdraftHiddenByALaterCredit() {
+        // -150 then +200 nets to +50, but the balance of 100 would go negative after the first message
+        WalletDatabase database = new WalletDatabase(USER_ID, new BigDecimal("100"));
+        database.stubOn(jdbcTemplate, transactionTemplate, appliedWalletEventRepository);
+
+        List<WalletUpdateResultDto> results = walletService.updateWallets(List.of(usd("-150"), usd("200")));
+
+        assertThat(database.usd).isEqualByComparingTo("300");
+        assertThat(database.batchGuard).isEqualByComparingTo("-150");
+        // The batch statement was refused, so each message was replayed and the debit alone was rejected
+        assertThat(database.oneByOneResults).containsExactly(false, true);
+        assertThat(results).extracting(WalletUpdateResultDto::getEventId, WalletUpdateResultDto::isApplied)
+                .containsExactly(tuple("event--150", false), tuple("event-200", true));
+        // Only the applied event stays recorded; the rejected one may be delivered and tried again
+        assertThat(database.appliedEvents).containsExactly("event-200");
+        verify(walletBalancePublisher).publishWalletBalance(WalletResponseDto.builder()
+                .userId(USER_ID).usdBalance(new BigDecimal("300")).btcBalance(BigDecimal.ZERO).build());
+    }
+
+    @Test
+    void batchGuardAppliesTheNetChangeWhenNoIntermediateBalanceIsNegative() {
+        // +50, -120, +100: lowest running change is -70, which a balance of 100 covers
+        WalletDatabase database = new WalletDatabase(USER_ID, new BigDecimal("100"));
+        database.stubOn(jdbcTemplate, transactionTemplate, appliedWalletEventRepository);
+
+        List<WalletUpdateResultDto> results = walletService.updateWallets(List.of(usd("50"), usd("-120"), usd("100")));
+
+        assertThat(database.usd).isEqualByComparingTo("130");
+        assertThat(database.batchGuard).isEqualByComparingTo("-70");
+        assertThat(database.oneByOneResults).isEmpty();
+        assertThat(results).extracting(WalletUpdateResultDto::isApplied).containsExactly(true, true, true);
+    }
+
+    @Test
+    void mixedBatchGetsOneResultPerMessage() {
+        WalletDatabase database = new WalletDatabase(USER_ID, new BigDecimal("100"));
+        database.stubOn(jdbcTemplate, transactionTemplate, appliedWalletEventRepository);
+        WalletUpdateMessageDto invalid = WalletUpdateMessageDto.builder().userId(USER_ID).eventId("event-invalid").build();
+
+        List<WalletUpdateResultDto> results = walletService.updateWallets(List.of(usd("-150"), invalid, usd("20")));
+
+        assertThat(database.usd).isEqualByComparingTo("120");
+        assertThat(results).extracting(WalletUpdateResultDto::getEventId, WalletUpdateResultDto::isApplied)
+                .containsExactlyInAnyOrder(tuple("event--150", false), tuple("event-invalid", false), tuple("event-20", true));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ValueOperations<String, Object> runPipeline() {
+        ArgumentCaptor<SessionCallback<Object>> callback = ArgumentCaptor.forClass(SessionCallback.class);
+        verify(redisTemplate).executePipelined(callback.capture());
+        RedisOperations<String, Object> operations = mock(RedisOperations.class);
+        ValueOperations<String, Object> pipelined = mock(ValueOperations.class);
+        when(operations.opsForValue()).thenReturn(pipelined);
+        callback.getValue().execute(operations);
+        return pipelined;
+    }
+
+    private static Wallet wallet(Long userId, String usd) {
+        return Wallet.builder()
+                .userId(userId)
+                .usdBalance(new BigDecimal(usd))
+                .btcBalance(BigDecimal.ZERO)
+                .build();
+    }
+
+    private static WalletResponseDto balance(Long userId, String usd) {
+        return WalletResponseDto.builder()
+                .userId(userId)
+                .usdBalance(new BigDecimal(usd))
+                .btcBalance(BigDecimal.ZERO)
+                .build();
+    }
+
+    private static WalletUpdateMessageDto usd(String amount) {
+        return WalletUpdateMessageDto.builder()
+                .userId(USER_ID)
+                .usdAmount(new BigDecimal(amount))
+                .btcAmount(BigDecimal.ZERO)
+                .eventId("event-" + amount)
+                .build();
+    }
+
+    // One wallet row behind the mocked JdbcTemplate, applying the same "balance + guard >= 0" conditions as the SQL
+    private static final class WalletDatabase {
+        private final Long userId;
+        private BigDecimal usd;
+        private BigDecimal btc = BigDecimal.ZERO;
+        private BigDecimal batchGuard;
+        private final List<Boolean> oneByOneResults = new ArrayList<>();
+        private final Set<String> appliedEvents = new HashSet<>();
+
+        private WalletDatabase(Long userId, BigDecimal usd) {
+            this.userId = userId;
+            this.usd = usd;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void stubOn(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                            AppliedWalletEventRepository appliedWalletEventRepository) {
+            when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                    invocation.<TransactionCallback<Object>>getArgument(0).doInTransaction(mock(TransactionStatus.class)));
+
+            // Primary key on event_id: only ids not recorded before come back
+            when(appliedWalletEventRepository.markApplied(any())).thenAnswer(invocation ->
+                    Arrays.stream(invocation.<String[]>getArgument(0)).filter(appliedEvents::add).toList());
+            lenient().when(appliedWalletEventRepository.unmarkApplied(any())).thenAnswer(invocation -> {
+                Collection<String> eventIds = invocation.getArgument(0);
+                eventIds.forEach(appliedEvents::remove);
+                return eventIds.size();
+            });
+
+            lenient().when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                    .thenAnswer(invocation -> {
+                        Collection<Object> deltas = invocation.getArgument(1);
+                        ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+                        int[] counts = new int[deltas.size()];
+                        int i = 0;
+
+                        for (Object delta : deltas) {
+                            Map<Integer, Object> params = bind(setter, delta);
+                            batchGuard = (BigDecimal) params.get(4);
+                            counts[i++] = apply((BigDecimal) params.get(1), (BigDecimal) params.get(2),
+                                    batchGuard, (BigDecimal) params.get(5)) ? 1 : 0;
+                        }
+
+                        return new int[][]{counts};
+                    });
+
+            lenient().when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenAnswer(invocation -> {
+                BigDecimal usdAmount = invocation.getArgument(2);
+                BigDecimal btcAmount = invocation.getArgument(3);
+                boolean applied = apply(usdAmount, btcAmount, usdAmount, btcAmount);
+                oneByOneResults.add(applied);
+                return applied ? List.of(row()) : List.of();
+            });
+
+            lenient().when(jdbcTemplate.query(anyString(), any(PreparedStatementSetter.class), any(RowMapper.class)))
+                    .thenAnswer(invocation -> List.of(row()));
+        }
+
+        private boolean apply(BigDecimal usdDelta, BigDecimal btcDelta, BigDecimal usdGuard, BigDecimal btcGuard) {
+            if (usd.add(usdGuard).signum() < 0 || btc.add(btcGuard).signum() < 0) {
+                return false;
+            }
+
+            usd = usd.add(usdDelta);
+            btc = btc.add(btcDelta);
+            return true;
+        }
+
+        private WalletResponseDto row() {
+            return WalletResponseDto.builder().userId(userId).usdBalance(usd).btcBalance(btc).build();
+        }
+
+        private static Map<Integer, Object> bind(ParameterizedPreparedStatementSetter<Object> setter, Object item) throws SQLException {
+            Map<Integer, Object> params = new HashMap<>();
+            PreparedStatement statement = mock(PreparedStatement.class);
+            doAnswer(invocation -> params.put(invocation.getArgument(0), invocation.getArgument(1)))
+                    .when(statement).setBigDecimal(anyInt(), any());
+            doAnswer(invocation -> params.put(invocation.getArgument(0), invocation.getArgument(1)))
+                    .when(statement).setLong(anyInt(), anyLong());
+            setter.setValues(statement, item);
+            return params;
+        }
+    }
+}